@@ -0,0 +1,206 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit;
+
+import com.sk89q.worldedit.Vector;
+import java.util.Random;
+
+/**
+ * Compares the PhysicsWatch chunk section bitsets with the nested map index
+ * used before (PhysicsWatchReference) for 1M tracked locations (a 100^3
+ * cuboid). Reports the add, query and remove times and the heap used by the
+ * tracked locations. The queries are random positions in and around the
+ * cuboid. Run with the plugin classes and the WorldEdit and Bukkit jars on
+ * the class path, for example:
+ * java -Xmx2g -cp build/classes:build/bench/classes:worldedit.jar:bukkit.jar
+ * org.primesoft.asyncworldedit.PhysicsWatchBench [size]
+ *
+ * @author SBPrime
+ */
+public class PhysicsWatchBench {
+
+    /**
+     * The default tracked cuboid edge size
+     */
+    private static final int DEFAULT_SIZE = 100;
+
+    /**
+     * Number of measured queries
+     */
+    private static final int QUERIES = 5000000;
+
+    /**
+     * The world name
+     */
+    private static final String WORLD = "world";
+
+    /**
+     * The tracked cuboid origin
+     */
+    private static final int ORIGIN = 1000;
+
+    /**
+     * The benchmarked index
+     */
+    private interface Index {
+
+        void add(int x, int y, int z);
+
+        void remove(int x, int y, int z);
+
+        boolean isLocked(int x, int y, int z);
+    }
+
+    public static void main(String[] args) {
+        final int size = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE;
+
+        for (int round = 0; round < 2; round++) {
+            System.out.println(round == 0 ? "Warm up:" : "Measured:");
+
+            final PhysicsWatch watch = new PhysicsWatch(null);
+            watch.enable();
+            measure("PhysicsWatch", size, new Index() {
+                @Override
+                public void add(int x, int y, int z) {
+                    watch.addLocation(WORLD, new Vector(x, y, z));
+                }
+
+                @Override
+                public void remove(int x, int y, int z) {
+                    watch.removeLocation(WORLD, new Vector(x, y, z));
+                }
+
+                @Override
+                public boolean isLocked(int x, int y, int z) {
+                    return watch.isLocked(WORLD, x, y, z);
+                }
+            });
+
+            final PhysicsWatchReference reference = new PhysicsWatchReference();
+            measure("Nested maps", size, new Index() {
+                @Override
+                public void add(int x, int y, int z) {
+                    reference.addLocation(WORLD, x, y, z);
+                }
+
+                @Override
+                public void remove(int x, int y, int z) {
+                    reference.removeLocation(WORLD, x, y, z);
+                }
+
+                @Override
+                public boolean isLocked(int x, int y, int z) {
+                    return reference.isLocked(WORLD, x, y, z);
+                }
+            });
+        }
+    }
+
+    /**
+     * Measure and print the index times
+     *
+     * @param name
+     * @param size
+     * @param index
+     */
+    private static void measure(String name, int size, Index index) {
+        final long locations = (long) size * size * size;
+
+        long memory = usedMemory();
+        long start = System.nanoTime();
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                for (int z = 0; z < size; z++) {
+                    index.add(ORIGIN + x, y, ORIGIN + z);
+                }
+            }
+        }
+        long addTime = System.nanoTime() - start;
+        memory = usedMemory() - memory;
+
+        Random random = new Random(1);
+        int hits = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            int x = ORIGIN - size / 2 + random.nextInt(size * 2);
+            int y = random.nextInt(size + 8);
+            int z = ORIGIN - size / 2 + random.nextInt(size * 2);
+            if (index.isLocked(x, y, z)) {
+                hits++;
+            }
+        }
+        long queryTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                for (int z = 0; z < size; z++) {
+                    index.remove(ORIGIN + x, y, ORIGIN + z);
+                }
+            }
+        }
+        long removeTime = System.nanoTime() - start;
+
+        System.out.println(String.format("%1$s: %2$d locations, add %3$.1f ns, query %4$.1f ns (%5$d hits), remove %6$.1f ns, %7$.1f bytes/location",
+                name, locations, addTime / (double) locations, queryTime / (double) QUERIES, hits,
+                removeTime / (double) locations, memory / (double) locations));
+    }
+
+    /**
+     * Get the used heap after forcing the garbage collection
+     *
+     * @return
+     */
+    private static long usedMemory() {
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit;
+
+import com.sk89q.worldedit.Vector;
+import java.util.Random;
+
+/**
+ * Randomized check of the PhysicsWatch index against the nested map
+ * reference. Random sequences of block and section add, remove and query
+ * operations are applied to both, the query results must be the same. The
+ * coordinates are taken from a small area around the section edges
+ * (including negative coordinates) so the blocks are locked more than once
+ * and the neighbour tests cross the sections. Run with the plugin classes
+ * and the WorldEdit and Bukkit jars on the class path, for example:
+ * java -cp build/classes:build/bench/classes:worldedit.jar:bukkit.jar
+ * org.primesoft.asyncworldedit.PhysicsWatchCheck [seeds]
+ *
+ * @author SBPrime
+ */
+public class PhysicsWatchCheck {
+
+    /**
+     * The default number of random sequences
+     */
+    private static final int DEFAULT_SEEDS = 50;
+
+    /**
+     * Number of operations in a sequence
+     */
+    private static final int OPERATIONS = 100000;
+
+    /**
+     * The tested worlds
+     */
+    private static final String[] WORLDS = new String[]{"world", "world_nether"};
+
+    public static void main(String[] args) {
+        final int seeds = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SEEDS;
+
+        int failed = 0;
+        for (int seed = 0; seed < seeds; seed++) {
+            String error = runSequence(seed);
+            if (error != null) {
+                System.out.println("[FAIL] seed " + seed + ": " + error);
+                failed++;
+            }
+        }
+
+        if (failed > 0) {
+            System.out.println(failed + " of " + seeds + " sequences failed");
+            System.exit(1);
+        }
+        System.out.println("All " + seeds + " sequences passed");
+    }
+
+    /**
+     * Run one random sequence
+     *
+     * @param seed
+     * @return the error description or null if the results are the same
+     */
+    private static String runSequence(long seed) {
+        Random random = new Random(seed);
+        PhysicsWatch watch = new PhysicsWatch(null);
+        PhysicsWatchReference reference = new PhysicsWatchReference();
+        watch.enable();
+
+        //Few sections are frozen, most of the locks are single blocks
+        final boolean useSections = seed % 2 == 1;
+        for (int i = 0; i < OPERATIONS; i++) {
+            String world = WORLDS[random.nextInt(WORLDS.length)];
+            int x = coordinate(random);
+            int y = 48 + coordinate(random);
+            int z = coordinate(random);
+            int operation = random.nextInt(100);
+
+            if (operation < 35) {
+                watch.addLocation(world, new Vector(x, y, z));
+                reference.addLocation(world, x, y, z);
+            } else if (operation < 65) {
+                watch.removeLocation(world, new Vector(x, y, z));
+                reference.removeLocation(world, x, y, z);
+            } else if (useSections && operation < 66) {
+                watch.addSection(world, x >> 4, y >> 4, z >> 4);
+                reference.addSection(world, x >> 4, y >> 4, z >> 4);
+            } else if (useSections && operation < 68) {
+                watch.removeSection(world, x >> 4, y >> 4, z >> 4);
+                reference.removeSection(world, x >> 4, y >> 4, z >> 4);
+            } else {
+                boolean expected = reference.isLocked(world, x, y, z);
+                boolean result = watch.isLocked(world, x, y, z);
+                if (expected != result) {
+                    return String.format("operation %1$d: isLocked(%2$s, %3$d, %4$d, %5$d) is %6$s, expected %7$s",
+                            i, world, x, y, z, result, expected);
+                }
+            }
+        }
+
+        //Compare the whole area at the end of the sequence
+        for (String world : WORLDS) {
+            for (int x = -34; x <= 34; x++) {
+                for (int y = 14; y <= 82; y++) {
+                    for (int z = -34; z <= 34; z++) {
+                        if (reference.isLocked(world, x, y, z) != watch.isLocked(world, x, y, z)) {
+                            return String.format("final state differs at %1$s %2$d %3$d %4$d", world, x, y, z);
+                        }
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Get a random coordinate near a section edge
+     *
+     * @param random
+     * @return
+     */
+    private static int coordinate(Random random) {
+        return (random.nextInt(5) - 2) * 16 + random.nextInt(5) - 2;
+    }
+}
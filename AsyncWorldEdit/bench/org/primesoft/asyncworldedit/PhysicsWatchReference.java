@@ -0,0 +1,240 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit;
+
+import java.util.HashMap;
+
+/**
+ * The physics watch index used before the chunk section bitsets (nested
+ * boxed hash maps behind one mutex), used as the reference for the
+ * PhysicsWatch checks and benchmarks. The frozen sections are kept in a
+ * plain reference counted map.
+ *
+ * @author SBPrime
+ */
+class PhysicsWatchReference {
+
+    /**
+     * The mutex
+     */
+    private final Object m_mutex = new Object();
+
+    /**
+     * Locked blocks
+     */
+    private final HashMap<String, HashMap<Integer, HashMap<Integer, HashMap<Integer, Integer>>>> m_locked
+            = new HashMap<String, HashMap<Integer, HashMap<Integer, HashMap<Integer, Integer>>>>();
+
+    /**
+     * The frozen sections reference count (key: world name and section
+     * coordinates)
+     */
+    private final HashMap<String, Integer> m_sections = new HashMap<String, Integer>();
+
+    /**
+     * Add locked block
+     *
+     * @param name
+     * @param x
+     * @param y
+     * @param z
+     */
+    void addLocation(String name, int x, int y, int z) {
+        synchronized (m_mutex) {
+            HashMap<Integer, HashMap<Integer, HashMap<Integer, Integer>>> xhash = m_locked.get(name);
+            if (xhash == null) {
+                xhash = new HashMap<Integer, HashMap<Integer, HashMap<Integer, Integer>>>();
+                m_locked.put(name, xhash);
+            }
+
+            HashMap<Integer, HashMap<Integer, Integer>> yhash = xhash.get(x);
+            if (yhash == null) {
+                yhash = new HashMap<Integer, HashMap<Integer, Integer>>();
+                xhash.put(x, yhash);
+            }
+
+            HashMap<Integer, Integer> zhash = yhash.get(y);
+            if (zhash == null) {
+                zhash = new HashMap<Integer, Integer>();
+                yhash.put(y, zhash);
+            }
+
+            Integer count = zhash.get(z);
+            zhash.put(z, count == null ? 1 : count + 1);
+        }
+    }
+
+    /**
+     * Remove locked block
+     *
+     * @param name
+     * @param x
+     * @param y
+     * @param z
+     */
+    void removeLocation(String name, int x, int y, int z) {
+        synchronized (m_mutex) {
+            HashMap<Integer, HashMap<Integer, HashMap<Integer, Integer>>> xhash = m_locked.get(name);
+            if (xhash == null) {
+                return;
+            }
+            HashMap<Integer, HashMap<Integer, Integer>> yhash = xhash.get(x);
+            if (yhash == null) {
+                return;
+            }
+            HashMap<Integer, Integer> zhash = yhash.get(y);
+            if (zhash == null) {
+                return;
+            }
+
+            Integer count = zhash.get(z);
+            if (count == null) {
+                return;
+            }
+
+            if (count == 1) {
+                zhash.remove(z);
+            } else {
+                zhash.put(z, count - 1);
+            }
+        }
+    }
+
+    /**
+     * Add frozen section reference
+     *
+     * @param name
+     * @param sx
+     * @param sy
+     * @param sz
+     */
+    void addSection(String name, int sx, int sy, int sz) {
+        String key = sectionKey(name, sx, sy, sz);
+        synchronized (m_mutex) {
+            Integer count = m_sections.get(key);
+            m_sections.put(key, count == null ? 1 : count + 1);
+        }
+    }
+
+    /**
+     * Remove frozen section reference
+     *
+     * @param name
+     * @param sx
+     * @param sy
+     * @param sz
+     */
+    void removeSection(String name, int sx, int sy, int sz) {
+        String key = sectionKey(name, sx, sy, sz);
+        synchronized (m_mutex) {
+            Integer count = m_sections.get(key);
+            if (count == null) {
+                return;
+            }
+
+            if (count == 1) {
+                m_sections.remove(key);
+            } else {
+                m_sections.put(key, count - 1);
+            }
+        }
+    }
+
+    /**
+     * Check if the block or any of its neighbours is locked or in a frozen
+     * section
+     *
+     * @param name
+     * @param x
+     * @param y
+     * @param z
+     * @return
+     */
+    boolean isLocked(String name, int x, int y, int z) {
+        synchronized (m_mutex) {
+            if (!m_sections.isEmpty()) {
+                for (int px = x - 1; px <= x + 1; px++) {
+                    for (int py = y - 1; py <= y + 1; py++) {
+                        for (int pz = z - 1; pz <= z + 1; pz++) {
+                            if (m_sections.containsKey(sectionKey(name, px >> 4, py >> 4, pz >> 4))) {
+                                return true;
+                            }
+                        }
+                    }
+                }
+            }
+
+            HashMap<Integer, HashMap<Integer, HashMap<Integer, Integer>>> xhash = m_locked.get(name);
+            if (xhash == null) {
+                return false;
+            }
+
+            for (int px = x - 1; px <= x + 1; px++) {
+                HashMap<Integer, HashMap<Integer, Integer>> yhash = xhash.get(px);
+                if (yhash == null) {
+                    continue;
+                }
+
+                for (int py = y - 1; py <= y + 1; py++) {
+                    HashMap<Integer, Integer> zhash = yhash.get(py);
+                    if (zhash == null) {
+                        continue;
+                    }
+
+                    for (int pz = z - 1; pz <= z + 1; pz++) {
+                        if (zhash.containsKey(pz)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Get the frozen section key
+     */
+    private static String sectionKey(String name, int sx, int sy, int sz) {
+        return name + ":" + sx + ":" + sy + ":" + sz;
+    }
+}
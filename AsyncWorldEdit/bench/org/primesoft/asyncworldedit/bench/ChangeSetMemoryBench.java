@@ -0,0 +1,145 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.bench;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.history.change.Change;
+import com.sk89q.worldedit.history.changeset.ArrayListHistory;
+import com.sk89q.worldedit.history.changeset.ChangeSet;
+import java.util.Random;
+import org.primesoft.asyncworldedit.worldedit.history.changeset.ThreadSafeChangeSet;
+
+/**
+ * Measures the heap used per block change by the thread safe change set
+ * (compact segments) and by the WorldEdit array list history (one object
+ * graph per change). Run with the plugin classes and the WorldEdit jar on
+ * the class path, for example:
+ * java -Xmx2g -cp build/classes:build/bench/classes:worldedit.jar
+ * org.primesoft.asyncworldedit.bench.ChangeSetMemoryBench [changes]
+ *
+ * @author SBPrime
+ */
+public class ChangeSetMemoryBench {
+
+    /**
+     * The default number of changes
+     */
+    private static final int DEFAULT_CHANGES = 2000000;
+
+    public static void main(String[] args) {
+        final int changes = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CHANGES;
+
+        long before = usedMemory();
+        ChangeSet compact = new ThreadSafeChangeSet(new ArrayListHistory());
+        fill(compact, changes);
+        long after = usedMemory();
+        report("ThreadSafeChangeSet", compact, before, after);
+        compact = null;
+
+        before = usedMemory();
+        ChangeSet objects = new ArrayListHistory();
+        fill(objects, changes);
+        after = usedMemory();
+        report("ArrayListHistory", objects, before, after);
+    }
+
+    /**
+     * Add random block changes to the change set (the same sequence for
+     * each change set)
+     *
+     * @param changeSet
+     * @param changes
+     */
+    private static void fill(ChangeSet changeSet, int changes) {
+        Random random = new Random(1);
+        for (int i = 0; i < changes; i++) {
+            changeSet.add(createChange(random));
+        }
+    }
+
+    /**
+     * Create a random block change without NBT data
+     *
+     * @param random
+     * @return
+     */
+    private static Change createChange(Random random) {
+        return new BlockChange(
+                new BlockVector(random.nextInt(1000), random.nextInt(256), random.nextInt(1000)),
+                new BaseBlock(random.nextInt(200), random.nextInt(16)),
+                new BaseBlock(random.nextInt(200), random.nextInt(16)));
+    }
+
+    /**
+     * Print the change set memory usage
+     *
+     * @param name
+     * @param changeSet
+     * @param before
+     * @param after
+     */
+    private static void report(String name, ChangeSet changeSet, long before, long after) {
+        System.out.println(String.format("%1$s: %2$d changes, %3$.2f bytes/change",
+                name, changeSet.size(), (after - before) / (double) changeSet.size()));
+    }
+
+    /**
+     * Get the used heap after forcing the garbage collection
+     *
+     * @return
+     */
+    private static long usedMemory() {
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
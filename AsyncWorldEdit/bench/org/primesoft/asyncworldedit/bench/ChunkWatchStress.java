@@ -0,0 +1,246 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.bench;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.primesoft.asyncworldedit.ChunkWatch;
+
+/**
+ * Stress test of the ChunkWatch reference counting. Worker threads add and
+ * remove random chunks (from a small shared area, so the same chunks are
+ * watched by several threads at once) and check that a chunk they hold is
+ * always reported as watched, so concurrent operations never release each
+ * other. Reader threads query the lock free path at the same time. When
+ * all the references are released no chunk may stay watched. Run with the
+ * plugin classes and the Bukkit jar on the class path, for example:
+ * java -cp build/classes:build/bench/classes:bukkit.jar
+ * org.primesoft.asyncworldedit.bench.ChunkWatchStress [threads] [operations]
+ *
+ * @author SBPrime
+ */
+public class ChunkWatchStress {
+
+    /**
+     * The default number of worker threads
+     */
+    private static final int DEFAULT_THREADS = 8;
+
+    /**
+     * The default number of operations per worker thread
+     */
+    private static final int DEFAULT_OPERATIONS = 2000000;
+
+    /**
+     * The chunk area size (chunks from -AREA/2 to AREA/2 - 1)
+     */
+    private static final int AREA = 32;
+
+    /**
+     * Number of reader threads
+     */
+    private static final int READERS = 2;
+
+    /**
+     * The tested worlds (null is ignored by the chunk watch)
+     */
+    private static final String[] WORLDS = new String[]{"world", "world_nether", null};
+
+    public static void main(String[] args) throws InterruptedException {
+        final int threads = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_THREADS;
+        final int operations = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_OPERATIONS;
+
+        final ChunkWatch watch = new ChunkWatch();
+        final AtomicInteger errors = new AtomicInteger();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger readerQueries = new AtomicInteger();
+
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            final long seed = i;
+            workers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    await(start);
+                    work(watch, new Random(seed), operations, errors);
+                }
+            }, "ChunkWatch worker #" + i);
+        }
+
+        Thread[] readers = new Thread[READERS];
+        for (int i = 0; i < READERS; i++) {
+            final long seed = 1000 + i;
+            readers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    await(start);
+                    Random random = new Random(seed);
+                    int queries = 0;
+                    while (running.get()) {
+                        watch.isWatched(chunk(random), chunk(random), WORLDS[random.nextInt(WORLDS.length)]);
+                        queries++;
+                    }
+                    readerQueries.addAndGet(queries);
+                }
+            }, "ChunkWatch reader #" + i);
+        }
+
+        for (Thread thread : workers) {
+            thread.start();
+        }
+        for (Thread thread : readers) {
+            thread.start();
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        for (Thread thread : workers) {
+            thread.join();
+        }
+        long time = System.nanoTime() - startTime;
+        running.set(false);
+        for (Thread thread : readers) {
+            thread.join();
+        }
+
+        for (String world : WORLDS) {
+            for (int cx = -AREA / 2; cx < AREA / 2; cx++) {
+                for (int cz = -AREA / 2; cz < AREA / 2; cz++) {
+                    if (watch.isWatched(cx, cz, world)) {
+                        errors.incrementAndGet();
+                        System.out.println("[FAIL] chunk " + cx + ", " + cz + " in " + world + " is still watched");
+                    }
+                }
+            }
+        }
+
+        System.out.println(String.format("%1$d threads, %2$d operations each, %3$.1f ns/operation per thread, %4$d reader queries",
+                threads, operations, time / (double) operations, readerQueries.get()));
+        if (errors.get() > 0) {
+            System.out.println(errors.get() + " error(s)");
+            System.exit(1);
+        }
+        System.out.println("No errors");
+    }
+
+    /**
+     * The worker thread, holds up to 16 chunk references at once
+     *
+     * @param watch
+     * @param random
+     * @param operations
+     * @param errors
+     */
+    private static void work(ChunkWatch watch, Random random, int operations, AtomicInteger errors) {
+        final int[] heldX = new int[16];
+        final int[] heldZ = new int[16];
+        final String[] heldWorld = new String[16];
+        int held = 0;
+
+        for (int i = 0; i < operations; i++) {
+            if (held < heldX.length && (held == 0 || random.nextBoolean())) {
+                int cx = chunk(random);
+                int cz = chunk(random);
+                String world = WORLDS[random.nextInt(WORLDS.length)];
+                watch.add(cx, cz, world);
+
+                heldX[held] = cx;
+                heldZ[held] = cz;
+                heldWorld[held] = world;
+                held++;
+            } else {
+                int idx = random.nextInt(held);
+                held--;
+                int cx = heldX[idx];
+                int cz = heldZ[idx];
+                String world = heldWorld[idx];
+                heldX[idx] = heldX[held];
+                heldZ[idx] = heldZ[held];
+                heldWorld[idx] = heldWorld[held];
+
+                watch.remove(cx, cz, world);
+            }
+
+            //All the held chunks must stay watched
+            if (held > 0) {
+                int idx = random.nextInt(held);
+                boolean expected = heldWorld[idx] != null;
+                if (watch.isWatched(heldX[idx], heldZ[idx], heldWorld[idx]) != expected) {
+                    if (errors.incrementAndGet() <= 10) {
+                        System.out.println("[FAIL] held chunk " + heldX[idx] + ", " + heldZ[idx]
+                                + " in " + heldWorld[idx] + " is not watched");
+                    }
+                }
+            }
+        }
+
+        while (held > 0) {
+            held--;
+            watch.remove(heldX[held], heldZ[held], heldWorld[held]);
+        }
+    }
+
+    /**
+     * Get a random chunk coordinate
+     *
+     * @param random
+     * @return
+     */
+    private static int chunk(Random random) {
+        return random.nextInt(AREA) - AREA / 2;
+    }
+
+    /**
+     * Wait for the start signal
+     *
+     * @param start
+     */
+    private static void await(CountDownLatch start) {
+        try {
+            start.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
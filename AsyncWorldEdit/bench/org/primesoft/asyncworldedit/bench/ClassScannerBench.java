@@ -0,0 +1,182 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.primesoft.asyncworldedit.injector.scanner.ClassScanner;
+
+/**
+ * Measures the ClassScanner cost per scanned operation. The operations are
+ * synthetic object graphs shaped like the WorldEdit operations: extents
+ * holding the edit session, regions, counters and metadata that can not
+ * lead to the scanned types. Run with the plugin classes and the WorldEdit
+ * and Bukkit jars on the class path, for example:
+ * java -cp build/classes:build/bench/classes:worldedit.jar:bukkit.jar
+ * org.primesoft.asyncworldedit.bench.ClassScannerBench [iterations]
+ *
+ * @author SBPrime
+ */
+public class ClassScannerBench {
+
+    /**
+     * The default number of measured scans
+     */
+    private static final int DEFAULT_ITERATIONS = 100000;
+
+    /**
+     * Number of operations in the queued operation
+     */
+    private static final int QUEUE_SIZE = 40;
+
+    /**
+     * The scanned edit session type
+     */
+    public static class Session {
+
+        private final int[] m_buffer = new int[10];
+    }
+
+    /**
+     * The scanned region type
+     */
+    public static class Area {
+
+        private final int[] m_min = new int[3];
+        private final int[] m_max = new int[3];
+    }
+
+    public interface Extent {
+    }
+
+    public static class SessionExtent implements Extent {
+
+        private final Session m_session;
+
+        SessionExtent(Session session) {
+            m_session = session;
+        }
+    }
+
+    public static final class Meta {
+
+        private final String m_name = "meta";
+        private final int m_a = 1;
+        private final long m_b = 2;
+        private final double[] m_values = new double[16];
+        private final Integer m_boxed = 5;
+    }
+
+    public static final class Counter {
+
+        private int m_count;
+        private final Meta m_meta = new Meta();
+    }
+
+    public interface Operation {
+    }
+
+    public static class CopyOperation implements Operation {
+
+        private final Extent m_source;
+        private final Extent m_destination;
+        private final Area m_region;
+        private final Counter m_affected = new Counter();
+        private final Counter m_visited = new Counter();
+        private final Meta[] m_meta = new Meta[8];
+        private final String m_label = "copy";
+
+        CopyOperation(Session session, Area region) {
+            m_source = new SessionExtent(session);
+            m_destination = m_source;
+            m_region = region;
+            for (int i = 0; i < m_meta.length; i++) {
+                m_meta[i] = new Meta();
+            }
+        }
+    }
+
+    public static class OperationQueue implements Operation {
+
+        private final List<Operation> m_operations = new ArrayList<Operation>();
+    }
+
+    public static void main(String[] args) {
+        final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+        final Class<?>[] types = new Class<?>[]{Session.class, Area.class};
+
+        Session session = new Session();
+        Area region = new Area();
+        Operation single = new CopyOperation(session, region);
+        OperationQueue queue = new OperationQueue();
+        for (int i = 0; i < QUEUE_SIZE; i++) {
+            queue.m_operations.add(new CopyOperation(session, region));
+        }
+
+        for (int i = 0; i < iterations / 5; i++) {
+            ClassScanner.scan(types, single);
+            ClassScanner.scan(types, queue);
+        }
+
+        measure("single operation", types, single, iterations);
+        measure("queue of " + QUEUE_SIZE + " operations", types, queue, Math.max(1, iterations / QUEUE_SIZE));
+    }
+
+    /**
+     * Measure and print the scan time
+     *
+     * @param name
+     * @param types
+     * @param operation
+     * @param iterations
+     */
+    private static void measure(String name, Class<?>[] types, Object operation, int iterations) {
+        int found = ClassScanner.scan(types, operation).size();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            ClassScanner.scan(types, operation);
+        }
+        long time = System.nanoTime() - start;
+
+        System.out.println(String.format("%1$s: %2$.2f us/scan, %3$d results",
+                name, time / 1e3 / iterations, found));
+    }
+}
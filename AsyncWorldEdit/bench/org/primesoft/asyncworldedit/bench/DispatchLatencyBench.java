@@ -0,0 +1,398 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.bench;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.primesoft.asyncworldedit.api.taskdispatcher.IDispatcherEntry;
+import org.primesoft.asyncworldedit.api.utils.IFunc;
+import org.primesoft.asyncworldedit.taskdispatcher.FuncEntry;
+
+/**
+ * Measures the round trip of a task dispatcher request: a worker queues a
+ * function entry and waits for the result computed by a fake main thread.
+ * The fake main thread runs one dispatcher pass per tick. Three modes are
+ * measured:
+ * legacy - the old loop, a synchronized queue, Thread.sleep(1) while the
+ * queue is empty and the worker waiting on the entry mutex until the result
+ * is not null,
+ * blocking - the concurrent queue drained without sleeping and the worker
+ * waiting on the entry future (performSafe),
+ * pipelined - like blocking but each worker keeps a batch of futures
+ * outstanding before waiting for them (performSafeAsync).
+ * Run with the plugin classes on the class path, for example:
+ * java -cp build/classes:build/bench/classes
+ * org.primesoft.asyncworldedit.bench.DispatchLatencyBench [requests] [workers]
+ * [tick ms]
+ *
+ * @author SBPrime
+ */
+public class DispatchLatencyBench {
+
+    /**
+     * The default number of requests per worker
+     */
+    private static final int DEFAULT_REQUESTS = 500;
+
+    /**
+     * The default number of worker threads
+     */
+    private static final int DEFAULT_WORKERS = 4;
+
+    /**
+     * The default tick length (ms)
+     */
+    private static final int DEFAULT_TICK = 50;
+
+    /**
+     * Maximum number of jobs in one dispatcher pass (dispatcher.max-jobs)
+     */
+    private static final int MAX_JOBS = 2000;
+
+    /**
+     * Maximum main thread time of one dispatcher pass (dispatcher.max-time)
+     */
+    private static final int MAX_TIME = 20;
+
+    /**
+     * Number of outstanding requests per worker in the pipelined mode
+     */
+    private static final int BATCH = 16;
+
+    /**
+     * Fake main thread running one dispatcher pass per tick
+     */
+    private static class MainThread extends Thread {
+
+        private final Queue<IDispatcherEntry> m_queue;
+
+        private final boolean m_legacy;
+
+        private final long m_tick;
+
+        private volatile boolean m_running = true;
+
+        MainThread(Queue<IDispatcherEntry> queue, boolean legacy, int tick) {
+            super("Fake main thread");
+            m_queue = queue;
+            m_legacy = legacy;
+            m_tick = TimeUnit.MILLISECONDS.toNanos(tick);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (m_running) {
+                long start = System.nanoTime();
+                if (m_legacy) {
+                    legacyPass(start);
+                } else {
+                    pass();
+                }
+
+                long wait = start + m_tick - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+        }
+
+        /**
+         * The current dispatcher pass, drain the queue and return
+         */
+        private void pass() {
+            for (int i = 0; i < MAX_JOBS; i++) {
+                IDispatcherEntry entry = m_queue.poll();
+                if (entry == null) {
+                    break;
+                }
+                entry.Process();
+            }
+        }
+
+        /**
+         * The old dispatcher pass, sleep while the queue is empty until the
+         * job count or time limit is reached
+         *
+         * @param start
+         */
+        private void legacyPass(long start) {
+            long maxTime = TimeUnit.MILLISECONDS.toNanos(MAX_TIME);
+            for (int i = 0; i < MAX_JOBS && System.nanoTime() - start < maxTime; i++) {
+                IDispatcherEntry entry;
+                synchronized (m_queue) {
+                    entry = m_queue.poll();
+                }
+
+                if (entry != null) {
+                    entry.Process();
+                } else {
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        void shutdown() throws InterruptedException {
+            m_running = false;
+            join();
+        }
+    }
+
+    /**
+     * The dispatched function
+     */
+    private static class Square implements IFunc<Integer> {
+
+        private final int m_value;
+
+        Square(int value) {
+            m_value = value;
+        }
+
+        @Override
+        public Integer execute() {
+            return m_value * m_value;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int requests = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_REQUESTS;
+        final int workers = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_WORKERS;
+        final int tick = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_TICK;
+
+        boolean ok = checkNullResult(tick);
+        ok &= measure("legacy", requests, workers, tick);
+        ok &= measure("blocking", requests, workers, tick);
+        ok &= measure("pipelined", requests, workers, tick);
+
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Check that a function returning null does not block the caller
+     *
+     * @param tick
+     * @return
+     * @throws Exception
+     */
+    private static boolean checkNullResult(int tick) throws Exception {
+        Queue<IDispatcherEntry> queue = new ConcurrentLinkedQueue<IDispatcherEntry>();
+        MainThread main = new MainThread(queue, false, tick);
+        main.start();
+
+        boolean ok;
+        try {
+            FuncEntry<Object> entry = new FuncEntry<Object>(new IFunc<Object>() {
+                @Override
+                public Object execute() {
+                    return null;
+                }
+            });
+            queue.add(entry);
+            ok = entry.get(10L * tick + 1000, TimeUnit.MILLISECONDS) == null;
+        } catch (java.util.concurrent.TimeoutException ex) {
+            ok = false;
+        } finally {
+            main.shutdown();
+        }
+
+        System.out.println("null result: " + (ok ? "OK" : "FAILED"));
+        return ok;
+    }
+
+    /**
+     * Measure and print the request round trip
+     *
+     * @param mode
+     * @param requests
+     * @param workers
+     * @param tick
+     * @return true if all results were correct
+     * @throws InterruptedException
+     */
+    private static boolean measure(final String mode, final int requests, int workers, int tick)
+            throws InterruptedException {
+        final boolean legacy = "legacy".equals(mode);
+        final boolean pipelined = "pipelined".equals(mode);
+        final Queue<IDispatcherEntry> queue = legacy ? new ArrayDeque<IDispatcherEntry>()
+                : new ConcurrentLinkedQueue<IDispatcherEntry>();
+        final long[][] latencies = new long[workers][requests];
+        final AtomicInteger errors = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        MainThread main = new MainThread(queue, legacy, tick);
+        Thread[] threads = new Thread[workers];
+        for (int i = 0; i < workers; i++) {
+            final long[] result = latencies[i];
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        if (pipelined) {
+                            requestPipelined(queue, result, errors);
+                        } else {
+                            requestBlocking(queue, legacy, result, errors);
+                        }
+                    } catch (Exception ex) {
+                        ex.printStackTrace();
+                        errors.incrementAndGet();
+                    }
+                }
+            }, "Worker " + i);
+            threads[i].start();
+        }
+
+        main.start();
+        long time = System.nanoTime();
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        time = System.nanoTime() - time;
+        main.shutdown();
+
+        long[] all = new long[workers * requests];
+        for (int i = 0; i < workers; i++) {
+            System.arraycopy(latencies[i], 0, all, i * requests, requests);
+        }
+        Arrays.sort(all);
+
+        System.out.println(String.format(
+                "%1$s: %2$.0f requests/s, round trip p50 %3$.2f ms, p99 %4$.2f ms, max %5$.2f ms, errors %6$d",
+                mode, all.length * 1e9 / time, percentile(all, 0.5), percentile(all, 0.99),
+                all[all.length - 1] / 1e6, errors.get()));
+        return errors.get() == 0;
+    }
+
+    /**
+     * Send one request at a time and wait for its result
+     *
+     * @param queue
+     * @param legacy
+     * @param latencies
+     * @param errors
+     * @throws Exception
+     */
+    private static void requestBlocking(Queue<IDispatcherEntry> queue, boolean legacy,
+            long[] latencies, AtomicInteger errors) throws Exception {
+        for (int i = 0; i < latencies.length; i++) {
+            long start = System.nanoTime();
+            FuncEntry<Integer> entry = new FuncEntry<Integer>(new Square(i));
+            Integer result;
+            if (legacy) {
+                final Object mutex = entry.getMutex();
+                synchronized (queue) {
+                    queue.add(entry);
+                }
+                synchronized (mutex) {
+                    while (entry.getResult() == null) {
+                        mutex.wait();
+                    }
+                }
+                result = entry.getResult();
+            } else {
+                queue.add(entry);
+                result = entry.get();
+            }
+            latencies[i] = System.nanoTime() - start;
+
+            if (result == null || result != i * i) {
+                errors.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Keep a batch of requests outstanding and wait for all of them
+     *
+     * @param queue
+     * @param latencies
+     * @param errors
+     * @throws Exception
+     */
+    @SuppressWarnings("unchecked")
+    private static void requestPipelined(Queue<IDispatcherEntry> queue,
+            long[] latencies, AtomicInteger errors) throws Exception {
+        FuncEntry<Integer>[] batch = new FuncEntry[BATCH];
+        long[] starts = new long[BATCH];
+        for (int i = 0; i < latencies.length; i += BATCH) {
+            int size = Math.min(BATCH, latencies.length - i);
+            for (int j = 0; j < size; j++) {
+                starts[j] = System.nanoTime();
+                batch[j] = new FuncEntry<Integer>(new Square(i + j));
+                queue.add(batch[j]);
+            }
+
+            for (int j = 0; j < size; j++) {
+                Integer result = batch[j].get();
+                latencies[i + j] = System.nanoTime() - starts[j];
+                if (result == null || result != (i + j) * (i + j)) {
+                    errors.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the percentile from sorted values
+     *
+     * @param sorted
+     * @param p
+     * @return the value in ms
+     */
+    private static double percentile(long[] sorted, double p) {
+        int idx = (int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)));
+        return sorted[idx] / 1e6;
+    }
+}
@@ -0,0 +1,385 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.bench;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import org.primesoft.asyncworldedit.api.configuration.IPermissionGroup;
+import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+import org.primesoft.asyncworldedit.blockPlacer.FairScheduler;
+
+/**
+ * Deterministic fairness check for the block placer FairScheduler. The
+ * scheduler is driven with fake permission groups and players and a fake
+ * processor that places the blocks in fixed size batches, so each run gives
+ * the same results. The check verifies the weighted shares, the position
+ * between runs and the leftover budget pass. Run with the plugin classes on
+ * the class path, for example:
+ * java -cp build/classes:build/bench/classes
+ * org.primesoft.asyncworldedit.bench.FairSchedulerCheck
+ *
+ * @author SBPrime
+ */
+public class FairSchedulerCheck {
+
+    /**
+     * Number of blocks placed at once by the fake processor
+     */
+    private static final int BATCH = 64;
+
+    /**
+     * The allowed share error
+     */
+    private static final double SHARE_TOLERANCE = 0.01;
+
+    /**
+     * Fake block processor, each group has a fixed amount of blocks to place
+     */
+    private static class Processor implements FairScheduler.IGroupProcessor {
+
+        /**
+         * The global blocks budget
+         */
+        private final int m_budget;
+
+        /**
+         * Number of blocks left for each group (-1 for no limit)
+         */
+        private final HashMap<IPermissionGroup, Integer> m_work;
+
+        /**
+         * Number of placed blocks for each group
+         */
+        private final HashMap<IPermissionGroup, Long> m_placed;
+
+        /**
+         * The process calls trace
+         */
+        private final StringBuilder m_trace;
+
+        /**
+         * Number of blocks placed in the current run
+         */
+        private int m_used;
+
+        Processor(int budget) {
+            m_budget = budget;
+            m_work = new HashMap<IPermissionGroup, Integer>();
+            m_placed = new HashMap<IPermissionGroup, Long>();
+            m_trace = new StringBuilder();
+        }
+
+        /**
+         * Start a new scheduler run
+         */
+        void newRun() {
+            m_used = 0;
+            m_trace.append('|');
+        }
+
+        @Override
+        public int process(FairScheduler.Group group, int maxBlocks, double share) {
+            IPermissionGroup permissionGroup = group.getPermissionGroup();
+            Integer work = m_work.get(permissionGroup);
+            int left = work == null ? -1 : work;
+            int placed = 0;
+
+            while ((maxBlocks == -1 || placed < maxBlocks) && !isExhausted() && left != 0) {
+                int batch = left == -1 ? BATCH : Math.min(BATCH, left);
+                placed += batch;
+                m_used += batch;
+                if (left != -1) {
+                    left -= batch;
+                }
+            }
+
+            if (work != null) {
+                m_work.put(permissionGroup, left);
+            }
+            Long total = m_placed.get(permissionGroup);
+            m_placed.put(permissionGroup, (total == null ? 0 : total) + placed);
+            m_trace.append(group.getWeight()).append(':').append(maxBlocks)
+                    .append('=').append(placed).append(' ');
+
+            return placed;
+        }
+
+        @Override
+        public boolean isExhausted() {
+            return m_budget != -1 && m_used >= m_budget;
+        }
+
+        long getPlaced(IPermissionGroup group) {
+            Long result = m_placed.get(group);
+            return result == null ? 0 : result;
+        }
+    }
+
+    /**
+     * Number of failed checks
+     */
+    private static int s_failed = 0;
+
+    public static void main(String[] args) {
+        checkShares();
+        checkDeterminism();
+        checkPosition();
+        checkLeftover();
+
+        if (s_failed > 0) {
+            System.out.println(s_failed + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("All checks passed");
+    }
+
+    /**
+     * The groups with unlimited work get the budget in proportion to their
+     * weights, the batch overshoot is taken from the next quantum
+     */
+    private static void checkShares() {
+        final int[] weights = new int[]{1, 2, 3};
+        final int budget = 6000;
+        final int runs = 600;
+
+        List<IPermissionGroup> groups = createGroups(weights);
+        FairScheduler scheduler = new FairScheduler();
+        scheduler.update(createPlayers(groups, 2));
+        Processor processor = new Processor(budget);
+
+        for (int i = 0; i < runs; i++) {
+            processor.newRun();
+            scheduler.run(budget, processor);
+        }
+
+        long total = 0;
+        for (IPermissionGroup group : groups) {
+            total += processor.getPlaced(group);
+        }
+        check("shares: whole budget used", total >= (long) budget * runs);
+
+        for (int i = 0; i < weights.length; i++) {
+            double share = processor.getPlaced(groups.get(i)) / (double) total;
+            double expected = weights[i] / 6.0;
+            check(String.format("shares: weight %1$d got %2$.4f, expected %3$.4f", weights[i], share, expected),
+                    Math.abs(share - expected) <= SHARE_TOLERANCE);
+        }
+    }
+
+    /**
+     * Two schedulers fed with the same input make the same process calls
+     */
+    private static void checkDeterminism() {
+        String first = traceRuns();
+        String second = traceRuns();
+        check("determinism: the same trace for the same input", first.equals(second));
+    }
+
+    /**
+     * Run the scheduler with the players joining and leaving
+     *
+     * @return the process calls trace
+     */
+    private static String traceRuns() {
+        List<IPermissionGroup> groups = createGroups(new int[]{1, 4, 2, 1});
+        List<IPlayerEntry> players = createPlayers(groups, 3);
+        FairScheduler scheduler = new FairScheduler();
+        Processor processor = new Processor(1000);
+
+        for (int i = 0; i < 200; i++) {
+            List<IPlayerEntry> active = new ArrayList<IPlayerEntry>();
+            for (int p = 0; p < players.size(); p++) {
+                if ((i + p) % 7 != 0) {
+                    active.add(players.get(p));
+                }
+            }
+
+            scheduler.update(active);
+            processor.newRun();
+            scheduler.run(1000, processor);
+        }
+
+        return processor.m_trace.toString();
+    }
+
+    /**
+     * The run ends at the group that used the global budget, the next run
+     * starts with the following group. A full round keeps the position.
+     */
+    private static void checkPosition() {
+        List<IPermissionGroup> groups = createGroups(new int[]{1, 1, 1});
+        FairScheduler scheduler = new FairScheduler();
+        scheduler.update(createPlayers(groups, 1));
+
+        Processor processor = new Processor(3 * BATCH);
+        processor.newRun();
+        scheduler.run(3 * BATCH, processor);
+        check("position: a full round keeps the position", scheduler.getPosition() == 0);
+
+        //The budget is used by the first group
+        processor = new Processor(BATCH);
+        processor.newRun();
+        scheduler.run(3 * BATCH, processor);
+        check("position: the next run starts after the exhausting group", scheduler.getPosition() == 1);
+
+        processor.newRun();
+        scheduler.run(3 * BATCH, processor);
+        check("position: the position moves with each exhausted run", scheduler.getPosition() == 2);
+
+        //A removed group does not move the position of the remaining groups
+        scheduler.update(createPlayers(groups.subList(1, 3), 1));
+        check("position: removing a processed group keeps the next group",
+                scheduler.getGroups().get(scheduler.getPosition()).getPermissionGroup() == groups.get(2));
+    }
+
+    /**
+     * The budget not used by a group that ran out of blocks is shared by the
+     * groups that used their whole allowance
+     */
+    private static void checkLeftover() {
+        List<IPermissionGroup> groups = createGroups(new int[]{1, 1, 1});
+        FairScheduler scheduler = new FairScheduler();
+        scheduler.update(createPlayers(groups, 1));
+
+        Processor processor = new Processor(3000);
+        processor.m_work.put(groups.get(0), 10);
+        processor.newRun();
+        scheduler.run(3000, processor);
+
+        long placed0 = processor.getPlaced(groups.get(0));
+        long placed1 = processor.getPlaced(groups.get(1));
+        long placed2 = processor.getPlaced(groups.get(2));
+        check("leftover: the whole budget is used", placed0 + placed1 + placed2 >= 3000);
+        check("leftover: the idle group placed its blocks", placed0 == 10);
+        check("leftover: the backlogged groups share the leftover", Math.abs(placed1 - placed2) <= BATCH);
+
+        long deficit1 = scheduler.getGroups().get(1).getDeficit();
+        long deficit2 = scheduler.getGroups().get(2).getDeficit();
+        check("leftover: the extra blocks are not taken from the next quantum",
+                deficit1 > -BATCH && deficit2 > -BATCH);
+    }
+
+    /**
+     * Report the check result
+     *
+     * @param name
+     * @param result
+     */
+    private static void check(String name, boolean result) {
+        System.out.println((result ? "[ OK ] " : "[FAIL] ") + name);
+        if (!result) {
+            s_failed++;
+        }
+    }
+
+    /**
+     * Create the fake permission groups
+     *
+     * @param weights the groups renderer weights
+     * @return
+     */
+    private static List<IPermissionGroup> createGroups(int[] weights) {
+        List<IPermissionGroup> result = new ArrayList<IPermissionGroup>();
+        for (int i = 0; i < weights.length; i++) {
+            final HashMap<String, Object> values = new HashMap<String, Object>();
+            values.put("getRendererWeight", weights[i]);
+            values.put("getName", "group" + i);
+            result.add(createFake(IPermissionGroup.class, values));
+        }
+
+        return result;
+    }
+
+    /**
+     * Create the fake players
+     *
+     * @param groups the player groups
+     * @param count number of players in each group
+     * @return
+     */
+    private static List<IPlayerEntry> createPlayers(List<IPermissionGroup> groups, int count) {
+        List<IPlayerEntry> result = new ArrayList<IPlayerEntry>();
+        for (int p = 0; p < count; p++) {
+            for (IPermissionGroup group : groups) {
+                final HashMap<String, Object> values = new HashMap<String, Object>();
+                values.put("getPermissionGroup", group);
+                values.put("getName", group + "-player" + p);
+                result.add(createFake(IPlayerEntry.class, values));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Create the fake interface instance, the methods return the given
+     * values (identity equals and hash code)
+     *
+     * @param <T>
+     * @param type
+     * @param values the method results (by method name)
+     * @return
+     */
+    private static <T> T createFake(Class<T> type, final HashMap<String, Object> values) {
+        return type.cast(Proxy.newProxyInstance(FairSchedulerCheck.class.getClassLoader(),
+                new Class<?>[]{type}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if ("equals".equals(name)) {
+                            return proxy == args[0];
+                        }
+                        if ("hashCode".equals(name)) {
+                            return System.identityHashCode(proxy);
+                        }
+                        if ("toString".equals(name)) {
+                            return String.valueOf(values.get("getName"));
+                        }
+
+                        return values.get(name);
+                    }
+                }));
+    }
+}
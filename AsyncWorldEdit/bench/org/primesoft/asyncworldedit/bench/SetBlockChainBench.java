@@ -0,0 +1,311 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.bench;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+import org.primesoft.asyncworldedit.worldedit.IAsyncWrapper;
+import org.primesoft.asyncworldedit.worldedit.JobContext;
+import org.primesoft.asyncworldedit.worldedit.VectorWrapper;
+import org.primesoft.asyncworldedit.worldedit.blocks.BaseBlockWrapper;
+import org.primesoft.asyncworldedit.worldedit.world.DataAsyncParams;
+
+/**
+ * Measures the time and the heap allocated per block when the job
+ * parameters are passed down a setBlock extent chain. The old mode wraps
+ * the vector and the block (the wrappers are re-created by each layer that
+ * derives a new vector) and extracts them in the world. The new mode enters
+ * the thread job context once per block, like the thread safe edit session
+ * does when the block queue is disabled. The terminal layer resolves the
+ * parameters the same way as AsyncWorld.doSetBlock. Both modes share the
+ * layer call sites, so run each mode in its own JVM for numbers that are not
+ * skewed by the other mode's profile. Run with the plugin classes and the
+ * WorldEdit jar on the class path, for example:
+ * java -cp build/classes:build/bench/classes:worldedit.jar
+ * org.primesoft.asyncworldedit.bench.SetBlockChainBench [blocks] [layers]
+ * [wrapped|context|both]
+ *
+ * @author SBPrime
+ */
+public class SetBlockChainBench {
+
+    /**
+     * The default number of measured blocks
+     */
+    private static final int DEFAULT_BLOCKS = 5000000;
+
+    /**
+     * The default number of pass through layers
+     */
+    private static final int DEFAULT_LAYERS = 6;
+
+    /**
+     * Number of distinct positions
+     */
+    private static final int POSITIONS = 4096;
+
+    /**
+     * The job ID
+     */
+    private static final int JOB_ID = 42;
+
+    /**
+     * Simplified extent
+     */
+    private interface Layer {
+
+        boolean setBlock(Vector position, BaseBlock block);
+    }
+
+    /**
+     * Layer that passes the block to the next layer
+     */
+    private static class PassLayer implements Layer {
+
+        private final Layer m_next;
+
+        PassLayer(Layer next) {
+            m_next = next;
+        }
+
+        @Override
+        public boolean setBlock(Vector position, BaseBlock block) {
+            return m_next.setBlock(position, block);
+        }
+    }
+
+    /**
+     * Layer that derives a new position (like the transform extents)
+     */
+    private static class OffsetLayer implements Layer {
+
+        private final Layer m_next;
+
+        OffsetLayer(Layer next) {
+            m_next = next;
+        }
+
+        @Override
+        public boolean setBlock(Vector position, BaseBlock block) {
+            return m_next.setBlock(position.add(0, 0, 1), block);
+        }
+    }
+
+    /**
+     * The world layer, resolves the job parameters like AsyncWorld.doSetBlock
+     */
+    private static class WorldLayer implements Layer {
+
+        /**
+         * Number of blocks with wrong job parameters
+         */
+        private long m_errors;
+
+        /**
+         * Sum of the block positions, keeps the JIT from removing the chain
+         */
+        private long m_checksum;
+
+        @Override
+        public boolean setBlock(Vector position, BaseBlock block) {
+            final BaseBlock newBlock;
+            final Vector v;
+            final IPlayerEntry player;
+            final boolean isAsync;
+            final int jobId;
+
+            JobContext context = null;
+            if (!(position instanceof IAsyncWrapper) && !(block instanceof IAsyncWrapper)) {
+                context = JobContext.current();
+            }
+
+            if (context != null) {
+                newBlock = block;
+                v = position;
+                player = context.getPlayer();
+                isAsync = context.isAsync();
+                jobId = context.getJobId();
+            } else {
+                final DataAsyncParams<BaseBlock> paramBlock = DataAsyncParams.extract(block);
+                final DataAsyncParams<Vector> paramVector = DataAsyncParams.extract(position);
+
+                newBlock = paramBlock.getData();
+                v = paramVector.getData();
+                player = paramBlock.getPlayer() != null ? paramBlock.getPlayer() : paramVector.getPlayer();
+                isAsync = paramBlock.isAsync() || paramVector.isAsync();
+                jobId = paramBlock.getJobId();
+            }
+
+            if (jobId != JOB_ID || !isAsync || player != null
+                    || v instanceof IAsyncWrapper || newBlock instanceof IAsyncWrapper) {
+                m_errors++;
+            }
+            m_checksum += v.getBlockX() + v.getBlockY() + v.getBlockZ() + newBlock.getId();
+            return true;
+        }
+    }
+
+    public static void main(String[] args) {
+        final int blocks = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_BLOCKS;
+        final int layers = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_LAYERS;
+        final String mode = args.length > 2 ? args[2] : "both";
+        final boolean wrapped = !"context".equals(mode);
+        final boolean context = !"wrapped".equals(mode);
+
+        WorldLayer world = new WorldLayer();
+        Layer chain = world;
+        for (int i = 0; i < layers; i++) {
+            chain = new PassLayer(chain);
+            if (i == layers / 2) {
+                chain = new OffsetLayer(chain);
+            }
+        }
+
+        Vector[] positions = new Vector[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            positions[i] = new BlockVector(i & 15, (i >> 4) & 255, i >> 12);
+        }
+        BaseBlock block = new BaseBlock(1);
+
+        for (int i = 0; i < 5; i++) {
+            if (wrapped) {
+                runWrapped(chain, positions, block, blocks / 5);
+            }
+            if (context) {
+                runContext(chain, positions, block, blocks / 5);
+            }
+        }
+
+        if (wrapped) {
+            measure("wrapped parameters", true, chain, positions, block, blocks);
+        }
+        if (context) {
+            measure("thread job context", false, chain, positions, block, blocks);
+        }
+
+        System.out.println(String.format("Errors: %1$d, checksum: %2$d",
+                world.m_errors, world.m_checksum));
+        if (world.m_errors != 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Measure and print the time and allocation per block
+     *
+     * @param name
+     * @param wrapped
+     * @param chain
+     * @param positions
+     * @param block
+     * @param blocks
+     */
+    private static void measure(String name, boolean wrapped, Layer chain,
+            Vector[] positions, BaseBlock block, int blocks) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        if (wrapped) {
+            runWrapped(chain, positions, block, blocks);
+        } else {
+            runContext(chain, positions, block, blocks);
+        }
+        long time = System.nanoTime() - start;
+        long bytes = allocatedBytes() - allocated;
+
+        System.out.println(String.format("%1$s: %2$.1f ns/block, %3$s",
+                name, (double) time / blocks,
+                allocated < 0 ? "allocation not available"
+                : String.format("%1$.1f bytes/block", (double) bytes / blocks)));
+    }
+
+    /**
+     * Pass the job parameters using the vector and block wrappers
+     *
+     * @param chain
+     * @param positions
+     * @param block
+     * @param blocks
+     */
+    private static void runWrapped(Layer chain, Vector[] positions, BaseBlock block, int blocks) {
+        for (int i = 0; i < blocks; i++) {
+            chain.setBlock(VectorWrapper.wrap(positions[i & (POSITIONS - 1)], JOB_ID, true, null),
+                    BaseBlockWrapper.wrap(block, JOB_ID, true, null));
+        }
+    }
+
+    /**
+     * Pass the job parameters using the thread job context
+     *
+     * @param chain
+     * @param positions
+     * @param block
+     * @param blocks
+     */
+    private static void runContext(Layer chain, Vector[] positions, BaseBlock block, int blocks) {
+        for (int i = 0; i < blocks; i++) {
+            JobContext context = JobContext.enter(JOB_ID, true, null);
+            try {
+                chain.setBlock(positions[i & (POSITIONS - 1)], block);
+            } finally {
+                context.exit();
+            }
+        }
+    }
+
+    /**
+     * Get the number of bytes allocated by the current thread
+     *
+     * @return the allocated bytes or -1 if not supported by the JVM
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+
+        return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(
+                Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.bench;
+
+import java.util.concurrent.Callable;
+import org.primesoft.asyncworldedit.bench.sk89q.ClipboardCommands;
+import org.primesoft.asyncworldedit.bench.sk89q.CommandDispatcher;
+import org.primesoft.asyncworldedit.injector.validators.StackValidator;
+import org.primesoft.asyncworldedit.utils.InOutParam;
+
+/**
+ * Measures the StackValidator cost on deep synthetic WorldEdit stacks. The
+ * stack is made of command dispatcher frames, the white listed paste frame
+ * and an operation processor frame (counted by the validator). Run with the
+ * plugin classes on the class path, for example:
+ * java -cp build/classes:build/bench/classes
+ * org.primesoft.asyncworldedit.bench.StackValidatorBench [iterations]
+ *
+ * @author SBPrime
+ */
+public class StackValidatorBench {
+
+    /**
+     * The default number of measured validations per stack depth
+     */
+    private static final int DEFAULT_ITERATIONS = 20000;
+
+    /**
+     * The measured dispatcher depths
+     */
+    private static final int[] DEPTHS = new int[]{20, 100, 300};
+
+    /**
+     * Stand in for the operation processor frame, the class name matches the
+     * StackValidator count pattern
+     */
+    private static class AsyncOperationProcessorFrame {
+
+        static boolean process(Callable<Boolean> action) throws Exception {
+            return action.call();
+        }
+    }
+
+    /**
+     * Validate the current stack
+     */
+    private static final Callable<Boolean> s_validate = new Callable<Boolean>() {
+        @Override
+        public Boolean call() {
+            InOutParam<String> methodName = InOutParam.Out();
+            return StackValidator.isVaild(methodName);
+        }
+    };
+
+    public static void main(String[] args) throws Exception {
+        final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+
+        System.out.println(String.format("white listed: %1$s, nested processor: %2$s, no match: %3$s",
+                run(DEPTHS[0], 1), run(DEPTHS[0], 2),
+                CommandDispatcher.dispatch(DEPTHS[0], s_validate)));
+
+        for (int depth : DEPTHS) {
+            for (int i = 0; i < iterations; i++) {
+                run(depth, 1);
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                run(depth, 1);
+            }
+            long time = System.nanoTime() - start;
+
+            System.out.println(String.format("%1$d dispatcher frames: %2$.2f us/validation",
+                    depth, time / 1e3 / iterations));
+        }
+    }
+
+    /**
+     * Validate the stack made of the dispatcher frames, the paste command
+     * and the operation processor frames
+     *
+     * @param depth number of dispatcher frames
+     * @param processors number of operation processor frames
+     * @return the validation result
+     * @throws Exception
+     */
+    private static boolean run(int depth, final int processors) throws Exception {
+        return CommandDispatcher.dispatch(depth, new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return ClipboardCommands.paste(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        return process(processors);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Call the validation below the given number of processor frames
+     *
+     * @param processors
+     * @return
+     * @throws Exception
+     */
+    private static boolean process(final int processors) throws Exception {
+        if (processors <= 0) {
+            return s_validate.call();
+        }
+
+        return AsyncOperationProcessorFrame.process(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return process(processors - 1);
+            }
+        });
+    }
+}
@@ -0,0 +1,417 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.blockPlacer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacer;
+import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacerEntry;
+import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+
+/**
+ * Measures the lock contention between the block producers (async WorldEdit
+ * threads, one player each) and the block placer consumer. The producers and
+ * the consumer follow the BlockPlacer addTasks and fetchBlocks protocol on
+ * real BlockPlacerPlayer entries, including the consumer removing drained
+ * players and the producers retrying on a removed entry. Two modes are
+ * measured:
+ * global - the old layout, a single mutex guarding the player map and all
+ * the queues,
+ * per-player - the current layout, a concurrent player map and the player
+ * queue as its own lock.
+ * The producer throughput and the time producers spent blocked on monitors
+ * are printed. The bench exits with 1 if any entry is lost or the queue
+ * sizes do not return to zero. Run with the plugin classes and the WorldEdit
+ * and Bukkit jars on the class path, for example:
+ * java -cp build/classes:build/bench/classes:worldedit.jar:bukkit.jar
+ * org.primesoft.asyncworldedit.blockPlacer.BlockPlacerContentionBench
+ * [producers] [entries]
+ *
+ * @author SBPrime
+ */
+public class BlockPlacerContentionBench {
+
+    /**
+     * The default number of producer threads (players)
+     */
+    private static final int DEFAULT_PRODUCERS = 8;
+
+    /**
+     * The default number of entries queued by each producer
+     */
+    private static final int DEFAULT_ENTRIES = 2000000;
+
+    /**
+     * The queued entry
+     */
+    private static class Entry implements IBlockPlacerEntry {
+
+        private final int m_jobId;
+
+        Entry(int jobId) {
+            m_jobId = jobId;
+        }
+
+        @Override
+        public int getJobId() {
+            return m_jobId;
+        }
+
+        @Override
+        public boolean isDemanding() {
+            return false;
+        }
+
+        @Override
+        public boolean process(IBlockPlacer bp) {
+            return true;
+        }
+    }
+
+    /**
+     * The queues shared by the producers and the consumer
+     */
+    private static class Queues {
+
+        /**
+         * The global mutex, null in the per-player mode
+         */
+        private final Object m_mutex;
+
+        /**
+         * The player queues
+         */
+        private final Map<IPlayerEntry, BlockPlacerPlayer> m_blocks;
+
+        /**
+         * Number of blocks in all the player queues
+         */
+        private final AtomicInteger m_queueSize = new AtomicInteger();
+
+        Queues(boolean global) {
+            m_mutex = global ? new Object() : null;
+            m_blocks = global ? new HashMap<IPlayerEntry, BlockPlacerPlayer>()
+                    : new ConcurrentHashMap<IPlayerEntry, BlockPlacerPlayer>();
+        }
+
+        /**
+         * Queue the entry (BlockPlacer.addTasks)
+         *
+         * @param player
+         * @param entry
+         */
+        void add(IPlayerEntry player, IBlockPlacerEntry entry) {
+            if (m_mutex != null) {
+                synchronized (m_mutex) {
+                    BlockPlacerPlayer playerEntry = m_blocks.get(player);
+                    if (playerEntry == null) {
+                        playerEntry = new BlockPlacerPlayer(player, null);
+                        m_blocks.put(player, playerEntry);
+                    }
+                    playerEntry.getQueue().add(entry);
+                    playerEntry.updateQueueSize(1);
+                    m_queueSize.incrementAndGet();
+                }
+                return;
+            }
+
+            ConcurrentMap<IPlayerEntry, BlockPlacerPlayer> blocks
+                    = (ConcurrentMap<IPlayerEntry, BlockPlacerPlayer>) m_blocks;
+            while (true) {
+                BlockPlacerPlayer playerEntry = blocks.get(player);
+                if (playerEntry == null) {
+                    BlockPlacerPlayer newEntry = new BlockPlacerPlayer(player, null);
+                    playerEntry = blocks.putIfAbsent(player, newEntry);
+                    if (playerEntry == null) {
+                        playerEntry = newEntry;
+                    }
+                }
+
+                Queue<IBlockPlacerEntry> queue = playerEntry.getQueue();
+                synchronized (queue) {
+                    if (playerEntry.isRemoved()) {
+                        continue;
+                    }
+                    queue.add(entry);
+                    playerEntry.updateQueueSize(1);
+                    m_queueSize.incrementAndGet();
+                }
+                return;
+            }
+        }
+
+        /**
+         * Take the next entry of the player (BlockPlacer.fetchBlocks)
+         *
+         * @param player
+         * @return
+         */
+        IBlockPlacerEntry fetch(IPlayerEntry player) {
+            if (m_mutex != null) {
+                synchronized (m_mutex) {
+                    return poll(player);
+                }
+            }
+
+            return poll(player);
+        }
+
+        /**
+         * Poll the player queue, the drained player entry is removed
+         *
+         * @param player
+         * @return
+         */
+        private IBlockPlacerEntry poll(IPlayerEntry player) {
+            BlockPlacerPlayer playerEntry = m_blocks.get(player);
+            if (playerEntry == null) {
+                return null;
+            }
+
+            Queue<IBlockPlacerEntry> queue = playerEntry.getQueue();
+            synchronized (queue) {
+                IBlockPlacerEntry entry = queue.poll();
+                if (entry != null) {
+                    playerEntry.updateQueueSize(-1);
+                    m_queueSize.decrementAndGet();
+                }
+
+                if (queue.isEmpty() && !playerEntry.hasJobs()) {
+                    playerEntry.setRemoved();
+                    if (m_mutex != null) {
+                        m_blocks.remove(player);
+                    } else {
+                        ((ConcurrentMap<IPlayerEntry, BlockPlacerPlayer>) m_blocks).remove(player, playerEntry);
+                    }
+                }
+                return entry;
+            }
+        }
+
+        /**
+         * Check that all the queues are empty
+         *
+         * @return
+         */
+        boolean isEmpty() {
+            for (BlockPlacerPlayer playerEntry : m_blocks.values()) {
+                if (playerEntry.getQueueSize() != 0 || !playerEntry.getQueue().isEmpty()) {
+                    return false;
+                }
+            }
+            return m_queueSize.get() == 0;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final int producers = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PRODUCERS;
+        final int entries = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ENTRIES;
+
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean.isThreadContentionMonitoringSupported()) {
+            bean.setThreadContentionMonitoringEnabled(true);
+        }
+
+        IPlayerEntry[] players = new IPlayerEntry[producers];
+        for (int i = 0; i < producers; i++) {
+            players[i] = createPlayer("player" + i);
+        }
+
+        boolean ok = true;
+        for (int i = 0; i < 2; i++) {
+            ok &= measure("global", bean, true, players, entries / 10, false);
+            ok &= measure("per-player", bean, false, players, entries / 10, false);
+        }
+        ok &= measure("global", bean, true, players, entries, true);
+        ok &= measure("per-player", bean, false, players, entries, true);
+
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Run the producers and the consumer
+     *
+     * @param name
+     * @param bean
+     * @param global
+     * @param players
+     * @param entries
+     * @param print
+     * @return true if all entries were consumed
+     * @throws InterruptedException
+     */
+    private static boolean measure(String name, final ThreadMXBean bean, boolean global,
+            final IPlayerEntry[] players, final int entries, boolean print)
+            throws InterruptedException {
+        final Queues queues = new Queues(global);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger running = new AtomicInteger(players.length);
+        final long[] consumed = new long[1];
+        final long[] blockedCounts = new long[players.length];
+        final long[] blockedTimes = new long[players.length];
+
+        Thread[] producers = new Thread[players.length];
+        for (int i = 0; i < players.length; i++) {
+            final IPlayerEntry player = players[i];
+            final int idx = i;
+            producers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    await(start);
+                    for (int j = 0; j < entries; j++) {
+                        queues.add(player, new Entry(j));
+                    }
+                    running.decrementAndGet();
+
+                    ThreadInfo info = bean.getThreadInfo(Thread.currentThread().getId());
+                    if (info != null) {
+                        blockedCounts[idx] = info.getBlockedCount();
+                        blockedTimes[idx] = info.getBlockedTime();
+                    }
+                }
+            }, "Producer " + i);
+            producers[i].start();
+        }
+
+        Thread consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                await(start);
+                long count = 0;
+                int pos = 0;
+                int empty = 0;
+                //Stop after a full pass without entries once the producers are done
+                while (empty < players.length) {
+                    boolean producing = running.get() > 0;
+                    if (queues.fetch(players[pos]) != null) {
+                        count++;
+                        empty = 0;
+                    } else if (!producing) {
+                        empty++;
+                    }
+                    pos = (pos + 1) % players.length;
+                }
+                consumed[0] = count;
+            }
+        }, "Consumer");
+        consumer.start();
+
+        long time = System.nanoTime();
+        start.countDown();
+        for (Thread t : producers) {
+            t.join();
+        }
+        long produceTime = System.nanoTime() - time;
+        consumer.join();
+        time = System.nanoTime() - time;
+
+        long blockedCount = 0;
+        long blockedTime = 0;
+        for (int i = 0; i < players.length; i++) {
+            blockedCount += blockedCounts[i];
+            blockedTime += blockedTimes[i];
+        }
+
+        long total = (long) players.length * entries;
+        boolean ok = consumed[0] == total && queues.isEmpty();
+        if (print) {
+            System.out.println(String.format(
+                    "%1$s: produce %2$.0f entries/s, drain %3$.0f ms, producers blocked %4$d times, %5$s, %6$s",
+                    name, total * 1e9 / produceTime, time / 1e6, blockedCount,
+                    bean.isThreadContentionMonitoringEnabled() ? blockedTime + " ms" : "time not available",
+                    ok ? "OK" : "FAILED (" + consumed[0] + " of " + total + ")"));
+        }
+        return ok;
+    }
+
+    /**
+     * Create the fake player (identity equals and hash code)
+     *
+     * @param name
+     * @return
+     */
+    private static IPlayerEntry createPlayer(final String name) {
+        return (IPlayerEntry) Proxy.newProxyInstance(BlockPlacerContentionBench.class.getClassLoader(),
+                new Class<?>[]{IPlayerEntry.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String methodName = method.getName();
+                        if ("equals".equals(methodName)) {
+                            return proxy == args[0];
+                        }
+                        if ("hashCode".equals(methodName)) {
+                            return System.identityHashCode(proxy);
+                        }
+                        if ("toString".equals(methodName)) {
+                            return name;
+                        }
+
+                        return null;
+                    }
+                });
+    }
+
+    /**
+     * Wait for the start signal
+     *
+     * @param start
+     */
+    private static void await(CountDownLatch start) {
+        try {
+            start.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
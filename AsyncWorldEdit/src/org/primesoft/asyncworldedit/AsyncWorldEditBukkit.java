@@ -60,36 +60,42 @@ import org.primesoft.asyncworldedit.api.IAweOperations;
 import org.primesoft.asyncworldedit.api.IPhysicsWatch;
 import org.primesoft.asyncworldedit.api.IPlotMeFix;
 import org.primesoft.asyncworldedit.api.IWorld;
-import org.primesoft.asyncworldedit.api.IWorldeditIntegrator;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacer;
-import org.primesoft.asyncworldedit.api.changesetSerializer.ISerializerManager;
 import org.primesoft.asyncworldedit.api.directChunk.IDirectChunkAPI;
 import org.primesoft.asyncworldedit.api.directChunk.IDirectChunkCommands;
 import org.primesoft.asyncworldedit.api.map.IMapUtils;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerManager;
 import org.primesoft.asyncworldedit.api.progressDisplay.IProgressDisplayManager;
+import org.primesoft.asyncworldedit.api.stats.IStatsManager;
 import org.primesoft.asyncworldedit.api.taskdispatcher.ITaskDispatcher;
 import org.primesoft.asyncworldedit.blockPlacer.BlockPlacer;
+import org.primesoft.asyncworldedit.changesetSerializer.SerializerManager;
+import org.primesoft.asyncworldedit.commands.BudgetCommand;
 import org.primesoft.asyncworldedit.commands.CancelCommand;
 import org.primesoft.asyncworldedit.commands.Commands;
 import org.primesoft.asyncworldedit.commands.JobsCommand;
 import org.primesoft.asyncworldedit.commands.PurgeCommand;
+import org.primesoft.asyncworldedit.commands.StatsCommand;
 import org.primesoft.asyncworldedit.commands.ToggleCommand;
 import org.primesoft.asyncworldedit.configuration.ConfigProvider;
 import org.primesoft.asyncworldedit.injector.InjectorBukkit;
 import org.primesoft.asyncworldedit.injector.async.AsyncClassFactory;
 import org.primesoft.asyncworldedit.injector.core.InjectorCore;
+import org.primesoft.asyncworldedit.injector.scanner.ClassScanner;
 import org.primesoft.asyncworldedit.mcstats.MetricsLite;
 import org.primesoft.asyncworldedit.permissions.Permission;
 import org.primesoft.asyncworldedit.platform.bukkit.BukkitWorld;
 import org.primesoft.asyncworldedit.playerManager.PlayerManager;
 import org.primesoft.asyncworldedit.plotme.NullFix;
 import org.primesoft.asyncworldedit.progressDisplay.ProgressDisplayManager;
+import org.primesoft.asyncworldedit.stats.StatsManager;
 import org.primesoft.asyncworldedit.strings.MessageProvider;
 import org.primesoft.asyncworldedit.strings.MessageType;
 import org.primesoft.asyncworldedit.taskdispatcher.TaskDispatcher;
 import org.primesoft.asyncworldedit.utils.ExceptionHelper;
+import org.primesoft.asyncworldedit.workers.RegionExecutor;
+import org.primesoft.asyncworldedit.workers.WorkerPool;
 import org.primesoft.asyncworldedit.worldedit.WorldeditIntegrator;
 
 /**
@@ -107,10 +113,14 @@ public class AsyncWorldEditBukkit extends AsyncWorldEditMain implements IAweOper
     private Boolean m_isInitialized = false;
     private MetricsLite m_metrics;
     private final EventListener m_listener = new EventListener(this);
-    private final PhysicsWatch m_physicsWatcher = new PhysicsWatch();
+    private final StatsManager m_stats = new StatsManager();
+    private final PhysicsWatch m_physicsWatcher = new PhysicsWatch(m_stats);
     private final ChunkWatch m_chunkWatch = new ChunkWatch();
     private BlockPlacer m_blockPlacer;
     private TaskDispatcher m_dispatcher;
+    private SerializerManager m_serializerManager;
+    private WorkerPool m_workerPool;
+    private RegionExecutor m_regionExecutor;
     private WorldeditIntegrator m_weIntegrator;
     private IPlotMeFix m_plotMeFix;
     private final PlayerManager m_playerManager = new PlayerManager(this);
@@ -183,7 +193,10 @@ public class AsyncWorldEditBukkit extends AsyncWorldEditMain implements IAweOper
         
         m_blocksHub = new BlocksHubIntegration(this);
         m_blockPlacer = new BlockPlacer(this);
+        m_workerPool = new WorkerPool(m_blockPlacer, ConfigProvider.getWorkerThreads());
+        m_regionExecutor = new RegionExecutor(ConfigProvider.getRegionThreads());
         m_dispatcher = new TaskDispatcher(this);
+        m_serializerManager = new SerializerManager(ConfigProvider.getPluginFolder());
         setPlotMeFix(new NullFix());
 
         m_aweInjector = getAWEInjector(this);
@@ -217,10 +230,14 @@ public class AsyncWorldEditBukkit extends AsyncWorldEditMain implements IAweOper
 
     @Override
     public void onDisable() {
+        m_workerPool.stop();
+        m_regionExecutor.stop();
         m_blockPlacer.stop();
         m_dispatcher.stop();
+        m_serializerManager.stop();
         m_weIntegrator.queueStop();
         m_chunkWatch.clear();
+        ClassScanner.clearCache();
         log("Disabled");
     }
 
@@ -252,6 +269,12 @@ public class AsyncWorldEditBukkit extends AsyncWorldEditMain implements IAweOper
         } else if (name.equalsIgnoreCase(Commands.COMMAND_TOGGLE)) {
             doToggle(player, args);
             return true;
+        } else if (name.equalsIgnoreCase(Commands.COMMAND_BUDGET)) {
+            doBudget(player, args);
+            return true;
+        } else if (name.equalsIgnoreCase(Commands.COMMAND_STATS)) {
+            doStats(player, args);
+            return true;
         }
 
         return Help.ShowHelp(player, null);
@@ -368,6 +391,24 @@ public class AsyncWorldEditBukkit extends AsyncWorldEditMain implements IAweOper
         }
 
         CancelCommand.Execte(this, player, args);
+    }
+
+    private void doBudget(IPlayerEntry player, String[] args) {
+        if (!m_isInitialized) {
+            player.say(MessageType.NOT_INITIALIZED.format());
+            return;
+        }
+
+        BudgetCommand.Execte(m_blockPlacer, player, args);
+    }
+
+    private void doStats(IPlayerEntry player, String[] args) {
+        if (!m_isInitialized) {
+            player.say(MessageType.NOT_INITIALIZED.format());
+            return;
+        }
+
+        StatsCommand.Execte(m_stats, m_workerPool, player, args);
     }    
     
     @Override
@@ -420,16 +461,26 @@ public class AsyncWorldEditBukkit extends AsyncWorldEditMain implements IAweOper
     }
 
     @Override
-    public ISerializerManager getChangesetSerializer() {
-        log("******************************************************************************");
-        log("******************************************************************************");
-        log("**                                                                          **");
-        log("** Undo serializer manager is not available for this version of the plugin  **");
-        log("**                                                                          **");
-        log("******************************************************************************");
-        log("******************************************************************************");
-        
-        return null;
+    public SerializerManager getChangesetSerializer() {
+        return m_serializerManager;
+    }
+
+    /**
+     * Get the async jobs worker pool
+     *
+     * @return
+     */
+    public WorkerPool getWorkerPool() {
+        return m_workerPool;
+    }
+
+    /**
+     * Get the parallel region operations executor
+     *
+     * @return
+     */
+    public RegionExecutor getRegionExecutor() {
+        return m_regionExecutor;
     }
     
     
@@ -448,6 +499,11 @@ public class AsyncWorldEditBukkit extends AsyncWorldEditMain implements IAweOper
     public IPhysicsWatch getPhysicsWatcher() {
         return m_physicsWatcher;
     }
+
+    @Override
+    public IStatsManager getStats() {
+        return m_stats;
+    }
     
 
     @Override
@@ -495,7 +551,7 @@ public class AsyncWorldEditBukkit extends AsyncWorldEditMain implements IAweOper
     }
 
     @Override
-    public IWorldeditIntegrator getWorldEditIntegrator() {
+    public WorldeditIntegrator getWorldEditIntegrator() {
         return m_weIntegrator;
     }
 
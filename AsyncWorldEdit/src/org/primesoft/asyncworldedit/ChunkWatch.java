@@ -40,12 +40,15 @@
  */
 package org.primesoft.asyncworldedit;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import org.bukkit.Chunk;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.world.ChunkUnloadEvent;
+import org.primesoft.asyncworldedit.utils.LongHashMap;
+import org.primesoft.asyncworldedit.utils.PositionUtils;
 
 /**
  *
@@ -53,18 +56,52 @@ import org.bukkit.event.world.ChunkUnloadEvent;
  */
 public class ChunkWatch implements Listener {
 
+    /**
+     * Number of the chunk filter slots (power of 2)
+     */
+    private final static int FILTER_SIZE = 4096;
+
+    /**
+     * Suppressed chunks in a world
+     */
+    private static class WorldChunks {
+
+        /**
+         * Counting filter, the slot count is never lower then the sum of the
+         * chunk counts mapped to the slot. Allows a lock free negative
+         * answer.
+         */
+        private final AtomicIntegerArray m_filter = new AtomicIntegerArray(FILTER_SIZE);
+
+        /**
+         * The chunk reference count (key: packed chunk coordinates, guarded
+         * by the world entry lock)
+         */
+        private final LongHashMap<int[]> m_chunks = new LongHashMap<int[]>();
+    }
+
     /**
      * Suppressed chunks
      */
-    private final HashMap<String, HashMap<Integer, HashSet<Integer>>> m_watchedChunks = new HashMap<String, HashMap<Integer, HashSet<Integer>>>();
+    private final ConcurrentMap<String, WorldChunks> m_watchedChunks = new ConcurrentHashMap<String, WorldChunks>();
+
+    /**
+     * Get the chunk filter slot
+     *
+     * @param cx
+     * @param cz
+     * @return
+     */
+    private static int getSlot(int cx, int cz) {
+        int h = cx * 0x9E3779B1 + cz * 0x85EBCA6B;
+        return (h ^ (h >>> 16)) & (FILTER_SIZE - 1);
+    }
 
     /**
      * Remove all chunk unload queues
      */
     public void clear() {
-        synchronized (m_watchedChunks) {
-            m_watchedChunks.clear();
-        }
+        m_watchedChunks.clear();
     }
 
     /**
@@ -75,26 +112,30 @@ public class ChunkWatch implements Listener {
      * @param worldName
      */
     public void add(int cx, int cz, String worldName) {
-        synchronized (m_watchedChunks) {
-            HashMap<Integer, HashSet<Integer>> worldEntry = m_watchedChunks.get(worldName);
-            if (worldEntry == null) {
-                worldEntry = new HashMap<Integer, HashSet<Integer>>();
+        if (worldName == null) {
+            return;
+        }
 
-                m_watchedChunks.put(worldName, worldEntry);
+        WorldChunks worldEntry = m_watchedChunks.get(worldName);
+        if (worldEntry == null) {
+            worldEntry = new WorldChunks();
+            WorldChunks old = m_watchedChunks.putIfAbsent(worldName, worldEntry);
+            if (old != null) {
+                worldEntry = old;
             }
+        }
 
-            HashSet<Integer> cxEntry = worldEntry.get(cx);
-            if (cxEntry == null) {
-                cxEntry = new HashSet<Integer>();
-
-                worldEntry.put(cx, cxEntry);
-            }
+        //Filter first, it must never be lower then the chunk count
+        worldEntry.m_filter.incrementAndGet(getSlot(cx, cz));
 
-            if (!cxEntry.contains(cz)) {
-                return;
+        long key = PositionUtils.packChunk(cx, cz);
+        synchronized (worldEntry) {
+            int[] count = worldEntry.m_chunks.get(key);
+            if (count == null) {
+                worldEntry.m_chunks.put(key, new int[]{1});
+            } else {
+                count[0]++;
             }
-
-            cxEntry.add(cz);
         }
     }
 
@@ -106,30 +147,52 @@ public class ChunkWatch implements Listener {
      * @param worldName
      */
     public void remove(int cx, int cz, String worldName) {
-        synchronized (m_watchedChunks) {
-            HashMap<Integer, HashSet<Integer>> worldEntry = m_watchedChunks.get(worldName);
-            if (worldEntry == null) {
-                return;
-            }
+        if (worldName == null) {
+            return;
+        }
 
-            HashSet<Integer> cxEntry = worldEntry.get(cx);
-            if (cxEntry == null) {
+        WorldChunks worldEntry = m_watchedChunks.get(worldName);
+        if (worldEntry == null) {
+            return;
+        }
+
+        long key = PositionUtils.packChunk(cx, cz);
+        synchronized (worldEntry) {
+            int[] count = worldEntry.m_chunks.get(key);
+            if (count == null) {
                 return;
             }
 
-            if (!cxEntry.contains(cz)) {
-                return;
+            count[0]--;
+            if (count[0] == 0) {
+                worldEntry.m_chunks.remove(key);
             }
+        }
 
-            cxEntry.remove(cz);
+        worldEntry.m_filter.decrementAndGet(getSlot(cx, cz));
+    }
 
-            if (cxEntry.isEmpty()) {
-                worldEntry.remove(cx);
-            }
+    /**
+     * Is the chunk unload suppressed
+     *
+     * @param cx
+     * @param cz
+     * @param worldName
+     * @return
+     */
+    public boolean isWatched(int cx, int cz, String worldName) {
+        if (worldName == null) {
+            return false;
+        }
 
-            if (worldEntry.isEmpty()) {
-                m_watchedChunks.remove(worldName);
-            }
+        WorldChunks worldEntry = m_watchedChunks.get(worldName);
+        if (worldEntry == null || worldEntry.m_filter.get(getSlot(cx, cz)) == 0) {
+            return false;
+        }
+
+        long key = PositionUtils.packChunk(cx, cz);
+        synchronized (worldEntry) {
+            return worldEntry.m_chunks.containsKey(key);
         }
     }
 
@@ -141,20 +204,8 @@ public class ChunkWatch implements Listener {
         int cz = chunk.getZ();
         String worldName = chunk.getWorld().getName();
 
-        synchronized (m_watchedChunks) {
-            HashMap<Integer, HashSet<Integer>> worldEntry = m_watchedChunks.get(worldName);
-            if (worldEntry == null) {
-                return;
-            }
-
-            HashSet<Integer> cxEntry = worldEntry.get(cx);
-            if (cxEntry == null) {
-                return;
-            }
-
-            if (cxEntry.contains(cz)) {
-                event.setCancelled(true);
-            }
+        if (isWatched(cx, cz, worldName)) {
+            event.setCancelled(true);
         }
     }
 }
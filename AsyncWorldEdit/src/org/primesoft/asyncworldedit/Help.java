@@ -63,6 +63,10 @@ public final class Help {
                 helpMessage = MessageType.CMD_HELP_RELOAD;
             } else if (command.equalsIgnoreCase(Commands.COMMAND_CANCEL)) {
                 helpMessage = MessageType.CMD_HELP_CANCEL;
+            } else if (command.equalsIgnoreCase(Commands.COMMAND_BUDGET)) {
+                helpMessage = MessageType.CMD_HELP_BUDGET;
+            } else if (command.equalsIgnoreCase(Commands.COMMAND_STATS)) {
+                helpMessage = MessageType.CMD_HELP_STATS;
             }
         }
 
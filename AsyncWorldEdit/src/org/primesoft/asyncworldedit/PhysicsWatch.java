@@ -42,12 +42,17 @@ package org.primesoft.asyncworldedit;
 
 import org.primesoft.asyncworldedit.api.IPhysicsWatch;
 import com.sk89q.worldedit.Vector;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.bukkit.Location;
 import org.bukkit.block.Block;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.*;
+import org.primesoft.asyncworldedit.api.stats.IStatsManager;
+import org.primesoft.asyncworldedit.api.stats.StatsSubsystem;
+import org.primesoft.asyncworldedit.utils.LongHashMap;
+import org.primesoft.asyncworldedit.utils.PositionUtils;
 
 /**
  * This class is responsible for freezing all physics in edited regions
@@ -57,23 +62,110 @@ import org.bukkit.event.block.*;
 public class PhysicsWatch implements Listener, IPhysicsWatch {
 
     /**
-     * Is physics watch enabled
+     * Locked blocks in a chunk section (16x16x16 blocks). Each x row
+     * (16 blocks) is stored as 16 bits of the bitset.
+     */
+    private static class SectionLocks {
+
+        /**
+         * The locked blocks bitset (index: y << 8 | z << 4 | x)
+         */
+        private final long[] m_bits = new long[64];
+
+        /**
+         * Number of locked blocks
+         */
+        private int m_size;
+
+        /**
+         * Get the x row of locked blocks
+         *
+         * @param y section y coordinate (0-15)
+         * @param z section z coordinate (0-15)
+         * @return
+         */
+        int getRow(int y, int z) {
+            return (int) (m_bits[y << 2 | z >> 2] >>> ((z & 3) << 4)) & 0xffff;
+        }
+
+        /**
+         * Set the block lock bit
+         *
+         * @param idx
+         * @return true if the bit was not set
+         */
+        boolean set(int idx) {
+            long mask = 1L << (idx & 63);
+            long bits = m_bits[idx >> 6];
+            if ((bits & mask) != 0) {
+                return false;
+            }
+
+            m_bits[idx >> 6] = bits | mask;
+            m_size++;
+            return true;
+        }
+
+        /**
+         * Clear the block lock bit
+         *
+         * @param idx
+         * @return true if the bit was set
+         */
+        boolean clear(int idx) {
+            long mask = 1L << (idx & 63);
+            long bits = m_bits[idx >> 6];
+            if ((bits & mask) == 0) {
+                return false;
+            }
+
+            m_bits[idx >> 6] = bits & ~mask;
+            m_size--;
+            return true;
+        }
+    }
+
+    /**
+     * Locked blocks in a world
      */
-    private boolean m_isEnabled;
+    private static class WorldLocks {
+
+        /**
+         * The chunk sections (key: packed section coordinates)
+         */
+        private final LongHashMap<SectionLocks> m_sections = new LongHashMap<SectionLocks>();
+
+        /**
+         * Number of additional locks for blocks locked more then once (key:
+         * packed block coordinates)
+         */
+        private final LongHashMap<int[]> m_counts = new LongHashMap<int[]>();
+
+        /**
+         * The frozen chunk sections reference count (key: packed section
+         * coordinates)
+         */
+        private final LongHashMap<int[]> m_regions = new LongHashMap<int[]>();
+    }
+
     /**
-     * MTA mutex
+     * Is physics watch enabled
      */
-    private final Object m_mutex;
-    
-    
+    private volatile boolean m_isEnabled;
+
     /**
      * Locked blocks
      */
-    private final HashMap<String, HashMap<Integer, HashMap<Integer, HashMap<Integer, Integer>>>> m_locked;
+    private final ConcurrentMap<String, WorldLocks> m_locked;
+
+    /**
+     * The main thread time stats
+     */
+    private final IStatsManager m_stats;
 
-    public PhysicsWatch() {
-        m_mutex = new Object();
-        m_locked = new HashMap<String, HashMap<Integer, HashMap<Integer, HashMap<Integer, Integer>>>>();
+    public PhysicsWatch(IStatsManager stats) {
+        m_locked = new ConcurrentHashMap<String, WorldLocks>();
+        m_stats = stats;
     }
     
     @Override
@@ -87,12 +179,34 @@ public class PhysicsWatch implements Listener, IPhysicsWatch {
     public void disable()
     {
         m_isEnabled = false;
-        synchronized (m_mutex)
-        {
-            m_locked.clear();
+        m_locked.clear();
+    }
+
+    /**
+     * Get the world locks
+     *
+     * @param name
+     * @return
+     */
+    private WorldLocks getWorld(String name) {
+        WorldLocks result = m_locked.get(name);
+        if (result == null) {
+            result = new WorldLocks();
+            WorldLocks old = m_locked.putIfAbsent(name, result);
+            if (old != null) {
+                result = old;
+            }
         }
+
+        return result;
+    }
+
+    /**
+     * Get the index of the block in chunk section
+     */
+    private static int sectionIndex(int x, int y, int z) {
+        return (y & 15) << 8 | (z & 15) << 4 | (x & 15);
     }
-    
 
     @Override
     public void addLocation(String name, Vector location) {        
@@ -100,40 +214,27 @@ public class PhysicsWatch implements Listener, IPhysicsWatch {
         int y = location.getBlockY();
         int z = location.getBlockZ();
 
-        synchronized (m_mutex) {
-            if (!m_isEnabled)
-            {
-                return;
-            }
-            
-            HashMap<Integer, HashMap<Integer, HashMap<Integer, Integer>>> xhash;
-            if (!m_locked.containsKey(name)) {
-                xhash = new HashMap<Integer, HashMap<Integer, HashMap<Integer, Integer>>>();
-                m_locked.put(name, xhash);
-            } else {
-                xhash = m_locked.get(name);
-            }
-
-            HashMap<Integer, HashMap<Integer, Integer>> yhash;
-            if (!xhash.containsKey(x)) {
-                yhash = new HashMap<Integer, HashMap<Integer, Integer>>();
-                xhash.put(x, yhash);
-            } else {
-                yhash = xhash.get(x);
-            }
+        if (!m_isEnabled) {
+            return;
+        }
 
-            HashMap<Integer, Integer> zhash;
-            if (!yhash.containsKey(y)) {
-                zhash = new HashMap<Integer, Integer>();
-                yhash.put(y, zhash);
-            } else {
-                zhash = yhash.get(y);
+        WorldLocks world = getWorld(name);
+        synchronized (world) {
+            long key = PositionUtils.pack(x >> 4, y >> 4, z >> 4);
+            SectionLocks section = world.m_sections.get(key);
+            if (section == null) {
+                section = new SectionLocks();
+                world.m_sections.put(key, section);
             }
 
-            if (!zhash.containsKey(z)) {
-                zhash.put(z, 1);
-            } else {
-                zhash.put(z, zhash.get(z) + 1);
+            if (!section.set(sectionIndex(x, y, z))) {
+                long pos = PositionUtils.pack(x, y, z);
+                int[] count = world.m_counts.get(pos);
+                if (count == null) {
+                    world.m_counts.put(pos, new int[]{1});
+                } else {
+                    count[0]++;
+                }
             }
         }
     }
@@ -144,39 +245,92 @@ public class PhysicsWatch implements Listener, IPhysicsWatch {
         int y = location.getBlockY();
         int z = location.getBlockZ();
 
-               
-        synchronized (m_mutex) {
-            if (!m_isEnabled)
-            {
+        if (!m_isEnabled) {
+            return;
+        }
+
+        WorldLocks world = m_locked.get(name);
+        if (world == null) {
+            return;
+        }
+
+        synchronized (world) {
+            long key = PositionUtils.pack(x >> 4, y >> 4, z >> 4);
+            SectionLocks section = world.m_sections.get(key);
+            if (section == null) {
                 return;
             }
-            
-            if (!m_locked.containsKey(name)) {
-                return;
+
+            if (!world.m_counts.isEmpty()) {
+                long pos = PositionUtils.pack(x, y, z);
+                int[] count = world.m_counts.get(pos);
+                if (count != null) {
+                    count[0]--;
+                    if (count[0] == 0) {
+                        world.m_counts.remove(pos);
+                    }
+                    return;
+                }
             }
-            HashMap<Integer, HashMap<Integer, HashMap<Integer, Integer>>> xhash = m_locked.get(name);
 
-            if (!xhash.containsKey(x)) {
-                return;
+            if (section.clear(sectionIndex(x, y, z)) && section.m_size == 0) {
+                world.m_sections.remove(key);
             }
-            HashMap<Integer, HashMap<Integer, Integer>> yhash = xhash.get(x);
+        }
+    }
 
+    @Override
+    public void addSection(String name, int sectionX, int sectionY, int sectionZ) {
+        if (!m_isEnabled) {
+            return;
+        }
 
-            if (!yhash.containsKey(y)) {
-                return;
-            }
-            HashMap<Integer, Integer> zhash = yhash.get(y);
+        WorldLocks world = getWorld(name);
+        synchronized (world) {
+            addSection(world, PositionUtils.pack(sectionX, sectionY, sectionZ));
+        }
+    }
 
-            Integer val = zhash.get(z);
-            if (val == null) {
-                return;
-            }
+    @Override
+    public void removeSection(String name, int sectionX, int sectionY, int sectionZ) {
+        if (!m_isEnabled) {
+            return;
+        }
 
-            val = val - 1;
-            zhash.remove(z);
-            if (val != 0) {
-                zhash.put(z, val);
-            }
+        WorldLocks world = m_locked.get(name);
+        if (world == null) {
+            return;
+        }
+
+        synchronized (world) {
+            removeSection(world, PositionUtils.pack(sectionX, sectionY, sectionZ));
+        }
+    }
+
+    /**
+     * Add frozen section reference (world lock required)
+     */
+    private static void addSection(WorldLocks world, long key) {
+        int[] count = world.m_regions.get(key);
+        if (count == null) {
+            world.m_regions.put(key, new int[]{1});
+        } else {
+            count[0]++;
+        }
+    }
+
+    /**
+     * Remove frozen section reference (world lock required)
+     */
+    private static void removeSection(WorldLocks world, long key) {
+        int[] count = world.m_regions.get(key);
+        if (count == null) {
+            return;
+        }
+
+        count[0]--;
+        if (count[0] == 0) {
+            world.m_regions.remove(key);
         }
     }
 
@@ -184,32 +338,85 @@ public class PhysicsWatch implements Listener, IPhysicsWatch {
      * Perform test if block event shuld by canceled
      */
     private boolean shuldCancel(Block block) {
+        long start = System.nanoTime();
+        try {
+            return isLocked(block);
+        } finally {
+            m_stats.record(StatsSubsystem.PHYSICS_FILTER, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Check if the block or any of its neighbours is locked
+     */
+    private boolean isLocked(Block block) {
         Location location = block.getLocation();
-        String name = location.getWorld().getName();
-        int x = location.getBlockX();
-        int y = location.getBlockY();
-        int z = location.getBlockZ();
-        final int delta = 1;
-                
-        synchronized (m_mutex) {
-            if (!m_locked.containsKey(name)) {
+        return isLocked(location.getWorld().getName(),
+                location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    /**
+     * Check if the block or any of its neighbours is locked
+     *
+     * @param name the world name
+     * @param x
+     * @param y
+     * @param z
+     * @return
+     */
+    boolean isLocked(String name, int x, int y, int z) {
+        WorldLocks world = m_locked.get(name);
+        if (world == null) {
+            return false;
+        }
+
+        synchronized (world) {
+            final LongHashMap<int[]> regions = world.m_regions;
+            if (!regions.isEmpty()) {
+                for (int sx = (x - 1) >> 4; sx <= (x + 1) >> 4; sx++) {
+                    for (int sy = (y - 1) >> 4; sy <= (y + 1) >> 4; sy++) {
+                        for (int sz = (z - 1) >> 4; sz <= (z + 1) >> 4; sz++) {
+                            if (regions.containsKey(PositionUtils.pack(sx, sy, sz))) {
+                                return true;
+                            }
+                        }
+                    }
+                }
+            }
+
+            final LongHashMap<SectionLocks> sections = world.m_sections;
+            if (sections.isEmpty()) {
                 return false;
             }
 
-            HashMap<Integer, HashMap<Integer, HashMap<Integer, Integer>>> xhash = m_locked.get(name);
-            for (int px = x - delta; px <= x + delta; px++) {
-                if (xhash.containsKey(px)) {
-                    HashMap<Integer, HashMap<Integer, Integer>> yhash = xhash.get(px);
+            //Bits x - 1, x, x + 1 of the section row
+            final int lx = x & 15;
+            final int rowMask = (7 << lx) >> 1;
+            final int sx = x >> 4;
+
+            long lastKey = 0;
+            SectionLocks lastSection = null;
+            boolean hasLast = false;
+            for (int py = y - 1; py <= y + 1; py++) {
+                for (int pz = z - 1; pz <= z + 1; pz++) {
+                    long key = PositionUtils.pack(sx, py >> 4, pz >> 4);
+                    if (!hasLast || key != lastKey) {
+                        lastKey = key;
+                        lastSection = sections.get(key);
+                        hasLast = true;
+                    }
 
-                    for (int py = y - delta; py <= y + delta; py++) {
-                        if (yhash.containsKey(py)) {
-                            HashMap<Integer, Integer> zhash = yhash.get(py);
+                    if (lastSection != null
+                            && (lastSection.getRow(py & 15, pz & 15) & rowMask) != 0) {
+                        return true;
+                    }
 
-                            for (int pz = z - delta; pz <= z + delta; pz++) {
-                                if (zhash.containsKey(pz)) {
-                                    return true;
-                                }
-                            }
+                    if (lx == 0 || lx == 15) {
+                        //The x neighbour is in the next section
+                        SectionLocks section = sections.get(PositionUtils.pack(lx == 0 ? sx - 1 : sx + 1, py >> 4, pz >> 4));
+                        int bit = lx == 0 ? 0x8000 : 0x0001;
+                        if (section != null && (section.getRow(py & 15, pz & 15) & bit) != 0) {
+                            return true;
                         }
                     }
                 }
@@ -47,6 +47,7 @@ import org.primesoft.asyncworldedit.api.directChunk.IDirectChunkAPI;
 import org.primesoft.asyncworldedit.api.map.IMapUtils;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerManager;
 import org.primesoft.asyncworldedit.api.progressDisplay.IProgressDisplayManager;
+import org.primesoft.asyncworldedit.api.stats.IStatsManager;
 import org.primesoft.asyncworldedit.api.taskdispatcher.ITaskDispatcher;
 
 /**
@@ -84,6 +85,13 @@ public interface IAsyncWorldEdit {
      */
     IPhysicsWatch getPhysicsWatcher();
 
+    /**
+     * Get the main thread time stats
+     *
+     * @return
+     */
+    IStatsManager getStats();
+
     /**
      * The player manager
      *
@@ -65,6 +65,27 @@ public interface IPhysicsWatch {
      */
     void removeLocation(String worldName, Vector location);
 
+    /**
+     * Add new watched chunk section (all blocks in the section and its
+     * neighbour blocks are frozen). The sections are reference counted.
+     *
+     * @param worldName The world name
+     * @param sectionX The section X coordinate
+     * @param sectionY The section Y coordinate
+     * @param sectionZ The section Z coordinate
+     */
+    void addSection(String worldName, int sectionX, int sectionY, int sectionZ);
+
+    /**
+     * Remove watched chunk section
+     *
+     * @param worldName The world name
+     * @param sectionX The section X coordinate
+     * @param sectionY The section Y coordinate
+     * @param sectionZ The section Z coordinate
+     */
+    void removeSection(String worldName, int sectionX, int sectionY, int sectionZ);
+
     
     /**
      * Enable the physics watcher
@@ -83,4 +83,13 @@ public interface IWorld {
      * @return 
      */
     IChunk getChunkAt(int cx, int cz);
+    
+    /**
+     * Capture the chunk blocks
+     * @param cx
+     * @param cz
+     * @return combined block ids (id << 4 | data, index: y << 8 | z << 4 | x)
+     * for each chunk section, null for empty sections
+     */
+    char[][] getChunkBlocks(int cx, int cz);
 }
@@ -95,6 +95,13 @@ public interface IBlockPlacerPlayer {
      */
     Queue<IBlockPlacerEntry> getQueue();
 
+    /**
+     * Get the number of blocks on queue
+     *
+     * @return
+     */
+    int getQueueSize();
+
     /**
      * Get block placing speed (blocks per second)
      *
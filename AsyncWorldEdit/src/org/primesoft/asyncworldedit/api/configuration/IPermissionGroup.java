@@ -60,6 +60,20 @@ public interface IPermissionGroup {
      */
     int getMaxJobs();
 
+    /**
+     * Maximum number of player jobs running at the same time
+     *
+     * @return
+     */
+    int getMaxRunningJobs();
+
+    /**
+     * Maximum number of group jobs running at the same time
+     *
+     * @return
+     */
+    int getGroupRunningJobs();
+
     /**
      * The permission node
      *
@@ -95,6 +109,13 @@ public interface IPermissionGroup {
      */
     int getRendererTime();
 
+    /**
+     * The group share of the global renderer blocks and time
+     *
+     * @return
+     */
+    int getRendererWeight();
+
     /**
      * The minimum number of blocks to show the progress bar
      *
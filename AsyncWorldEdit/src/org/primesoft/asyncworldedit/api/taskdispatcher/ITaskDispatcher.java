@@ -43,6 +43,8 @@ package org.primesoft.asyncworldedit.api.taskdispatcher;
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.regions.Region;
+import java.util.Collection;
+import java.util.concurrent.Future;
 import org.primesoft.asyncworldedit.api.IWorld;
 import org.primesoft.asyncworldedit.api.utils.IAction;
 import org.primesoft.asyncworldedit.api.utils.IFunc;
@@ -85,6 +87,18 @@ public interface ITaskDispatcher {
      */
     void performSafeChunk(Object mutex, IAction action, IWorld world, Vector2D pos);
 
+    /**
+     * Perform operation using a safe wrapper. If the basic operation fails
+     * queue it on dispatcher without waiting for the result
+     *
+     * @param mutex
+     * @param action
+     * @param world
+     * @param pos
+     * @return
+     */
+    Future<Void> performSafeChunkAsync(Object mutex, IAction action, IWorld world, Vector2D pos);
+
     /**
      * Perform operation using a safe wrapper. If the basic operation fails
      * queue it on dispatcher
@@ -98,6 +112,19 @@ public interface ITaskDispatcher {
      */
     <T> T performSafeChunk(Object mutex, IFunc<T> action, IWorld world, Vector2D pos);
 
+    /**
+     * Perform operation using a safe wrapper. If the basic operation fails
+     * queue it on dispatcher without waiting for the result
+     *
+     * @param <T>
+     * @param mutex
+     * @param action
+     * @param world
+     * @param pos
+     * @return
+     */
+    <T> Future<T> performSafeChunkAsync(Object mutex, IFunc<T> action, IWorld world, Vector2D pos);
+
     /**
      * Perform operation using a safe wrapper. If the basic operation fails
      * queue it on dispatcher
@@ -109,6 +136,18 @@ public interface ITaskDispatcher {
      */
     void performSafe(Object mutex, IAction action, IWorld world, Vector pos);
 
+    /**
+     * Perform operation using a safe wrapper. If the basic operation fails
+     * queue it on dispatcher without waiting for the result
+     *
+     * @param mutex
+     * @param action
+     * @param world
+     * @param pos
+     * @return
+     */
+    Future<Void> performSafeAsync(Object mutex, IAction action, IWorld world, Vector pos);
+
     /**
      * Perform operation using a safe wrapper. If the basic operation fails
      * queue it on dispatcher
@@ -120,6 +159,18 @@ public interface ITaskDispatcher {
      */
     void performSafe(Object mutex, IAction action, IWorld world, Region region);
 
+    /**
+     * Perform operation using a safe wrapper. If the basic operation fails
+     * queue it on dispatcher without waiting for the result
+     *
+     * @param mutex
+     * @param action
+     * @param world
+     * @param region
+     * @return
+     */
+    Future<Void> performSafeAsync(Object mutex, IAction action, IWorld world, Region region);
+
     /**
      * Perform operation using a safe wrapper. If the basic operation fails
      * queue it on dispatcher
@@ -133,6 +184,19 @@ public interface ITaskDispatcher {
      */
     <T> T performSafe(Object mutex, IFunc<T> action, IWorld world, Region region);
 
+    /**
+     * Perform operation using a safe wrapper. If the basic operation fails
+     * queue it on dispatcher without waiting for the result
+     *
+     * @param <T>
+     * @param mutex
+     * @param action
+     * @param world
+     * @param region
+     * @return
+     */
+    <T> Future<T> performSafeAsync(Object mutex, IFunc<T> action, IWorld world, Region region);
+
     /**
      * Perform operation using a safe wrapper. If the basic operation fails
      * queue it on dispatcher
@@ -146,6 +210,39 @@ public interface ITaskDispatcher {
      */
     <T> T performSafe(Object mutex, IFunc<T> action, IWorld world, Vector pos);
 
+    /**
+     * Perform operation using a safe wrapper. If the basic operation fails
+     * queue it on dispatcher without waiting for the result
+     *
+     * @param <T>
+     * @param mutex
+     * @param action
+     * @param world
+     * @param pos
+     * @return
+     */
+    <T> Future<T> performSafeAsync(Object mutex, IFunc<T> action, IWorld world, Vector pos);
+
+    /**
+     * Load and pin all the chunks in the region. The chunks are loaded on the
+     * main thread in batches, the returned chunks need to be released.
+     *
+     * @param world
+     * @param region
+     * @return
+     */
+    Future<IPinnedChunks> prefetchChunks(IWorld world, Region region);
+
+    /**
+     * Load and pin the chunks. The chunks are loaded on the main thread in
+     * batches, the returned chunks need to be released.
+     *
+     * @param world
+     * @param chunks
+     * @return
+     */
+    Future<IPinnedChunks> prefetchChunks(IWorld world, Collection<Vector2D> chunks);
+
     /**
      * Perform operation using a safe wrapper. If the basic operation fails
      * queue it on dispatcher
@@ -155,6 +252,16 @@ public interface ITaskDispatcher {
      */
     void performSafe(Object mutex, IAction action);
 
+    /**
+     * Perform operation using a safe wrapper. If the basic operation fails
+     * queue it on dispatcher without waiting for the result
+     *
+     * @param mutex
+     * @param action
+     * @return
+     */
+    Future<Void> performSafeAsync(Object mutex, IAction action);
+
     /**
      * Perform operation using a safe wrapper. If the basic operation fails
      * queue it on dispatcher
@@ -166,6 +273,17 @@ public interface ITaskDispatcher {
      */
     <T> T performSafe(Object mutex, IFunc<T> action);
 
+    /**
+     * Perform operation using a safe wrapper. If the basic operation fails
+     * queue it on dispatcher without waiting for the result
+     *
+     * @param <T>
+     * @param mutex
+     * @param action
+     * @return
+     */
+    <T> Future<T> performSafeAsync(Object mutex, IFunc<T> action);
+
     /**
      * Set pause on task dispatcher placer
      *
@@ -173,4 +291,18 @@ public interface ITaskDispatcher {
      */
     void setPause(boolean pause);
 
+    /**
+     * Get the dispatcher main thread usage (ms per second)
+     *
+     * @return
+     */
+    double getUsage();
+
+    /**
+     * Get the main thread time used by the last dispatcher run
+     *
+     * @return time in ns
+     */
+    long getLastRunTime();
+
 }
@@ -115,6 +115,16 @@ public interface IThreadSafeEditSession extends IAweEditSession {
      */
     void resetAsync();
 
+    /**
+     * Start using the chunk snapshot cache for a running job
+     */
+    void acquireChunkCache();
+
+    /**
+     * Stop using the chunk snapshot cache, the job is done
+     */
+    void releaseChunkCache();
+
     /**
      * Enables or disables the async mode configuration bypass this function
      * should by used only by other plugins
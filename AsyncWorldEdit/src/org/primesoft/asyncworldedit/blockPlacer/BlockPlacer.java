@@ -43,17 +43,25 @@ package org.primesoft.asyncworldedit.blockPlacer;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacer;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacerListener;
 import com.sk89q.worldedit.MaxChangedBlocksException;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
 import org.bukkit.scheduler.BukkitScheduler;
 import org.primesoft.asyncworldedit.blockPlacer.entries.JobEntry;
 import org.primesoft.asyncworldedit.blockPlacer.entries.UndoJob;
+import org.primesoft.asyncworldedit.blockPlacer.entries.WorldBlockBatchEntry;
 import org.primesoft.asyncworldedit.configuration.ConfigProvider;
 import org.primesoft.asyncworldedit.permissions.Permission;
 import org.primesoft.asyncworldedit.strings.MessageType;
-import org.primesoft.asyncworldedit.utils.InOutParam;
+import org.primesoft.asyncworldedit.utils.LongHashMap;
+import org.primesoft.asyncworldedit.utils.PositionUtils;
 import org.primesoft.asyncworldedit.worldedit.AsyncTask;
 import org.primesoft.asyncworldedit.worldedit.CancelabeEditSession;
+import org.primesoft.asyncworldedit.worldedit.world.AsyncWorld;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.primesoft.asyncworldedit.AsyncWorldEditBukkit;
 import static org.primesoft.asyncworldedit.AsyncWorldEditBukkit.log;
 import org.primesoft.asyncworldedit.api.IPhysicsWatch;
@@ -64,6 +72,8 @@ import org.primesoft.asyncworldedit.api.blockPlacer.entries.JobStatus;
 import org.primesoft.asyncworldedit.api.configuration.IPermissionGroup;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
 import org.primesoft.asyncworldedit.api.progressDisplay.IProgressDisplay;
+import org.primesoft.asyncworldedit.api.stats.IStatsManager;
+import org.primesoft.asyncworldedit.api.stats.StatsSubsystem;
 import org.primesoft.asyncworldedit.api.utils.IAsyncCommand;
 import org.primesoft.asyncworldedit.api.utils.IFuncParamEx;
 import org.primesoft.asyncworldedit.api.worldedit.ICancelabeEditSession;
@@ -81,14 +91,14 @@ public class BlockPlacer implements IBlockPlacer {
     private final BukkitScheduler m_scheduler;
 
     /**
-     * MTA mutex
+     * The physics watcher
      */
-    private final Object m_mutex = new Object();
+    private final IPhysicsWatch m_physicsWatcher;
 
     /**
-     * The physics watcher
+     * The main thread time stats
      */
-    private final IPhysicsWatch m_physicsWatcher;
+    private final IStatsManager m_stats;
 
     /**
      * Current scheduler task
@@ -96,25 +106,67 @@ public class BlockPlacer implements IBlockPlacer {
     private BlockPlacerTask m_task;
 
     /**
-     * Logged events queue (per player)
+     * Logged events queue (per player). Each player queue is guarded
+     * by its own lock (the queue), there is no global lock.
      */
-    private final HashMap<IPlayerEntry, IBlockPlacerPlayer> m_blocks;
+    private final ConcurrentMap<IPlayerEntry, BlockPlacerPlayer> m_blocks;
 
     /**
      * All locked queues
      */
-    private final HashSet<IPlayerEntry> m_lockedQueues;
+    private final Set<IPlayerEntry> m_lockedQueues;
 
     /**
      * Global queue max size
      */
     private int m_queueMaxSize;
 
+    /**
+     * Number of blocks in all the player queues
+     */
+    private final AtomicInteger m_queueSize = new AtomicInteger(0);
+
+    /**
+     * Time between the parked producer checks (ms)
+     */
+    private final static long QUEUE_WAIT_RECHECK = 50;
+
+    /**
+     * The producers waiting for queue space are parked on this monitor
+     */
+    private final Object m_queueWait = new Object();
+
+    /**
+     * Number of producers waiting for queue space
+     */
+    private final AtomicInteger m_queueWaiters = new AtomicInteger(0);
+
     /**
      * Talk interval
      */
     private int m_talkInterval;
 
+    /**
+     * The adaptive block placer budget
+     */
+    private final TickBudgetController m_budget;
+
+    /**
+     * The permission groups and players scheduler
+     */
+    private final FairScheduler m_fairScheduler;
+
+    /**
+     * Number of blocks placed in each run (shared by all groups)
+     */
+    private int m_rendererBlocks;
+
+    /**
+     * Maximum number of miliseconds spend on placing blocks (shared by all
+     * groups)
+     */
+    private int m_rendererTime;
+
     /**
      * Run number
      */
@@ -165,6 +217,15 @@ public class BlockPlacer implements IBlockPlacer {
         m_isPaused = pause;
     }
     
+    /**
+     * Get the adaptive block placer budget
+     *
+     * @return
+     */
+    public TickBudgetController getBudgetController() {
+        return m_budget;
+    }
+
     /**
      * Get the physics watcher
      *
@@ -183,13 +244,16 @@ public class BlockPlacer implements IBlockPlacer {
         m_jobAddedListeners = new ArrayList<IBlockPlacerListener>();
         m_lastRunTime = System.currentTimeMillis();
         m_runNumber = 0;
-        m_blocks = new HashMap<IPlayerEntry, IBlockPlacerPlayer>();
-        m_lockedQueues = new HashSet<IPlayerEntry>();
+        m_blocks = new ConcurrentHashMap<IPlayerEntry, BlockPlacerPlayer>();
+        m_lockedQueues = Collections.newSetFromMap(new ConcurrentHashMap<IPlayerEntry, Boolean>());
         m_scheduler = plugin.getServer().getScheduler();
         m_progressDisplay = plugin.getProgressDisplayManager();
 
         m_plugin = plugin;
         m_physicsWatcher = plugin.getPhysicsWatcher();
+        m_stats = plugin.getStats();
+        m_budget = new TickBudgetController();
+        m_fairScheduler = new FairScheduler();
 
         loadConfig();
     }
@@ -201,8 +265,11 @@ public class BlockPlacer implements IBlockPlacer {
         final BlockPlacer blocPlacer = this;
 
         long interval = ConfigProvider.getInterval();
+        m_budget.loadConfig();
         m_talkInterval = ConfigProvider.getQueueTalkInterval();
         m_queueMaxSize = ConfigProvider.getQueueMaxSize();
+        m_rendererBlocks = ConfigProvider.getBudgetBlocks();
+        m_rendererTime = ConfigProvider.getBudgetTime();
 
         if (m_task != null) {
             m_task.queueStop();
@@ -256,6 +323,7 @@ public class BlockPlacer implements IBlockPlacer {
         long enterFunctionTime = System.currentTimeMillis();
         final long timeDelte = enterFunctionTime - m_lastRunTime;
 
+        measureTick();
         if (isPaused()) {
             m_lastRunTime = enterFunctionTime;
             return;
@@ -265,28 +333,9 @@ public class BlockPlacer implements IBlockPlacer {
         final List<IJobEntry> jobsToCancel = new ArrayList<IJobEntry>();
         //Number of blocks placed for player
         final HashMap<IPlayerEntry, Integer> blocksPlaced = new HashMap<IPlayerEntry, Integer>();
-        final HashMap<IPermissionGroup, HashSet<IPlayerEntry>> groups = new HashMap<IPermissionGroup, HashSet<IPlayerEntry>>();
-
-        synchronized (m_mutex) {
-            final IPlayerEntry[] keys = m_blocks.keySet().toArray(new IPlayerEntry[0]);
-            for (IPlayerEntry player : keys) {
-                IPermissionGroup group = player.getPermissionGroup();
-
-                HashSet<IPlayerEntry> uuids;
-                if (!groups.containsKey(group)) {
-                    uuids = new HashSet<IPlayerEntry>();
-                    uuids.add(player);
-                    groups.put(group, uuids);
-                } else {
-                    uuids = groups.get(group);
-                    if (!uuids.contains(player)) //Should not happen but better be safe then sorry ;)
-                    {
-                        uuids.add(player);
-                    }
-                }
-            }
-            m_runNumber++;
-        }
+
+        m_fairScheduler.update(m_blocks.keySet());
+        m_runNumber++;
         if (m_runNumber > m_talkInterval) {
             m_runNumber = 0;
             talk = true;
@@ -296,22 +345,25 @@ public class BlockPlacer implements IBlockPlacer {
             return;
         }
 
-        for (Map.Entry<IPermissionGroup, HashSet<IPlayerEntry>> entry : groups.entrySet()) {
-            IPermissionGroup permissionGroup = entry.getKey();
-            IPlayerEntry[] keys = entry.getValue().toArray(new IPlayerEntry[0]);
-
-            processQueue(keys, permissionGroup, blocksPlaced, jobsToCancel);
+        final int maxBlocks = m_budget.scale(m_rendererBlocks);
+        final int maxTime = m_budget.scaleTime(m_rendererTime);
+        long start = System.nanoTime();
+        m_fairScheduler.run(maxBlocks,
+                new GroupProcessor(maxBlocks, maxTime, blocksPlaced, jobsToCancel));
+        long end = System.nanoTime();
+        m_stats.record(StatsSubsystem.BLOCK_PLACER, end - start);
+
+        start = end;
+        for (Map.Entry<IPlayerEntry, BlockPlacerPlayer> queueEntry : m_blocks.entrySet()) {
+            IPlayerEntry playerEntry = queueEntry.getKey();
+            IBlockPlacerPlayer entry = queueEntry.getValue();
+            Integer cnt = blocksPlaced.get(playerEntry);
+
+            showProgress(playerEntry, entry, cnt != null ? cnt : 0, timeDelte, talk);
         }
+        m_stats.record(StatsSubsystem.PROGRESS_DISPLAY, System.nanoTime() - start);
 
-        synchronized (m_mutex) {
-            for (Map.Entry<IPlayerEntry, IBlockPlacerPlayer> queueEntry : m_blocks.entrySet()) {
-                IPlayerEntry playerEntry = queueEntry.getKey();
-                IBlockPlacerPlayer entry = queueEntry.getValue();
-                Integer cnt = blocksPlaced.get(playerEntry);
-
-                showProgress(playerEntry, entry, cnt != null ? cnt : 0, timeDelte, talk);
-            }
-        }
+        wakeProducers();
 
         for (IJobEntry job : jobsToCancel) {
             job.setStatus(JobStatus.Done);
@@ -321,82 +373,199 @@ public class BlockPlacer implements IBlockPlacer {
         m_lastRunTime = enterFunctionTime;
     }
 
+    /**
+     * Measure the duration of the tick in which the block placer runs. The
+     * tick is measured from this run to the scheduler pass in the next tick.
+     */
+    private void measureTick() {
+        if (m_task.isShutingDown()) {
+            return;
+        }
+
+        final long tickStart = System.nanoTime();
+        m_scheduler.runTask(m_plugin, new Runnable() {
+            @Override
+            public void run() {
+                m_budget.update(System.nanoTime() - tickStart);
+            }
+        });
+    }
+
+    /**
+     * Places the permission group blocks using the global run budget
+     */
+    private class GroupProcessor implements FairScheduler.IGroupProcessor {
+
+        /**
+         * The run start time
+         */
+        private final long m_startTime;
+
+        /**
+         * Number of blocks placed in this run (-1 for no limit)
+         */
+        private final int m_maxBlocks;
+
+        /**
+         * Maximum number of miliseconds spend in this run (-1 for no limit)
+         */
+        private final int m_maxTime;
+
+        /**
+         * Number of blocks placed for players
+         */
+        private final HashMap<IPlayerEntry, Integer> m_blocksPlaced;
+
+        /**
+         * Jobs to cancel
+         */
+        private final List<IJobEntry> m_jobsToCancel;
+
+        /**
+         * Number of blocks placed in this run
+         */
+        private int m_blocks;
+
+        /**
+         * Number of blocks placed for each group in this run
+         */
+        private final HashMap<FairScheduler.Group, Integer> m_groupBlocks;
+
+        GroupProcessor(int maxBlocks, int maxTime,
+                HashMap<IPlayerEntry, Integer> blocksPlaced, List<IJobEntry> jobsToCancel) {
+            m_startTime = System.currentTimeMillis();
+            m_maxBlocks = maxBlocks;
+            m_maxTime = maxTime;
+            m_blocksPlaced = blocksPlaced;
+            m_jobsToCancel = jobsToCancel;
+            m_blocks = 0;
+            m_groupBlocks = new HashMap<FairScheduler.Group, Integer>();
+        }
+
+        @Override
+        public int process(FairScheduler.Group group, int maxBlocks, double share) {
+            IPermissionGroup permissionGroup = group.getPermissionGroup();
+            int groupBlocks = m_budget.scale(permissionGroup.getRendererBlocks());
+            int groupTime = m_budget.scaleTime(permissionGroup.getRendererTime());
+            Integer groupPlaced = m_groupBlocks.get(group);
+
+            if (groupBlocks != -1 && groupPlaced != null) {
+                //The group limit is per run, not per process call
+                groupBlocks -= groupPlaced;
+                if (groupBlocks <= 0) {
+                    return 0;
+                }
+            }
+
+            if (m_maxBlocks != -1) {
+                maxBlocks = Math.min(maxBlocks, m_maxBlocks - m_blocks);
+            }
+            if (groupBlocks != -1) {
+                maxBlocks = maxBlocks == -1 ? groupBlocks : Math.min(maxBlocks, groupBlocks);
+            }
+
+            int maxTime = -1;
+            if (m_maxTime != -1) {
+                long timeLeft = m_maxTime - (System.currentTimeMillis() - m_startTime);
+                maxTime = (int) Math.max(1, Math.round(timeLeft * share));
+            }
+            if (groupTime != -1) {
+                maxTime = maxTime == -1 ? groupTime : Math.min(maxTime, groupTime);
+            }
+
+            int placed = processQueue(group, maxBlocks, maxTime, m_blocksPlaced, m_jobsToCancel);
+            m_blocks += placed;
+            m_groupBlocks.put(group, (groupPlaced != null ? groupPlaced : 0) + placed);
+            return placed;
+        }
+
+        @Override
+        public boolean isExhausted() {
+            return m_task.isShutingDown()
+                    || (m_maxBlocks != -1 && m_blocks >= m_maxBlocks)
+                    || (m_maxTime != -1 && (System.currentTimeMillis() - m_startTime) >= m_maxTime);
+        }
+    }
+
     /**
      * process queued blocks
      *
-     * @param playerUUID players to process
-     * @param permissionGroup
+     * @param group the permission group to process
+     * @param maxBlocksCount maximum number of blocks to place (-1 for no limit)
+     * @param maxTime maximum number of miliseconds to spend (-1 for no limit)
      * @param blocksPlaced number of blocksplaced for players
      * @param jobsToCancel canceled blocks
+     * @return number of placed blocks
      */
-    private void processQueue(final IPlayerEntry[] playerUUID,
-            IPermissionGroup permissionGroup,
+    private int processQueue(final FairScheduler.Group group,
+            int maxBlocksCount, int maxTime,
             final HashMap<IPlayerEntry, Integer> blocksPlaced, final List<IJobEntry> jobsToCancel) {
-        InOutParam<Integer> seqNumber = InOutParam.Ref(0);
         long startTime = System.currentTimeMillis();
         int blocks = 0;
         boolean process = true;
 
-        int maxTime = permissionGroup.getRendererTime();
-        int maxBlocksCount = permissionGroup.getRendererBlocks();
-
         while (process) {
-            IBlockPlacerEntry entry;
-            synchronized (m_mutex) {
-                entry = fetchBlocks(playerUUID, permissionGroup,
-                        seqNumber, blocksPlaced, jobsToCancel);
-            }
+            IBlockPlacerEntry entry = fetchBlocks(group, blocksPlaced, jobsToCancel);
 
             if (entry != null) {
                 entry.process(this);
-                blocks++;
+                blocks += BlockPlacerPlayer.getBlockCount(entry);
 
                 process = !entry.isDemanding(); //Allow only one demanding task
                 process &= maxTime == -1 || (System.currentTimeMillis() - startTime) < maxTime;
-                process &= maxBlocksCount == -1 || blocks <= maxBlocksCount;
+                process &= maxBlocksCount == -1 || blocks < maxBlocksCount;
             } else {
                 process = false;
             }
         }
+
+        return blocks;
     }
 
     /**
      * Fetch next block that is going to by placed in this run
      *
-     * @param playerNames list of all players
-     * @param seqNumber sequence number in player names (everyone is treated
-     * equally)
+     * @param group the permission group, the group players position is
+     * updated (everyone is treated equally)
      * @param blocksPlaced number of blocks placed for player
      * @param jobsToCancel jobs to cancel
      * @return fatched block
      */
-    private IBlockPlacerEntry fetchBlocks(final IPlayerEntry[] playerNames,
-            IPermissionGroup permissionGroup,
-            InOutParam<Integer> seqNumber,
+    private IBlockPlacerEntry fetchBlocks(final FairScheduler.Group group,
             final HashMap<IPlayerEntry, Integer> blocksPlaced,
             final List<IJobEntry> jobsToCancel) {
-        if (playerNames == null || playerNames.length == 0) {
+        final List<IPlayerEntry> playerNames = group.getPlayers();
+        final IPermissionGroup permissionGroup = group.getPermissionGroup();
+        if (playerNames == null || playerNames.isEmpty()) {
             return null;
         }
 
-        int keyPos = seqNumber.getValue();
+        int keyPos = group.getPosition();
         IBlockPlacerEntry result = null;
 
-        for (int retry = playerNames.length; result == null && retry > 0; retry--) {
-            final IPlayerEntry player = playerNames[keyPos];
-            final IBlockPlacerPlayer playerEntry = m_blocks.get(player);
+        for (int retry = playerNames.size(); result == null && retry > 0; retry--) {
+            final IPlayerEntry player = playerNames.get(keyPos);
+            final BlockPlacerPlayer playerEntry = m_blocks.get(player);
             if (playerEntry != null) {
                 Queue<IBlockPlacerEntry> queue = playerEntry.getQueue();
+                final int size;
+                final boolean removed;
                 synchronized (queue) {
                     if (!queue.isEmpty()) {
                         IBlockPlacerEntry entry = queue.poll();
                         if (entry != null) {
+                            final int count = BlockPlacerPlayer.getBlockCount(entry);
+                            if (entry instanceof WorldBlockBatchEntry) {
+                                playerEntry.removeCoalescing((WorldBlockBatchEntry) entry);
+                            }
                             result = entry;
+                            playerEntry.updateQueueSize(-count);
+                            m_queueSize.addAndGet(-count);
 
                             if (blocksPlaced.containsKey(player)) {
-                                blocksPlaced.put(player, blocksPlaced.get(player) + 1);
+                                blocksPlaced.put(player, blocksPlaced.get(player) + count);
                             } else {
-                                blocksPlaced.put(player, 1);
+                                blocksPlaced.put(player, count);
                             }
                         }
                     } else {
@@ -411,16 +580,22 @@ public class BlockPlacer implements IBlockPlacer {
 
                         for (IJobEntry job : jobsToCancel) {
                             playerEntry.removeJob(job);
+                            playerEntry.disableCoalescing(job.getJobId());
                         }
                     }
+
+                    size = playerEntry.getQueueSize();
+                    removed = queue.isEmpty() && !playerEntry.hasJobs();
+                    if (removed) {
+                        playerEntry.setRemoved();
+                        m_blocks.remove(player, playerEntry);
+                    }
                 }
 
-                final int size = queue.size();
                 if (size < permissionGroup.getQueueSoftLimit()) {
                     unlockQueue(player, true);
                 }
-                if (size == 0 && !playerEntry.hasJobs()) {
-                    m_blocks.remove(playerNames[keyPos]);
+                if (removed) {
                     if (permissionGroup.isBarApiProgressEnabled()) {
                         hideProgressBar(player, playerEntry);
                     }
@@ -428,10 +603,10 @@ public class BlockPlacer implements IBlockPlacer {
             } else {
                 unlockQueue(player, true);
             }
-            keyPos = (keyPos + 1) % playerNames.length;
+            keyPos = (keyPos + 1) % playerNames.size();
         }
 
-        seqNumber.setValue(keyPos);
+        group.setPosition(keyPos);
         return result;
     }
 
@@ -440,6 +615,7 @@ public class BlockPlacer implements IBlockPlacer {
      */
     public void stop() {
         m_task.stop();
+        wakeProducers();
     }
 
     /**
@@ -450,17 +626,7 @@ public class BlockPlacer implements IBlockPlacer {
      */
     @Override
     public int getJobId(IPlayerEntry player) {
-        IBlockPlacerPlayer playerEntry;
-        synchronized (m_mutex) {
-            if (m_blocks.containsKey(player)) {
-                playerEntry = m_blocks.get(player);
-            } else {
-                playerEntry = new BlockPlacerPlayer(player);
-                m_blocks.put(player, playerEntry);
-            }
-        }
-
-        return playerEntry.getNextJobId();
+        return getPlayerEntry(player).getNextJobId();
     }
 
     /**
@@ -472,13 +638,11 @@ public class BlockPlacer implements IBlockPlacer {
      */
     @Override
     public IJobEntry getJob(IPlayerEntry player, int jobId) {
-        synchronized (m_mutex) {
-            if (!m_blocks.containsKey(player)) {
-                return null;
-            }
-            IBlockPlacerPlayer playerEntry = m_blocks.get(player);
-            return playerEntry.getJob(jobId);
+        IBlockPlacerPlayer playerEntry = m_blocks.get(player);
+        if (playerEntry == null) {
+            return null;
         }
+        return playerEntry.getJob(jobId);
     }
 
     /**
@@ -492,16 +656,19 @@ public class BlockPlacer implements IBlockPlacer {
     public boolean addJob(IPlayerEntry player, IJobEntry job) {
         boolean result;
 
-        synchronized (m_mutex) {
-            IBlockPlacerPlayer playerEntry;
-
-            if (!m_blocks.containsKey(player)) {
-                playerEntry = new BlockPlacerPlayer(player);
-                m_blocks.put(player, playerEntry);
-            } else {
-                playerEntry = m_blocks.get(player);
+        while (true) {
+            BlockPlacerPlayer playerEntry = getPlayerEntry(player);
+            Queue<IBlockPlacerEntry> queue = playerEntry.getQueue();
+            synchronized (queue) {
+                if (playerEntry.isRemoved()) {
+                    continue;
+                }
+                result = playerEntry.addJob(job, false);
+                if (result && ConfigProvider.isCoalescingEnabled(job.getName())) {
+                    playerEntry.enableCoalescing(job.getJobId());
+                }
             }
-            result = playerEntry.addJob(job, false);
+            break;
         }
 
         if (result) {
@@ -531,47 +698,28 @@ public class BlockPlacer implements IBlockPlacer {
             return false;
         }
 
-        synchronized (m_mutex) {
-            IBlockPlacerPlayer playerEntry;
+        final boolean isJob = entry instanceof JobEntry;
+        final boolean bypass = !player.isAllowed(Permission.QUEUE_BYPASS) || isJob;
 
-            if (!m_blocks.containsKey(player)) {
-                playerEntry = new BlockPlacerPlayer(player);
-                m_blocks.put(player, playerEntry);
-            } else {
-                playerEntry = m_blocks.get(player);
-            }
+        while (true) {
+            BlockPlacerPlayer playerEntry = getPlayerEntry(player);
             Queue<IBlockPlacerEntry> queue = playerEntry.getQueue();
 
-            if (m_lockedQueues.contains(player) && !(entry instanceof JobEntry)) {
+            if (!canQueue(player, playerEntry, isJob, bypass, entry.getJobId())) {
                 return false;
             }
 
-            boolean bypass = !player.isAllowed(Permission.QUEUE_BYPASS);
-            IPermissionGroup group = player.getPermissionGroup();
-
-            int size = 0;
-            for (Map.Entry<IPlayerEntry, IBlockPlacerPlayer> queueEntry : m_blocks.entrySet()) {
-                size += queueEntry.getValue().getQueue().size();
-            }
-
-            bypass |= entry instanceof JobEntry;
-            
-            //TODO: Add wait for queue here!
-            if (m_queueMaxSize > 0 && size > m_queueMaxSize && !bypass) {
-                if (!playerEntry.isInformed()) {
-                    playerEntry.setInformed(true);
-                    player.say(MessageType.BLOCK_PLACER_GLOBAL_QUEUE_FULL.format());
+            final int queueSize;
+            synchronized (queue) {
+                if (playerEntry.isRemoved()) {
+                    //The entry was removed by the consumer, get a new one
+                    continue;
                 }
 
-                return false;
-            } else {
                 if (playerEntry.isInformed()) {
                     playerEntry.setInformed(false);
                 }
 
-                synchronized (queue) {
-                    queue.add(entry);
-                }
                 if (entry instanceof IBlockPlacerLocationEntry) {
                     IBlockPlacerLocationEntry bpEntry = (IBlockPlacerLocationEntry) entry;
                     String worldName = bpEntry.getWorldName();
@@ -579,22 +727,262 @@ public class BlockPlacer implements IBlockPlacer {
                         m_physicsWatcher.addLocation(worldName, bpEntry.getLocation());
                     }
                 }
+                queue.add(entry);
+
+                final int count = BlockPlacerPlayer.getBlockCount(entry);
+                playerEntry.updateQueueSize(count);
+                m_queueSize.addAndGet(count);
                 if (entry instanceof IJobEntry) {
-                    playerEntry.addJob((IJobEntry) entry, true);
+                    IJobEntry job = (IJobEntry) entry;
+                    playerEntry.addJob(job, true);
+                    if (ConfigProvider.isCoalescingEnabled(job.getName())) {
+                        playerEntry.enableCoalescing(job.getJobId());
+                    }
+                }
+                queueSize = playerEntry.getQueueSize();
+            }
+
+            return checkHardLimit(player, queueSize, bypass);
+        }
+    }
+
+    /**
+     * Add block (without NBT data) to perform in async mode. The blocks
+     * are grouped in to chunk section batches.
+     *
+     * @param player
+     * @param world the world
+     * @param jobId the job ID
+     * @param location block location
+     * @param block the block to place
+     * @param applyPhysics apply block physics
+     * @return
+     */
+    public boolean addBlock(IPlayerEntry player, AsyncWorld world, int jobId,
+            Vector location, BaseBlock block, boolean applyPhysics) {
+        if (player == null) {
+            return false;
+        }
+
+        final boolean bypass = !player.isAllowed(Permission.QUEUE_BYPASS);
+        final int x = location.getBlockX();
+        final int y = location.getBlockY();
+        final int z = location.getBlockZ();
+        final int combinedId = WorldBlockBatchEntry.getCombinedId(block);
+        WorldBlockBatchEntry newBatch = null;
+
+        while (true) {
+            BlockPlacerPlayer playerEntry = getPlayerEntry(player);
+            Queue<IBlockPlacerEntry> queue = playerEntry.getQueue();
+
+            if (!canQueue(player, playerEntry, false, bypass, jobId)) {
+                return false;
+            }
+
+            final int queueSize;
+            synchronized (queue) {
+                if (playerEntry.isRemoved()) {
+                    //The entry was removed by the consumer, get a new one
+                    continue;
+                }
+
+                final IBlockPlacerEntry last = playerEntry.getLastEntry();
+                final LongHashMap<WorldBlockBatchEntry> coalescing = playerEntry.getCoalescing(jobId);
+                final long key = PositionUtils.pack(x, y, z);
+                if (coalescing != null) {
+                    WorldBlockBatchEntry prev = coalescing.get(key);
+                    if (prev != null && prev == last
+                            && prev.replace(x, y, z, combinedId)) {
+                        //Superseded write in the last batch
+                        if (playerEntry.isInformed()) {
+                            playerEntry.setInformed(false);
+                        }
+                        queueSize = playerEntry.getQueueSize();
+                        return checkHardLimit(player, queueSize, bypass);
+                    }
+
+                    if (prev != null && prev.remove(x, y, z)) {
+                        //Superseded write in one of the older batches
+                        String worldName = prev.getWorldName();
+                        if (worldName != null && !prev.isRegionLocked()) {
+                            m_physicsWatcher.removeLocation(worldName, location);
+                        }
+                        playerEntry.updateQueueSize(-1);
+                        m_queueSize.decrementAndGet();
+                    }
+                }
+
+                final WorldBlockBatchEntry batch;
+                if (last instanceof WorldBlockBatchEntry
+                        && ((WorldBlockBatchEntry) last).canAdd(world, jobId, x, y, z, applyPhysics)) {
+                    batch = (WorldBlockBatchEntry) last;
+                } else if (newBatch != null) {
+                    batch = newBatch;
+                    if (playerEntry.addRegionSection(jobId, batch.getWorldName(),
+                            batch.getSectionX(), batch.getSectionY(), batch.getSectionZ())) {
+                        //The whole section is frozen until the job is removed
+                        batch.setRegionLocked();
+                    }
+                    queue.add(batch);
+                } else {
+                    batch = null;
                 }
-                
-                //TODO: Add wait for queue here!
-                if (queue.size() >= group.getQueueHardLimit() && bypass) {
-                    m_lockedQueues.add(player);
-                    player.say(MessageType.BLOCK_PLACER_QUEUE_FULL.format());
-                    return false;
+
+                if (batch != null) {
+                    if (playerEntry.isInformed()) {
+                        playerEntry.setInformed(false);
+                    }
+
+                    String worldName = batch.getWorldName();
+                    if (worldName != null && !batch.isRegionLocked()) {
+                        m_physicsWatcher.addLocation(worldName, location);
+                    }
+
+                    batch.add(x, y, z, combinedId);
+                    if (coalescing != null) {
+                        coalescing.put(key, batch);
+                    }
+                    playerEntry.updateQueueSize(1);
+                    m_queueSize.incrementAndGet();
+                    queueSize = playerEntry.getQueueSize();
+                } else {
+                    queueSize = -1;
                 }
             }
 
+            if (queueSize < 0) {
+                //Create the batch without holding the queue lock, 
+                //getting the world name requires the world mutex
+                newBatch = new WorldBlockBatchEntry(world, world.getName(), jobId, player,
+                        x, y, z, applyPhysics);
+                continue;
+            }
+
+            return checkHardLimit(player, queueSize, bypass);
+        }
+    }
+
+    /**
+     * Check if new entries can be added to the player queue. Producers that
+     * are not running on the server main thread are parked until the queue
+     * is unlocked, the job is canceled or the block placer is stopped.
+     *
+     * @param player
+     * @param playerEntry
+     * @param isJob
+     * @param bypass
+     * @param jobId
+     * @return
+     */
+    private boolean canQueue(IPlayerEntry player, BlockPlacerPlayer playerEntry,
+            boolean isJob, boolean bypass, int jobId) {
+        final boolean canWait = canWaitForQueue();
+        final IJobEntry job = canWait ? playerEntry.getJob(jobId) : null;
+
+        while (true) {
+            final boolean isLocked = m_lockedQueues.contains(player) && !isJob;
+            final boolean isFull = m_queueMaxSize > 0 && m_queueSize.get() > m_queueMaxSize && !bypass;
+
+            if (!isLocked && !isFull) {
+                return true;
+            }
+
+            if (isFull && !playerEntry.isInformed()) {
+                playerEntry.setInformed(true);
+                player.say(MessageType.BLOCK_PLACER_GLOBAL_QUEUE_FULL.format());
+            }
+
+            if (!canWait || m_task.isShutingDown()
+                    || (job != null && job.getStatus() == JobStatus.Canceled)) {
+                return false;
+            }
+
+            if (!waitForQueue()) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Check the player queue hard limit and lock the queue if needed
+     *
+     * @param player
+     * @param queueSize
+     * @param bypass
+     * @return
+     */
+    private boolean checkHardLimit(IPlayerEntry player, int queueSize, boolean bypass) {
+        if (queueSize >= player.getPermissionGroup().getQueueHardLimit() && bypass) {
+            m_lockedQueues.add(player);
+            player.say(MessageType.BLOCK_PLACER_QUEUE_FULL.format());
+
+            //The entry is queued, the next entries wait in canQueue
+            return canWaitForQueue();
+        }
+
+        return true;
+    }
+
+    /**
+     * Check if the current thread can wait for queue space. The server main
+     * thread drains the queues so it is never parked.
+     *
+     * @return
+     */
+    private boolean canWaitForQueue() {
+        return !m_plugin.getServer().isPrimaryThread();
+    }
+
+    /**
+     * Park the producer until queue space is released (or the recheck time
+     * passes)
+     *
+     * @return false if the thread was interrupted
+     */
+    private boolean waitForQueue() {
+        m_queueWaiters.incrementAndGet();
+        try {
+            synchronized (m_queueWait) {
+                m_queueWait.wait(QUEUE_WAIT_RECHECK);
+            }
             return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            m_queueWaiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Wake up the producers waiting for queue space
+     */
+    private void wakeProducers() {
+        if (m_queueWaiters.get() == 0) {
+            return;
+        }
+
+        synchronized (m_queueWait) {
+            m_queueWait.notifyAll();
         }
     }
 
+    /**
+     * Get or create the player queue entry
+     *
+     * @param player
+     * @return
+     */
+    private BlockPlacerPlayer getPlayerEntry(IPlayerEntry player) {
+        BlockPlacerPlayer result = m_blocks.get(player);
+        if (result != null) {
+            return result;
+        }
+
+        BlockPlacerPlayer newEntry = new BlockPlacerPlayer(player, m_physicsWatcher);
+        result = m_blocks.putIfAbsent(player, newEntry);
+        return result != null ? result : newEntry;
+    }
 
     /**
      * Wait for job to finish
@@ -647,75 +1035,72 @@ public class BlockPlacer implements IBlockPlacer {
     @Override
     public int cancelJob(IPlayerEntry player, int jobId) {
         int newSize, result;
-        IBlockPlacerPlayer playerEntry;
-        Queue<IBlockPlacerEntry> queue = null;
+        BlockPlacerPlayer playerEntry = m_blocks.get(player);
         IJobEntry job = null;
-        synchronized (m_mutex) {
-            if (!m_blocks.containsKey(player)) {
-                return 0;
-            }
-
-            playerEntry = m_blocks.get(player);
-            if (playerEntry != null) {
-                job = playerEntry.getJob(jobId);
-                if (job instanceof UndoJob) {
-                    player.say(MessageType.BLOCK_PLACER_CANCEL_UNDO.format());
-                    return 0;
-                }
+        if (playerEntry == null) {
+            return 0;
+        }
 
-                queue = playerEntry.getQueue();
+        job = playerEntry.getJob(jobId);
+        if (job instanceof UndoJob) {
+            player.say(MessageType.BLOCK_PLACER_CANCEL_UNDO.format());
+            return 0;
+        }
 
-                if (job != null) {
-                    playerEntry.removeJob(job);
-                    onJobRemoved(job);
-                }
-            }
+        if (job != null) {
+            playerEntry.removeJob(job);
+            onJobRemoved(job);
+            wakeProducers();
         }
 
         waitForJob(job);
 
-        synchronized (m_mutex) {
-            Queue<IBlockPlacerEntry> filtered = new ArrayDeque<IBlockPlacerEntry>();
-            if (queue != null) {
-                synchronized (queue) {
-                    for (IBlockPlacerEntry entry : queue) {
-                        if (entry.getJobId() == jobId) {
-                            if (entry instanceof IBlockPlacerLocationEntry) {
-                                IBlockPlacerLocationEntry bpEntry = (IBlockPlacerLocationEntry) entry;
-                                String worldName = bpEntry.getWorldName();
-                                if (worldName != null) {
-                                    m_physicsWatcher.removeLocation(worldName, bpEntry.getLocation());
-                                }
-                            } else if (playerEntry != null && entry instanceof IJobEntry) {
-                                IJobEntry jobEntry = (IJobEntry) entry;
-                                playerEntry.removeJob(jobEntry);
-                                onJobRemoved(jobEntry);
-                            }
-                        } else {
-                            filtered.add(entry);
-                        }
-                    }
+        final Queue<IBlockPlacerEntry> queue = playerEntry.getQueue();
+        final boolean removed;
+        synchronized (queue) {
+            result = 0;
+            for (Iterator<IBlockPlacerEntry> it = queue.iterator(); it.hasNext();) {
+                IBlockPlacerEntry entry = it.next();
+                if (entry.getJobId() != jobId) {
+                    continue;
                 }
 
-                newSize = filtered.size();
-                result = queue.size() - filtered.size();
-            } else {
-                newSize = 0;
-                result = 0;
-            }
-            IPermissionGroup group = player.getPermissionGroup();
-            if (newSize > 0 && playerEntry != null) {
-                playerEntry.updateQueue(filtered);
-            } else if (newSize == 0) {
-                m_blocks.remove(player);
-                if (group.isBarApiProgressEnabled()) {
-                    hideProgressBar(player, playerEntry);
+                it.remove();
+                result += BlockPlacerPlayer.getBlockCount(entry);
+                if (entry instanceof WorldBlockBatchEntry) {
+                    ((WorldBlockBatchEntry) entry).removeLocations(m_physicsWatcher);
+                } else if (entry instanceof IBlockPlacerLocationEntry) {
+                    IBlockPlacerLocationEntry bpEntry = (IBlockPlacerLocationEntry) entry;
+                    String worldName = bpEntry.getWorldName();
+                    if (worldName != null) {
+                        m_physicsWatcher.removeLocation(worldName, bpEntry.getLocation());
+                    }
+                } else if (entry instanceof IJobEntry) {
+                    IJobEntry jobEntry = (IJobEntry) entry;
+                    playerEntry.removeJob(jobEntry);
+                    onJobRemoved(jobEntry);
                 }
             }
-            if (newSize == 0 || newSize < group.getQueueSoftLimit()) {
-                unlockQueue(player, newSize != 0);
+
+            playerEntry.updateQueueSize(-result);
+            playerEntry.disableCoalescing(jobId);
+            m_queueSize.addAndGet(-result);
+            newSize = playerEntry.getQueueSize();
+
+            removed = queue.isEmpty() && !playerEntry.isRemoved();
+            if (removed) {
+                playerEntry.setRemoved();
+                m_blocks.remove(player, playerEntry);
             }
         }
+
+        IPermissionGroup group = player.getPermissionGroup();
+        if (removed && group.isBarApiProgressEnabled()) {
+            hideProgressBar(player, playerEntry);
+        }
+        if (newSize == 0 || newSize < group.getQueueSoftLimit()) {
+            unlockQueue(player, newSize != 0);
+        }
         return result;
     }
 
@@ -728,23 +1113,23 @@ public class BlockPlacer implements IBlockPlacer {
     @Override
     public int purge(IPlayerEntry player) {
         int result = 0;
-        synchronized (m_mutex) {
-            if (m_blocks.containsKey(player)) {
-                IBlockPlacerPlayer playerEntry = m_blocks.get(player);
-                Queue<IBlockPlacerEntry> queue = playerEntry.getQueue();
-                synchronized (queue) {
-                    for (IBlockPlacerEntry entry : queue) {
-                        if (entry instanceof IBlockPlacerLocationEntry) {
-                            IBlockPlacerLocationEntry bpEntry = (IBlockPlacerLocationEntry) entry;
-                            String name = bpEntry.getWorldName();
-                            if (name != null) {
-                                m_physicsWatcher.removeLocation(name, bpEntry.getLocation());
-                            }
-                        } else if (entry instanceof IJobEntry) {
-                            IJobEntry jobEntry = (IJobEntry) entry;
-                            playerEntry.removeJob(jobEntry);
-                            onJobRemoved(jobEntry);
+        BlockPlacerPlayer playerEntry = m_blocks.get(player);
+        if (playerEntry != null) {
+            Queue<IBlockPlacerEntry> queue = playerEntry.getQueue();
+            synchronized (queue) {
+                for (IBlockPlacerEntry entry : queue) {
+                    if (entry instanceof WorldBlockBatchEntry) {
+                        ((WorldBlockBatchEntry) entry).removeLocations(m_physicsWatcher);
+                    } else if (entry instanceof IBlockPlacerLocationEntry) {
+                        IBlockPlacerLocationEntry bpEntry = (IBlockPlacerLocationEntry) entry;
+                        String name = bpEntry.getWorldName();
+                        if (name != null) {
+                            m_physicsWatcher.removeLocation(name, bpEntry.getLocation());
                         }
+                    } else if (entry instanceof IJobEntry) {
+                        IJobEntry jobEntry = (IJobEntry) entry;
+                        playerEntry.removeJob(jobEntry);
+                        onJobRemoved(jobEntry);
                     }
                 }
 
@@ -753,15 +1138,22 @@ public class BlockPlacer implements IBlockPlacer {
                     playerEntry.removeJob(job.getJobId());
                     onJobRemoved(job);
                 }
-                result = queue.size();
-                m_blocks.remove(player);
-                IPermissionGroup group = player.getPermissionGroup();
-                if (group.isBarApiProgressEnabled()) {
-                    hideProgressBar(player, playerEntry);
-                }
+                result = playerEntry.getQueueSize();
+                queue.clear();
+                playerEntry.updateQueueSize(-result);
+                playerEntry.disableCoalescing();
+                m_queueSize.addAndGet(-result);
+
+                playerEntry.setRemoved();
+                m_blocks.remove(player, playerEntry);
+            }
+
+            IPermissionGroup group = player.getPermissionGroup();
+            if (group.isBarApiProgressEnabled()) {
+                hideProgressBar(player, playerEntry);
             }
-            unlockQueue(player, false);
         }
+        unlockQueue(player, false);
 
         return result;
     }
@@ -774,10 +1166,8 @@ public class BlockPlacer implements IBlockPlacer {
     @Override
     public int purgeAll() {
         int result = 0;
-        synchronized (m_mutex) {
-            for (IPlayerEntry user : getAllPlayers()) {
-                result += purge(user);
-            }
+        for (IPlayerEntry user : getAllPlayers()) {
+            result += purge(user);
         }
 
         return result;
@@ -790,9 +1180,7 @@ public class BlockPlacer implements IBlockPlacer {
      */
     @Override
     public IPlayerEntry[] getAllPlayers() {
-        synchronized (m_mutex) {
-            return m_blocks.keySet().toArray(new IPlayerEntry[0]);
-        }
+        return m_blocks.keySet().toArray(new IPlayerEntry[0]);
     }
 
     /**
@@ -803,12 +1191,7 @@ public class BlockPlacer implements IBlockPlacer {
      */
     @Override
     public IBlockPlacerPlayer getPlayerEvents(IPlayerEntry player) {
-        synchronized (m_mutex) {
-            if (m_blocks.containsKey(player)) {
-                return m_blocks.get(player);
-            }
-            return null;
-        }
+        return m_blocks.get(player);
     }
 
     /**
@@ -818,12 +1201,7 @@ public class BlockPlacer implements IBlockPlacer {
      * @return
      */
     public String getPlayerMessage(IPlayerEntry player) {
-        IBlockPlacerPlayer entry = null;
-        synchronized (m_mutex) {
-            if (m_blocks.containsKey(player)) {
-                entry = m_blocks.get(player);
-            }
-        }
+        IBlockPlacerPlayer entry = m_blocks.get(player);
 
         boolean bypass = player.isAllowed(Permission.QUEUE_BYPASS);
         IPermissionGroup group = player.getPermissionGroup();
@@ -842,7 +1220,7 @@ public class BlockPlacer implements IBlockPlacer {
         double time = 0;
 
         if (player != null) {
-            blocks = player.getQueue().size();
+            blocks = player.getQueueSize();
             speed = player.getSpeed();
         }
         if (speed > 0) {
@@ -865,10 +1243,7 @@ public class BlockPlacer implements IBlockPlacer {
      */
     @Override
     public void removeJob(final IPlayerEntry player, IJobEntry jobEntry) {
-        IBlockPlacerPlayer playerEntry;
-        synchronized (m_mutex) {
-            playerEntry = m_blocks.get(player);
-        }
+        IBlockPlacerPlayer playerEntry = m_blocks.get(player);
 
         if (playerEntry != null) {
             playerEntry.removeJob(jobEntry);
@@ -907,7 +1282,7 @@ public class BlockPlacer implements IBlockPlacer {
 
         if (entry != null) {
             jobs = entry.getJobs().length;
-            blocks = entry.getQueue().size();
+            blocks = entry.getQueueSize();
             maxBlocks = entry.getMaxQueueBlocks();
             speed = entry.getSpeed();
         }
@@ -976,11 +1351,13 @@ public class BlockPlacer implements IBlockPlacer {
      * @param player
      */
     private void unlockQueue(final IPlayerEntry player, boolean talk) {
-        if (m_lockedQueues.contains(player)) {
-            if (talk) {
-                player.say(MessageType.BLOCK_PLACER_QUEUE_UNLOCKED.format());
-            }
-            m_lockedQueues.remove(player);
+        if (!m_lockedQueues.remove(player)) {
+            return;
+        }
+
+        wakeProducers();
+        if (talk) {
+            player.say(MessageType.BLOCK_PLACER_QUEUE_UNLOCKED.format());
         }
     }
 
@@ -1000,7 +1377,7 @@ public class BlockPlacer implements IBlockPlacer {
         final CancelabeEditSession session = new CancelabeEditSession(editSession, editSession.getMask(), jobId);
         final JobEntry job = new JobEntry(player, session, jobId, jobName);
         addJob(player, job);
-        m_scheduler.runTaskAsynchronously(m_plugin, new AsyncTask(session, player, jobName,
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, player, jobName,
                 this, job) {
                     @Override
                     public int task(CancelabeEditSession session)
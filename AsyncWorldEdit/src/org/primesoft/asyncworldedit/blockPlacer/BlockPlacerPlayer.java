@@ -44,10 +44,13 @@ import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Queue;
+import org.primesoft.asyncworldedit.api.IPhysicsWatch;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacerEntry;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacerPlayer;
 import org.primesoft.asyncworldedit.api.blockPlacer.entries.IJobEntry;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+import org.primesoft.asyncworldedit.blockPlacer.entries.WorldBlockBatchEntry;
+import org.primesoft.asyncworldedit.utils.LongHashMap;
 import org.primesoft.asyncworldedit.strings.MessageType;
 
 /**
@@ -61,9 +64,14 @@ public class BlockPlacerPlayer implements IBlockPlacerPlayer {
      */
     private final int AVG_SAMPLES = 5;
     /**
-     * The queue
+     * The queue, it is also used as the per player lock
      */
-    private Queue<IBlockPlacerEntry> m_queue;
+    private final ArrayDeque<IBlockPlacerEntry> m_queue;
+
+    /**
+     * Number of blocks on the queue (guarded by the queue lock)
+     */
+    private volatile int m_queueSize;
     /**
      * Current block placing speed (blocks per second)
      */
@@ -77,7 +85,7 @@ public class BlockPlacerPlayer implements IBlockPlacerPlayer {
     /**
      * Is the player informed about queue limit reached
      */
-    private boolean m_isInformed;
+    private volatile boolean m_isInformed;
 
     /**
      * Maximum number of blocks on queue Used to display the progress bar
@@ -90,16 +98,44 @@ public class BlockPlacerPlayer implements IBlockPlacerPlayer {
      */
     private final IPlayerEntry m_player;
     
+    /**
+     * The write coalescing maps (packed position to the batch containing
+     * the last write) for jobs that have write coalescing enabled
+     * (guarded by the queue lock)
+     */
+    private final HashMap<Integer, LongHashMap<WorldBlockBatchEntry>> m_coalescing;
+    
+    /**
+     * Is the entry removed from the block placer
+     * (guarded by the queue lock)
+     */
+    private boolean m_isRemoved;
+
+    /**
+     * The physics watcher
+     */
+    private final IPhysicsWatch m_physicsWatch;
+
+    /**
+     * The chunk sections frozen by the jobs (guarded by the jobs lock)
+     */
+    private final HashMap<Integer, JobPhysicsRegion> m_regions;
 
     /**
      * Create new player entry
      * @param player
+     * @param physicsWatch
      */
-    public BlockPlacerPlayer(IPlayerEntry player) {
+    public BlockPlacerPlayer(IPlayerEntry player, IPhysicsWatch physicsWatch) {
         m_player = player;
-        m_queue = new ArrayDeque();
+        m_physicsWatch = physicsWatch;
+        m_regions = new HashMap<Integer, JobPhysicsRegion>();
+        m_queue = new ArrayDeque<IBlockPlacerEntry>();
+        m_isRemoved = false;
+        m_queueSize = 0;
         m_speed = 0;
         m_jobs = new HashMap<Integer, IJobEntry>();
+        m_coalescing = new HashMap<Integer, LongHashMap<WorldBlockBatchEntry>>();
     }
 
     /**
@@ -138,7 +174,150 @@ public class BlockPlacerPlayer implements IBlockPlacerPlayer {
      */
     @Override
     public void updateQueue(Queue<IBlockPlacerEntry> newQueue) {
-        m_queue = newQueue;
+        synchronized (m_queue) {
+            if (newQueue == m_queue) {
+                return;
+            }
+            
+            m_queue.clear();
+            m_queueSize = 0;
+            if (newQueue != null) {
+                for (IBlockPlacerEntry entry : newQueue) {
+                    m_queue.add(entry);
+                    m_queueSize += getBlockCount(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of blocks on queue
+     *
+     * @return
+     */
+    @Override
+    public int getQueueSize() {
+        return m_queueSize;
+    }
+
+    /**
+     * Update the number of blocks on queue. 
+     * Call only when holding the queue lock.
+     *
+     * @param delta
+     */
+    void updateQueueSize(int delta) {
+        m_queueSize += delta;
+    }
+
+    /**
+     * Get the last entry on the queue. 
+     * Call only when holding the queue lock.
+     *
+     * @return
+     */
+    IBlockPlacerEntry getLastEntry() {
+        return m_queue.peekLast();
+    }
+
+    /**
+     * Enable write coalescing for job. 
+     * Call only when holding the queue lock.
+     *
+     * @param jobId
+     */
+    void enableCoalescing(int jobId) {
+        if (!m_coalescing.containsKey(jobId)) {
+            m_coalescing.put(jobId, new LongHashMap<WorldBlockBatchEntry>());
+        }
+    }
+
+    /**
+     * Disable write coalescing for job. 
+     * Call only when holding the queue lock.
+     *
+     * @param jobId
+     */
+    void disableCoalescing(int jobId) {
+        m_coalescing.remove(jobId);
+    }
+
+    /**
+     * Disable write coalescing for all jobs. 
+     * Call only when holding the queue lock.
+     */
+    void disableCoalescing() {
+        m_coalescing.clear();
+    }
+
+    /**
+     * Get the write coalescing map for job. 
+     * Call only when holding the queue lock.
+     *
+     * @param jobId
+     * @return null if write coalescing is disabled for the job
+     */
+    LongHashMap<WorldBlockBatchEntry> getCoalescing(int jobId) {
+        if (m_coalescing.isEmpty()) {
+            return null;
+        }
+        return m_coalescing.get(jobId);
+    }
+
+    /**
+     * Remove the fetched batch from write coalescing map. 
+     * Call only when holding the queue lock.
+     *
+     * @param batch
+     */
+    void removeCoalescing(WorldBlockBatchEntry batch) {
+        LongHashMap<WorldBlockBatchEntry> coalescing = getCoalescing(batch.getJobId());
+        if (coalescing == null) {
+            return;
+        }
+
+        for (int i = batch.getSlotCount() - 1; i >= 0; i--) {
+            if (batch.isRemoved(i)) {
+                continue;
+            }
+
+            long key = batch.getKey(i);
+            if (coalescing.get(key) == batch) {
+                coalescing.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Get the number of blocks in block placer entry
+     *
+     * @param entry
+     * @return
+     */
+    static int getBlockCount(IBlockPlacerEntry entry) {
+        if (entry instanceof WorldBlockBatchEntry) {
+            return ((WorldBlockBatchEntry) entry).size();
+        }
+
+        return 1;
+    }
+
+    /**
+     * Is the entry removed from the block placer. 
+     * Call only when holding the queue lock.
+     *
+     * @return
+     */
+    boolean isRemoved() {
+        return m_isRemoved;
+    }
+
+    /**
+     * Mark the entry as removed from the block placer. 
+     * Call only when holding the queue lock.
+     */
+    void setRemoved() {
+        m_isRemoved = true;
     }
 
     /**
@@ -231,6 +410,7 @@ public class BlockPlacerPlayer implements IBlockPlacerPlayer {
             }
             m_jobs.get(id).cancel();
             m_jobs.remove(id);
+            releaseRegion(id);
         }
     }
 
@@ -247,6 +427,52 @@ public class BlockPlacerPlayer implements IBlockPlacerPlayer {
             }
             m_jobs.get(jobId).cancel();
             m_jobs.remove(jobId);
+            releaseRegion(jobId);
+        }
+    }
+
+    /**
+     * Freeze the chunk section until the job is removed
+     *
+     * @param jobId the job ID
+     * @param worldName the world name
+     * @param sectionX the section X coordinate
+     * @param sectionY the section Y coordinate
+     * @param sectionZ the section Z coordinate
+     * @return false if the job is not registered (the section is not
+     * frozen)
+     */
+    boolean addRegionSection(int jobId, String worldName,
+            int sectionX, int sectionY, int sectionZ) {
+        if (m_physicsWatch == null || worldName == null) {
+            return false;
+        }
+
+        synchronized (m_jobs) {
+            if (!m_jobs.containsKey(jobId)) {
+                return false;
+            }
+
+            JobPhysicsRegion region = m_regions.get(jobId);
+            if (region == null) {
+                region = new JobPhysicsRegion();
+                m_regions.put(jobId, region);
+            }
+            region.add(m_physicsWatch, worldName, sectionX, sectionY, sectionZ);
+        }
+
+        return true;
+    }
+
+    /**
+     * Release the chunk sections frozen by the job (jobs lock required)
+     *
+     * @param jobId
+     */
+    private void releaseRegion(int jobId) {
+        JobPhysicsRegion region = m_regions.remove(jobId);
+        if (region != null) {
+            region.release(m_physicsWatch);
         }
     }
 
@@ -0,0 +1,353 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.blockPlacer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import org.primesoft.asyncworldedit.api.configuration.IPermissionGroup;
+import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+
+/**
+ * Deficit round robin scheduler for the block placer. The global blocks
+ * budget is shared by the permission groups according to their renderer
+ * weight. The group order and the player order inside the groups are kept
+ * between runs so no group or player is favoured.
+ *
+ * The scheduler does not use the clock or the block placer state, the
+ * results depend only on the input players and the processor results.
+ *
+ * @author SBPrime
+ */
+public class FairScheduler {
+
+    /**
+     * The group processor
+     */
+    public interface IGroupProcessor {
+
+        /**
+         * Place the group blocks
+         *
+         * @param group the group to process
+         * @param maxBlocks maximum number of blocks to place (-1 for no limit)
+         * @param share the group share of the remaining budget (0-1)
+         * @return number of placed blocks
+         */
+        int process(Group group, int maxBlocks, double share);
+
+        /**
+         * Is the global budget used
+         *
+         * @return
+         */
+        boolean isExhausted();
+    }
+
+    /**
+     * The scheduled permission group
+     */
+    public static class Group {
+
+        /**
+         * The permission group
+         */
+        private final IPermissionGroup m_group;
+
+        /**
+         * The group players (in round robin order)
+         */
+        private List<IPlayerEntry> m_players;
+
+        /**
+         * Position of the next player to process
+         */
+        private int m_position;
+
+        /**
+         * Number of blocks the group can place above the quantum
+         */
+        private long m_deficit;
+
+        Group(IPermissionGroup group) {
+            m_group = group;
+            m_players = new ArrayList<IPlayerEntry>();
+            m_position = 0;
+            m_deficit = 0;
+        }
+
+        /**
+         * The permission group
+         *
+         * @return
+         */
+        public IPermissionGroup getPermissionGroup() {
+            return m_group;
+        }
+
+        /**
+         * The group players (in round robin order)
+         *
+         * @return
+         */
+        public List<IPlayerEntry> getPlayers() {
+            return m_players;
+        }
+
+        /**
+         * Position of the next player to process
+         *
+         * @return
+         */
+        public int getPosition() {
+            return m_position;
+        }
+
+        /**
+         * Set the position of the next player to process
+         *
+         * @param position
+         */
+        public void setPosition(int position) {
+            int size = m_players.size();
+            m_position = size == 0 ? 0 : (position % size);
+        }
+
+        /**
+         * The group weight
+         *
+         * @return
+         */
+        public int getWeight() {
+            return Math.max(1, m_group.getRendererWeight());
+        }
+
+        /**
+         * Number of blocks the group can place above the quantum
+         *
+         * @return
+         */
+        public long getDeficit() {
+            return m_deficit;
+        }
+    }
+
+    /**
+     * The scheduled groups (in round robin order)
+     */
+    private final List<Group> m_groups = new ArrayList<Group>();
+
+    /**
+     * Position of the next group to process
+     */
+    private int m_position = 0;
+
+    /**
+     * Get the scheduled groups (in round robin order)
+     *
+     * @return
+     */
+    public List<Group> getGroups() {
+        return m_groups;
+    }
+
+    /**
+     * Position of the next group to process
+     *
+     * @return
+     */
+    public int getPosition() {
+        return m_position;
+    }
+
+    /**
+     * Update the scheduled players. New groups and players are added at the
+     * end of the round robin, the removed ones do not change the order of
+     * the remaining entries.
+     *
+     * @param players the players with queued blocks
+     */
+    public void update(Collection<IPlayerEntry> players) {
+        final HashMap<IPermissionGroup, List<IPlayerEntry>> current = new HashMap<IPermissionGroup, List<IPlayerEntry>>();
+        final List<IPermissionGroup> newGroups = new ArrayList<IPermissionGroup>();
+        for (IPlayerEntry player : players) {
+            IPermissionGroup group = player.getPermissionGroup();
+            List<IPlayerEntry> groupPlayers = current.get(group);
+            if (groupPlayers == null) {
+                groupPlayers = new ArrayList<IPlayerEntry>();
+                current.put(group, groupPlayers);
+                newGroups.add(group);
+            }
+            groupPlayers.add(player);
+        }
+
+        final List<Group> groups = new ArrayList<Group>(m_groups.size() + newGroups.size());
+        int position = 0;
+        for (int i = 0; i < m_groups.size(); i++) {
+            Group group = m_groups.get(i);
+            List<IPlayerEntry> groupPlayers = current.get(group.m_group);
+            if (groupPlayers == null) {
+                continue;
+            }
+
+            if (i < m_position) {
+                position++;
+            }
+            newGroups.remove(group.m_group);
+            updatePlayers(group, groupPlayers);
+            groups.add(group);
+        }
+
+        for (IPermissionGroup permissionGroup : newGroups) {
+            Group group = new Group(permissionGroup);
+            group.m_players = current.get(permissionGroup);
+            groups.add(group);
+        }
+
+        m_groups.clear();
+        m_groups.addAll(groups);
+        m_position = groups.isEmpty() ? 0 : (position % groups.size());
+    }
+
+    /**
+     * Update the group players
+     *
+     * @param group
+     * @param players
+     */
+    private static void updatePlayers(Group group, List<IPlayerEntry> players) {
+        final HashSet<IPlayerEntry> current = new HashSet<IPlayerEntry>(players);
+        final List<IPlayerEntry> result = new ArrayList<IPlayerEntry>(players.size());
+        int position = 0;
+
+        List<IPlayerEntry> oldPlayers = group.m_players;
+        for (int i = 0; i < oldPlayers.size(); i++) {
+            IPlayerEntry player = oldPlayers.get(i);
+            if (!current.remove(player)) {
+                continue;
+            }
+
+            if (i < group.m_position) {
+                position++;
+            }
+            result.add(player);
+        }
+
+        for (IPlayerEntry player : players) {
+            if (current.contains(player)) {
+                result.add(player);
+            }
+        }
+
+        group.m_players = result;
+        group.setPosition(position);
+    }
+
+    /**
+     * Run one scheduler round. Each group gets its weighted quantum of the
+     * blocks budget, the blocks placed above the quantum are taken from the
+     * next quantum. The budget not used by the groups that ran out of blocks
+     * is shared by the groups that used their whole allowance (the extra
+     * blocks are not taken from the next quantum). The round ends when the
+     * processor reports that the global budget is used, the next round
+     * starts with the first not processed group.
+     *
+     * @param maxBlocks the blocks budget (-1 for no limit)
+     * @param processor the group processor
+     */
+    public void run(int maxBlocks, IGroupProcessor processor) {
+        final int size = m_groups.size();
+        if (size == 0) {
+            return;
+        }
+
+        long remainingWeight = 0;
+        for (Group group : m_groups) {
+            remainingWeight += group.getWeight();
+        }
+        final long totalWeight = remainingWeight;
+        final int start = m_position;
+        final List<Group> backlogged = new ArrayList<Group>();
+        long backloggedWeight = 0;
+        long placedTotal = 0;
+
+        for (int i = 0; i < size && !processor.isExhausted(); i++) {
+            final int idx = (start + i) % size;
+            final Group group = m_groups.get(idx);
+            final int weight = group.getWeight();
+
+            int allowance = -1;
+            if (maxBlocks != -1) {
+                long quantum = Math.max(1, maxBlocks * weight / totalWeight);
+                group.m_deficit = Math.min(0, group.m_deficit) + quantum;
+                allowance = (int) Math.max(0, group.m_deficit);
+            }
+
+            int placed = allowance == 0 ? 0
+                    : processor.process(group, allowance, (double) weight / remainingWeight);
+
+            if (maxBlocks != -1) {
+                group.m_deficit -= placed;
+                placedTotal += placed;
+
+                if (allowance > 0 && placed >= allowance) {
+                    backlogged.add(group);
+                    backloggedWeight += weight;
+                }
+            }
+
+            remainingWeight -= weight;
+            m_position = (idx + 1) % size;
+        }
+
+        long leftover = maxBlocks - placedTotal;
+        for (int i = 0; i < backlogged.size() && leftover > 0 && !processor.isExhausted(); i++) {
+            final Group group = backlogged.get(i);
+            final int weight = group.getWeight();
+            final int extra = (int) Math.max(1, leftover * weight / backloggedWeight);
+
+            leftover -= processor.process(group, extra, (double) weight / backloggedWeight);
+            backloggedWeight -= weight;
+        }
+    }
+}
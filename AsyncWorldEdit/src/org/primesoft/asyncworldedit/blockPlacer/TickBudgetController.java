@@ -0,0 +1,248 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.blockPlacer;
+
+import org.primesoft.asyncworldedit.configuration.ConfigProvider;
+
+/**
+ * Adaptive block placer budget. The controller measures the duration of the
+ * tick in which the block placer ran and scales the renderer limits (blocks
+ * and time) to hold the target tick duration. The scaled time limit is always
+ * kept below one tick.
+ *
+ * The limits are scaled between min-scale and max-scale of the configured
+ * renderer limits. The run interval is not used as the floor and ceiling
+ * because it is a number of ticks between runs, not a per run budget, and
+ * changing it would require rescheduling the block placer task. The interval
+ * stays fixed and only the per run limits are adjusted.
+ *
+ * @author SBPrime
+ */
+public class TickBudgetController {
+
+    /**
+     * The maximum scaled time limit (ms), the block placer leaves at least
+     * a fifth of the tick to the server
+     */
+    private final static int MAX_TIME = 1000 / ConfigProvider.TICKS_PER_SECOND * 4 / 5;
+
+    /**
+     * Scale multiplier used when the server is keeping up
+     */
+    private final static double SCALE_UP = 1.1;
+
+    /**
+     * Scale multiplier used when the server is lagging
+     */
+    private final static double SCALE_DOWN = 0.75;
+
+    /**
+     * Is the controller enabled
+     */
+    private volatile boolean m_isEnabled;
+
+    /**
+     * The target tick duration (ms)
+     */
+    private volatile double m_targetMspt;
+
+    /**
+     * The hysteresis (ms)
+     */
+    private volatile double m_hysteresis;
+
+    /**
+     * Minimum budget scale
+     */
+    private volatile double m_minScale;
+
+    /**
+     * Maximum budget scale
+     */
+    private volatile double m_maxScale;
+
+    /**
+     * The duration of the last tick in which the block placer ran (ms)
+     */
+    private volatile double m_mspt;
+
+    /**
+     * Current budget scale
+     */
+    private volatile double m_scale;
+
+    public TickBudgetController() {
+        m_scale = 1;
+        m_mspt = 1000.0 / ConfigProvider.TICKS_PER_SECOND;
+        loadConfig();
+    }
+
+    /**
+     * Reload the controller configuration
+     */
+    public final void loadConfig() {
+        m_isEnabled = ConfigProvider.isAdaptiveBudgetEnabled();
+        m_targetMspt = ConfigProvider.getAdaptiveTargetMspt();
+        m_hysteresis = ConfigProvider.getAdaptiveHysteresis();
+        m_minScale = ConfigProvider.getAdaptiveMinScale();
+        m_maxScale = ConfigProvider.getAdaptiveMaxScale();
+
+        m_scale = m_isEnabled ? Math.max(m_minScale, Math.min(m_maxScale, m_scale)) : 1;
+    }
+
+    /**
+     * Update the controller state, call once every block placer run with
+     * the duration of the tick in which the block placer ran
+     *
+     * @param tickTime the tick duration (ns)
+     */
+    public void update(long tickTime) {
+        if (tickTime <= 0) {
+            return;
+        }
+
+        m_mspt = tickTime / 1000000.0;
+
+        if (!m_isEnabled) {
+            return;
+        }
+
+        double scale = m_scale;
+        if (m_mspt > m_targetMspt + m_hysteresis) {
+            scale *= SCALE_DOWN;
+        } else if (m_mspt < m_targetMspt) {
+            scale *= SCALE_UP;
+        }
+
+        m_scale = Math.max(m_minScale, Math.min(m_maxScale, scale));
+    }
+
+    /**
+     * Scale the renderer blocks limit
+     *
+     * @param limit the configured limit (-1 for no limit)
+     * @return
+     */
+    public int scale(int limit) {
+        if (limit < 0 || !m_isEnabled) {
+            return limit;
+        }
+
+        return Math.max(1, (int) Math.round(limit * m_scale));
+    }
+
+    /**
+     * Scale the renderer time limit, the scaled limit is kept below one tick
+     *
+     * @param limit the configured limit in ms (-1 for no limit)
+     * @return
+     */
+    public int scaleTime(int limit) {
+        if (limit < 0 || !m_isEnabled) {
+            return limit;
+        }
+
+        return Math.min(MAX_TIME, scale(limit));
+    }
+
+    /**
+     * Is the controller enabled
+     *
+     * @return
+     */
+    public boolean isEnabled() {
+        return m_isEnabled;
+    }
+
+    /**
+     * The duration of the last tick in which the block placer ran (ms)
+     *
+     * @return
+     */
+    public double getMspt() {
+        return m_mspt;
+    }
+
+    /**
+     * The target tick duration (ms)
+     *
+     * @return
+     */
+    public double getTargetMspt() {
+        return m_targetMspt;
+    }
+
+    /**
+     * The hysteresis (ms)
+     *
+     * @return
+     */
+    public double getHysteresis() {
+        return m_hysteresis;
+    }
+
+    /**
+     * Current budget scale
+     *
+     * @return
+     */
+    public double getScale() {
+        return m_scale;
+    }
+
+    /**
+     * Minimum budget scale
+     *
+     * @return
+     */
+    public double getMinScale() {
+        return m_minScale;
+    }
+
+    /**
+     * Maximum budget scale
+     *
+     * @return
+     */
+    public double getMaxScale() {
+        return m_maxScale;
+    }
+}
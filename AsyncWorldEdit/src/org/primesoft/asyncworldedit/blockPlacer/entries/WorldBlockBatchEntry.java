@@ -0,0 +1,472 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.blockPlacer.entries;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import org.primesoft.asyncworldedit.api.IPhysicsWatch;
+import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacer;
+import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+import org.primesoft.asyncworldedit.blockPlacer.BlockPlacer;
+import org.primesoft.asyncworldedit.blockPlacer.BlockPlacerEntry;
+import org.primesoft.asyncworldedit.utils.ExceptionHelper;
+import org.primesoft.asyncworldedit.utils.PositionUtils;
+import org.primesoft.asyncworldedit.worldedit.world.AsyncWorld;
+
+/**
+ * Block placer entry that contains multiple blocks (without NBT data) 
+ * placed in a single chunk section. The blocks are stored in primitive
+ * arrays and placed in one block placer step.
+ *
+ * @author SBPrime
+ */
+public class WorldBlockBatchEntry extends BlockPlacerEntry {
+
+    /**
+     * Maximum number of blocks in one batch (blocks in chunk section)
+     */
+    public final static int MAX_SIZE = 16 * 16 * 16;
+
+    /**
+     * Initial size of the arrays
+     */
+    private final static int INITIAL_SIZE = 64;
+
+    /**
+     * The world
+     */
+    private final AsyncWorld m_world;
+
+    /**
+     * The world name
+     */
+    private final String m_worldName;
+
+    /**
+     * The player used for block logging
+     */
+    private final IPlayerEntry m_player;
+
+    /**
+     * Section X coordinate
+     */
+    private final int m_sectionX;
+
+    /**
+     * Section Y coordinate
+     */
+    private final int m_sectionY;
+
+    /**
+     * Section Z coordinate
+     */
+    private final int m_sectionZ;
+
+    /**
+     * Apply block physics
+     */
+    private final boolean m_applyPhysics;
+
+    /**
+     * Packed position in section (y << 8 | z << 4 | x)
+     */
+    private short[] m_positions;
+
+    /**
+     * Combined block id (id << 4 | data)
+     */
+    private int[] m_combinedIds;
+
+    /**
+     * Number of used slots in the arrays
+     */
+    private int m_size;
+
+    /**
+     * Number of blocks in batch (not removed)
+     */
+    private int m_count;
+
+    /**
+     * Slot index (+1) for each section position, used only when
+     * the write coalescing is enabled
+     */
+    private short[] m_index;
+
+    /**
+     * Is the batch section frozen by the job physics region, the blocks
+     * are not registered in the physics watcher
+     */
+    private boolean m_isRegionLocked;
+
+    /**
+     * Combined id used to mark removed slots
+     */
+    private final static int REMOVED = -1;
+
+    /**
+     * Create new batch entry for the chunk section containing the location
+     *
+     * @param world
+     * @param worldName
+     * @param jobId
+     * @param player
+     * @param x
+     * @param y
+     * @param z
+     * @param applyPhysics
+     */
+    public WorldBlockBatchEntry(AsyncWorld world, String worldName,
+            int jobId, IPlayerEntry player,
+            int x, int y, int z, boolean applyPhysics) {
+        super(jobId, false);
+
+        m_world = world;
+        m_worldName = worldName;
+        m_player = player;
+        m_sectionX = x >> 4;
+        m_sectionY = y >> 4;
+        m_sectionZ = z >> 4;
+        m_applyPhysics = applyPhysics;
+
+        m_positions = new short[INITIAL_SIZE];
+        m_combinedIds = new int[INITIAL_SIZE];
+        m_size = 0;
+        m_count = 0;
+    }
+
+    /**
+     * Get the block combined id
+     *
+     * @param block
+     * @return
+     */
+    public static int getCombinedId(BaseBlock block) {
+        return (block.getId() << 4) | (block.getData() & 0xf);
+    }
+
+    /**
+     * Section X coordinate
+     *
+     * @return
+     */
+    public int getSectionX() {
+        return m_sectionX;
+    }
+
+    /**
+     * Section Y coordinate
+     *
+     * @return
+     */
+    public int getSectionY() {
+        return m_sectionY;
+    }
+
+    /**
+     * Section Z coordinate
+     *
+     * @return
+     */
+    public int getSectionZ() {
+        return m_sectionZ;
+    }
+
+    /**
+     * Is the batch section frozen by the job physics region
+     *
+     * @return
+     */
+    public boolean isRegionLocked() {
+        return m_isRegionLocked;
+    }
+
+    /**
+     * Mark the batch section as frozen by the job physics region
+     */
+    public void setRegionLocked() {
+        m_isRegionLocked = true;
+    }
+
+    /**
+     * The world name
+     *
+     * @return
+     */
+    public String getWorldName() {
+        return m_worldName;
+    }
+
+    /**
+     * Number of blocks in the batch
+     *
+     * @return
+     */
+    public int size() {
+        return m_count;
+    }
+
+    /**
+     * Check if the block can be added to this batch
+     *
+     * @param world
+     * @param jobId
+     * @param x
+     * @param y
+     * @param z
+     * @param applyPhysics
+     * @return
+     */
+    public boolean canAdd(AsyncWorld world, int jobId,
+            int x, int y, int z, boolean applyPhysics) {
+        return m_size < MAX_SIZE
+                && m_world == world
+                && getJobId() == jobId
+                && m_applyPhysics == applyPhysics
+                && m_sectionX == (x >> 4)
+                && m_sectionY == (y >> 4)
+                && m_sectionZ == (z >> 4);
+    }
+
+    /**
+     * Add block to the batch, use canAdd to check if the block can be added
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @param combinedId
+     */
+    public void add(int x, int y, int z, int combinedId) {
+        if (m_size == m_positions.length) {
+            int newSize = Math.min(MAX_SIZE, m_size * 2);
+            short[] positions = new short[newSize];
+            int[] combinedIds = new int[newSize];
+
+            System.arraycopy(m_positions, 0, positions, 0, m_size);
+            System.arraycopy(m_combinedIds, 0, combinedIds, 0, m_size);
+
+            m_positions = positions;
+            m_combinedIds = combinedIds;
+        }
+
+        final short pos = getPosition(x, y, z);
+        m_positions[m_size] = pos;
+        m_combinedIds[m_size] = combinedId;
+        m_size++;
+        m_count++;
+
+        if (m_index != null) {
+            m_index[pos] = (short) m_size;
+        }
+    }
+
+    /**
+     * Replace the block if the location is already in the batch, 
+     * this enables the write coalescing for this batch
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @param combinedId
+     * @return true if the block was replaced
+     */
+    public boolean replace(int x, int y, int z, int combinedId) {
+        final int slot = getSlot(x, y, z);
+        if (slot < 0) {
+            return false;
+        }
+
+        m_combinedIds[slot] = combinedId;
+        return true;
+    }
+
+    /**
+     * Remove the block from the batch (superseded write)
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @return true if the block was removed
+     */
+    public boolean remove(int x, int y, int z) {
+        final int slot = getSlot(x, y, z);
+        if (slot < 0) {
+            return false;
+        }
+
+        m_combinedIds[slot] = REMOVED;
+        m_index[m_positions[slot]] = 0;
+        m_count--;
+        return true;
+    }
+
+    /**
+     * Get the number of used slots (including the removed blocks)
+     *
+     * @return
+     */
+    public int getSlotCount() {
+        return m_size;
+    }
+
+    /**
+     * Is the block in slot removed
+     *
+     * @param slot
+     * @return
+     */
+    public boolean isRemoved(int slot) {
+        return m_combinedIds[slot] == REMOVED;
+    }
+
+    /**
+     * Get the packed key (PositionUtils) of the block in slot
+     *
+     * @param slot
+     * @return
+     */
+    public long getKey(int slot) {
+        int pos = m_positions[slot];
+
+        return PositionUtils.pack((m_sectionX << 4) | (pos & 0xf),
+                (m_sectionY << 4) | ((pos >> 8) & 0xf),
+                (m_sectionZ << 4) | ((pos >> 4) & 0xf));
+    }
+
+    /**
+     * Find the array slot for the location
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @return the slot or -1 if not found
+     */
+    private int getSlot(int x, int y, int z) {
+        if (m_sectionX != (x >> 4) || m_sectionY != (y >> 4) || m_sectionZ != (z >> 4)) {
+            return -1;
+        }
+
+        if (m_index == null) {
+            m_index = new short[MAX_SIZE];
+            for (int i = 0; i < m_size; i++) {
+                if (m_combinedIds[i] != REMOVED) {
+                    m_index[m_positions[i]] = (short) (i + 1);
+                }
+            }
+        }
+
+        return m_index[getPosition(x, y, z)] - 1;
+    }
+
+    /**
+     * Get the packed position in section
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @return
+     */
+    private static short getPosition(int x, int y, int z) {
+        return (short) (((y & 0xf) << 8) | ((z & 0xf) << 4) | (x & 0xf));
+    }
+
+    /**
+     * Get the block location
+     *
+     * @param idx
+     * @return
+     */
+    private Vector getLocation(int idx) {
+        int pos = m_positions[idx];
+
+        return new Vector((m_sectionX << 4) | (pos & 0xf),
+                (m_sectionY << 4) | ((pos >> 8) & 0xf),
+                (m_sectionZ << 4) | ((pos >> 4) & 0xf));
+    }
+
+    /**
+     * Remove all the batch locations from the physics watcher
+     *
+     * @param physicsWatch
+     */
+    public void removeLocations(IPhysicsWatch physicsWatch) {
+        if (m_worldName == null || m_isRegionLocked) {
+            return;
+        }
+
+        for (int i = 0; i < m_size; i++) {
+            if (m_combinedIds[i] != REMOVED) {
+                physicsWatch.removeLocation(m_worldName, getLocation(i));
+            }
+        }
+    }
+
+    @Override
+    public boolean process(IBlockPlacer bp) {
+        final IPhysicsWatch physicsWatch = m_isRegionLocked ? null
+                : ((BlockPlacer) bp).getPhysicsWatcher();
+        boolean result = false;
+
+        for (int i = 0; i < m_size; i++) {
+            final int combinedId = m_combinedIds[i];
+            if (combinedId == REMOVED) {
+                continue;
+            }
+
+            final Vector location = getLocation(i);
+
+            try {
+                result |= m_world.placeBlock(location, 
+                        new BaseBlock(combinedId >> 4, combinedId & 0xf),
+                        m_applyPhysics, m_player);
+            } catch (WorldEditException ex) {
+                ExceptionHelper.printException(ex, "Error while processing block batch.");
+            } finally {
+                if (m_worldName != null && physicsWatch != null) {
+                    physicsWatch.removeLocation(m_worldName, location);
+                }
+            }
+        }
+
+        return result;
+    }
+}
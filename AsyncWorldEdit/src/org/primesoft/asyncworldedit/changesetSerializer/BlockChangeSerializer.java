@@ -0,0 +1,111 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.changesetSerializer;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.history.change.Change;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.primesoft.asyncworldedit.api.changesetSerializer.IChangesetSerializer;
+import org.primesoft.asyncworldedit.api.changesetSerializer.IMemoryStorage;
+import org.primesoft.asyncworldedit.utils.ExceptionHelper;
+
+/**
+ * The block change serializer
+ *
+ * @author SBPrime
+ */
+public class BlockChangeSerializer implements IChangesetSerializer {
+
+    /**
+     * The supported change type
+     */
+    public static final String TYPE = BlockChange.class.getName();
+
+    @Override
+    public boolean canSerialize(String changeType) {
+        return TYPE.equals(changeType);
+    }
+
+    @Override
+    public byte[] serialize(Change change, IMemoryStorage storage) {
+        BlockChange blockChange = (BlockChange) change;
+        BlockVector position = blockChange.getPosition();
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(16);
+        DataOutputStream stream = new DataOutputStream(buffer);
+        try {
+            stream.writeInt(position.getBlockX());
+            stream.writeInt(position.getBlockY());
+            stream.writeInt(position.getBlockZ());
+            SerializerUtils.writeBlock(stream, blockChange.getPrevious());
+            SerializerUtils.writeBlock(stream, blockChange.getCurrent());
+            stream.flush();
+        } catch (IOException ex) {
+            ExceptionHelper.printException(ex, "Unable to serialize block change");
+            return null;
+        }
+
+        return buffer.toByteArray();
+    }
+
+    @Override
+    public Change deserialize(byte[] data, IMemoryStorage storage) {
+        DataInputStream stream = new DataInputStream(new ByteArrayInputStream(data));
+        try {
+            int x = stream.readInt();
+            int y = stream.readInt();
+            int z = stream.readInt();
+            BaseBlock previous = SerializerUtils.readBlock(stream);
+            BaseBlock current = SerializerUtils.readBlock(stream);
+
+            return new BlockChange(new BlockVector(x, y, z), previous, current);
+        } catch (IOException ex) {
+            ExceptionHelper.printException(ex, "Unable to deserialize block change");
+            return null;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.changesetSerializer;
+
+import com.sk89q.worldedit.history.change.Change;
+import java.util.HashMap;
+import java.util.UUID;
+import org.primesoft.asyncworldedit.api.changesetSerializer.IMemoryStorage;
+
+/**
+ * The in memory part of the undo storage file. Holds the changes that can not
+ * be written to disk (live entities, unknown change types).
+ *
+ * @author SBPrime
+ */
+public class MemoryStorage implements IMemoryStorage {
+
+    /**
+     * The stored changes
+     */
+    private final HashMap<UUID, Change> m_changes = new HashMap<UUID, Change>();
+
+    @Override
+    public Change getFromMemory(UUID uuid) {
+        synchronized (m_changes) {
+            return m_changes.get(uuid);
+        }
+    }
+
+    @Override
+    public UUID storeInMemory(Change change) {
+        UUID uuid = UUID.randomUUID();
+        synchronized (m_changes) {
+            m_changes.put(uuid, change);
+        }
+
+        return uuid;
+    }
+
+    @Override
+    public void removeFromMemory(UUID uuid) {
+        synchronized (m_changes) {
+            m_changes.remove(uuid);
+        }
+    }
+
+    /**
+     * Remove all the stored changes
+     */
+    public void clear() {
+        synchronized (m_changes) {
+            m_changes.clear();
+        }
+    }
+}
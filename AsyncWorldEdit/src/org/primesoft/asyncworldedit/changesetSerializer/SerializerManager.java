@@ -0,0 +1,623 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.changesetSerializer;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.history.change.Change;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import org.primesoft.asyncworldedit.api.changesetSerializer.IChangesetSerializer;
+import org.primesoft.asyncworldedit.api.changesetSerializer.IMemoryStorage;
+import org.primesoft.asyncworldedit.api.changesetSerializer.ISerializerManager;
+import org.primesoft.asyncworldedit.api.changesetSerializer.IUndoEntry;
+import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+import org.primesoft.asyncworldedit.api.worldedit.ICancelabeEditSession;
+import org.primesoft.asyncworldedit.utils.ExceptionHelper;
+import org.primesoft.asyncworldedit.utils.LongHashMap;
+import org.primesoft.asyncworldedit.utils.PositionUtils;
+
+/**
+ * The undo storage file manager. The changes are stored in the undo files as
+ * compressed segments. Each segment starts with the number of changes and the
+ * compressed data length followed by the deflated change entries. The
+ * segments are written by a single background thread and the change sets
+ * that own an undo file are tracked per player so the file can be removed
+ * when the change set leaves the player history or the player logs out.
+ *
+ * @author SBPrime
+ */
+public class SerializerManager implements ISerializerManager {
+
+    /**
+     * The undo files folder name
+     */
+    private static final String UNDO_FOLDER = "undo";
+
+    /**
+     * The undo file extension
+     */
+    private static final String FILE_EXTENSION = ".bin";
+
+    /**
+     * The type of the changes kept in the memory storage
+     */
+    private static final String MEMORY_TYPE = "memory";
+
+    /**
+     * The undo files root folder
+     */
+    private final File m_folder;
+
+    /**
+     * The registered serializers
+     */
+    private final List<IChangesetSerializer> m_serializers = new ArrayList<IChangesetSerializer>();
+
+    /**
+     * The serializer lookup cache (change type to serializer)
+     */
+    private final HashMap<String, IChangesetSerializer> m_lookup = new HashMap<String, IChangesetSerializer>();
+
+    /**
+     * The memory storage for each open undo file
+     */
+    private final HashMap<File, MemoryStorage> m_storage = new HashMap<File, MemoryStorage>();
+
+    /**
+     * The change sets that own an undo file for each player, the value
+     * indicates if the change set was found in the player history
+     */
+    private final HashMap<UUID, IdentityHashMap<Closeable, Boolean>> m_owners = new HashMap<UUID, IdentityHashMap<Closeable, Boolean>>();
+
+    /**
+     * The undo file writer thread
+     */
+    private final ExecutorService m_writer;
+
+    public SerializerManager(File pluginFolder) {
+        m_folder = new File(pluginFolder, UNDO_FOLDER);
+        m_writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "AWE undo writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        deleteFiles(m_folder);
+
+        addSerializer(new BlockChangeSerializer());
+        addSerializer(new EntityCreateSerializer());
+        addSerializer(new EntityRemoveSerializer());
+    }
+
+    /**
+     * Remove the undo files left by the previous server run
+     *
+     * @param folder
+     */
+    private static void deleteFiles(File folder) {
+        File[] files = folder.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File f : files) {
+            if (f.isDirectory()) {
+                deleteFiles(f);
+            }
+            f.delete();
+        }
+    }
+
+    /**
+     * Run the undo file write on the writer thread
+     *
+     * @param task
+     * @return
+     */
+    public Future<?> submit(Runnable task) {
+        return m_writer.submit(task);
+    }
+
+    /**
+     * Stop the writer thread
+     */
+    public void stop() {
+        m_writer.shutdownNow();
+    }
+
+    /**
+     * Register the change set that owns an undo file
+     *
+     * @param player
+     * @param changeSet
+     */
+    public void register(IPlayerEntry player, Closeable changeSet) {
+        UUID uuid = player != null ? player.getUUID() : null;
+        synchronized (m_owners) {
+            IdentityHashMap<Closeable, Boolean> owned = m_owners.get(uuid);
+            if (owned == null) {
+                owned = new IdentityHashMap<Closeable, Boolean>();
+                m_owners.put(uuid, owned);
+            }
+
+            owned.put(changeSet, false);
+        }
+    }
+
+    /**
+     * Unregister the change set
+     *
+     * @param player
+     * @param changeSet
+     */
+    public void unregister(IPlayerEntry player, Closeable changeSet) {
+        UUID uuid = player != null ? player.getUUID() : null;
+        synchronized (m_owners) {
+            IdentityHashMap<Closeable, Boolean> owned = m_owners.get(uuid);
+            if (owned == null) {
+                return;
+            }
+
+            owned.remove(changeSet);
+            if (owned.isEmpty()) {
+                m_owners.remove(uuid);
+            }
+        }
+    }
+
+    /**
+     * Close the change sets that were in the player history and are no
+     * longer there. The change sets that were never found in the history
+     * are kept (they are not yet remembered by WorldEdit).
+     *
+     * @param player
+     * @param history The change sets in the player history
+     */
+    public void closeRemoved(IPlayerEntry player, Collection<?> history) {
+        if (history == null) {
+            return;
+        }
+
+        IdentityHashMap<Object, Object> current = new IdentityHashMap<Object, Object>();
+        for (Object o : history) {
+            current.put(o, o);
+        }
+
+        UUID uuid = player != null ? player.getUUID() : null;
+        List<Closeable> removed = new ArrayList<Closeable>();
+        synchronized (m_owners) {
+            IdentityHashMap<Closeable, Boolean> owned = m_owners.get(uuid);
+            if (owned == null) {
+                return;
+            }
+
+            for (Map.Entry<Closeable, Boolean> entry : owned.entrySet()) {
+                if (current.containsKey(entry.getKey())) {
+                    entry.setValue(true);
+                } else if (entry.getValue()) {
+                    removed.add(entry.getKey());
+                }
+            }
+        }
+
+        close(removed);
+    }
+
+    /**
+     * Close all the change sets owned by the player
+     *
+     * @param player
+     */
+    public void closeAll(IPlayerEntry player) {
+        UUID uuid = player != null ? player.getUUID() : null;
+        IdentityHashMap<Closeable, Boolean> owned;
+        synchronized (m_owners) {
+            owned = m_owners.remove(uuid);
+        }
+
+        if (owned != null) {
+            close(owned.keySet());
+        }
+    }
+
+    /**
+     * Close the change sets
+     *
+     * @param changeSets
+     */
+    private static void close(Collection<Closeable> changeSets) {
+        for (Closeable changeSet : changeSets) {
+            try {
+                changeSet.close();
+            } catch (IOException ex) {
+                ExceptionHelper.printException(ex, "Unable to close the undo data");
+            }
+        }
+    }
+
+    @Override
+    public void addSerializer(IChangesetSerializer serializer) {
+        if (serializer == null) {
+            return;
+        }
+
+        synchronized (m_serializers) {
+            m_serializers.add(serializer);
+            m_lookup.clear();
+        }
+    }
+
+    @Override
+    public void removeSerializer(IChangesetSerializer serializer) {
+        synchronized (m_serializers) {
+            m_serializers.remove(serializer);
+            m_lookup.clear();
+        }
+    }
+
+    /**
+     * Find the serializer for the change type
+     *
+     * @param changeType
+     * @return
+     */
+    private IChangesetSerializer getSerializer(String changeType) {
+        synchronized (m_serializers) {
+            if (m_lookup.containsKey(changeType)) {
+                return m_lookup.get(changeType);
+            }
+
+            IChangesetSerializer result = null;
+            for (IChangesetSerializer serializer : m_serializers) {
+                if (serializer.canSerialize(changeType)) {
+                    result = serializer;
+                    break;
+                }
+            }
+
+            m_lookup.put(changeType, result);
+            return result;
+        }
+    }
+
+    /**
+     * Get the memory storage for undo file
+     *
+     * @param storageFile
+     * @return
+     */
+    private MemoryStorage getStorage(File storageFile) {
+        synchronized (m_storage) {
+            MemoryStorage result = m_storage.get(storageFile);
+            if (result == null) {
+                result = new MemoryStorage();
+                m_storage.put(storageFile, result);
+            }
+
+            return result;
+        }
+    }
+
+    @Override
+    public File open(IPlayerEntry player, int id) {
+        UUID uuid = player != null ? player.getUUID() : null;
+        File folder = new File(m_folder, uuid != null ? uuid.toString() : "unknown");
+        folder.mkdirs();
+
+        File result = new File(folder, id + FILE_EXTENSION);
+        result.delete();
+
+        synchronized (m_storage) {
+            m_storage.put(result, new MemoryStorage());
+        }
+
+        return result;
+    }
+
+    @Override
+    public void close(File storageFile) {
+        if (storageFile == null) {
+            return;
+        }
+
+        MemoryStorage storage;
+        synchronized (m_storage) {
+            storage = m_storage.remove(storageFile);
+        }
+
+        if (storage != null) {
+            storage.clear();
+        }
+
+        storageFile.delete();
+    }
+
+    @Override
+    public void save(File storageFile, List<Change> data) {
+        try {
+            saveSegment(storageFile, data);
+        } catch (IOException ex) {
+            ExceptionHelper.printException(ex, "Unable to save the undo data");
+        }
+    }
+
+    @Override
+    public List<Change> load(File storageFile, int entries,
+            IPlayerEntry player, ICancelabeEditSession cancelable) {
+        List<Change> result = new ArrayList<Change>();
+        long length = storageFile.length();
+        long offset = 0;
+
+        try {
+            while (offset < length && (entries < 0 || result.size() < entries)) {
+                offset = loadSegment(storageFile, offset, result);
+            }
+        } catch (IOException ex) {
+            ExceptionHelper.printException(ex, "Unable to load the undo data");
+        }
+
+        if (entries >= 0 && result.size() > entries) {
+            return new ArrayList<Change>(result.subList(0, entries));
+        }
+
+        return result;
+    }
+
+    /**
+     * Append the changes to the undo file as a new segment. The block changes
+     * are grouped by chunk (the order of the changes for a single block is
+     * kept), the other changes are stored after the blocks.
+     *
+     * @param storageFile
+     * @param data
+     * @return The segment offset
+     * @throws IOException
+     */
+    public long saveSegment(File storageFile, List<Change> data) throws IOException {
+        IMemoryStorage storage = getStorage(storageFile);
+        List<Change> changes = groupByChunk(data);
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        DataOutputStream stream = new DataOutputStream(new DeflaterOutputStream(buffer, deflater));
+        try {
+            for (Change change : changes) {
+                save(stream, serialize(change, storage));
+            }
+        } finally {
+            stream.close();
+            deflater.end();
+        }
+
+        byte[] compressed = buffer.toByteArray();
+        RandomAccessFile file = new RandomAccessFile(storageFile, "rw");
+        try {
+            long offset = file.length();
+            file.seek(offset);
+            file.writeInt(changes.size());
+            file.writeInt(compressed.length);
+            file.write(compressed);
+
+            return offset;
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Load the changes segment from the undo file
+     *
+     * @param storageFile
+     * @param offset The segment offset
+     * @param result The list to add the changes to
+     * @return The next segment offset
+     * @throws IOException
+     */
+    public long loadSegment(File storageFile, long offset, List<Change> result) throws IOException {
+        IMemoryStorage storage = getStorage(storageFile);
+        int count;
+        byte[] compressed;
+
+        RandomAccessFile file = new RandomAccessFile(storageFile, "r");
+        try {
+            file.seek(offset);
+            count = file.readInt();
+            compressed = new byte[file.readInt()];
+            file.readFully(compressed);
+        } finally {
+            file.close();
+        }
+
+        DataInputStream stream = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(compressed)));
+        try {
+            for (int i = 0; i < count; i++) {
+                Change change = deserialize(load(stream), storage);
+                if (change != null) {
+                    result.add(change);
+                }
+            }
+        } finally {
+            stream.close();
+        }
+
+        return offset + 8 + compressed.length;
+    }
+
+    /**
+     * Group the block changes by chunk
+     *
+     * @param data
+     * @return
+     */
+    private static List<Change> groupByChunk(List<Change> data) {
+        LongHashMap<List<Change>> chunks = new LongHashMap<List<Change>>();
+        List<Change> other = new ArrayList<Change>();
+
+        for (Change change : data) {
+            if (!(change instanceof BlockChange)) {
+                other.add(change);
+                continue;
+            }
+
+            BlockVector position = ((BlockChange) change).getPosition();
+            long key = PositionUtils.packChunk(position.getBlockX() >> 4, position.getBlockZ() >> 4);
+            List<Change> chunk = chunks.get(key);
+            if (chunk == null) {
+                chunk = new ArrayList<Change>();
+                chunks.put(key, chunk);
+            }
+            chunk.add(change);
+        }
+
+        long[] keys = chunks.keys();
+        Arrays.sort(keys);
+
+        List<Change> result = new ArrayList<Change>(data.size());
+        for (long key : keys) {
+            result.addAll(chunks.get(key));
+        }
+        result.addAll(other);
+
+        return result;
+    }
+
+    @Override
+    public Change deserialize(IUndoEntry entry, IMemoryStorage storage) {
+        String type = entry.getType();
+        if (MEMORY_TYPE.equals(type)) {
+            DataInputStream stream = new DataInputStream(new ByteArrayInputStream(entry.getData()));
+            try {
+                return storage.getFromMemory(SerializerUtils.readUuid(stream));
+            } catch (IOException ex) {
+                ExceptionHelper.printException(ex, "Unable to deserialize memory change");
+                return null;
+            }
+        }
+
+        IChangesetSerializer serializer = getSerializer(type);
+        if (serializer == null) {
+            return null;
+        }
+
+        return serializer.deserialize(entry.getData(), storage);
+    }
+
+    @Override
+    public IUndoEntry serialize(Change change, IMemoryStorage storage) {
+        String type = change.getClass().getName();
+        IChangesetSerializer serializer = getSerializer(type);
+        byte[] data = serializer != null ? serializer.serialize(change, storage) : null;
+
+        if (data != null) {
+            return new UndoEntry(type, data);
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(16);
+        DataOutputStream stream = new DataOutputStream(buffer);
+        try {
+            SerializerUtils.writeUuid(stream, storage.storeInMemory(change));
+            stream.flush();
+        } catch (IOException ex) {
+            //Never thrown by the memory stream
+        }
+
+        return new UndoEntry(MEMORY_TYPE, buffer.toByteArray());
+    }
+
+    @Override
+    public IUndoEntry load(RandomAccessFile stream) throws IOException {
+        String type = stream.readUTF();
+        byte[] data = new byte[stream.readInt()];
+        stream.readFully(data);
+
+        return new UndoEntry(type, data);
+    }
+
+    @Override
+    public IUndoEntry load(DataInputStream stream) throws IOException {
+        String type = stream.readUTF();
+        byte[] data = new byte[stream.readInt()];
+        stream.readFully(data);
+
+        return new UndoEntry(type, data);
+    }
+
+    @Override
+    public void save(RandomAccessFile stream, IUndoEntry undoEntry) throws IOException {
+        byte[] data = undoEntry.getData();
+        stream.writeUTF(undoEntry.getType());
+        stream.writeInt(data.length);
+        stream.write(data);
+    }
+
+    @Override
+    public void save(DataOutputStream stream, IUndoEntry undoEntry) throws IOException {
+        byte[] data = undoEntry.getData();
+        stream.writeUTF(undoEntry.getType());
+        stream.writeInt(data.length);
+        stream.write(data);
+    }
+}
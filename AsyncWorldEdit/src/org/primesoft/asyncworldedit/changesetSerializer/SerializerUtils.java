@@ -0,0 +1,169 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.changesetSerializer;
+
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.NBTInputStream;
+import com.sk89q.jnbt.NBTOutputStream;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Helper methods used by the change serializers
+ *
+ * @author SBPrime
+ */
+class SerializerUtils {
+
+    private SerializerUtils() {
+    }
+
+    /**
+     * Write the NBT data (length prefixed, -1 for no data)
+     *
+     * @param stream
+     * @param nbt
+     * @throws IOException
+     */
+    static void writeNbt(DataOutputStream stream, CompoundTag nbt) throws IOException {
+        if (nbt == null) {
+            stream.writeInt(-1);
+            return;
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        NBTOutputStream nbtStream = new NBTOutputStream(buffer);
+        try {
+            nbtStream.writeNamedTag("", nbt);
+        } finally {
+            nbtStream.close();
+        }
+
+        byte[] data = buffer.toByteArray();
+        stream.writeInt(data.length);
+        stream.write(data);
+    }
+
+    /**
+     * Read the NBT data written by writeNbt
+     *
+     * @param stream
+     * @return
+     * @throws IOException
+     */
+    static CompoundTag readNbt(DataInputStream stream) throws IOException {
+        int length = stream.readInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] data = new byte[length];
+        stream.readFully(data);
+
+        NBTInputStream nbtStream = new NBTInputStream(new ByteArrayInputStream(data));
+        try {
+            Tag tag = nbtStream.readNamedTag().getTag();
+            return tag instanceof CompoundTag ? (CompoundTag) tag : null;
+        } finally {
+            nbtStream.close();
+        }
+    }
+
+    /**
+     * Write the block (id, data and the NBT)
+     *
+     * @param stream
+     * @param block
+     * @throws IOException
+     */
+    static void writeBlock(DataOutputStream stream, BaseBlock block) throws IOException {
+        stream.writeShort(block.getId());
+        stream.writeByte(block.getData());
+        writeNbt(stream, block.hasNbtData() ? block.getNbtData() : null);
+    }
+
+    /**
+     * Read the block written by writeBlock
+     *
+     * @param stream
+     * @return
+     * @throws IOException
+     */
+    static BaseBlock readBlock(DataInputStream stream) throws IOException {
+        int id = stream.readShort() & 0xffff;
+        int data = stream.readByte() & 0xff;
+        CompoundTag nbt = readNbt(stream);
+
+        return new BaseBlock(id, data, nbt);
+    }
+
+    /**
+     * Write the UUID
+     *
+     * @param stream
+     * @param uuid
+     * @throws IOException
+     */
+    static void writeUuid(DataOutputStream stream, UUID uuid) throws IOException {
+        stream.writeLong(uuid.getMostSignificantBits());
+        stream.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Read the UUID
+     *
+     * @param stream
+     * @return
+     * @throws IOException
+     */
+    static UUID readUuid(DataInputStream stream) throws IOException {
+        long most = stream.readLong();
+        long least = stream.readLong();
+
+        return new UUID(most, least);
+    }
+}
@@ -52,4 +52,6 @@ public final class Commands {
     public final static String COMMAND_JOBS = "Jobs";
     public final static String COMMAND_CANCEL = "Cancel";
     public final static String COMMAND_TOGGLE = "Toggle";
+    public final static String COMMAND_BUDGET = "Budget";
+    public final static String COMMAND_STATS = "Stats";
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.commands;
+
+import org.primesoft.asyncworldedit.Help;
+import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+import org.primesoft.asyncworldedit.api.stats.IStatsManager;
+import org.primesoft.asyncworldedit.api.stats.ITimeHistogram;
+import org.primesoft.asyncworldedit.api.stats.StatsSubsystem;
+import org.primesoft.asyncworldedit.permissions.Permission;
+import org.primesoft.asyncworldedit.strings.MessageType;
+import org.primesoft.asyncworldedit.workers.WorkerPool;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class StatsCommand {
+
+    public static void Execte(IStatsManager stats, WorkerPool workers, IPlayerEntry player, String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            Help.ShowHelp(player, Commands.COMMAND_STATS);
+            return;
+        }
+
+        if (!player.isAllowed(Permission.STATS)) {
+            player.say(MessageType.NO_PERMS.format());
+            return;
+        }
+
+        if (args.length == 2) {
+            if (!args[1].equalsIgnoreCase("reset")) {
+                Help.ShowHelp(player, Commands.COMMAND_STATS);
+                return;
+            }
+
+            stats.reset();
+            workers.resetStats();
+            player.say(MessageType.CMD_STATS_RESET.format());
+            return;
+        }
+
+        player.say(MessageType.CMD_STATS_HEADER.format());
+        for (StatsSubsystem subsystem : StatsSubsystem.values()) {
+            ITimeHistogram histogram = stats.getHistogram(subsystem);
+
+            player.say(MessageType.CMD_STATS_ENTRY.format(subsystem.getName(),
+                    histogram.getTickTime(), histogram.getCount(),
+                    histogram.getPercentile(50) / 1000000.0,
+                    histogram.getPercentile(99) / 1000000.0,
+                    histogram.getMax() / 1000000.0));
+        }
+
+        player.say(MessageType.CMD_STATS_WORKERS_HEADER.format(workers.getQueueSize()));
+        sayWorkerEntry(player, "QueueWait", workers.getWaitTime());
+        sayWorkerEntry(player, "Run", workers.getRunTime());
+    }
+
+    /**
+     * Display the worker pool time histogram
+     *
+     * @param player
+     * @param name
+     * @param histogram
+     */
+    private static void sayWorkerEntry(IPlayerEntry player, String name, ITimeHistogram histogram) {
+        player.say(MessageType.CMD_STATS_WORKERS_ENTRY.format(name, histogram.getCount(),
+                histogram.getPercentile(50) / 1000000.0,
+                histogram.getPercentile(99) / 1000000.0,
+                histogram.getMax() / 1000000.0));
+    }
+}
@@ -78,12 +78,30 @@ public class ConfigProvider {
 
     private static int m_queueTalkInterval;
 
+    private static int m_budgetBlocks;
+
+    private static int m_budgetTime;
+
+    private static boolean m_adaptiveEnabled;
+
+    private static double m_adaptiveTargetMspt;
+
+    private static double m_adaptiveHysteresis;
+
+    private static double m_adaptiveMinScale;
+
+    private static double m_adaptiveMaxScale;
+
     private static String m_configVersion;
 
     private static HashSet<WorldeditOperations> m_allowedOperations;
 
+    private static HashSet<String> m_coalesceOperations;
+
     private static boolean m_physicsFreez;
 
+    private static int m_chunkCacheSize;
+
     private static boolean m_checkAccess;
 
     private static boolean m_logBlocks;
@@ -121,6 +139,26 @@ public class ConfigProvider {
      */
     private static int m_dispatcherMaxTime;
 
+    /**
+     * Maximum number of chunks loaded by the chunk prefetch in one run
+     */
+    private static int m_dispatcherPrefetchChunks;
+
+    /**
+     * Number of undo changes kept in memory before writing them to disk
+     */
+    private static int m_undoSpillChanges;
+
+    /**
+     * Number of async job worker threads
+     */
+    private static int m_workerThreads;
+
+    /**
+     * Number of threads working on a single region operation
+     */
+    private static int m_regionThreads;
+
     public static int getForceFlushBlocks() {
         return m_forceFlushBlockCount;
     }
@@ -149,6 +187,22 @@ public class ConfigProvider {
         return m_dispatcherMaxTime;
     }
 
+    public static int getDispatcherPrefetchChunks() {
+        return m_dispatcherPrefetchChunks;
+    }
+
+    public static int getUndoSpillChanges() {
+        return m_undoSpillChanges;
+    }
+
+    public static int getWorkerThreads() {
+        return m_workerThreads;
+    }
+
+    public static int getRegionThreads() {
+        return m_regionThreads;
+    }
+
     /**
      * Plugin root folder
      *
@@ -225,10 +279,84 @@ public class ConfigProvider {
         return m_queueMaxSize;
     }
 
+    /**
+     * Get the number of blocks placed in each run (shared by all groups)
+     *
+     * @return
+     */
+    public static int getBudgetBlocks() {
+        return m_budgetBlocks;
+    }
+
+    /**
+     * Get the maximum number of miliseconds spend on placing blocks in each
+     * run (shared by all groups)
+     *
+     * @return
+     */
+    public static int getBudgetTime() {
+        return m_budgetTime;
+    }
+
+    /**
+     * Is the adaptive block placer budget enabled
+     *
+     * @return
+     */
+    public static boolean isAdaptiveBudgetEnabled() {
+        return m_adaptiveEnabled;
+    }
+
+    /**
+     * The adaptive budget target tick duration (ms)
+     *
+     * @return
+     */
+    public static double getAdaptiveTargetMspt() {
+        return m_adaptiveTargetMspt;
+    }
+
+    /**
+     * The adaptive budget hysteresis (ms)
+     *
+     * @return
+     */
+    public static double getAdaptiveHysteresis() {
+        return m_adaptiveHysteresis;
+    }
+
+    /**
+     * The adaptive budget minimum renderer limits scale
+     *
+     * @return
+     */
+    public static double getAdaptiveMinScale() {
+        return m_adaptiveMinScale;
+    }
+
+    /**
+     * The adaptive budget maximum renderer limits scale
+     *
+     * @return
+     */
+    public static double getAdaptiveMaxScale() {
+        return m_adaptiveMaxScale;
+    }
+
     public static boolean isPhysicsFreezEnabled() {
         return m_physicsFreez;
     }
 
+    /**
+     * Get the maximum number of chunk snapshots cached by each running job
+     * (0 disables the cache)
+     *
+     * @return
+     */
+    public static int getChunkCacheSize() {
+        return m_chunkCacheSize;
+    }
+
     public static String getStringsFile() {
         return m_stringsFile;
     }
@@ -258,6 +386,7 @@ public class ConfigProvider {
         m_checkUpdate = mainSection.getBoolean("checkVersion", true);
         m_isConfigUpdate = mainSection.getInt("version", 0) == CONFIG_VERSION;
         m_physicsFreez = mainSection.getBoolean("physicsFreez", true);
+        m_chunkCacheSize = Math.max(0, mainSection.getInt("chunkCacheSize", 64));
         m_stringsFile = mainSection.getString("strings", "");
         m_debugMode = mainSection.getBoolean("debug", false);
         m_forceFlushBlockCount = mainSection.getInt("forceFlushBlocks", 1000);
@@ -266,8 +395,11 @@ public class ConfigProvider {
         parseRenderSection(mainSection);
         parseBlocksHubSection(mainSection.getConfigurationSection("blocksHub"));
         parseDispatcherSection(mainSection.getConfigurationSection("dispatcher"));
+        parseUndoSection(mainSection.getConfigurationSection("undo"));
+        parseWorkersSection(mainSection.getConfigurationSection("workers"));
 
         m_allowedOperations = parseOperationsSection(mainSection);
+        m_coalesceOperations = new HashSet<String>(mainSection.getStringList("coalesceOperations"));
 
         return true;
     }
@@ -283,6 +415,18 @@ public class ConfigProvider {
         return m_allowedOperations.contains(operation);
     }
 
+    /**
+     * This function checks if write coalescing (only the last write to 
+     * a block is placed) is enabled for specific operation
+     *
+     * @param operation the operation (job) name
+     * @return
+     */
+    public static boolean isCoalescingEnabled(String operation) {
+        HashSet<String> operations = m_coalesceOperations;
+        return operation != null && operations != null && operations.contains(operation);
+    }
+
     /**
      * Parse render section
      *
@@ -294,15 +438,67 @@ public class ConfigProvider {
             m_interval = 15;
             m_queueTalkInterval = 10;
             m_queueMaxSize = 10000000;
+            m_budgetBlocks = 10000;
+            m_budgetTime = 75;
         } else {
             m_interval = renderSection.getInt("interval", 15);
             m_queueTalkInterval = renderSection.getInt("talk-interval", 10);
             m_queueMaxSize = renderSection.getInt("queue-max-size", 10000000);
+            m_budgetBlocks = renderSection.getInt("blocks", 10000);
+            m_budgetTime = renderSection.getInt("time", 75);
 
             if (m_queueMaxSize <= 0) {
                 log("Warinig: Block queue is disabled!");
             }
         }
+
+        if (m_budgetBlocks < 1 && m_budgetBlocks != -1) {
+            m_budgetBlocks = 10000;
+        }
+        if (m_budgetTime < 1 && m_budgetTime != -1) {
+            m_budgetTime = 75;
+        }
+        if (m_budgetBlocks == -1 && m_budgetTime == -1) {
+            log("Warning: Time and blocks are set to unlimited! For the block placer");
+            m_budgetBlocks = 10000;
+            m_budgetTime = 75;
+        }
+
+        parseAdaptiveSection(renderSection != null ? renderSection.getConfigurationSection("adaptive") : null);
+    }
+
+    /**
+     * Parse the adaptive block placer budget section
+     *
+     * @param adaptiveSection
+     */
+    private static void parseAdaptiveSection(ConfigurationSection adaptiveSection) {
+        if (adaptiveSection == null) {
+            m_adaptiveEnabled = false;
+            m_adaptiveTargetMspt = 52;
+            m_adaptiveHysteresis = 3;
+            m_adaptiveMinScale = 0.25;
+            m_adaptiveMaxScale = 4;
+        } else {
+            m_adaptiveEnabled = adaptiveSection.getBoolean("enabled", false);
+            m_adaptiveTargetMspt = adaptiveSection.getDouble("target-mspt", 52);
+            m_adaptiveHysteresis = adaptiveSection.getDouble("hysteresis", 3);
+            m_adaptiveMinScale = adaptiveSection.getDouble("min-scale", 0.25);
+            m_adaptiveMaxScale = adaptiveSection.getDouble("max-scale", 4);
+        }
+
+        if (m_adaptiveHysteresis < 0) {
+            m_adaptiveHysteresis = 0;
+            log("Warning: Adaptive budget hysteresis is lower then 0, changing to 0.");
+        }
+        if (m_adaptiveMinScale <= 0) {
+            m_adaptiveMinScale = 0.25;
+            log("Warning: Adaptive budget min-scale is lower then 0, changing to 0.25.");
+        }
+        if (m_adaptiveMaxScale < m_adaptiveMinScale) {
+            m_adaptiveMaxScale = m_adaptiveMinScale;
+            log("Warning: Adaptive budget max-scale is lower then min-scale, changing to min-scale.");
+        }
     }
 
     /**
@@ -345,10 +541,12 @@ public class ConfigProvider {
             m_dispatcherMaxIdle = 200;
             m_dispatcherMaxJobs = 2000;
             m_dispatcherMaxTime = 20;
+            m_dispatcherPrefetchChunks = 16;
         } else {
             m_dispatcherMaxIdle = dSection.getInt("max-idle-runs", 200);
             m_dispatcherMaxJobs = dSection.getInt("max-jobs", 2000);
             m_dispatcherMaxTime = dSection.getInt("max-time", 20);
+            m_dispatcherPrefetchChunks = dSection.getInt("prefetch-chunks", 16);
         }
 
         if (m_dispatcherMaxTime < 1) {
@@ -364,6 +562,54 @@ public class ConfigProvider {
             m_dispatcherMaxIdle = 10;
             log("Warning: Dispatcher max idle is lower then 1, changing to 10");
         }
+
+        if (m_dispatcherPrefetchChunks < 1) {
+            m_dispatcherPrefetchChunks = 16;
+            log("Warning: Dispatcher prefetch chunks is lower then 1, changing to 16");
+        }
+    }
+
+    /**
+     * Initialize the undo configuration
+     *
+     * @param uSection
+     */
+    private static void parseUndoSection(ConfigurationSection uSection) {
+        if (uSection == null) {
+            m_undoSpillChanges = 100000;
+        } else {
+            m_undoSpillChanges = uSection.getInt("spill-changes", 100000);
+        }
+
+        if (m_undoSpillChanges < 1 && m_undoSpillChanges != -1) {
+            m_undoSpillChanges = 100000;
+            log("Warning: Undo spill changes is lower then 1, changing to 100000");
+        }
+    }
+
+    /**
+     * Initialize the async job workers configuration
+     *
+     * @param wSection
+     */
+    private static void parseWorkersSection(ConfigurationSection wSection) {
+        if (wSection == null) {
+            m_workerThreads = 4;
+            m_regionThreads = 4;
+        } else {
+            m_workerThreads = wSection.getInt("threads", 4);
+            m_regionThreads = wSection.getInt("region-threads", 4);
+        }
+
+        if (m_workerThreads < 1) {
+            m_workerThreads = 4;
+            log("Warning: Worker threads is lower then 1, changing to 4");
+        }
+
+        if (m_regionThreads < 1) {
+            m_regionThreads = 1;
+            log("Warning: Region threads is lower then 1, changing to 1");
+        }
     }
 
     /**
@@ -77,6 +77,16 @@ public class PermissionGroup implements IPermissionGroup {
      */
     private final int m_maxJobs;
 
+    /**
+     * Maximum number of player jobs running at the same time
+     */
+    private final int m_maxRunningJobs;
+
+    /**
+     * Maximum number of group jobs running at the same time
+     */
+    private final int m_groupRunningJobs;
+
     /**
      * Kill all player jobs on logout
      */
@@ -97,6 +107,11 @@ public class PermissionGroup implements IPermissionGroup {
      */
     private final int m_rendererTime;
 
+    /**
+     * The group share of the global renderer blocks and time
+     */
+    private final int m_rendererWeight;
+
     /**
      * maximum size of the player block queue
      */
@@ -147,6 +162,26 @@ public class PermissionGroup implements IPermissionGroup {
         return m_maxJobs;
     }
 
+    /**
+     * Maximum number of player jobs running at the same time
+     *
+     * @return
+     */
+    @Override
+    public int getMaxRunningJobs() {
+        return m_maxRunningJobs;
+    }
+
+    /**
+     * Maximum number of group jobs running at the same time
+     *
+     * @return
+     */
+    @Override
+    public int getGroupRunningJobs() {
+        return m_groupRunningJobs;
+    }
+
     /**
      * Kill all player jobs on logout
      *
@@ -187,6 +222,16 @@ public class PermissionGroup implements IPermissionGroup {
         return m_rendererTime;
     }
 
+    /**
+     * The group share of the global renderer blocks and time
+     *
+     * @return
+     */
+    @Override
+    public int getRendererWeight() {
+        return m_rendererWeight;
+    }
+
     /**
      * maximum size of the player block queue
      *
@@ -256,10 +301,13 @@ public class PermissionGroup implements IPermissionGroup {
         m_isOnByDefault = true;
         m_isTalkative = true;
         m_maxJobs = -1;
+        m_maxRunningJobs = -1;
+        m_groupRunningJobs = -1;
         m_queueHardLimit = 500000;
         m_queueSoftLimit = 250000;
         m_rendererBlocks = 10000;
         m_rendererTime = 40;
+        m_rendererWeight = 1;
         m_useBarApi = true;
         m_useChat = true;
         m_name = "default-values";
@@ -288,6 +336,8 @@ public class PermissionGroup implements IPermissionGroup {
         m_name = config.getName();
         m_isDefault = config.getBoolean("isDefault", forceDefault);
         m_maxJobs = validate(config.getInt("maxJobs", defaults.getMaxJobs()), defaults.getMaxJobs(), true);
+        m_maxRunningJobs = validate(config.getInt("maxRunningJobs", defaults.getMaxRunningJobs()), defaults.getMaxRunningJobs(), true);
+        m_groupRunningJobs = validate(config.getInt("groupRunningJobs", defaults.getGroupRunningJobs()), defaults.getGroupRunningJobs(), true);
         m_cleanOnLogout = config.getBoolean("cleanOnLogout", defaults.getCleanOnLogout());
         m_isOnByDefault = config.getBoolean("defaultMode", defaults.isOnByDefault());
 
@@ -310,6 +360,9 @@ public class PermissionGroup implements IPermissionGroup {
 
         m_rendererBlocks = rendererBlocks;
         m_rendererTime = rendererTime;
+        m_rendererWeight = validate(rendererSection == null
+                ? defaults.getRendererWeight() : rendererSection.getInt("weight", defaults.getRendererWeight()),
+                defaults.getRendererWeight(), false);
 
         m_queueHardLimit = validate(queueSection == null
                 ? defaults.getQueueHardLimit() : queueSection.getInt("limit-hard", defaults.getQueueHardLimit()),
@@ -42,7 +42,6 @@ package org.primesoft.asyncworldedit.injector.async;
 
 import com.sk89q.worldedit.MaxChangedBlocksException;
 import com.sk89q.worldedit.entity.Player;
-import org.bukkit.scheduler.BukkitScheduler;
 import org.primesoft.asyncworldedit.AsyncWorldEditBukkit;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacer;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
@@ -66,11 +65,6 @@ class AsyncJobProcessor implements IJobProcessor {
      */
     private final AsyncWorldEditBukkit m_plugin;
 
-    /**
-     * Bukkit schedule
-     */
-    private final BukkitScheduler m_schedule;
-
     /**
      * Async block placer
      */
@@ -83,7 +77,6 @@ class AsyncJobProcessor implements IJobProcessor {
 
     AsyncJobProcessor(AsyncWorldEditBukkit plugin) {
         m_plugin = plugin;
-        m_schedule = m_plugin.getServer().getScheduler();
         m_blockPlacer = m_plugin.getBlockPlacer();
         m_playerManager = m_plugin.getPlayerManager();
     }
@@ -131,7 +124,7 @@ class AsyncJobProcessor implements IJobProcessor {
         final int jobId = m_blockPlacer.getJobId(playerEntry);        
         final JobEntry jobEntry = new JobEntry(playerEntry, jobId, name);
         m_blockPlacer.addJob(playerEntry, jobEntry);
-        m_schedule.runTaskAsynchronously(m_plugin, new BaseTask(null, playerEntry,
+        m_plugin.getWorkerPool().submit(new BaseTask(null, playerEntry,
                 name, m_blockPlacer, jobEntry) {
                     @Override
                     protected Object doRun() throws MaxChangedBlocksException {
@@ -49,7 +49,6 @@ import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import org.bukkit.scheduler.BukkitScheduler;
 import org.primesoft.asyncworldedit.AsyncWorldEditBukkit;
 import static org.primesoft.asyncworldedit.AsyncWorldEditBukkit.log;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacer;
@@ -76,11 +75,6 @@ import org.primesoft.asyncworldedit.worldedit.CancelabeEditSession;
  */
 public class AsyncOperationProcessor implements IOperationProcessor {
 
-    /**
-     * Bukkit schedule
-     */
-    private final BukkitScheduler m_schedule;
-
     /**
      * The parent plugin
      */
@@ -93,7 +87,6 @@ public class AsyncOperationProcessor implements IOperationProcessor {
 
     public AsyncOperationProcessor(AsyncWorldEditBukkit plugin) {
         m_plugin = plugin;
-        m_schedule = m_plugin.getServer().getScheduler();
         m_blockPlacer = m_plugin.getBlockPlacer();
     }
 
@@ -132,7 +125,7 @@ public class AsyncOperationProcessor implements IOperationProcessor {
         injectEditSession(sessions, cancelableSession);
 
         m_blockPlacer.addJob(playerEntry, job);
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(cancelableSession, playerEntry,
+        m_plugin.getWorkerPool().submit(new AsyncTask(cancelableSession, playerEntry,
                 name, m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -190,7 +183,7 @@ public class AsyncOperationProcessor implements IOperationProcessor {
         injectEditSession(sessions, cancelableSession);
 
         m_blockPlacer.addJob(playerEntry, job);
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(cancelableSession, playerEntry,
+        m_plugin.getWorkerPool().submit(new AsyncTask(cancelableSession, playerEntry,
                 name, m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -62,10 +62,13 @@ import java.lang.reflect.Method;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 import org.bukkit.Server;
 import org.bukkit.plugin.java.JavaPlugin;
@@ -113,6 +116,39 @@ public class ClassScanner {
         new ClassScannerEntry(JavaPlugin.class)
     };
 
+    /**
+     * The class scan plans for the scanned types
+     */
+    private final static ConcurrentHashMap<List<Class<?>>, ScannerPlanCache> s_plans
+            = new ConcurrentHashMap<List<Class<?>>, ScannerPlanCache>();
+
+    /**
+     * Get the class scan plans for the scanned types
+     *
+     * @param types
+     * @return
+     */
+    private static ScannerPlanCache getPlans(Class<?> types[]) {
+        List<Class<?>> key = Arrays.asList(types.clone());
+        ScannerPlanCache result = s_plans.get(key);
+        if (result == null) {
+            result = new ScannerPlanCache(types);
+            ScannerPlanCache old = s_plans.putIfAbsent(key, result);
+            if (old != null) {
+                result = old;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Remove the cached class scan plans
+     */
+    public static void clearCache() {
+        s_plans.clear();
+    }
+
     /**
      * Scan object (and all fields) for T
      *
@@ -126,8 +162,10 @@ public class ClassScanner {
             return result;
         }
 
+        ScannerPlanCache plans = getPlans(types);
         Queue<ScannerQueueEntry> toScan = new ArrayDeque<ScannerQueueEntry>();
-        HashSet<Object> scanned = new HashSet<Object>();
+        Set<Object> scanned = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        List<ScannerQueueEntry> values = new ArrayList<ScannerQueueEntry>();
 
         boolean debugOn = ConfigProvider.isDebugOn();
         toScan.add(new ScannerQueueEntry(o, null, null));
@@ -157,7 +195,7 @@ public class ClassScanner {
                 sParent = null;
             }
 
-            if (scanned.contains(cObject)) {
+            if (!scanned.add(cObject)) {
                 if (debugOn) {
                     log(String.format("* Skip:\t%1$s", sParent));
                 }
@@ -167,7 +205,9 @@ public class ClassScanner {
                     log(String.format("* Scanning:\t%1$s", sParent));
                 }
                 try {
-                    for (ScannerQueueEntry f : unpack(cClass, cObject)) {
+                    values.clear();
+                    unpack(plans.getPlan(cClass), cObject, values);
+                    for (ScannerQueueEntry f : values) {
                         Object t = f.getValue();
                         Class<?> ct = f.getValueClass();
                         if (t != null && ct != null) {
@@ -191,8 +231,7 @@ public class ClassScanner {
                                 }
                             }
 
-                            if (!isPrimitive(ct) && !isBlackList(ct)
-                                    && !isBlackList(cClass, f.getField())) {
+                            if (f.isTraversable() && !plans.getPlan(ct).isEmpty()) {
                                 toScan.add(f);
                                 added++;
 
@@ -217,7 +256,6 @@ public class ClassScanner {
                     log("https://github.com/SBPrime/AsyncWorldEdit/issues");
                     log("-----------------------------------------------------------------------");
                 }
-                scanned.add(cObject);
                 if (debugOn) {
                     log(String.format("* Added:\t%1$s objects.", added));
                 }
@@ -236,7 +274,7 @@ public class ClassScanner {
      * @param oClass
      * @return
      */
-    private static boolean isPrimitive(Class<?> oClass) {
+    static boolean isPrimitive(Class<?> oClass) {
         return oClass.isPrimitive()
                 || (Character.class.isAssignableFrom(oClass))
                 || (Number.class.isAssignableFrom(oClass))
@@ -246,34 +284,22 @@ public class ClassScanner {
     }
 
     /**
-     * Get all fields from a class
+     * Get the fields and elements from the object using the class plan
      *
-     * @param oClass
+     * @param plan
      * @param o
-     * @return
+     * @param result
      */
-    private static Iterable<ScannerQueueEntry> unpack(Class<?> oClass, Object o) {
-        HashSet<ScannerQueueEntry> result = new HashSet<ScannerQueueEntry>();
-
-        if (isPrimitive(oClass) || isBlackList(oClass)) {
-            return result;
-        }
-
-        if (oClass.isArray()) {
-            Class<?> componenClass = oClass;
-            while (componenClass.isArray()) {
-                componenClass = componenClass.getComponentType();
-            }
-            if (!isPrimitive(componenClass) && !isBlackList(componenClass)) {
-                for (Object t : (Object[]) o) {
-                    if (t != null) {
-                        result.add(new ScannerQueueEntry(t, o, null));
-                    }
+    private static void unpack(ScannerClassPlan plan, Object o, List<ScannerQueueEntry> result) {
+        if (plan.isArray()) {
+            for (Object t : (Object[]) o) {
+                if (t != null) {
+                    result.add(new ScannerQueueEntry(t, o, null));
                 }
             }
         }
 
-        if (Iterable.class.isAssignableFrom(oClass)) {
+        if (plan.isIterable()) {
             for (Object t : (Iterable<Object>) o) {
                 if (t != null) {
                     result.add(new ScannerQueueEntry(t, o, null));
@@ -281,32 +307,24 @@ public class ClassScanner {
             }
         }
 
-        for (Field f : getAllFields(oClass)) {
-            boolean restore = !f.isAccessible();
-            if (restore) {
-                f.setAccessible(true);
-            }
+        Field[] fields = plan.getFields();
+        for (int i = 0; i < fields.length; i++) {
             try {
-                Object t = f.get(o);
+                Object t = fields[i].get(o);
                 if (t != null) {
-                    result.add(new ScannerQueueEntry(t, o, f));
+                    result.add(new ScannerQueueEntry(t, o, fields[i], plan.isTraversable(i)));
                 }
             } catch (IllegalArgumentException ex) {
             } catch (IllegalAccessException ex) {
             }
-
-            if (restore) {
-                f.setAccessible(false);
-            }
         }
-        return result;
     }
 
-    private static boolean isBlackList(Class<?> oClass) {
+    static boolean isBlackList(Class<?> oClass) {
         return isBlackList(oClass, null);
     }
 
-    private static boolean isBlackList(Class<?> oClass, Field f) {
+    static boolean isBlackList(Class<?> oClass, Field f) {
         for (ClassScannerEntry c : s_blackList) {
             if (c.isMatch(oClass, f)) {
                 return true;
@@ -323,7 +341,7 @@ public class ClassScanner {
      * @param fields
      * @return
      */
-    private static List<Field> getAllFields(Class<?> oClass) {
+    static List<Field> getAllFields(Class<?> oClass) {
         List<Field> result = new ArrayList<Field>();
 
         while (oClass != null) {
@@ -0,0 +1,247 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.injector.scanner;
+
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.WeakHashMap;
+
+/**
+ * The class scan plans for a set of scanned types. The class fields are
+ * pruned using their declared types: a field is dropped when its value can
+ * not be one of the scanned types and can not lead to one of them. Only
+ * final classes are followed when pruning, the value of any other type can
+ * be a subclass with more fields. The scanned classes are kept weakly (the
+ * plans are soft referenced, they hold the class fields) so the cache does
+ * not keep the unloaded plugin classes alive.
+ *
+ * @author SBPrime
+ */
+class ScannerPlanCache {
+
+    /**
+     * The empty plan (primitive and black listed classes)
+     */
+    private static final ScannerClassPlan EMPTY = new ScannerClassPlan(new Field[0], new boolean[0], false, false);
+
+    /**
+     * The scanned types
+     */
+    private final Class<?>[] m_types;
+
+    /**
+     * The class plans (guarded by this)
+     */
+    private final WeakHashMap<Class<?>, SoftReference<ScannerClassPlan>> m_plans;
+
+    /**
+     * Can the value of the type lead to the scanned types (guarded by this)
+     */
+    private final WeakHashMap<Class<?>, Boolean> m_canReach;
+
+    ScannerPlanCache(Class<?>[] types) {
+        m_types = types.clone();
+        m_plans = new WeakHashMap<Class<?>, SoftReference<ScannerClassPlan>>();
+        m_canReach = new WeakHashMap<Class<?>, Boolean>();
+    }
+
+    /**
+     * Get the scan plan for class
+     *
+     * @param oClass
+     * @return
+     */
+    synchronized ScannerClassPlan getPlan(Class<?> oClass) {
+        SoftReference<ScannerClassPlan> entry = m_plans.get(oClass);
+        ScannerClassPlan result = entry != null ? entry.get() : null;
+        if (result == null) {
+            result = createPlan(oClass);
+            m_plans.put(oClass, new SoftReference<ScannerClassPlan>(result));
+        }
+
+        return result;
+    }
+
+    /**
+     * Create the class plan
+     *
+     * @param oClass
+     * @return
+     */
+    private ScannerClassPlan createPlan(Class<?> oClass) {
+        if (ClassScanner.isPrimitive(oClass) || ClassScanner.isBlackList(oClass)) {
+            return EMPTY;
+        }
+
+        boolean isArray = false;
+        if (oClass.isArray()) {
+            Class<?> componentClass = oClass.getComponentType();
+            isArray = !componentClass.isPrimitive()
+                    && (canHold(componentClass) || canReach(componentClass));
+        }
+
+        List<Field> fields = new ArrayList<Field>();
+        List<Boolean> traverse = new ArrayList<Boolean>();
+        for (Field f : ClassScanner.getAllFields(oClass)) {
+            Class<?> fClass = f.getType();
+            if (fClass.isPrimitive()) {
+                continue;
+            }
+
+            boolean canTraverse = !ClassScanner.isBlackList(oClass, f);
+            if (!canHold(fClass) && !(canTraverse && canReach(fClass))) {
+                continue;
+            }
+
+            //The field is a copy owned by the plan, the flag is not restored
+            try {
+                f.setAccessible(true);
+            } catch (RuntimeException ex) {
+                //Field not accessible
+                continue;
+            }
+
+            fields.add(f);
+            traverse.add(canTraverse);
+        }
+
+        boolean[] traverseArray = new boolean[traverse.size()];
+        for (int i = 0; i < traverseArray.length; i++) {
+            traverseArray[i] = traverse.get(i);
+        }
+
+        return new ScannerClassPlan(fields.toArray(new Field[fields.size()]), traverseArray,
+                isArray, Iterable.class.isAssignableFrom(oClass));
+    }
+
+    /**
+     * Check if the value of the declared type can be one of the scanned types
+     *
+     * @param declared
+     * @return
+     */
+    private boolean canHold(Class<?> declared) {
+        boolean isFinal = declared.isArray() || Modifier.isFinal(declared.getModifiers());
+
+        for (Class<?> type : m_types) {
+            if (type.isAssignableFrom(declared)) {
+                return true;
+            }
+
+            if (!isFinal && (declared.isAssignableFrom(type)
+                    || declared.isInterface() || type.isInterface())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Check if scanning the value of the declared type can lead to the scanned
+     * types
+     *
+     * @param declared
+     * @return
+     */
+    private boolean canReach(Class<?> declared) {
+        Boolean result = m_canReach.get(declared);
+        if (result == null) {
+            result = canReach(declared, new HashSet<Class<?>>());
+            m_canReach.put(declared, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Search the declared types graph for the scanned types. Only the results
+     * of the completed searches are cached, the classes visited by the search
+     * can depend on the classes that are still being checked.
+     *
+     * @param declared
+     * @param visited
+     * @return
+     */
+    private boolean canReach(Class<?> declared, HashSet<Class<?>> visited) {
+        Boolean cached = m_canReach.get(declared);
+        if (cached != null) {
+            return cached;
+        }
+        if (!visited.add(declared)) {
+            return false;
+        }
+
+        if (declared.isPrimitive()
+                || ClassScanner.isPrimitive(declared) || ClassScanner.isBlackList(declared)) {
+            return false;
+        }
+
+        if (declared.isArray()) {
+            Class<?> componentClass = declared.getComponentType();
+            return !componentClass.isPrimitive()
+                    && (canHold(componentClass) || canReach(componentClass, visited));
+        }
+
+        if (!Modifier.isFinal(declared.getModifiers())
+                || Iterable.class.isAssignableFrom(declared)) {
+            return true;
+        }
+
+        for (Field f : ClassScanner.getAllFields(declared)) {
+            Class<?> fClass = f.getType();
+            if (fClass.isPrimitive()) {
+                continue;
+            }
+
+            if (canHold(fClass)
+                    || (!ClassScanner.isBlackList(declared, f) && canReach(fClass, visited))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
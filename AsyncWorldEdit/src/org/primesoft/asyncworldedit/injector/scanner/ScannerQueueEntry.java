@@ -52,8 +52,13 @@ public class ScannerQueueEntry {
     private final Object m_value;
     private final Class<?> m_valueClass;
     private final Field m_field;
+    private final boolean m_traverse;
 
     public ScannerQueueEntry(Object value, Object parent, Field field) {
+        this(value, parent, field, true);
+    }
+
+    public ScannerQueueEntry(Object value, Object parent, Field field, boolean traverse) {
         /*
          * String sParent = parent == null ? 
          *        "null:null" : (parent.hashCode() + ":" + parent.getClass().getCanonicalName());
@@ -67,6 +72,7 @@ public class ScannerQueueEntry {
         m_value = value;
         m_valueClass = value != null ? value.getClass() : null;
         m_field = field;
+        m_traverse = traverse;
     }
 
     public Object getParent() {
@@ -84,4 +90,13 @@ public class ScannerQueueEntry {
     public Field getField() {
         return m_field;
     }
+
+    /**
+     * Can the value be scanned (the parent field is not black listed)
+     *
+     * @return
+     */
+    public boolean isTraversable() {
+        return m_traverse;
+    }
 }
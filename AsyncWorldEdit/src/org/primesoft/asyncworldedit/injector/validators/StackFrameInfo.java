@@ -0,0 +1,107 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.injector.validators;
+
+/**
+ * The memoised stack validator decision for a stack frame (class and method)
+ *
+ * @author SBPrime
+ */
+class StackFrameInfo {
+
+    /**
+     * The frame does not match any entry
+     */
+    static final int NONE = 0;
+
+    /**
+     * The frame method is black listed
+     */
+    static final int BLACK_LIST = 1;
+
+    /**
+     * The frame method is white listed
+     */
+    static final int WHITE_LIST = 2;
+
+    /**
+     * The frame decision
+     */
+    private final int m_decision;
+
+    /**
+     * The count patterns matching the frame (bit mask)
+     */
+    private final int m_countMask;
+
+    /**
+     * The matched class pattern (debug)
+     */
+    private final String m_classPattern;
+
+    /**
+     * The matched method pattern (debug)
+     */
+    private final String m_methodPattern;
+
+    StackFrameInfo(int decision, int countMask, String classPattern, String methodPattern) {
+        m_decision = decision;
+        m_countMask = countMask;
+        m_classPattern = classPattern;
+        m_methodPattern = methodPattern;
+    }
+
+    int getDecision() {
+        return m_decision;
+    }
+
+    int getCountMask() {
+        return m_countMask;
+    }
+
+    String getClassPattern() {
+        return m_classPattern;
+    }
+
+    String getMethodPattern() {
+        return m_methodPattern;
+    }
+}
@@ -40,14 +40,17 @@
  */
 package org.primesoft.asyncworldedit.injector.validators;
 
-import java.util.regex.Matcher;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import static org.primesoft.asyncworldedit.AsyncWorldEditBukkit.log;
 import org.primesoft.asyncworldedit.configuration.ConfigProvider;
 import org.primesoft.asyncworldedit.utils.InOutParam;
 
 /**
- * Validateif operation call stack allows asyncing of the operation
+ * Validateif operation call stack allows asyncing of the operation. The
+ * stack trace is captured once and both the position and the count checks
+ * are done in a single pass. The patterns are matched only once for each
+ * class and method, the decision is memoised.
  *
  * @author SBPrime
  */
@@ -75,6 +78,12 @@ public class StackValidator {
         Pattern.compile(".*asyncworldedit.*AsyncOperationProcessor.*")
     };
 
+    /**
+     * The memoised frame decisions (class name to method name to decision)
+     */
+    private static final ConcurrentHashMap<String, ConcurrentHashMap<String, StackFrameInfo>> s_frames
+            = new ConcurrentHashMap<String, ConcurrentHashMap<String, StackFrameInfo>>();
+
     /**
      * Does the stack trace allow asyncing
      *
@@ -90,14 +99,7 @@ public class StackValidator {
                 log("****************************************************************");
             }
 
-            if (!validateStack(methodName)) {
-                return false;
-            }
-            if (!validateCount()) {
-                return false;
-            }
-
-            return true;
+            return validate(methodName, debugOn);
         } finally {
             if (debugOn) {
                 log("****************************************************************");
@@ -107,108 +109,144 @@ public class StackValidator {
     }
 
     /**
-     * Validate the stack trace possition
+     * Validate the stack trace possition and the stack entry count
      *
      * @param methodName
+     * @param debugOn
      * @return
      */
-    private static boolean validateStack(InOutParam<String> methodName) {
-        final boolean debugOn = ConfigProvider.isDebugOn();
-        StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
-        int i = stackTrace.length - 1;
-        try {
-            for (; i >= 0; i--) {
-                StackTraceElement element = stackTrace[i];
-                if (debugOn) {
-                    log("* " + element.toString());
-                }
+    private static boolean validate(InOutParam<String> methodName, boolean debugOn) {
+        final StackTraceElement[] stackTrace = new Throwable().getStackTrace();
+        final int[] counts = new int[s_countPatterns.length];
+        boolean found = false;
+
+        for (int i = stackTrace.length - 1; i >= 0; i--) {
+            StackTraceElement element = stackTrace[i];
+            StackFrameInfo info = getFrameInfo(element);
+            if (debugOn) {
+                log("* " + element.toString());
+            }
 
-                for (StackValidatorEntry entry : s_data) {
-                    Matcher m = entry.getClassPattern().matcher(element.getClassName());
-                    if (!m.matches()) {
-                        //No class match
-                        continue;
-                    }
-
-                    String name = element.getMethodName();
-                    for (Pattern pattern : entry.getMethodBlackList()) {
-                        m = pattern.matcher(name);
-                        if (m.matches()) {
-                            if (debugOn) {
-                                log("*");
-                                log("* Found on blacklist");
-                                log("* Class:\t\t" + element.getClassName());
-                                log("* Method:\t\t" + name);
-                                log("* Class pattern:\t" + entry.getClassPattern().pattern());
-                                log("* Method pattern:\t" + pattern.pattern());
-                            }
-                            return false;
-                        }
-                    }
-
-                    for (Pattern pattern : entry.getMethodWhiteList()) {
-                        m = pattern.matcher(name);
-                        if (m.matches()) {
-                            methodName.setValue(name);
-                            if (debugOn) {
-                                log("*");
-                                log("* Found on whitelist");
-                                log("* Class:\t\t" + element.getClassName());
-                                log("* Method:\t\t" + name);
-                                log("* Class pattern:\t" + entry.getClassPattern().pattern());
-                                log("* Method pattern:\t" + pattern.pattern());
-                            }
-                            return true;
-                        }
-                    }
+            int mask = info.getCountMask();
+            for (int p = 0; mask != 0; p++, mask >>>= 1) {
+                if ((mask & 1) != 0 && ++counts[p] >= 2 && !debugOn) {
+                    return false;
                 }
             }
 
+            if (found) {
+                continue;
+            }
+
+            int decision = info.getDecision();
+            if (decision == StackFrameInfo.NONE) {
+                continue;
+            }
+
+            if (debugOn) {
+                log("*");
+                log(decision == StackFrameInfo.BLACK_LIST ? "* Found on blacklist" : "* Found on whitelist");
+                log("* Class:\t\t" + element.getClassName());
+                log("* Method:\t\t" + element.getMethodName());
+                log("* Class pattern:\t" + info.getClassPattern());
+                log("* Method pattern:\t" + info.getMethodPattern());
+                log("*");
+            }
+
+            if (decision == StackFrameInfo.BLACK_LIST) {
+                return false;
+            }
+
+            methodName.setValue(element.getMethodName());
+            found = true;
+        }
+
+        if (!found) {
             if (debugOn) {
                 log("*");
                 log("* No match found");
             }
             return false;
-        } finally {
+        }
+
+        boolean result = true;
+        for (int p = 0; p < counts.length; p++) {
+            result &= counts[p] < 2;
             if (debugOn) {
-                log("*");
-                i--;
-                for (; i >= 0; i--) {
-                    StackTraceElement element = stackTrace[i];
-                    log("* " + element.toString());
-                }
-                log("*");
+                log("* " + s_countPatterns[p].pattern() + " --> " + counts[p]);
             }
         }
+
+        return result;
     }
 
     /**
-     * Validate stack entry count
+     * Get the memoised decision for the stack frame
      *
+     * @param element
      * @return
      */
-    private static boolean validateCount() {
-        final boolean debugOn = ConfigProvider.isDebugOn();
-        final StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
+    private static StackFrameInfo getFrameInfo(StackTraceElement element) {
+        String className = element.getClassName();
+        ConcurrentHashMap<String, StackFrameInfo> methods = s_frames.get(className);
+        if (methods == null) {
+            methods = new ConcurrentHashMap<String, StackFrameInfo>();
+            ConcurrentHashMap<String, StackFrameInfo> old = s_frames.putIfAbsent(className, methods);
+            if (old != null) {
+                methods = old;
+            }
+        }
 
-        boolean result = true;
+        String name = element.getMethodName();
+        StackFrameInfo result = methods.get(name);
+        if (result == null) {
+            result = createFrameInfo(element);
+            methods.put(name, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Match the stack frame against the validator entries and the count
+     * patterns. The count patterns are matched on the first seen frame of
+     * the method (the line numbers are not part of the decision).
+     *
+     * @param element
+     * @return
+     */
+    private static StackFrameInfo createFrameInfo(StackTraceElement element) {
+        int countMask = 0;
+        String sElement = element.toString();
+        for (int p = 0; p < s_countPatterns.length; p++) {
+            if (s_countPatterns[p].matcher(sElement).matches()) {
+                countMask |= 1 << p;
+            }
+        }
+
+        String className = element.getClassName();
+        String name = element.getMethodName();
+        for (StackValidatorEntry entry : s_data) {
+            if (!entry.getClassPattern().matcher(className).matches()) {
+                //No class match
+                continue;
+            }
 
-        for (Pattern p : s_countPatterns) {
-            int cnt = 0;
-            for (StackTraceElement stack : stackTrace) {
-                if (p.matcher(stack.toString()).matches()) {
-                    cnt++;
+            for (Pattern pattern : entry.getMethodBlackList()) {
+                if (pattern.matcher(name).matches()) {
+                    return new StackFrameInfo(StackFrameInfo.BLACK_LIST, countMask,
+                            entry.getClassPattern().pattern(), pattern.pattern());
                 }
             }
 
-            result &= cnt < 2;
-            if (debugOn) {
-                log("* " + p.pattern() + " --> " + cnt);
-            } else if (!result) {
-                return false;
+            for (Pattern pattern : entry.getMethodWhiteList()) {
+                if (pattern.matcher(name).matches()) {
+                    return new StackFrameInfo(StackFrameInfo.WHITE_LIST, countMask,
+                            entry.getClassPattern().pattern(), pattern.pattern());
+                }
             }
         }
 
-        return result;
+        return new StackFrameInfo(StackFrameInfo.NONE, countMask, null, null);
     }
 }
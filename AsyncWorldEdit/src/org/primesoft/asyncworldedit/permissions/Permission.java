@@ -57,6 +57,16 @@ public enum Permission implements IPermission {
      */
     ANNOUNCE_VERSION("admin.version"),
 
+    /**
+     * Allows the use of the Budget command
+     */
+    BUDGET("admin.budget"),
+
+    /**
+     * Allows the use of the Stats command
+     */
+    STATS("admin.stats"),
+
     /**
      * Bypass the maximum queue limit
      */
@@ -42,6 +42,7 @@ package org.primesoft.asyncworldedit.platform.bukkit;
 
 import java.util.UUID;
 import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
 import org.bukkit.World;
 import org.primesoft.asyncworldedit.api.IChunk;
 import org.primesoft.asyncworldedit.api.IWorld;
@@ -92,4 +93,35 @@ public class BukkitWorld implements IWorld {
         return new BukkitChunk(chunk);
     }
 
+    @Override
+    public char[][] getChunkBlocks(int cx, int cz) {
+        Chunk chunk = m_world.getChunkAt(cx, cz);
+
+        if (chunk == null) {
+            return null;
+        }
+
+        ChunkSnapshot snapshot = chunk.getChunkSnapshot(false, false, false);
+        char[][] result = new char[(m_world.getMaxHeight() + 15) >> 4][];
+        for (int sy = 0; sy < result.length; sy++) {
+            if (snapshot.isSectionEmpty(sy)) {
+                continue;
+            }
+
+            char[] section = new char[16 * 16 * 16];
+            for (int y = 0; y < 16; y++) {
+                final int py = (sy << 4) | y;
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        section[y << 8 | z << 4 | x] = (char) (snapshot.getBlockTypeId(x, py, z) << 4
+                                | snapshot.getBlockData(x, py, z));
+                    }
+                }
+            }
+            result[sy] = section;
+        }
+
+        return result;
+    }
+
 }
@@ -152,9 +152,14 @@ public class PlayerManager implements IPlayerManager {
             entry = m_playersUids.remove(uuid);
         }
 
-        if (entry != null && entry.getPermissionGroup().getCleanOnLogout()) {
+        if (entry == null) {
+            return;
+        }
+
+        if (entry.getPermissionGroup().getCleanOnLogout()) {
             m_parrent.getBlockPlacer().purge(entry);
         }
+        m_parrent.getChangesetSerializer().closeAll(entry);
     }
 
     /**
@@ -0,0 +1,84 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.stats;
+
+import org.primesoft.asyncworldedit.api.stats.IStatsManager;
+import org.primesoft.asyncworldedit.api.stats.ITimeHistogram;
+import org.primesoft.asyncworldedit.api.stats.StatsSubsystem;
+
+/**
+ * The AWE main thread time accounting
+ *
+ * @author SBPrime
+ */
+public class StatsManager implements IStatsManager {
+
+    /**
+     * The subsystem histograms (indexed by ordinal)
+     */
+    private final TimeHistogram[] m_histograms;
+
+    public StatsManager() {
+        StatsSubsystem[] subsystems = StatsSubsystem.values();
+
+        m_histograms = new TimeHistogram[subsystems.length];
+        for (StatsSubsystem subsystem : subsystems) {
+            m_histograms[subsystem.ordinal()] = new TimeHistogram(subsystem);
+        }
+    }
+
+    @Override
+    public ITimeHistogram getHistogram(StatsSubsystem subsystem) {
+        return m_histograms[subsystem.ordinal()];
+    }
+
+    @Override
+    public void record(StatsSubsystem subsystem, long time) {
+        m_histograms[subsystem.ordinal()].record(time);
+    }
+
+    @Override
+    public void reset() {
+        for (TimeHistogram histogram : m_histograms) {
+            histogram.reset();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.primesoft.asyncworldedit.api.stats.ITimeHistogram;
+import org.primesoft.asyncworldedit.api.stats.StatsSubsystem;
+
+/**
+ * Allocation free log-linear time histogram. Values below 16ns are stored
+ * exactly, above that each power of two is split into 8 buckets.
+ *
+ * @author SBPrime
+ */
+public class TimeHistogram implements ITimeHistogram {
+
+    /**
+     * Number of exact value buckets
+     */
+    private final static int LINEAR = 16;
+
+    /**
+     * Number of sub buckets in each power of two (log2)
+     */
+    private final static int SUB_BITS = 3;
+
+    /**
+     * Number of sub buckets in each power of two
+     */
+    private final static int SUB = 1 << SUB_BITS;
+
+    /**
+     * The first power of two stored in sub buckets
+     */
+    private final static int FIRST_MAGNITUDE = 4;
+
+    /**
+     * Number of buckets
+     */
+    private final static int BUCKETS = LINEAR + (63 - FIRST_MAGNITUDE) * SUB;
+
+    /**
+     * Duration of a server tick
+     */
+    private final static double TICK_NS = 50000000.0;
+
+    /**
+     * The measured subsystem
+     */
+    private final StatsSubsystem m_subsystem;
+
+    /**
+     * The buckets
+     */
+    private final AtomicLongArray m_buckets = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Number of samples
+     */
+    private final AtomicLong m_count = new AtomicLong();
+
+    /**
+     * Total time
+     */
+    private final AtomicLong m_total = new AtomicLong();
+
+    /**
+     * Longest sample
+     */
+    private final AtomicLong m_max = new AtomicLong();
+
+    /**
+     * Last reset time
+     */
+    private volatile long m_resetTime;
+
+    public TimeHistogram(StatsSubsystem subsystem) {
+        m_subsystem = subsystem;
+        m_resetTime = System.nanoTime();
+    }
+
+    /**
+     * Get the bucket for value
+     *
+     * @param value
+     * @return
+     */
+    private static int getBucket(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (magnitude - SUB_BITS)) & (SUB - 1);
+        return LINEAR + (magnitude - FIRST_MAGNITUDE) * SUB + sub;
+    }
+
+    /**
+     * Get the lowest value stored in the bucket
+     *
+     * @param bucket
+     * @return
+     */
+    private static long getBucketValue(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+
+        int magnitude = FIRST_MAGNITUDE + (bucket - LINEAR) / SUB;
+        int sub = (bucket - LINEAR) % SUB;
+        return (long) (SUB + sub) << (magnitude - SUB_BITS);
+    }
+
+    /**
+     * Record a sample
+     *
+     * @param time the time in ns
+     */
+    public void record(long time) {
+        if (time < 0) {
+            time = 0;
+        }
+
+        m_buckets.incrementAndGet(getBucket(time));
+        m_count.incrementAndGet();
+        m_total.addAndGet(time);
+
+        long max = m_max.get();
+        while (time > max && !m_max.compareAndSet(max, time)) {
+            max = m_max.get();
+        }
+    }
+
+    /**
+     * Reset the histogram
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            m_buckets.set(i, 0);
+        }
+        m_count.set(0);
+        m_total.set(0);
+        m_max.set(0);
+        m_resetTime = System.nanoTime();
+    }
+
+    @Override
+    public StatsSubsystem getSubsystem() {
+        return m_subsystem;
+    }
+
+    @Override
+    public long getCount() {
+        return m_count.get();
+    }
+
+    @Override
+    public long getTotal() {
+        return m_total.get();
+    }
+
+    @Override
+    public long getMax() {
+        return m_max.get();
+    }
+
+    @Override
+    public double getMean() {
+        long count = m_count.get();
+        if (count == 0) {
+            return 0;
+        }
+
+        return (double) m_total.get() / count;
+    }
+
+    @Override
+    public long getPercentile(double percentile) {
+        long count = m_count.get();
+        if (count == 0) {
+            return 0;
+        }
+
+        long limit = (long) Math.ceil(count * Math.max(0, Math.min(100, percentile)) / 100.0);
+        if (limit < 1) {
+            limit = 1;
+        }
+
+        long sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            sum += m_buckets.get(i);
+            if (sum >= limit) {
+                return Math.min(getBucketValue(i), m_max.get());
+            }
+        }
+
+        return m_max.get();
+    }
+
+    @Override
+    public double getTickTime() {
+        double ticks = (System.nanoTime() - m_resetTime) / TICK_NS;
+        if (ticks < 1) {
+            ticks = 1;
+        }
+
+        return m_total.get() / 1000000.0 / ticks;
+    }
+}
@@ -79,6 +79,8 @@ public enum MessageType {
     CMD_HELP_JOBS("CMD_HELP_JOBS"),
     CMD_HELP_CANCEL("CMD_HELP_CANCEL"),
     CMD_HELP_RELOAD("CMD_HELP_RELOAD"),
+    CMD_HELP_BUDGET("CMD_HELP_BUDGET"),
+    CMD_HELP_STATS("CMD_HELP_STATS"),
     //The toggle command and mode changed
     CMD_TOGGLE_MODE_CHANGED("CMD_TOGGLE_MODE_CHANGED"),
     CMD_TOGGLE_MODE_DONE("CMD_TOGGLE_MODE_DONE"),
@@ -107,7 +109,16 @@ public enum MessageType {
     //The cancel command
     CMD_CANCEL_REMOVED("CMD_CANCEL_REMOVED"),
     //The purge command
-    CMD_PURGE_REMOVED("CMD_PURGE_REMOVED")
+    CMD_PURGE_REMOVED("CMD_PURGE_REMOVED"),
+    //The budget command
+    CMD_BUDGET_DISABLED("CMD_BUDGET_DISABLED"),
+    CMD_BUDGET_STATE("CMD_BUDGET_STATE"),
+    //The stats command
+    CMD_STATS_HEADER("CMD_STATS_HEADER"),
+    CMD_STATS_ENTRY("CMD_STATS_ENTRY"),
+    CMD_STATS_RESET("CMD_STATS_RESET"),
+    CMD_STATS_WORKERS_HEADER("CMD_STATS_WORKERS_HEADER"),
+    CMD_STATS_WORKERS_ENTRY("CMD_STATS_WORKERS_ENTRY")
 ;
     private final String m_key;
 
@@ -40,25 +40,23 @@
  */
 package org.primesoft.asyncworldedit.taskdispatcher;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.primesoft.asyncworldedit.api.utils.IAction;
 
 /**
  *
  * @author SBPrime
  */
-public class ActionEntry extends BaseDispatcherEntry {
+public class ActionEntry extends BaseDispatcherEntry implements Future<Void> {
     /**
      * Action to perform
      */
     private final IAction m_action;
         
     
-    /**
-     * Is the task done
-     */
-    private boolean m_isDone = false;
-
-    
     /**
      * The action
      * @return 
@@ -67,14 +65,6 @@ public class ActionEntry extends BaseDispatcherEntry {
         return m_action;
     }
 
-    /**
-     * Is the operation done
-     * @return 
-     */
-    public boolean isDone() {
-        return m_isDone;
-    }
-
     /**
      * Create new instance of class
      * @param action action to perform
@@ -86,6 +76,17 @@ public class ActionEntry extends BaseDispatcherEntry {
     @Override
     public void Execute() {
         m_action.execute();
-        m_isDone = true;
+    }
+
+    @Override
+    public Void get() throws InterruptedException, ExecutionException {
+        waitForDone();
+        return null;
+    }
+
+    @Override
+    public Void get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        waitForDone(timeout, unit);
+        return null;
     }        
 }
\ No newline at end of file
@@ -41,7 +41,12 @@
 
 package org.primesoft.asyncworldedit.taskdispatcher;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.primesoft.asyncworldedit.api.taskdispatcher.IDispatcherEntry;
+import org.primesoft.asyncworldedit.utils.ExceptionHelper;
 
 /**
  *
@@ -52,6 +57,21 @@ public abstract class BaseDispatcherEntry implements IDispatcherEntry {
      * The MTA mutex
      */
     private final Object m_mutex = new Object();
+
+    /**
+     * Is the entry done
+     */
+    private volatile boolean m_isDone = false;
+
+    /**
+     * Is the entry canceled
+     */
+    private volatile boolean m_isCanceled = false;
+
+    /**
+     * The entry execution error
+     */
+    private RuntimeException m_error = null;
     
     @Override
     public Object getMutex() {
@@ -66,10 +86,133 @@ public abstract class BaseDispatcherEntry implements IDispatcherEntry {
     @Override
     public boolean Process() {
         synchronized (m_mutex) {
-            Execute();            
-            m_mutex.notifyAll();
+            if (m_isDone) {
+                return true;
+            }
+
+            try {
+                Execute();
+            } catch (RuntimeException ex) {
+                m_error = ex;
+                ExceptionHelper.printException(ex, "Error processing dispatcher entry.");
+            } finally {
+                m_isDone = true;
+                m_mutex.notifyAll();
+            }
         }
         
         return true;
     }
+
+    /**
+     * Execute the entry on the calling thread. Errors are not captured and
+     * the entry can be processed again if the execution fails.
+     */
+    public void ExecuteDirect() {
+        synchronized (m_mutex) {
+            Execute();
+            m_isDone = true;
+        }
+    }
+
+    /**
+     * Cancel the entry if not yet processed
+     *
+     * @param mayInterruptIfRunning
+     * @return
+     */
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (m_mutex) {
+            if (m_isDone) {
+                return false;
+            }
+
+            m_isCanceled = true;
+            m_isDone = true;
+            m_mutex.notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * Is the entry canceled
+     *
+     * @return
+     */
+    public boolean isCancelled() {
+        return m_isCanceled;
+    }
+
+    /**
+     * Is the operation done
+     *
+     * @return
+     */
+    public boolean isDone() {
+        return m_isDone;
+    }
+
+    /**
+     * Wait for the entry to be processed
+     *
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    protected void waitForDone() throws InterruptedException, ExecutionException {
+        if (!m_isDone) {
+            synchronized (m_mutex) {
+                while (!m_isDone) {
+                    m_mutex.wait();
+                }
+            }
+        }
+
+        checkState();
+    }
+
+    /**
+     * Wait for the entry to be processed
+     *
+     * @param timeout
+     * @param unit
+     * @throws InterruptedException
+     * @throws ExecutionException
+     * @throws TimeoutException
+     */
+    protected void waitForDone(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        if (!m_isDone) {
+            long end = System.nanoTime() + unit.toNanos(timeout);
+            synchronized (m_mutex) {
+                while (!m_isDone) {
+                    long wait = end - System.nanoTime();
+                    if (wait <= 0) {
+                        throw new TimeoutException();
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(m_mutex, wait);
+                }
+            }
+        }
+
+        checkState();
+    }
+
+    /**
+     * Check the entry processing result
+     *
+     * @throws ExecutionException
+     */
+    private void checkState() throws ExecutionException {
+        if (m_isCanceled) {
+            throw new CancellationException();
+        }
+
+        RuntimeException error;
+        synchronized (m_mutex) {
+            error = m_error;
+        }
+        if (error != null) {
+            throw new ExecutionException(error);
+        }
+    }
 }
@@ -0,0 +1,263 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.taskdispatcher;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.primesoft.asyncworldedit.ChunkWatch;
+import org.primesoft.asyncworldedit.api.IChunk;
+import org.primesoft.asyncworldedit.api.IWorld;
+import org.primesoft.asyncworldedit.api.taskdispatcher.IPinnedChunks;
+import org.primesoft.asyncworldedit.utils.ExceptionHelper;
+import org.primesoft.asyncworldedit.utils.LongHashMap;
+import org.primesoft.asyncworldedit.utils.PositionUtils;
+
+/**
+ * Chunk prefetch request. The chunks are pinned and loaded on the main
+ * thread in batches, the future is done when all the chunks are loaded.
+ *
+ * @author SBPrime
+ */
+public class ChunkPrefetch implements IPinnedChunks, Future<IPinnedChunks> {
+
+    /**
+     * The world
+     */
+    private final IWorld m_world;
+
+    /**
+     * The world name
+     */
+    private final String m_worldName;
+
+    /**
+     * The chunk watcher
+     */
+    private final ChunkWatch m_chunkWatch;
+
+    /**
+     * The chunks to load (packed chunk coordinates)
+     */
+    private final long[] m_chunks;
+
+    /**
+     * The pinned chunks (guarded by this)
+     */
+    private final LongHashMap<IChunk> m_pinned;
+
+    /**
+     * Number of processed chunks (main thread only)
+     */
+    private int m_position;
+
+    /**
+     * Is the prefetch canceled
+     */
+    private volatile boolean m_isCanceled;
+
+    /**
+     * Are the chunks released
+     */
+    private boolean m_isReleased;
+
+    /**
+     * The prefetch done latch
+     */
+    private final CountDownLatch m_done;
+
+    public ChunkPrefetch(IWorld world, ChunkWatch chunkWatch, long[] chunks) {
+        m_world = world;
+        m_worldName = world.getName();
+        m_chunkWatch = chunkWatch;
+        m_chunks = chunks;
+        m_pinned = new LongHashMap<IChunk>(chunks.length);
+        m_position = 0;
+        m_done = new CountDownLatch(1);
+
+        if (chunks.length == 0) {
+            m_done.countDown();
+        }
+    }
+
+    /**
+     * Load the next chunks batch, must be called on the main thread
+     *
+     * @param maxChunks maximum number of chunks to load
+     * @return true if the prefetch is done
+     */
+    boolean process(int maxChunks) {
+        if (isDone()) {
+            return true;
+        }
+
+        try {
+            for (int i = 0; i < maxChunks && m_position < m_chunks.length && !m_isCanceled; i++) {
+                final long key = m_chunks[m_position++];
+                final int cx = (int) (key >> 32);
+                final int cz = (int) key;
+
+                synchronized (this) {
+                    if (m_isReleased) {
+                        break;
+                    }
+                    m_chunkWatch.add(cx, cz, m_worldName);
+                    m_pinned.put(key, null);
+                }
+
+                IChunk chunk = m_world.getChunkAt(cx, cz);
+                synchronized (this) {
+                    if (!m_isReleased && chunk != null) {
+                        m_pinned.put(key, chunk);
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            ExceptionHelper.printException(ex, "Error while loading chunks for " + m_worldName);
+            m_isCanceled = true;
+        }
+
+        if (m_position >= m_chunks.length || m_isCanceled) {
+            synchronized (this) {
+                m_done.countDown();
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public IWorld getWorld() {
+        return m_world;
+    }
+
+    @Override
+    public synchronized int size() {
+        return m_pinned.size();
+    }
+
+    @Override
+    public boolean contains(int cx, int cz) {
+        final long key = PositionUtils.packChunk(cx, cz);
+        synchronized (this) {
+            return m_pinned.containsKey(key);
+        }
+    }
+
+    @Override
+    public IChunk getChunk(int cx, int cz) {
+        final long key = PositionUtils.packChunk(cx, cz);
+        synchronized (this) {
+            return m_pinned.get(key);
+        }
+    }
+
+    @Override
+    public void release() {
+        synchronized (this) {
+            if (m_isReleased) {
+                return;
+            }
+            m_isReleased = true;
+
+            for (long key : m_pinned.keys()) {
+                m_chunkWatch.remove((int) (key >> 32), (int) key, m_worldName);
+            }
+            m_pinned.clear();
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (this) {
+            if (isDone()) {
+                return false;
+            }
+
+            m_isCanceled = true;
+            release();
+            m_done.countDown();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return m_isCanceled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return m_done.getCount() == 0;
+    }
+
+    @Override
+    public IPinnedChunks get() throws InterruptedException, ExecutionException {
+        m_done.await();
+        return getResult();
+    }
+
+    @Override
+    public IPinnedChunks get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!m_done.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return getResult();
+    }
+
+    /**
+     * Get the prefetch result
+     *
+     * @return
+     */
+    private IPinnedChunks getResult() {
+        if (m_isCanceled) {
+            release();
+            throw new CancellationException();
+        }
+
+        return this;
+    }
+}
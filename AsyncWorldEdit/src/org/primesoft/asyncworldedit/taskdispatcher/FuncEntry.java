@@ -38,8 +38,13 @@
  * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
+
 package org.primesoft.asyncworldedit.taskdispatcher;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.primesoft.asyncworldedit.api.utils.IFunc;
 
 /**
@@ -47,7 +52,7 @@ import org.primesoft.asyncworldedit.api.utils.IFunc;
  * @author SBPrime
  * @param <T>
  */
-public class FuncEntry<T> extends BaseDispatcherEntry {
+public class FuncEntry<T> extends BaseDispatcherEntry implements Future<T> {
 
     private final IFunc<T> m_action;
     private T m_result = null;
@@ -60,7 +65,7 @@ public class FuncEntry<T> extends BaseDispatcherEntry {
         return m_result;
     }
 
-    public FuncEntry(IFunc action) {
+    public FuncEntry(IFunc<T> action) {
         m_action = action;
     }
 
@@ -68,4 +73,16 @@ public class FuncEntry<T> extends BaseDispatcherEntry {
     public void Execute() {
         m_result = m_action.execute();
     }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        waitForDone();
+        return m_result;
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        waitForDone(timeout, unit);
+        return m_result;
+    }
 }
@@ -46,8 +46,14 @@ import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.regions.Region;
 import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.bukkit.World;
 import org.bukkit.scheduler.BukkitScheduler;
 import org.bukkit.scheduler.BukkitTask;
@@ -55,9 +61,13 @@ import org.primesoft.asyncworldedit.AsyncWorldEditBukkit;
 import org.primesoft.asyncworldedit.ChunkWatch;
 import org.primesoft.asyncworldedit.api.IWorld;
 import org.primesoft.asyncworldedit.api.utils.IAction;
+import org.primesoft.asyncworldedit.api.stats.IStatsManager;
+import org.primesoft.asyncworldedit.api.stats.StatsSubsystem;
+import org.primesoft.asyncworldedit.api.taskdispatcher.IPinnedChunks;
 import org.primesoft.asyncworldedit.api.utils.IFunc;
 import org.primesoft.asyncworldedit.configuration.ConfigProvider;
 import org.primesoft.asyncworldedit.utils.ExceptionHelper;
+import org.primesoft.asyncworldedit.utils.PositionUtils;
 
 /**
  * This class is used to perform tasks that need to by performed as fast as
@@ -82,6 +92,11 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
      */
     private final ChunkWatch m_chunkWatch;
 
+    /**
+     * The main thread time stats
+     */
+    private final IStatsManager m_stats;
+
     /**
      * Current scheduler fast task
      */
@@ -98,9 +113,19 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
     private final AsyncWorldEditBukkit m_plugin;
 
     /**
-     * List of fast tasks (high priority)
+     * List of fast tasks (high priority), multiple producers single consumer
+     */
+    private final Queue<IDispatcherEntry> m_fastTasks = new ConcurrentLinkedQueue<IDispatcherEntry>();
+
+    /**
+     * List of chunk prefetch requests
      */
-    private final Queue<IDispatcherEntry> m_fastTasks = new ArrayDeque<IDispatcherEntry>();
+    private final Queue<ChunkPrefetch> m_prefetch = new ArrayDeque<ChunkPrefetch>();
+
+    /**
+     * Number of queued fast tasks and prefetch requests
+     */
+    private final AtomicInteger m_pending = new AtomicInteger();
 
     /**
      * The main thread
@@ -115,7 +140,12 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
     /**
      * Dispatcher main thread usage
      */
-    private double m_usage = 0;
+    private volatile double m_usage = 0;
+
+    /**
+     * Main thread time used by the last dispatcher run (ns)
+     */
+    private volatile long m_lastRunTime = 0;
 
     /**
      * Indicates that the task dispatcher is paused
@@ -151,6 +181,7 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
         m_scheduler = plugin.getServer().getScheduler();
         m_plugin = plugin;
         m_chunkWatch = m_plugin.getChunkWatch();
+        m_stats = m_plugin.getStats();
 
         m_lastEnter = System.currentTimeMillis();
         startFastTask();
@@ -174,6 +205,7 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
      */
     @Override
     public void run() {
+        long enterNano = System.nanoTime();
         long enter = System.currentTimeMillis();
         long runDelta = enter - m_lastEnter;
         long runTime;
@@ -196,23 +228,14 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
 
             boolean processed = false;
             for (int i = 0; i < jobsCount && (m_usage * 3 + usage) / 4 < maxTime; i++) {
-                IDispatcherEntry task = null;
-                synchronized (m_fastTasks) {
-                    if (!m_fastTasks.isEmpty()) {
-                        task = m_fastTasks.poll();
-                    }
+                IDispatcherEntry task = m_fastTasks.poll();
+                if (task == null) {
+                    break;
                 }
 
-                if (task != null) {
-                    task.Process();
-                    processed = true;
-                } else {
-                    try {
-                        //Force thread change
-                        Thread.sleep(1);
-                    } catch (InterruptedException ex) {
-                    }
-                }
+                m_pending.decrementAndGet();
+                task.Process();
+                processed = true;
 
                 runTime = System.currentTimeMillis() - enter;
                 if (runTime + runDelta > 0) {
@@ -222,10 +245,13 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
                 }
             }
 
+            processed |= processPrefetch(ConfigProvider.getDispatcherPrefetchChunks());
+
             if (!processed) {
                 synchronized (m_mutex) {
                     m_fastTaskRunsRemaining--;
-                    if (m_fastTaskRunsRemaining <= 0 && m_fastTask != null) {
+                    if (m_fastTaskRunsRemaining <= 0 && m_fastTask != null
+                            && m_pending.get() == 0) {
                         m_fastTask.cancel();
                         m_fastTask = null;
                     }
@@ -240,6 +266,54 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
             usage = 0;
         }
         m_usage = (m_usage * 3 + usage) / 4;
+        m_lastRunTime = System.nanoTime() - enterNano;
+        m_stats.record(StatsSubsystem.DISPATCHER, m_lastRunTime);
+    }
+
+    /**
+     * Get the dispatcher main thread usage (ms per second)
+     *
+     * @return
+     */
+    @Override
+    public double getUsage() {
+        return m_usage;
+    }
+
+    /**
+     * Get the main thread time used by the last dispatcher run
+     *
+     * @return time in ns
+     */
+    @Override
+    public long getLastRunTime() {
+        return m_lastRunTime;
+    }
+
+    /**
+     * Load the queued prefetch chunks
+     *
+     * @param maxChunks maximum number of chunks to load
+     * @return true if any prefetch request was processed
+     */
+    private boolean processPrefetch(int maxChunks) {
+        ChunkPrefetch prefetch;
+        synchronized (m_prefetch) {
+            prefetch = m_prefetch.peek();
+        }
+
+        if (prefetch == null) {
+            return false;
+        }
+
+        if (prefetch.process(maxChunks)) {
+            synchronized (m_prefetch) {
+                m_prefetch.remove(prefetch);
+            }
+            m_pending.decrementAndGet();
+        }
+
+        return true;
     }
 
     /**
@@ -262,11 +336,91 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
      */
     @Override
     public void addFastTask(IDispatcherEntry entry) {
-        synchronized (m_fastTasks) {
-            m_fastTasks.add(entry);
+        m_fastTasks.add(entry);
+
+        if (m_pending.getAndIncrement() == 0) {
+            startFastTask();
         }
+    }
 
-        startFastTask();
+    /**
+     * Load and pin all the chunks in the region
+     *
+     * @param world
+     * @param region
+     * @return
+     */
+    @Override
+    public Future<IPinnedChunks> prefetchChunks(IWorld world, Region region) {
+        return prefetchChunks(world, region.getChunks());
+    }
+
+    /**
+     * Load and pin the chunks
+     *
+     * @param world
+     * @param chunks
+     * @return
+     */
+    @Override
+    public Future<IPinnedChunks> prefetchChunks(IWorld world, Collection<Vector2D> chunks) {
+        long[] packed = new long[chunks.size()];
+        int idx = 0;
+        for (Vector2D vector : chunks) {
+            packed[idx++] = PositionUtils.packChunk(vector.getBlockX(), vector.getBlockZ());
+        }
+
+        ChunkPrefetch prefetch = new ChunkPrefetch(world, m_chunkWatch, packed);
+        if (isMainTask()) {
+            prefetch.process(packed.length);
+            return prefetch;
+        }
+
+        synchronized (m_prefetch) {
+            m_prefetch.add(prefetch);
+        }
+        if (m_pending.getAndIncrement() == 0) {
+            startFastTask();
+        }
+
+        return prefetch;
+    }
+
+    /**
+     * Prefetch the region chunks if any of them is not loaded
+     *
+     * @param world
+     * @param chunks
+     * @return the pinned chunks or null if no prefetch was performed
+     */
+    private IPinnedChunks prefetchRegion(IWorld world, Set<Vector2D> chunks) {
+        if (world == null || isMainTask() || chunks.size() <= 1) {
+            return null;
+        }
+
+        boolean allLoaded = true;
+        for (Vector2D vector : chunks) {
+            if (!world.isChunkLoaded(vector.getBlockX(), vector.getBlockZ())) {
+                allLoaded = false;
+                break;
+            }
+        }
+        if (allLoaded) {
+            return null;
+        }
+
+        Future<IPinnedChunks> prefetch = prefetchChunks(world, chunks);
+        try {
+            return prefetch.get();
+        } catch (InterruptedException ex) {
+            prefetch.cancel(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            ExceptionHelper.printException(ex, "Error prefetching chunks for " + world.getName());
+        } catch (CancellationException ex) {
+            //Prefetch canceled, use the queue fallback
+        }
+        return null;
     }
 
     /**
@@ -292,79 +446,75 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
     }
 
     /**
-     * Queue sunced block get operation
+     * Queue the entry on the dispatcher, if called from the main thread the
+     * entry is processed immediately
      *
      * @param <T>
-     * @param action
+     * @param entry
      * @return
      */
-    private <T> T queueFastOperation(IFunc<T> action) {
-        FuncEntry<T> getBlock = new FuncEntry<T>(action);
+    private <T extends BaseDispatcherEntry> T queueFastOperation(T entry) {
         if (isMainTask()) {
-            return action.execute();
+            entry.Process();
+        } else {
+            addFastTask(entry);
         }
 
-        final Object mutex = getBlock.getMutex();
-
-        addFastTask(getBlock);
-        synchronized (mutex) {
-            while (getBlock.getResult() == null) {
-                try {
-                    mutex.wait();
-                } catch (InterruptedException ex) {
-                }
-            }
-        }
-        return getBlock.getResult();
+        return entry;
     }
 
     /**
+     * Wait for the dispatcher operation result
      *
-     * @param action
+     * @param <T>
+     * @param future
      * @return
      */
-    private void queueFastOperation(IAction action) {
-        ActionEntry actionEntry = new ActionEntry(action);
-        if (isMainTask()) {
-            action.execute();
-            return;
-        }
-
-        final Object mutex = actionEntry.getMutex();
-
-        addFastTask(actionEntry);
-        synchronized (mutex) {
-            while (!actionEntry.isDone()) {
+    private static <T> T waitFor(Future<T> future) {
+        boolean interrupted = false;
+        try {
+            while (true) {
                 try {
-                    mutex.wait();
+                    return future.get();
                 } catch (InterruptedException ex) {
+                    interrupted = true;
                 }
             }
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
         }
     }
 
     /**
-     * Perform operation using a safe wrapper. If the basic operation fails
-     * queue it on dispatcher
+     * Try to perform the entry on the calling thread. If the basic operation
+     * fails queue it on dispatcher
      *
+     * @param <T>
      * @param mutex
-     * @param action
+     * @param entry
      * @param world
-     * @param pos
+     * @param cx
+     * @param cz
+     * @return
      */
-    @Override
-    public void performSafe(Object mutex, IAction action, IWorld world, Vector pos) {
+    private <T extends BaseDispatcherEntry> T tryPerform(Object mutex, T entry, IWorld world, int cx, int cz) {
         synchronized (mutex) {
-            int cx = pos.getBlockX() >> 4;
-            int cz = pos.getBlockZ() >> 4;
             String worldName = world != null ? world.getName() : null;
 
             try {
                 m_chunkWatch.add(cx, cz, worldName);
                 if (canPerform(world, cx, cz)) {
                     try {
-                        action.execute();
-                        return;
+                        entry.ExecuteDirect();
+                        return entry;
                     } catch (Exception ex) {
                         /*
                          * Exception here indicates that async block get is not
@@ -379,22 +529,24 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
                 m_chunkWatch.remove(cx, cz, worldName);
             }
         }
-        queueFastOperation(action);
+
+        return queueFastOperation(entry);
     }
 
     /**
-     * Perform operation using a safe wrapper. If the basic operation fails
-     * queue it on dispatcher
+     * Try to perform the entry on the calling thread. If the basic operation
+     * fails queue it on dispatcher
      *
+     * @param <T>
      * @param mutex
-     * @param action
+     * @param entry
      * @param world
      * @param region
+     * @param chunks the region chunks
+     * @return
      */
-    @Override
-    public void performSafe(Object mutex, IAction action, IWorld world, Region region) {
+    private <T extends BaseDispatcherEntry> T tryPerform(Object mutex, T entry, IWorld world, Region region, Set<Vector2D> chunks) {
         synchronized (mutex) {
-            Set<Vector2D> chunks = region.getChunks();
             String worldName = world != null ? world.getName() : null;
 
             try {
@@ -407,8 +559,8 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
                 }
                 if (canPerform) {
                     try {
-                        action.execute();
-                        return;
+                        entry.ExecuteDirect();
+                        return entry;
                     } catch (Exception ex) {
                         /*
                          * Exception here indicates that async block get is not
@@ -428,7 +580,99 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
             }
         }
 
-        queueFastOperation(action);
+        return queueFastOperation(entry);
+    }
+
+    /**
+     * Try to perform the entry on the calling thread. If the basic operation
+     * fails queue it on dispatcher
+     *
+     * @param <T>
+     * @param mutex
+     * @param entry
+     * @return
+     */
+    private <T extends BaseDispatcherEntry> T tryPerform(Object mutex, T entry) {
+        synchronized (mutex) {
+            try {
+                entry.ExecuteDirect();
+                return entry;
+            } catch (Exception ex) {
+                /*
+                 * Exception here indicates that async block get is not
+                 * available. Therefore use the queue fallback.
+                 */
+                ExceptionHelper.printException(ex, "Error performing safe operation.");
+            }
+        }
+
+        return queueFastOperation(entry);
+    }
+
+    /**
+     * Perform operation using a safe wrapper. If the basic operation fails
+     * queue it on dispatcher
+     *
+     * @param mutex
+     * @param action
+     * @param world
+     * @param pos
+     */
+    @Override
+    public void performSafe(Object mutex, IAction action, IWorld world, Vector pos) {
+        waitFor(performSafeAsync(mutex, action, world, pos));
+    }
+
+    /**
+     * Perform operation using a safe wrapper. If the basic operation fails
+     * queue it on dispatcher without waiting for the result
+     *
+     * @param mutex
+     * @param action
+     * @param world
+     * @param pos
+     * @return
+     */
+    @Override
+    public Future<Void> performSafeAsync(Object mutex, IAction action, IWorld world, Vector pos) {
+        return tryPerform(mutex, new ActionEntry(action), world, pos.getBlockX() >> 4, pos.getBlockZ() >> 4);
+    }
+
+    /**
+     * Perform operation using a safe wrapper. If the basic operation fails
+     * queue it on dispatcher
+     *
+     * @param mutex
+     * @param action
+     * @param world
+     * @param region
+     */
+    @Override
+    public void performSafe(Object mutex, IAction action, IWorld world, Region region) {
+        Set<Vector2D> chunks = region.getChunks();
+        IPinnedChunks pinned = prefetchRegion(world, chunks);
+        try {
+            waitFor(tryPerform(mutex, new ActionEntry(action), world, region, chunks));
+        } finally {
+            if (pinned != null) {
+                pinned.release();
+            }
+        }
+    }
+
+    /**
+     * Perform operation using a safe wrapper. If the basic operation fails
+     * queue it on dispatcher without waiting for the result
+     *
+     * @param mutex
+     * @param action
+     * @param world
+     * @param region
+     * @return
+     */
+    @Override
+    public Future<Void> performSafeAsync(Object mutex, IAction action, IWorld world, Region region) {
+        return tryPerform(mutex, new ActionEntry(action), world, region, region.getChunks());
     }
 
     /**
@@ -444,41 +688,31 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
      */
     @Override
     public <T> T performSafe(Object mutex, IFunc<T> action, IWorld world, Region region) {
-        synchronized (mutex) {
-            Set<Vector2D> chunks = region.getChunks();
-            String worldName = world != null ? world.getName() : null;
-
-            try {
-                boolean canPerform = true;
-                for (Vector2D vector : chunks) {
-                    int cx = vector.getBlockX();
-                    int cz = vector.getBlockZ();
-                    m_chunkWatch.add(cx, cz, worldName);
-                    canPerform &= canPerform(world, cx, cz);
-                }
-                if (canPerform) {
-                    try {
-                        T result = action.execute();
-                        return result;
-                    } catch (Exception ex) {
-                        /*
-                         * Exception here indicates that async block get is not
-                         * available. Therefore use the queue fallback.
-                         */
-                        ExceptionHelper.printException(ex,
-                                "Error performing safe operation for " + worldName
-                                + " for region " + region.toString());
-                    }
-                }
-            } finally {
-                for (Vector2D vector : chunks) {
-                    int cx = vector.getBlockX();
-                    int cz = vector.getBlockZ();
-                    m_chunkWatch.remove(cx, cz, worldName);
-                }
+        Set<Vector2D> chunks = region.getChunks();
+        IPinnedChunks pinned = prefetchRegion(world, chunks);
+        try {
+            return waitFor(tryPerform(mutex, new FuncEntry<T>(action), world, region, chunks));
+        } finally {
+            if (pinned != null) {
+                pinned.release();
             }
         }
-        return queueFastOperation(action);
+    }
+
+    /**
+     * Perform operation using a safe wrapper. If the basic operation fails
+     * queue it on dispatcher without waiting for the result
+     *
+     * @param <T>
+     * @param mutex
+     * @param action
+     * @param world
+     * @param region
+     * @return
+     */
+    @Override
+    public <T> Future<T> performSafeAsync(Object mutex, IFunc<T> action, IWorld world, Region region) {
+        return tryPerform(mutex, new FuncEntry<T>(action), world, region, region.getChunks());
     }
 
     /**
@@ -494,31 +728,23 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
      */
     @Override
     public <T> T performSafe(Object mutex, IFunc<T> action, IWorld world, Vector pos) {
-        synchronized (mutex) {
-            int cx = pos.getBlockX() >> 4;
-            int cz = pos.getBlockZ() >> 4;
-            String worldName = world != null ? world.getName() : null;
-            try {
-                m_chunkWatch.add(cx, cz, worldName);
-                if (canPerform(world, cx, cz)) {
-                    try {
-                        T result = action.execute();
-                        return result;
-                    } catch (Exception ex) {
-                        /*
-                         * Exception here indicates that async block get is not
-                         * available. Therefore use the queue fallback.
-                         */
-                        ExceptionHelper.printException(ex,
-                                "Error performing safe operation for " + worldName
-                                + " cx:" + cx + " cy:" + cz + " Loaded: " + world.isChunkLoaded(cx, cz));
-                    }
-                }
-            } finally {
-                m_chunkWatch.remove(cx, cz, worldName);
-            }
-        }
-        return queueFastOperation(action);
+        return waitFor(performSafeAsync(mutex, action, world, pos));
+    }
+
+    /**
+     * Perform operation using a safe wrapper. If the basic operation fails
+     * queue it on dispatcher without waiting for the result
+     *
+     * @param <T>
+     * @param mutex
+     * @param action
+     * @param world
+     * @param pos
+     * @return
+     */
+    @Override
+    public <T> Future<T> performSafeAsync(Object mutex, IFunc<T> action, IWorld world, Vector pos) {
+        return tryPerform(mutex, new FuncEntry<T>(action), world, pos.getBlockX() >> 4, pos.getBlockZ() >> 4);
     }
 
     /**
@@ -530,19 +756,20 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
      */
     @Override
     public void performSafe(Object mutex, IAction action) {
-        synchronized (mutex) {
-            try {
-                action.execute();
-                return;
-            } catch (Exception ex) {
-                /*
-                 * Exception here indicates that async block get is not
-                 * available. Therefore use the queue fallback.
-                 */
-                ExceptionHelper.printException(ex, "Error performing safe operation.");
-            }
-        }
-        queueFastOperation(action);
+        waitFor(performSafeAsync(mutex, action));
+    }
+
+    /**
+     * Perform operation using a safe wrapper. If the basic operation fails
+     * queue it on dispatcher without waiting for the result
+     *
+     * @param mutex
+     * @param action
+     * @return
+     */
+    @Override
+    public Future<Void> performSafeAsync(Object mutex, IAction action) {
+        return tryPerform(mutex, new ActionEntry(action));
     }
 
     /**
@@ -556,77 +783,40 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
      */
     @Override
     public <T> T performSafe(Object mutex, IFunc<T> action) {
-        synchronized (mutex) {
-            try {
-                T result = action.execute();
-                return result;
-            } catch (Exception ex) {
-                /*
-                 * Exception here indicates that async block get is not
-                 * available. Therefore use the queue fallback.
-                 */
-                ExceptionHelper.printException(ex, "Error performing safe operation.");
-            }
-        }
-        return queueFastOperation(action);
+        return waitFor(performSafeAsync(mutex, action));
+    }
+
+    /**
+     * Perform operation using a safe wrapper. If the basic operation fails
+     * queue it on dispatcher without waiting for the result
+     *
+     * @param <T>
+     * @param mutex
+     * @param action
+     * @return
+     */
+    @Override
+    public <T> Future<T> performSafeAsync(Object mutex, IFunc<T> action) {
+        return tryPerform(mutex, new FuncEntry<T>(action));
     }
 
     @Override
     public void performSafeChunk(Object mutex, IAction action, IWorld world, Vector2D pos) {
-        synchronized (mutex) {
-            int cx = pos.getBlockX();
-            int cz = pos.getBlockZ();
-            String worldName = world != null ? world.getName() : null;
+        waitFor(performSafeChunkAsync(mutex, action, world, pos));
+    }
 
-            try {
-                m_chunkWatch.add(cx, cz, worldName);
-                if (canPerform(world, cx, cz)) {
-                    try {
-                        action.execute();
-                        return;
-                    } catch (Exception ex) {
-                        /*
-                         * Exception here indicates that async block get is not
-                         * available. Therefore use the queue fallback.
-                         */
-                        ExceptionHelper.printException(ex,
-                                "Error performing safe operation for " + worldName
-                                + " cx:" + cx + " cy:" + cz + " Loaded: " + world.isChunkLoaded(cx, cz));
-                    }
-                }
-            } finally {
-                m_chunkWatch.remove(cx, cz, worldName);
-            }
-        }
-        queueFastOperation(action);
+    @Override
+    public Future<Void> performSafeChunkAsync(Object mutex, IAction action, IWorld world, Vector2D pos) {
+        return tryPerform(mutex, new ActionEntry(action), world, pos.getBlockX(), pos.getBlockZ());
     }
 
     @Override
     public <T> T performSafeChunk(Object mutex, IFunc<T> action, IWorld world, Vector2D pos) {
-        synchronized (mutex) {
-            int cx = pos.getBlockX();
-            int cz = pos.getBlockZ();
-            String worldName = world != null ? world.getName() : null;
-            try {
-                m_chunkWatch.add(cx, cz, worldName);
-                if (canPerform(world, cx, cz)) {
-                    try {
-                        T result = action.execute();
-                        return result;
-                    } catch (Exception ex) {
-                        /*
-                         * Exception here indicates that async block get is not
-                         * available. Therefore use the queue fallback.
-                         */
-                        ExceptionHelper.printException(ex,
-                                "Error performing safe operation for " + worldName
-                                + " cx:" + cx + " cy:" + cz + " Loaded: " + world.isChunkLoaded(cx, cz));
-                    }
-                }
-            } finally {
-                m_chunkWatch.remove(cx, cz, worldName);
-            }
-        }
-        return queueFastOperation(action);
+        return waitFor(performSafeChunkAsync(mutex, action, world, pos));
+    }
+
+    @Override
+    public <T> Future<T> performSafeChunkAsync(Object mutex, IFunc<T> action, IWorld world, Vector2D pos) {
+        return tryPerform(mutex, new FuncEntry<T>(action), world, pos.getBlockX(), pos.getBlockZ());
     }
 }
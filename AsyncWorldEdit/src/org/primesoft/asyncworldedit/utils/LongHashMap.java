@@ -0,0 +1,290 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.utils;
+
+/**
+ * Open addressing hash map with primitive long keys. 
+ * This class is not thread safe.
+ *
+ * @author SBPrime
+ * @param <T> Value type
+ */
+public class LongHashMap<T> {
+
+    /**
+     * Minimum capacity of the map
+     */
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * The keys
+     */
+    private long[] m_keys;
+
+    /**
+     * The values (null = empty slot)
+     */
+    private Object[] m_values;
+
+    /**
+     * Number of entries
+     */
+    private int m_size;
+
+    /**
+     * Capacity mask
+     */
+    private int m_mask;
+
+    public LongHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongHashMap(int capacity) {
+        int size = MIN_CAPACITY;
+        while (size < capacity * 2) {
+            size <<= 1;
+        }
+
+        m_keys = new long[size];
+        m_values = new Object[size];
+        m_mask = size - 1;
+        m_size = 0;
+    }
+
+    /**
+     * Number of entries in the map
+     *
+     * @return
+     */
+    public int size() {
+        return m_size;
+    }
+
+    /**
+     * Is the map empty
+     *
+     * @return
+     */
+    public boolean isEmpty() {
+        return m_size == 0;
+    }
+
+    /**
+     * Get the entry value
+     *
+     * @param key
+     * @return value or null if not found
+     */
+    @SuppressWarnings("unchecked")
+    public T get(long key) {
+        int idx = hash(key) & m_mask;
+        Object value;
+        while ((value = m_values[idx]) != null) {
+            if (m_keys[idx] == key) {
+                return (T) value;
+            }
+            idx = (idx + 1) & m_mask;
+        }
+
+        return null;
+    }
+
+    /**
+     * Check if the map contains the key
+     *
+     * @param key
+     * @return
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Put new entry in to the map
+     *
+     * @param key
+     * @param value the value (not null)
+     * @return previous value
+     */
+    @SuppressWarnings("unchecked")
+    public T put(long key, T value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+
+        int idx = hash(key) & m_mask;
+        Object old;
+        while ((old = m_values[idx]) != null) {
+            if (m_keys[idx] == key) {
+                m_values[idx] = value;
+                return (T) old;
+            }
+            idx = (idx + 1) & m_mask;
+        }
+
+        m_keys[idx] = key;
+        m_values[idx] = value;
+        m_size++;
+
+        if (m_size * 2 > m_values.length) {
+            resize(m_values.length * 2);
+        }
+
+        return null;
+    }
+
+    /**
+     * Remove entry from the map
+     *
+     * @param key
+     * @return removed value
+     */
+    @SuppressWarnings("unchecked")
+    public T remove(long key) {
+        int idx = hash(key) & m_mask;
+        Object value;
+        while ((value = m_values[idx]) != null) {
+            if (m_keys[idx] == key) {
+                m_values[idx] = null;
+                m_size--;
+                shiftBack(idx);
+
+                return (T) value;
+            }
+            idx = (idx + 1) & m_mask;
+        }
+
+        return null;
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void clear() {
+        for (int i = 0; i < m_values.length; i++) {
+            m_values[i] = null;
+        }
+        m_size = 0;
+    }
+
+    /**
+     * Get all the keys
+     *
+     * @return
+     */
+    public long[] keys() {
+        long[] result = new long[m_size];
+        int pos = 0;
+        for (int i = 0; i < m_values.length; i++) {
+            if (m_values[i] != null) {
+                result[pos++] = m_keys[i];
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Fill the gap after removing an entry (linear probing)
+     *
+     * @param gap
+     */
+    private void shiftBack(int gap) {
+        int idx = (gap + 1) & m_mask;
+        while (m_values[idx] != null) {
+            int home = hash(m_keys[idx]) & m_mask;
+
+            //Move the entry if its home slot is not in (gap, idx]
+            if (((idx - home) & m_mask) >= ((idx - gap) & m_mask)) {
+                m_keys[gap] = m_keys[idx];
+                m_values[gap] = m_values[idx];
+                m_values[idx] = null;
+                gap = idx;
+            }
+
+            idx = (idx + 1) & m_mask;
+        }
+    }
+
+    /**
+     * Resize the map
+     *
+     * @param newSize
+     */
+    private void resize(int newSize) {
+        long[] oldKeys = m_keys;
+        Object[] oldValues = m_values;
+
+        m_keys = new long[newSize];
+        m_values = new Object[newSize];
+        m_mask = newSize - 1;
+
+        for (int i = 0; i < oldValues.length; i++) {
+            Object value = oldValues[i];
+            if (value == null) {
+                continue;
+            }
+
+            long key = oldKeys[i];
+            int idx = hash(key) & m_mask;
+            while (m_values[idx] != null) {
+                idx = (idx + 1) & m_mask;
+            }
+            m_keys[idx] = key;
+            m_values[idx] = value;
+        }
+    }
+
+    /**
+     * Mix the key bits
+     *
+     * @param key
+     * @return
+     */
+    static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+
+        return (int) key;
+    }
+}
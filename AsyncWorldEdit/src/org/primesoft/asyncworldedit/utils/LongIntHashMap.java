@@ -0,0 +1,219 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.utils;
+
+/**
+ * Open addressing hash map with primitive long keys and int values. 
+ * This class is not thread safe.
+ *
+ * @author SBPrime
+ */
+public class LongIntHashMap {
+
+    /**
+     * Minimum capacity of the map
+     */
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * The keys
+     */
+    private long[] m_keys;
+
+    /**
+     * The values
+     */
+    private int[] m_values;
+
+    /**
+     * Is the slot used
+     */
+    private boolean[] m_used;
+
+    /**
+     * Number of entries
+     */
+    private int m_size;
+
+    /**
+     * Capacity mask
+     */
+    private int m_mask;
+
+    public LongIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongIntHashMap(int capacity) {
+        int size = MIN_CAPACITY;
+        while (size < capacity * 2) {
+            size <<= 1;
+        }
+
+        m_keys = new long[size];
+        m_values = new int[size];
+        m_used = new boolean[size];
+        m_mask = size - 1;
+        m_size = 0;
+    }
+
+    /**
+     * Number of entries in the map
+     *
+     * @return
+     */
+    public int size() {
+        return m_size;
+    }
+
+    /**
+     * Is the map empty
+     *
+     * @return
+     */
+    public boolean isEmpty() {
+        return m_size == 0;
+    }
+
+    /**
+     * Get the entry value
+     *
+     * @param key
+     * @param defaultValue value returned if the key is not found
+     * @return
+     */
+    public int get(long key, int defaultValue) {
+        int idx = LongHashMap.hash(key) & m_mask;
+        while (m_used[idx]) {
+            if (m_keys[idx] == key) {
+                return m_values[idx];
+            }
+            idx = (idx + 1) & m_mask;
+        }
+
+        return defaultValue;
+    }
+
+    /**
+     * Check if the map contains the key
+     *
+     * @param key
+     * @return
+     */
+    public boolean containsKey(long key) {
+        int idx = LongHashMap.hash(key) & m_mask;
+        while (m_used[idx]) {
+            if (m_keys[idx] == key) {
+                return true;
+            }
+            idx = (idx + 1) & m_mask;
+        }
+
+        return false;
+    }
+
+    /**
+     * Put new entry in to the map
+     *
+     * @param key
+     * @param value
+     */
+    public void put(long key, int value) {
+        int idx = LongHashMap.hash(key) & m_mask;
+        while (m_used[idx]) {
+            if (m_keys[idx] == key) {
+                m_values[idx] = value;
+                return;
+            }
+            idx = (idx + 1) & m_mask;
+        }
+
+        m_keys[idx] = key;
+        m_values[idx] = value;
+        m_used[idx] = true;
+        m_size++;
+
+        if (m_size * 2 > m_used.length) {
+            resize(m_used.length * 2);
+        }
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void clear() {
+        for (int i = 0; i < m_used.length; i++) {
+            m_used[i] = false;
+        }
+        m_size = 0;
+    }
+
+    /**
+     * Resize the map
+     *
+     * @param newSize
+     */
+    private void resize(int newSize) {
+        long[] oldKeys = m_keys;
+        int[] oldValues = m_values;
+        boolean[] oldUsed = m_used;
+
+        m_keys = new long[newSize];
+        m_values = new int[newSize];
+        m_used = new boolean[newSize];
+        m_mask = newSize - 1;
+
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (!oldUsed[i]) {
+                continue;
+            }
+
+            long key = oldKeys[i];
+            int idx = LongHashMap.hash(key) & m_mask;
+            while (m_used[idx]) {
+                idx = (idx + 1) & m_mask;
+            }
+            m_keys[idx] = key;
+            m_values[idx] = oldValues[i];
+            m_used[idx] = true;
+        }
+    }
+}
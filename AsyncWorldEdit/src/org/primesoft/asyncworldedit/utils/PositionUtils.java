@@ -0,0 +1,104 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.utils;
+
+/**
+ * Pack block and chunk coordinates in to a single long value
+ *
+ * @author SBPrime
+ */
+public class PositionUtils {
+
+    /**
+     * Pack block coordinates (x, z: 26 bits, y: 12 bits)
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @return
+     */
+    public static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3ffffff) << 38)
+                | ((long) (z & 0x3ffffff) << 12)
+                | (long) (y & 0xfff);
+    }
+
+    /**
+     * Get the X coordinate from packed block position
+     *
+     * @param pos
+     * @return
+     */
+    public static int unpackX(long pos) {
+        return (int) (pos >> 38);
+    }
+
+    /**
+     * Get the Y coordinate from packed block position
+     *
+     * @param pos
+     * @return
+     */
+    public static int unpackY(long pos) {
+        return (int) (pos << 52 >> 52);
+    }
+
+    /**
+     * Get the Z coordinate from packed block position
+     *
+     * @param pos
+     * @return
+     */
+    public static int unpackZ(long pos) {
+        return (int) (pos << 26 >> 38);
+    }
+
+    /**
+     * Pack chunk coordinates
+     *
+     * @param cx
+     * @param cz
+     * @return
+     */
+    public static long packChunk(int cx, int cz) {
+        return ((long) cx << 32) | (cz & 0xffffffffL);
+    }
+}
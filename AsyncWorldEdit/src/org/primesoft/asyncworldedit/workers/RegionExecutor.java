@@ -0,0 +1,129 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.workers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The helper threads used to split a single region operation in to parallel
+ * sub tasks. The thread that owns the operation always takes part in the work
+ * so the operation finishes even when all the helpers are busy.
+ *
+ * @author SBPrime
+ */
+public class RegionExecutor {
+
+    /**
+     * The helper threads (null if parallel mode is disabled)
+     */
+    private final ExecutorService m_executor;
+
+    /**
+     * Number of helper threads
+     */
+    private final int m_helpers;
+
+    /**
+     * Is the parallel mode enabled
+     *
+     * @return
+     */
+    public boolean isEnabled() {
+        return m_executor != null;
+    }
+
+    /**
+     * Get the number of helper threads
+     *
+     * @return
+     */
+    public int getHelpers() {
+        return m_helpers;
+    }
+
+    /**
+     * Create new region executor
+     *
+     * @param threads number of threads working on one operation (including
+     * the operation owner), 1 disables the parallel mode
+     */
+    public RegionExecutor(int threads) {
+        m_helpers = Math.max(0, threads - 1);
+
+        if (m_helpers == 0) {
+            m_executor = null;
+            return;
+        }
+
+        final AtomicInteger threadId = new AtomicInteger(0);
+        m_executor = Executors.newFixedThreadPool(m_helpers, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "AWE region worker #" + threadId.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Run a sub task on one of the helper threads
+     *
+     * @param task
+     * @return
+     */
+    public Future<?> submit(Runnable task) {
+        return m_executor.submit(task);
+    }
+
+    /**
+     * Stop the helper threads
+     */
+    public void stop() {
+        if (m_executor != null) {
+            m_executor.shutdownNow();
+        }
+    }
+}
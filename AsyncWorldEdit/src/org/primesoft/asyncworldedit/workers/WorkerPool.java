@@ -0,0 +1,370 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.workers;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacer;
+import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacerPlayer;
+import org.primesoft.asyncworldedit.api.blockPlacer.entries.JobStatus;
+import org.primesoft.asyncworldedit.api.configuration.IPermissionGroup;
+import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+import org.primesoft.asyncworldedit.api.stats.ITimeHistogram;
+import org.primesoft.asyncworldedit.permissions.Permission;
+import org.primesoft.asyncworldedit.stats.TimeHistogram;
+import org.primesoft.asyncworldedit.utils.ExceptionHelper;
+import org.primesoft.asyncworldedit.worldedit.BaseTask;
+
+/**
+ * The AWE async task executor. Tasks are started in FIFO order (per player)
+ * as long as the player and group running job limits allow it and the player
+ * block placer queue is below the soft limit. Tasks that can not be started
+ * are delayed, the submitting thread is never blocked. A task that throws
+ * (including errors) is aborted and the worker thread keeps running.
+ *
+ * @author SBPrime
+ */
+public class WorkerPool {
+
+    /**
+     * Time between the throttled tasks checks (ms)
+     */
+    private final static long THROTTLE_RECHECK = 50;
+
+    /**
+     * The mutex
+     */
+    private final Object m_mutex = new Object();
+
+    /**
+     * The waiting tasks
+     */
+    private final LinkedList<WorkerJob> m_queue = new LinkedList<WorkerJob>();
+
+    /**
+     * Number of running tasks for each player
+     */
+    private final HashMap<IPlayerEntry, Integer> m_playerRunning = new HashMap<IPlayerEntry, Integer>();
+
+    /**
+     * Number of running tasks for each permission group
+     */
+    private final HashMap<IPermissionGroup, Integer> m_groupRunning = new HashMap<IPermissionGroup, Integer>();
+
+    /**
+     * The block placer
+     */
+    private final IBlockPlacer m_blockPlacer;
+
+    /**
+     * The worker threads
+     */
+    private final Thread[] m_threads;
+
+    /**
+     * The time tasks spend in the queue
+     */
+    private final TimeHistogram m_waitTime = new TimeHistogram(null);
+
+    /**
+     * The time tasks spend running
+     */
+    private final TimeHistogram m_runTime = new TimeHistogram(null);
+
+    /**
+     * Is the pool running
+     */
+    private boolean m_isRunning;
+
+    /**
+     * Get the queue wait time histogram
+     *
+     * @return
+     */
+    public ITimeHistogram getWaitTime() {
+        return m_waitTime;
+    }
+
+    /**
+     * Get the task run time histogram
+     *
+     * @return
+     */
+    public ITimeHistogram getRunTime() {
+        return m_runTime;
+    }
+
+    /**
+     * Get the number of waiting tasks
+     *
+     * @return
+     */
+    public int getQueueSize() {
+        synchronized (m_mutex) {
+            return m_queue.size();
+        }
+    }
+
+    public WorkerPool(IBlockPlacer blockPlacer, int threads) {
+        m_blockPlacer = blockPlacer;
+        m_isRunning = true;
+        m_threads = new Thread[threads];
+
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    work();
+                }
+            }, "AWE worker #" + (i + 1));
+            thread.setDaemon(true);
+
+            m_threads[i] = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * Queue a task
+     *
+     * @param task
+     */
+    public void submit(BaseTask task) {
+        synchronized (m_mutex) {
+            if (!m_isRunning) {
+                return;
+            }
+
+            m_queue.add(new WorkerJob(task, System.nanoTime()));
+            m_mutex.notify();
+        }
+    }
+
+    /**
+     * Stop the workers, the waiting tasks are dropped
+     */
+    public void stop() {
+        synchronized (m_mutex) {
+            m_isRunning = false;
+            m_queue.clear();
+            m_mutex.notifyAll();
+        }
+    }
+
+    /**
+     * Reset the task time stats
+     */
+    public void resetStats() {
+        m_waitTime.reset();
+        m_runTime.reset();
+    }
+
+    /**
+     * The worker thread main loop
+     */
+    private void work() {
+        while (true) {
+            WorkerJob job = null;
+
+            synchronized (m_mutex) {
+                while (m_isRunning && (job = poll()) == null) {
+                    try {
+                        if (m_queue.isEmpty()) {
+                            m_mutex.wait();
+                        } else {
+                            m_mutex.wait(THROTTLE_RECHECK);
+                        }
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                }
+
+                if (job == null) {
+                    return;
+                }
+
+                acquire(job.getTask());
+            }
+
+            BaseTask task = job.getTask();
+            long start = System.nanoTime();
+            m_waitTime.record(start - job.getQueued());
+            try {
+                task.run();
+            } catch (Throwable ex) {
+                ExceptionHelper.printException(ex, "Async task " + task.getCommand() + " thrown an error:");
+                abort(task);
+            } finally {
+                m_runTime.record(System.nanoTime() - start);
+
+                synchronized (m_mutex) {
+                    release(task);
+                    m_mutex.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Abort the failed task, the worker thread is kept alive
+     *
+     * @param task
+     */
+    private static void abort(BaseTask task) {
+        try {
+            task.abort();
+        } catch (Throwable ex) {
+            ExceptionHelper.printException(ex, "Unable to abort async task " + task.getCommand() + ":");
+        }
+    }
+
+    /**
+     * Find and remove the first task that can be started. Once a player task
+     * can not be started all his later tasks are skipped to keep the per player
+     * order (copy before paste etc.)
+     *
+     * @return
+     */
+    private WorkerJob poll() {
+        HashSet<IPlayerEntry> blocked = null;
+
+        for (Iterator<WorkerJob> it = m_queue.iterator(); it.hasNext();) {
+            WorkerJob job = it.next();
+            BaseTask task = job.getTask();
+            IPlayerEntry player = task.getPlayer();
+
+            if (blocked != null && blocked.contains(player)) {
+                continue;
+            }
+
+            if (canStart(task)) {
+                it.remove();
+                return job;
+            }
+
+            if (blocked == null) {
+                blocked = new HashSet<IPlayerEntry>();
+            }
+            blocked.add(player);
+        }
+
+        return null;
+    }
+
+    /**
+     * Check if the task can be started
+     *
+     * @param task
+     * @return
+     */
+    private boolean canStart(BaseTask task) {
+        if (task.getJob().getStatus() == JobStatus.Canceled) {
+            return true;
+        }
+
+        IPlayerEntry player = task.getPlayer();
+        IPermissionGroup group = task.getPermissionGroup();
+
+        if (isLimitReached(m_playerRunning.get(player), group.getMaxRunningJobs())
+                || isLimitReached(m_groupRunning.get(group), group.getGroupRunningJobs())) {
+            return false;
+        }
+
+        if (player.isAllowed(Permission.QUEUE_BYPASS)) {
+            return true;
+        }
+
+        IBlockPlacerPlayer entry = m_blockPlacer.getPlayerEvents(player);
+        return entry == null || entry.getQueueSize() < group.getQueueSoftLimit();
+    }
+
+    /**
+     * Mark the task as running
+     *
+     * @param task
+     */
+    private void acquire(BaseTask task) {
+        increment(m_playerRunning, task.getPlayer(), 1);
+        increment(m_groupRunning, task.getPermissionGroup(), 1);
+    }
+
+    /**
+     * Mark the task as finished
+     *
+     * @param task
+     */
+    private void release(BaseTask task) {
+        increment(m_playerRunning, task.getPlayer(), -1);
+        increment(m_groupRunning, task.getPermissionGroup(), -1);
+    }
+
+    /**
+     * Check if the running tasks limit is reached
+     *
+     * @param running
+     * @param limit
+     * @return
+     */
+    private static boolean isLimitReached(Integer running, int limit) {
+        return limit != -1 && running != null && running >= limit;
+    }
+
+    /**
+     * Change the running tasks counter
+     *
+     * @param <T>
+     * @param counters
+     * @param key
+     * @param delta
+     */
+    private static <T> void increment(HashMap<T, Integer> counters, T key, int delta) {
+        Integer value = counters.get(key);
+        int newValue = (value != null ? value : 0) + delta;
+
+        if (newValue <= 0) {
+            counters.remove(key);
+        } else {
+            counters.put(key, newValue);
+        }
+    }
+}
@@ -42,7 +42,6 @@ package org.primesoft.asyncworldedit.worldedit;
 
 import com.sk89q.worldedit.*;
 import com.sk89q.worldedit.regions.Region;
-import org.bukkit.scheduler.BukkitScheduler;
 import org.primesoft.asyncworldedit.AsyncWorldEditBukkit;
 import org.primesoft.asyncworldedit.configuration.ConfigProvider;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacer;
@@ -74,11 +73,6 @@ public class AsyncCuboidClipboard extends ProxyCuboidClipboard {
      */
     private final CuboidClipboard m_clipboard;
 
-    /**
-     * Bukkit schedule
-     */
-    private final BukkitScheduler m_schedule;
-
     /**
      * The plugin
      */
@@ -88,7 +82,6 @@ public class AsyncCuboidClipboard extends ProxyCuboidClipboard {
         super(new ProxyCuboidClipboard(parrent));
 
         m_plugin = (AsyncWorldEditBukkit)AsyncWorldEditBukkit.getInstance();
-        m_schedule = m_plugin.getServer().getScheduler();
         m_clipboard = parrent;
         m_blockPlacer = m_plugin.getBlockPlacer();
         m_player = player;
@@ -106,7 +99,7 @@ public class AsyncCuboidClipboard extends ProxyCuboidClipboard {
         final JobEntry job = new JobEntry(m_player, jobId, "pasteEntities");
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new ClipboardAsyncTask(cc, null, m_player, "pasteEntities",
+        m_plugin.getWorkerPool().submit(new ClipboardAsyncTask(cc, null, m_player, "pasteEntities",
                 m_blockPlacer, job) {
                     @Override
                     public void task(CuboidClipboard cc)
@@ -147,7 +140,7 @@ public class AsyncCuboidClipboard extends ProxyCuboidClipboard {
 
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new ClipboardAsyncTask(cc, session, m_player, "place",
+        m_plugin.getWorkerPool().submit(new ClipboardAsyncTask(cc, session, m_player, "place",
                 m_blockPlacer, job) {
                     @Override
                     public void task(CuboidClipboard cc)
@@ -188,7 +181,7 @@ public class AsyncCuboidClipboard extends ProxyCuboidClipboard {
         }
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new ClipboardAsyncTask(cc, session, m_player, "paste",
+        m_plugin.getWorkerPool().submit(new ClipboardAsyncTask(cc, session, m_player, "paste",
                 m_blockPlacer, job) {
                     @Override
                     public void task(CuboidClipboard cc)
@@ -229,7 +222,7 @@ public class AsyncCuboidClipboard extends ProxyCuboidClipboard {
         }
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new ClipboardAsyncTask(cc, session, m_player, "paste",
+        m_plugin.getWorkerPool().submit(new ClipboardAsyncTask(cc, session, m_player, "paste",
                 m_blockPlacer, job) {
                     @Override
                     public void task(CuboidClipboard cc)
@@ -271,7 +264,7 @@ public class AsyncCuboidClipboard extends ProxyCuboidClipboard {
         if (wait != null) {
             wait.setWait(cc, true);
         }
-        m_schedule.runTaskAsynchronously(m_plugin, new ClipboardAsyncTask(cc, session, m_player, "copy",
+        m_plugin.getWorkerPool().submit(new ClipboardAsyncTask(cc, session, m_player, "copy",
                 m_blockPlacer, job) {
                     @Override
                     public void task(CuboidClipboard cc) throws MaxChangedBlocksException {
@@ -315,7 +308,7 @@ public class AsyncCuboidClipboard extends ProxyCuboidClipboard {
         if (wait != null) {
             wait.setWait(cc, true);
         }
-        m_schedule.runTaskAsynchronously(m_plugin, new ClipboardAsyncTask(cc, session, m_player, "copy",
+        m_plugin.getWorkerPool().submit(new ClipboardAsyncTask(cc, session, m_player, "copy",
                 m_blockPlacer, job) {
                     @Override
                     public void task(CuboidClipboard cc) throws MaxChangedBlocksException {
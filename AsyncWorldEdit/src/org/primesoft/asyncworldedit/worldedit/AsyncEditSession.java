@@ -49,6 +49,7 @@ import com.sk89q.worldedit.extent.inventory.BlockBag;
 import com.sk89q.worldedit.function.mask.Mask;
 import com.sk89q.worldedit.internal.expression.ExpressionException;
 import com.sk89q.worldedit.patterns.Pattern;
+import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.TreeGenerator;
 import com.sk89q.worldedit.util.eventbus.EventBus;
@@ -56,24 +57,18 @@ import com.sk89q.worldedit.world.biome.BaseBiome;
 import java.util.List;
 import java.util.Set;
 import javax.annotation.Nullable;
-import org.bukkit.scheduler.BukkitScheduler;
 import org.primesoft.asyncworldedit.AsyncWorldEditBukkit;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
 import org.primesoft.asyncworldedit.blockPlacer.entries.JobEntry;
 import org.primesoft.asyncworldedit.blockPlacer.entries.UndoJob;
 import org.primesoft.asyncworldedit.utils.WaitFor;
+import org.primesoft.asyncworldedit.worldedit.ParallelRegionOperation.IRegionAction;
 
 /**
  *
  * @author SBPrime
  */
 public class AsyncEditSession extends ThreadSafeEditSession {
-    /**
-     * Bukkit schedule
-     */
-    private final BukkitScheduler m_schedule;
-
-
     /**
      * The function wait object
      */
@@ -97,7 +92,6 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         //super(eventBus, AsyncWorld.wrap(world, player), maxBlocks, blockBag, event);
         super(plugin, player, eventBus, world, maxBlocks, blockBag, event);
         
-        m_schedule = plugin.getServer().getScheduler();
     }
 
     /**
@@ -122,7 +116,7 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         final JobEntry job = new UndoJob(m_player, session, jobId, "undo");
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(session, m_player, "undo",
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, m_player, "undo",
                 m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -164,7 +158,7 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         final JobEntry job = new JobEntry(m_player, session, jobId, "redo");
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(session, m_player, "redo",
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, m_player, "redo",
                 m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -204,7 +198,7 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         final JobEntry job = new JobEntry(m_player, session, jobId, "makeBiomeShape");
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(session, m_player, "makeBiomeShape",
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, m_player, "makeBiomeShape",
                 m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -231,6 +225,10 @@ public class AsyncEditSession extends ThreadSafeEditSession {
      */
     @Override
     public int makeFaces(final Region region, final Pattern pattern) throws MaxChangedBlocksException {
+        if (canRunParallel(region, WorldeditOperations.makeCuboidFaces)) {
+            return makeCuboidFaces(region, pattern);
+        }
+
         boolean isAsync = checkAsync(WorldeditOperations.makeCuboidFaces);
         if (!isAsync) {
             return super.makeFaces(region, pattern);
@@ -241,7 +239,7 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         final JobEntry job = new JobEntry(m_player, session, jobId, "makeFaces");
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(session, m_player, "makeFaces",
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, m_player, "makeFaces",
                 m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -263,6 +261,10 @@ public class AsyncEditSession extends ThreadSafeEditSession {
      */
     @Override
     public int makeWalls(final Region region, final Pattern pattern) throws MaxChangedBlocksException {
+        if (canRunParallel(region, WorldeditOperations.makeCuboidWalls)) {
+            return makeCuboidWalls(region, pattern);
+        }
+
         boolean isAsync = checkAsync(WorldeditOperations.makeCuboidWalls);
         if (!isAsync) {
             return super.makeWalls(region, pattern);
@@ -273,7 +275,7 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         final JobEntry job = new JobEntry(m_player, session, jobId, "makeWalls");
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(session, m_player, "makeWalls",
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, m_player, "makeWalls",
                 m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -310,7 +312,7 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         final JobEntry job = new JobEntry(m_player, session, jobId, "drawLine");
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(session, m_player, "drawLine",
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, m_player, "drawLine",
                 m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -352,7 +354,7 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         final JobEntry job = new JobEntry(m_player, session, jobId, "drawLine");
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(session, m_player, "drawLine",
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, m_player, "drawLine",
                 m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -391,7 +393,7 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         final JobEntry job = new JobEntry(m_player, session, jobId, "makeCylinder");
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(session, m_player, "makeCylinder",
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, m_player, "makeCylinder",
                 m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -432,7 +434,7 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         final JobEntry job = new JobEntry(m_player, session, jobId, "makeCylinder");
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(session, m_player, "makeCylinder",
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, m_player, "makeCylinder",
                 m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -470,7 +472,7 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         final JobEntry job = new JobEntry(m_player, session, jobId, "makeSphere");
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(session, m_player, "makeSphere",
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, m_player, "makeSphere",
                 m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -511,7 +513,7 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         final JobEntry job = new JobEntry(m_player, session, jobId, "makeSphere");
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(session, m_player, "makeSphere",
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, m_player, "makeSphere",
                 m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -547,7 +549,7 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         final JobEntry job = new JobEntry(m_player, session, jobId, "makePyramid");
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(session, m_player, "makePyramid",
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, m_player, "makePyramid",
                 m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -580,7 +582,7 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         final JobEntry job = new JobEntry(m_player, session, jobId, "thaw");
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(session, m_player, "thaw",
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, m_player, "thaw",
                 m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -614,7 +616,7 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         final JobEntry job = new JobEntry(m_player, session, jobId, "simulateSnow");
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(session, m_player, "simulateSnow",
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, m_player, "simulateSnow",
                 m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -648,7 +650,7 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         final JobEntry job = new JobEntry(m_player, session, jobId, "green");
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(session, m_player, "green",
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, m_player, "green",
                 m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -682,7 +684,7 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         final JobEntry job = new JobEntry(m_player, session, jobId, "green");
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(session, m_player, "green",
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, m_player, "green",
                 m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -715,7 +717,7 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         final JobEntry job = new JobEntry(m_player, session, jobId, "makePumpkinPatches");
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(session, m_player, "makePumpkinPatches",
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, m_player, "makePumpkinPatches",
                 m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -752,7 +754,7 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         final JobEntry job = new JobEntry(m_player, session, jobId, "makeForest");
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(session, m_player, "makeForest",
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, m_player, "makeForest",
                 m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -793,7 +795,7 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         final JobEntry job = new JobEntry(m_player, session, jobId, "makeShape");
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(session, m_player, "makeShape",
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, m_player, "makeShape",
                 m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -835,7 +837,7 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         final JobEntry job = new JobEntry(m_player, session, jobId, "deformRegion");
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(session, m_player, "deformRegion",
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, m_player, "deformRegion",
                 m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -875,7 +877,7 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         final JobEntry job = new JobEntry(m_player, session, jobId, "hollowOutRegion");
         m_blockPlacer.addJob(m_player, job);
 
-        m_schedule.runTaskAsynchronously(m_plugin, new AsyncTask(session, m_player, "hollowOutRegion",
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, m_player, "hollowOutRegion",
                 m_blockPlacer, job) {
                     @Override
                     public int task(CancelabeEditSession session)
@@ -888,6 +890,61 @@ public class AsyncEditSession extends ThreadSafeEditSession {
         return 0;
     }
 
+    /**
+     * Check if the region operation can be split in to parallel sub tasks.
+     * Block bags and change limits are not thread safe, sessions that use
+     * them run the operation on a single thread.
+     *
+     * @param region
+     * @param operation
+     * @return
+     */
+    private boolean canRunParallel(Region region, WorldeditOperations operation) {
+        if (!(region instanceof CuboidRegion)
+                || !m_plugin.getRegionExecutor().isEnabled()
+                || getBlockBag() != null || getBlockChangeLimit() != -1) {
+            return false;
+        }
+
+        Vector min = region.getMinimumPoint();
+        Vector max = region.getMaximumPoint();
+        if ((min.getBlockX() >> 4) == (max.getBlockX() >> 4)
+                && (min.getBlockZ() >> 4) == (max.getBlockZ() >> 4)) {
+            return false;
+        }
+
+        return checkAsync(operation);
+    }
+
+    /**
+     * Run the region operation parts as a single async job
+     *
+     * @param name
+     * @param parts
+     * @param action
+     * @return
+     */
+    private int runParallel(final String name, final List<CuboidRegion> parts,
+            final IRegionAction action) {
+        final int jobId = getJobId();
+        final CancelabeEditSession session = new CancelabeEditSession(this, getMask(), jobId);
+        final JobEntry job = new JobEntry(m_player, session, jobId, name);
+        m_blockPlacer.addJob(m_player, job);
+
+        m_plugin.getWorkerPool().submit(new AsyncTask(session, m_player, name,
+                m_blockPlacer, job) {
+                    @Override
+                    public int task(CancelabeEditSession session)
+                    throws MaxChangedBlocksException {
+                        m_wait.checkAndWait(null);
+                        return ParallelRegionOperation.run(m_plugin.getRegionExecutor(),
+                                session, parts, action);
+                    }
+                });
+
+        return 0;
+    }
+
     //--------------------------------------------------------------------------//
     //-- ASYNCED OPERATIONS USING OPERATIONS -----------------------------------//
     //--------------------------------------------------------------------------//
@@ -918,23 +975,63 @@ public class AsyncEditSession extends ThreadSafeEditSession {
     }
 
     @Override
-    public int makeCuboidFaces(Region region, BaseBlock block) throws MaxChangedBlocksException {
-        return super.makeCuboidFaces(region, block); //To change body of generated methods, choose Tools | Templates.
+    public int makeCuboidFaces(final Region region, final BaseBlock block) throws MaxChangedBlocksException {
+        if (!canRunParallel(region, WorldeditOperations.makeCuboidFaces)) {
+            return super.makeCuboidFaces(region, block);
+        }
+
+        return runParallel("makeCuboidFaces", ParallelRegionOperation.splitFaces((CuboidRegion) region), new IRegionAction() {
+            @Override
+            public int execute(CancelabeEditSession session, CuboidRegion part)
+                    throws MaxChangedBlocksException {
+                return session.setBlocks(part, block);
+            }
+        });
     }
 
     @Override
-    public int makeCuboidFaces(Region region, Pattern pattern) throws MaxChangedBlocksException {
-        return super.makeCuboidFaces(region, pattern); //To change body of generated methods, choose Tools | Templates.
+    public int makeCuboidFaces(final Region region, final Pattern pattern) throws MaxChangedBlocksException {
+        if (!canRunParallel(region, WorldeditOperations.makeCuboidFaces)) {
+            return super.makeCuboidFaces(region, pattern);
+        }
+
+        return runParallel("makeCuboidFaces", ParallelRegionOperation.splitFaces((CuboidRegion) region), new IRegionAction() {
+            @Override
+            public int execute(CancelabeEditSession session, CuboidRegion part)
+                    throws MaxChangedBlocksException {
+                return session.setBlocks(part, pattern);
+            }
+        });
     }
 
     @Override
-    public int makeCuboidWalls(Region region, BaseBlock block) throws MaxChangedBlocksException {
-        return super.makeCuboidWalls(region, block); //To change body of generated methods, choose Tools | Templates.
+    public int makeCuboidWalls(final Region region, final BaseBlock block) throws MaxChangedBlocksException {
+        if (!canRunParallel(region, WorldeditOperations.makeCuboidWalls)) {
+            return super.makeCuboidWalls(region, block);
+        }
+
+        return runParallel("makeCuboidWalls", ParallelRegionOperation.splitWalls((CuboidRegion) region), new IRegionAction() {
+            @Override
+            public int execute(CancelabeEditSession session, CuboidRegion part)
+                    throws MaxChangedBlocksException {
+                return session.setBlocks(part, block);
+            }
+        });
     }
 
     @Override
-    public int makeCuboidWalls(Region region, Pattern pattern) throws MaxChangedBlocksException {
-        return super.makeCuboidWalls(region, pattern); //To change body of generated methods, choose Tools | Templates.
+    public int makeCuboidWalls(final Region region, final Pattern pattern) throws MaxChangedBlocksException {
+        if (!canRunParallel(region, WorldeditOperations.makeCuboidWalls)) {
+            return super.makeCuboidWalls(region, pattern);
+        }
+
+        return runParallel("makeCuboidWalls", ParallelRegionOperation.splitWalls((CuboidRegion) region), new IRegionAction() {
+            @Override
+            public int execute(CancelabeEditSession session, CuboidRegion part)
+                    throws MaxChangedBlocksException {
+                return session.setBlocks(part, pattern);
+            }
+        });
     }
 
     @Override
@@ -948,18 +1045,48 @@ public class AsyncEditSession extends ThreadSafeEditSession {
     }
 
     @Override
-    public int naturalizeCuboidBlocks(Region region) throws MaxChangedBlocksException {
-        return super.naturalizeCuboidBlocks(region); //To change body of generated methods, choose Tools | Templates.
+    public int naturalizeCuboidBlocks(final Region region) throws MaxChangedBlocksException {
+        if (!canRunParallel(region, WorldeditOperations.naturalizeCuboidBlocks)) {
+            return super.naturalizeCuboidBlocks(region);
+        }
+
+        return runParallel("naturalizeCuboidBlocks", ParallelRegionOperation.split((CuboidRegion) region), new IRegionAction() {
+            @Override
+            public int execute(CancelabeEditSession session, CuboidRegion part)
+                    throws MaxChangedBlocksException {
+                return session.naturalizeCuboidBlocks(part);
+            }
+        });
     }
 
     @Override
-    public int overlayCuboidBlocks(Region region, BaseBlock block) throws MaxChangedBlocksException {
-        return super.overlayCuboidBlocks(region, block); //To change body of generated methods, choose Tools | Templates.
+    public int overlayCuboidBlocks(final Region region, final BaseBlock block) throws MaxChangedBlocksException {
+        if (!canRunParallel(region, WorldeditOperations.overlayCuboidBlocks)) {
+            return super.overlayCuboidBlocks(region, block);
+        }
+
+        return runParallel("overlayCuboidBlocks", ParallelRegionOperation.split((CuboidRegion) region), new IRegionAction() {
+            @Override
+            public int execute(CancelabeEditSession session, CuboidRegion part)
+                    throws MaxChangedBlocksException {
+                return session.overlayCuboidBlocks(part, block);
+            }
+        });
     }
 
     @Override
-    public int overlayCuboidBlocks(Region region, Pattern pattern) throws MaxChangedBlocksException {
-        return super.overlayCuboidBlocks(region, pattern); //To change body of generated methods, choose Tools | Templates.
+    public int overlayCuboidBlocks(final Region region, final Pattern pattern) throws MaxChangedBlocksException {
+        if (!canRunParallel(region, WorldeditOperations.overlayCuboidBlocks)) {
+            return super.overlayCuboidBlocks(region, pattern);
+        }
+
+        return runParallel("overlayCuboidBlocks", ParallelRegionOperation.split((CuboidRegion) region), new IRegionAction() {
+            @Override
+            public int execute(CancelabeEditSession session, CuboidRegion part)
+                    throws MaxChangedBlocksException {
+                return session.overlayCuboidBlocks(part, pattern);
+            }
+        });
     }
 
     @Override
@@ -978,28 +1105,78 @@ public class AsyncEditSession extends ThreadSafeEditSession {
     }
 
     @Override
-    public int replaceBlocks(Region region, Mask mask, Pattern pattern) throws MaxChangedBlocksException {
-        return super.replaceBlocks(region, mask, pattern); //To change body of generated methods, choose Tools | Templates.
+    public int replaceBlocks(final Region region, final Mask mask, final Pattern pattern) throws MaxChangedBlocksException {
+        if (!canRunParallel(region, WorldeditOperations.replaceBlocks)) {
+            return super.replaceBlocks(region, mask, pattern);
+        }
+
+        return runParallel("replaceBlocks", ParallelRegionOperation.split((CuboidRegion) region), new IRegionAction() {
+            @Override
+            public int execute(CancelabeEditSession session, CuboidRegion part)
+                    throws MaxChangedBlocksException {
+                return session.replaceBlocks(part, mask, pattern);
+            }
+        });
     }
 
     @Override
-    public int replaceBlocks(Region region, Set<BaseBlock> filter, BaseBlock replacement) throws MaxChangedBlocksException {
-        return super.replaceBlocks(region, filter, replacement); //To change body of generated methods, choose Tools | Templates.
+    public int replaceBlocks(final Region region, final Set<BaseBlock> filter, final BaseBlock replacement) throws MaxChangedBlocksException {
+        if (!canRunParallel(region, WorldeditOperations.replaceBlocks)) {
+            return super.replaceBlocks(region, filter, replacement);
+        }
+
+        return runParallel("replaceBlocks", ParallelRegionOperation.split((CuboidRegion) region), new IRegionAction() {
+            @Override
+            public int execute(CancelabeEditSession session, CuboidRegion part)
+                    throws MaxChangedBlocksException {
+                return session.replaceBlocks(part, filter, replacement);
+            }
+        });
     }
 
     @Override
-    public int replaceBlocks(Region region, Set<BaseBlock> filter, Pattern pattern) throws MaxChangedBlocksException {
-        return super.replaceBlocks(region, filter, pattern); //To change body of generated methods, choose Tools | Templates.
+    public int replaceBlocks(final Region region, final Set<BaseBlock> filter, final Pattern pattern) throws MaxChangedBlocksException {
+        if (!canRunParallel(region, WorldeditOperations.replaceBlocks)) {
+            return super.replaceBlocks(region, filter, pattern);
+        }
+
+        return runParallel("replaceBlocks", ParallelRegionOperation.split((CuboidRegion) region), new IRegionAction() {
+            @Override
+            public int execute(CancelabeEditSession session, CuboidRegion part)
+                    throws MaxChangedBlocksException {
+                return session.replaceBlocks(part, filter, pattern);
+            }
+        });
     }
 
     @Override
-    public int setBlocks(Region region, BaseBlock block) throws MaxChangedBlocksException {
-        return super.setBlocks(region, block); //To change body of generated methods, choose Tools | Templates.
+    public int setBlocks(final Region region, final BaseBlock block) throws MaxChangedBlocksException {
+        if (!canRunParallel(region, WorldeditOperations.setBlocks)) {
+            return super.setBlocks(region, block);
+        }
+
+        return runParallel("setBlocks", ParallelRegionOperation.split((CuboidRegion) region), new IRegionAction() {
+            @Override
+            public int execute(CancelabeEditSession session, CuboidRegion part)
+                    throws MaxChangedBlocksException {
+                return session.setBlocks(part, block);
+            }
+        });
     }
 
     @Override
-    public int setBlocks(Region region, Pattern pattern) throws MaxChangedBlocksException {
-        return super.setBlocks(region, pattern); //To change body of generated methods, choose Tools | Templates.
+    public int setBlocks(final Region region, final Pattern pattern) throws MaxChangedBlocksException {
+        if (!canRunParallel(region, WorldeditOperations.setBlocks)) {
+            return super.setBlocks(region, pattern);
+        }
+
+        return runParallel("setBlocks", ParallelRegionOperation.split((CuboidRegion) region), new IRegionAction() {
+            @Override
+            public int execute(CancelabeEditSession session, CuboidRegion part)
+                    throws MaxChangedBlocksException {
+                return session.setBlocks(part, pattern);
+            }
+        });
     }
 
     @Override
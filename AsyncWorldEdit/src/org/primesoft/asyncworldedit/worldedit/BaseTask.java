@@ -97,6 +97,42 @@ public abstract class BaseTask implements Runnable {
      */
     protected final IPermissionGroup m_group;
 
+    /**
+     * Get the command name
+     *
+     * @return
+     */
+    public String getCommand() {
+        return m_command;
+    }
+
+    /**
+     * Get the player
+     *
+     * @return
+     */
+    public IPlayerEntry getPlayer() {
+        return m_player;
+    }
+
+    /**
+     * Get the permission group
+     *
+     * @return
+     */
+    public IPermissionGroup getPermissionGroup() {
+        return m_group;
+    }
+
+    /**
+     * Get the job instance
+     *
+     * @return
+     */
+    public JobEntry getJob() {
+        return m_job;
+    }
+
     public BaseTask(final EditSession editSession, final IPlayerEntry player,
             final String commandName, IBlockPlacer blocksPlacer, JobEntry job) {
 
@@ -134,26 +170,35 @@ public abstract class BaseTask implements Runnable {
         }
         m_blockPlacer.addTasks(m_player, m_job);
 
-        if ((m_cancelableEditSession == null || !m_cancelableEditSession.isCanceled())
-                && (m_job.getStatus() != JobStatus.Canceled)) {
-            try {
-                result = doRun();
-            } catch (MaxChangedBlocksException ex) {
-                m_player.say(MessageType.BLOCK_PLACER_MAX_CHANGED.format());
-            } catch (IllegalArgumentException ex) {
-                if (ex.getCause() instanceof SessionCanceled) {
-                    m_player.say(MessageType.BLOCK_PLACER_CANCELED.format());
+        if (m_safeEditSession != null) {
+            m_safeEditSession.acquireChunkCache();
+        }
+        try {
+            if ((m_cancelableEditSession == null || !m_cancelableEditSession.isCanceled())
+                    && (m_job.getStatus() != JobStatus.Canceled)) {
+                try {
+                    result = doRun();
+                } catch (MaxChangedBlocksException ex) {
+                    m_player.say(MessageType.BLOCK_PLACER_MAX_CHANGED.format());
+                } catch (IllegalArgumentException ex) {
+                    if (ex.getCause() instanceof SessionCanceled) {
+                        m_player.say(MessageType.BLOCK_PLACER_CANCELED.format());
+                    }
                 }
             }
-        }
 
-        if (m_editSession != null) {
-            if (m_editSession.isQueueEnabled()) {
-                m_editSession.flushQueue();
-            } else if (m_cancelableEditSession != null) {
-                m_cancelableEditSession.resetAsync();
-            } else if (m_safeEditSession != null) {
-                m_safeEditSession.resetAsync();
+            if (m_editSession != null) {
+                if (m_editSession.isQueueEnabled()) {
+                    m_editSession.flushQueue();
+                } else if (m_cancelableEditSession != null) {
+                    m_cancelableEditSession.resetAsync();
+                } else if (m_safeEditSession != null) {
+                    m_safeEditSession.resetAsync();
+                }
+            }
+        } finally {
+            if (m_safeEditSession != null) {
+                m_safeEditSession.releaseChunkCache();
             }
         }
 
@@ -172,6 +217,21 @@ public abstract class BaseTask implements Runnable {
         }
     }
 
+    /**
+     * Abort the task after an unexpected error. The job is canceled, marked
+     * as done and removed from the block placer so it does not hang in the
+     * player jobs.
+     */
+    public void abort() {
+        m_job.cancel();
+        m_job.taskDone();
+        m_blockPlacer.cancelJob(m_player, m_job.getJobId());
+
+        if (m_safeEditSession != null) {
+            m_safeEditSession.removeAsync(m_job);
+        }
+    }
+
     protected abstract Object doRun() throws MaxChangedBlocksException, IllegalArgumentException;
 
     protected abstract void doPostRun(Object result);
@@ -54,6 +54,7 @@ import com.sk89q.worldedit.history.changeset.ChangeSet;
 import com.sk89q.worldedit.patterns.Pattern;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.Countable;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -90,6 +91,11 @@ public class CancelabeEditSession extends EditSessionStub implements ICancelabeE
      */
     private int m_blocksQueued;
 
+    /**
+     * The child sessions used by the parallel region operations
+     */
+    private final List<CancelabeEditSession> m_children = new ArrayList<CancelabeEditSession>();
+
     public CancelabeEditSession(IThreadSafeEditSession parent, Mask mask, int jobId) {
         super(parent.getEventBus(),
                 new CancelableWorld(parent.getWorld(), jobId, parent.getPlayer()),
@@ -128,6 +134,37 @@ public class CancelabeEditSession extends EditSessionStub implements ICancelabeE
     @Override
     public void cancel() {
         m_cWorld.cancel();
+
+        synchronized (m_children) {
+            for (CancelabeEditSession child : m_children) {
+                child.cancel();
+            }
+        }
+    }
+
+    /**
+     * Create a child session that shares the job id, mask, queue mode and
+     * change set of this session. The child is canceled together with this
+     * session.
+     *
+     * @return
+     */
+    public CancelabeEditSession createChild() {
+        CancelabeEditSession child = new CancelabeEditSession(m_parent, getMask(), m_jobId);
+        if (isQueueEnabled()) {
+            child.enableQueue();
+        } else {
+            child.disableQueue();
+        }
+
+        synchronized (m_children) {
+            m_children.add(child);
+            if (isCanceled()) {
+                child.cancel();
+            }
+        }
+
+        return child;
     }
 
     @Override
@@ -238,6 +275,21 @@ public class CancelabeEditSession extends EditSessionStub implements ICancelabeE
         m_parent.getBlockPlacer().addTasks(m_player, entry);
     }
 
+    /**
+     * Enter the job context if the blocks are passed directly to the world.
+     * When the block queue is enabled the blocks are buffered and need to
+     * carry the job parameters in wrappers.
+     *
+     * @return the entered context or null if wrappers should be used
+     */
+    private JobContext enterContext() {
+        if (isQueueEnabled()) {
+            return null;
+        }
+
+        return JobContext.enter(m_jobId, true, m_player);
+    }
+
     @Override
     public boolean setBlock(Vector position, BaseBlock block, Stage stage)
             throws WorldEditException {
@@ -245,8 +297,17 @@ public class CancelabeEditSession extends EditSessionStub implements ICancelabeE
             throw new IllegalArgumentException(new SessionCanceled());
         }
         forceFlush();
-        return super.setBlock(VectorWrapper.wrap(position, m_jobId, true, m_player),
-                BaseBlockWrapper.wrap(block, m_jobId, true, m_player), stage);
+        JobContext context = enterContext();
+        if (context == null) {
+            return super.setBlock(VectorWrapper.wrap(position, m_jobId, true, m_player),
+                    BaseBlockWrapper.wrap(block, m_jobId, true, m_player), stage);
+        }
+
+        try {
+            return super.setBlock(position, block, stage);
+        } finally {
+            context.exit();
+        }
     }
 
     @Override
@@ -257,8 +318,17 @@ public class CancelabeEditSession extends EditSessionStub implements ICancelabeE
             throw new IllegalArgumentException(new SessionCanceled());
         }
 
-        return super.setBlock(VectorWrapper.wrap(pt, m_jobId, true, m_player),
-                BaseBlockWrapper.wrap(block, m_jobId, true, m_player));
+        JobContext context = enterContext();
+        if (context == null) {
+            return super.setBlock(VectorWrapper.wrap(pt, m_jobId, true, m_player),
+                    BaseBlockWrapper.wrap(block, m_jobId, true, m_player));
+        }
+
+        try {
+            return super.setBlock(pt, block);
+        } finally {
+            context.exit();
+        }
     }
 
     @Override
@@ -269,7 +339,16 @@ public class CancelabeEditSession extends EditSessionStub implements ICancelabeE
             throw new IllegalArgumentException(new SessionCanceled());
         }
 
-        return super.setBlock(VectorWrapper.wrap(pt, m_jobId, true, m_player), pat);
+        JobContext context = enterContext();
+        if (context == null) {
+            return super.setBlock(VectorWrapper.wrap(pt, m_jobId, true, m_player), pat);
+        }
+
+        try {
+            return super.setBlock(pt, pat);
+        } finally {
+            context.exit();
+        }
     }
 
     @Override
@@ -289,8 +368,17 @@ public class CancelabeEditSession extends EditSessionStub implements ICancelabeE
             throw new IllegalArgumentException(new SessionCanceled());
         }
 
-        return super.setBlockIfAir(VectorWrapper.wrap(pt, m_jobId, true, m_player),
-                BaseBlockWrapper.wrap(block, m_jobId, true, m_player));
+        JobContext context = enterContext();
+        if (context == null) {
+            return super.setBlockIfAir(VectorWrapper.wrap(pt, m_jobId, true, m_player),
+                    BaseBlockWrapper.wrap(block, m_jobId, true, m_player));
+        }
+
+        try {
+            return super.setBlockIfAir(pt, block);
+        } finally {
+            context.exit();
+        }
     }
 
     @Override
@@ -299,8 +387,17 @@ public class CancelabeEditSession extends EditSessionStub implements ICancelabeE
         if (m_cWorld.isCanceled()) {
             throw new IllegalArgumentException(new SessionCanceled());
         }
-        return super.setChanceBlockIfAir(VectorWrapper.wrap(pos, m_jobId, true, m_player),
-                BaseBlockWrapper.wrap(block, m_jobId, true, m_player), c);
+        JobContext context = enterContext();
+        if (context == null) {
+            return super.setChanceBlockIfAir(VectorWrapper.wrap(pos, m_jobId, true, m_player),
+                    BaseBlockWrapper.wrap(block, m_jobId, true, m_player), c);
+        }
+
+        try {
+            return super.setChanceBlockIfAir(pos, block, c);
+        } finally {
+            context.exit();
+        }
     }
 
     @Override
@@ -329,8 +426,17 @@ public class CancelabeEditSession extends EditSessionStub implements ICancelabeE
         if (m_cWorld.isCanceled()) {
             throw new IllegalArgumentException(new SessionCanceled());
         }
-        return super.smartSetBlock(VectorWrapper.wrap(pt, m_jobId, true, m_player),
-                BaseBlockWrapper.wrap(block, m_jobId, true, m_player));
+        JobContext context = enterContext();
+        if (context == null) {
+            return super.smartSetBlock(VectorWrapper.wrap(pt, m_jobId, true, m_player),
+                    BaseBlockWrapper.wrap(block, m_jobId, true, m_player));
+        }
+
+        try {
+            return super.smartSetBlock(pt, block);
+        } finally {
+            context.exit();
+        }
     }
 
     @Override
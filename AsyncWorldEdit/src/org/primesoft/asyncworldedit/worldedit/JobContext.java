@@ -0,0 +1,187 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.worldedit;
+
+import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+
+/**
+ * Per thread job context. Used to pass the job ID, async mode and player
+ * from the edit session to the async world without wrapping each block and
+ * vector. The context is a stack so nested edit session calls restore the
+ * outer context on exit.
+ *
+ * @author SBPrime
+ */
+public final class JobContext {
+
+    /**
+     * Initial stack size
+     */
+    private final static int INITIAL_SIZE = 4;
+
+    /**
+     * The thread contexts
+     */
+    private final static ThreadLocal<JobContext> s_context = new ThreadLocal<JobContext>() {
+        @Override
+        protected JobContext initialValue() {
+            return new JobContext();
+        }
+    };
+
+    /**
+     * Enter a new job context on the current thread
+     *
+     * @param jobId
+     * @param isAsync
+     * @param player
+     * @return the thread context, call exit when done
+     */
+    public static JobContext enter(int jobId, boolean isAsync, IPlayerEntry player) {
+        JobContext context = s_context.get();
+        context.push(jobId, isAsync, player);
+
+        return context;
+    }
+
+    /**
+     * Get the current thread job context
+     *
+     * @return the context or null if no context was entered
+     */
+    public static JobContext current() {
+        JobContext context = s_context.get();
+
+        return context.m_depth > 0 ? context : null;
+    }
+
+    /**
+     * The job ID stack
+     */
+    private int[] m_jobIds = new int[INITIAL_SIZE];
+
+    /**
+     * The async mode stack
+     */
+    private boolean[] m_isAsync = new boolean[INITIAL_SIZE];
+
+    /**
+     * The player stack
+     */
+    private IPlayerEntry[] m_players = new IPlayerEntry[INITIAL_SIZE];
+
+    /**
+     * Number of entered contexts
+     */
+    private int m_depth;
+
+    private JobContext() {
+        m_depth = 0;
+    }
+
+    /**
+     * Push new context values
+     *
+     * @param jobId
+     * @param isAsync
+     * @param player
+     */
+    private void push(int jobId, boolean isAsync, IPlayerEntry player) {
+        if (m_depth == m_jobIds.length) {
+            int size = m_depth * 2;
+            int[] jobIds = new int[size];
+            boolean[] isAsyncs = new boolean[size];
+            IPlayerEntry[] players = new IPlayerEntry[size];
+
+            System.arraycopy(m_jobIds, 0, jobIds, 0, m_depth);
+            System.arraycopy(m_isAsync, 0, isAsyncs, 0, m_depth);
+            System.arraycopy(m_players, 0, players, 0, m_depth);
+
+            m_jobIds = jobIds;
+            m_isAsync = isAsyncs;
+            m_players = players;
+        }
+
+        m_jobIds[m_depth] = jobId;
+        m_isAsync[m_depth] = isAsync;
+        m_players[m_depth] = player;
+        m_depth++;
+    }
+
+    /**
+     * Exit the current context
+     */
+    public void exit() {
+        if (m_depth == 0) {
+            return;
+        }
+
+        m_depth--;
+        m_players[m_depth] = null;
+    }
+
+    /**
+     * The job ID
+     *
+     * @return
+     */
+    public int getJobId() {
+        return m_jobIds[m_depth - 1];
+    }
+
+    /**
+     * Is async mode enabled
+     *
+     * @return
+     */
+    public boolean isAsync() {
+        return m_isAsync[m_depth - 1];
+    }
+
+    /**
+     * The player
+     *
+     * @return
+     */
+    public IPlayerEntry getPlayer() {
+        return m_players[m_depth - 1];
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.worldedit;
+
+import com.sk89q.worldedit.MaxChangedBlocksException;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.world.World;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.primesoft.asyncworldedit.workers.RegionExecutor;
+
+/**
+ * Runs a region operation on chunk aligned parts of the region. Each thread
+ * works on its own child edit session, all the child sessions share the job
+ * id and the change set of the operation session.
+ *
+ * @author SBPrime
+ */
+public class ParallelRegionOperation {
+
+    /**
+     * The operation performed on a single region part
+     */
+    public interface IRegionAction {
+
+        /**
+         * Perform the operation
+         *
+         * @param session the child edit session
+         * @param part the region part
+         * @return number of changed blocks
+         * @throws MaxChangedBlocksException
+         */
+        int execute(CancelabeEditSession session, CuboidRegion part) throws MaxChangedBlocksException;
+    }
+
+    /**
+     * Split the cuboid in to full height chunk columns
+     *
+     * @param region
+     * @return
+     */
+    public static List<CuboidRegion> split(CuboidRegion region) {
+        List<CuboidRegion> result = new ArrayList<CuboidRegion>();
+        Vector min = region.getMinimumPoint();
+        Vector max = region.getMaximumPoint();
+
+        addParts(result, region.getWorld(),
+                min.getBlockX(), min.getBlockY(), min.getBlockZ(),
+                max.getBlockX(), max.getBlockY(), max.getBlockZ());
+        return result;
+    }
+
+    /**
+     * Split the cuboid walls (the four sides, full height) in to disjoint
+     * chunk aligned parts
+     *
+     * @param region
+     * @return
+     */
+    public static List<CuboidRegion> splitWalls(CuboidRegion region) {
+        List<CuboidRegion> result = new ArrayList<CuboidRegion>();
+        Vector min = region.getMinimumPoint();
+        Vector max = region.getMaximumPoint();
+
+        addSides(result, region.getWorld(),
+                min.getBlockX(), min.getBlockY(), min.getBlockZ(),
+                max.getBlockX(), max.getBlockY(), max.getBlockZ());
+        return result;
+    }
+
+    /**
+     * Split the cuboid faces (walls, floor and ceiling) in to disjoint chunk
+     * aligned parts
+     *
+     * @param region
+     * @return
+     */
+    public static List<CuboidRegion> splitFaces(CuboidRegion region) {
+        List<CuboidRegion> result = new ArrayList<CuboidRegion>();
+        World world = region.getWorld();
+        Vector min = region.getMinimumPoint();
+        Vector max = region.getMaximumPoint();
+        int x1 = min.getBlockX(), y1 = min.getBlockY(), z1 = min.getBlockZ();
+        int x2 = max.getBlockX(), y2 = max.getBlockY(), z2 = max.getBlockZ();
+
+        addParts(result, world, x1, y1, z1, x2, y1, z2);
+        if (y2 > y1) {
+            addParts(result, world, x1, y2, z1, x2, y2, z2);
+        }
+        addSides(result, world, x1, y1 + 1, z1, x2, y2 - 1, z2);
+        return result;
+    }
+
+    /**
+     * Run the operation on all the region parts
+     *
+     * @param executor the helper threads
+     * @param session the operation session
+     * @param parts the region parts
+     * @param action the operation
+     * @return number of changed blocks
+     * @throws MaxChangedBlocksException
+     */
+    public static int run(RegionExecutor executor, final CancelabeEditSession session,
+            List<CuboidRegion> parts, final IRegionAction action) throws MaxChangedBlocksException {
+        final ConcurrentLinkedQueue<CuboidRegion> queue = new ConcurrentLinkedQueue<CuboidRegion>(parts);
+        final AtomicInteger result = new AtomicInteger(0);
+        final AtomicReference<Exception> error = new AtomicReference<Exception>();
+        final Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                process(session, queue, action, result, error);
+            }
+        };
+
+        List<Helper> helpers = new ArrayList<Helper>();
+        try {
+            for (int i = Math.min(executor.getHelpers(), parts.size() - 1); i > 0; i--) {
+                Helper helper = new Helper(worker);
+                helper.setFuture(executor.submit(helper));
+                helpers.add(helper);
+            }
+        } catch (RejectedExecutionException ex) {
+            //The executor is stopped, the remaining parts are processed here
+        }
+
+        worker.run();
+
+        /*
+         * All the parts are taken. The helpers that did not start yet may
+         * be queued behind other jobs, do not wait for them.
+         */
+        boolean interrupted = false;
+        for (Helper helper : helpers) {
+            if (helper.cancel()) {
+                continue;
+            }
+
+            while (true) {
+                try {
+                    helper.getFuture().get();
+                    break;
+                } catch (InterruptedException ex) {
+                    //Stop the running helpers and wait for their child sessions
+                    if (!interrupted) {
+                        interrupted = true;
+                        session.cancel();
+                    }
+                } catch (ExecutionException ex) {
+                    error.compareAndSet(null, new IllegalStateException(ex.getCause()));
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        Exception ex = error.get();
+        if (ex instanceof MaxChangedBlocksException) {
+            throw (MaxChangedBlocksException) ex;
+        } else if (ex instanceof RuntimeException) {
+            throw (RuntimeException) ex;
+        }
+
+        return result.get();
+    }
+
+    /**
+     * The helper sub task. The helper runs only if it was not canceled before
+     * it started.
+     */
+    private static class Helper implements Runnable {
+
+        /**
+         * The helper did not start yet
+         */
+        private final static int PENDING = 0;
+
+        /**
+         * The helper is running or done
+         */
+        private final static int STARTED = 1;
+
+        /**
+         * The helper was canceled before it started
+         */
+        private final static int CANCELED = 2;
+
+        /**
+         * The helper state
+         */
+        private final AtomicInteger m_state = new AtomicInteger(PENDING);
+
+        /**
+         * The worker
+         */
+        private final Runnable m_worker;
+
+        /**
+         * The helper future
+         */
+        private Future<?> m_future;
+
+        Helper(Runnable worker) {
+            m_worker = worker;
+        }
+
+        void setFuture(Future<?> future) {
+            m_future = future;
+        }
+
+        Future<?> getFuture() {
+            return m_future;
+        }
+
+        /**
+         * Cancel the helper if it did not start yet
+         *
+         * @return true if the helper is canceled and will not run
+         */
+        boolean cancel() {
+            if (!m_state.compareAndSet(PENDING, CANCELED)) {
+                return false;
+            }
+
+            m_future.cancel(false);
+            return true;
+        }
+
+        @Override
+        public void run() {
+            if (m_state.compareAndSet(PENDING, STARTED)) {
+                m_worker.run();
+            }
+        }
+    }
+
+    /**
+     * Process the region parts using a new child session
+     *
+     * @param session
+     * @param queue
+     * @param action
+     * @param result
+     * @param error
+     */
+    private static void process(CancelabeEditSession session, ConcurrentLinkedQueue<CuboidRegion> queue,
+            IRegionAction action, AtomicInteger result, AtomicReference<Exception> error) {
+        CancelabeEditSession child = session.createChild();
+
+        try {
+            CuboidRegion part;
+            while (error.get() == null && !child.isCanceled()
+                    && (part = queue.poll()) != null) {
+                result.addAndGet(action.execute(child, part));
+            }
+        } catch (MaxChangedBlocksException ex) {
+            error.compareAndSet(null, ex);
+        } catch (RuntimeException ex) {
+            error.compareAndSet(null, ex);
+        }
+
+        if (child.isQueueEnabled() && !child.isCanceled()) {
+            try {
+                child.flushQueue();
+            } catch (RuntimeException ex) {
+                error.compareAndSet(null, ex);
+            }
+        }
+    }
+
+    /**
+     * Add the four sides of the cuboid (without overlapping corners)
+     */
+    private static void addSides(List<CuboidRegion> result, World world,
+            int x1, int y1, int z1, int x2, int y2, int z2) {
+        if (y1 > y2) {
+            return;
+        }
+
+        addParts(result, world, x1, y1, z1, x1, y2, z2);
+        if (x2 > x1) {
+            addParts(result, world, x2, y1, z1, x2, y2, z2);
+        }
+        if (x2 - x1 > 1) {
+            addParts(result, world, x1 + 1, y1, z1, x2 - 1, y2, z1);
+            if (z2 > z1) {
+                addParts(result, world, x1 + 1, y1, z2, x2 - 1, y2, z2);
+            }
+        }
+    }
+
+    /**
+     * Add the chunk columns of the cuboid
+     */
+    private static void addParts(List<CuboidRegion> result, World world,
+            int x1, int y1, int z1, int x2, int y2, int z2) {
+        for (int cx = x1 >> 4; cx <= x2 >> 4; cx++) {
+            for (int cz = z1 >> 4; cz <= z2 >> 4; cz++) {
+                Vector pos1 = new Vector(Math.max(x1, cx << 4), y1, Math.max(z1, cz << 4));
+                Vector pos2 = new Vector(Math.min(x2, (cx << 4) + 15), y2, Math.min(z2, (cz << 4) + 15));
+
+                result.add(new CuboidRegion(world, pos1, pos2));
+            }
+        }
+    }
+}
@@ -50,6 +50,7 @@ import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.LazyBlock;
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.entity.Entity;
 import com.sk89q.worldedit.event.extent.EditSessionEvent;
@@ -166,6 +167,11 @@ public class ThreadSafeEditSession extends EditSessionStub implements IThreadSaf
      */
     private final com.sk89q.worldedit.world.World m_world;
 
+    /**
+     * The async world wrapper (used for the cached block reads)
+     */
+    private final AsyncWorld m_asyncWorld;
+
     @Override
     public Object getMutex() {
         return m_mutex;
@@ -213,6 +219,7 @@ public class ThreadSafeEditSession extends EditSessionStub implements IThreadSaf
 
         m_player = player;
         m_world = world;
+        m_asyncWorld = getWorld() instanceof AsyncWorld ? (AsyncWorld) getWorld() : null;
         m_editSessionEvent = event;
         m_eventBus = eventBus;
 
@@ -225,6 +232,8 @@ public class ThreadSafeEditSession extends EditSessionStub implements IThreadSaf
         m_asyncForced = false;
         m_asyncDisabled = false;
         m_jobId = -1;
+
+        injectChangeSet();
     }
 
     private void injectChangeSet() {
@@ -237,30 +246,55 @@ public class ThreadSafeEditSession extends EditSessionStub implements IThreadSaf
             return;
         }
 
-        ChangeSet newChangeSet = new ThreadSafeChangeSet(changeSet);
+        ChangeSet newChangeSet = new ThreadSafeChangeSet(changeSet,
+                m_plugin.getChangesetSerializer(), m_player);
 
         Reflection.set(EditSession.class, this, "changeSet", newChangeSet,
                 "Unable to inject ChangeSet, undo and redo broken.");
         Reflection.set(ChangeSetExtent.class, changesetExtent, "changeSet", newChangeSet,
                 "Unable to inject changeset to extent, undo and redo broken.");
+
+        m_plugin.getChangesetSerializer().closeRemoved(m_player,
+                m_plugin.getWorldEditIntegrator().getHistory(m_player));
+    }
+
+    /**
+     * Enter the job context if the blocks are passed directly to the world.
+     * When the block queue is enabled the blocks are buffered and need to
+     * carry the job parameters in wrappers.
+     *
+     * @param jobId
+     * @param isAsync
+     * @return the entered context or null if wrappers should be used
+     */
+    private JobContext enterContext(int jobId, boolean isAsync) {
+        if (isQueueEnabled()) {
+            return null;
+        }
+
+        return JobContext.enter(jobId, isAsync, m_player);
     }
 
     @Override
     public boolean setBlock(Vector position, BaseBlock block, Stage stage) throws WorldEditException {
-        boolean isAsync = isAsyncEnabled();
-        boolean r = super.setBlock(VectorWrapper.wrap(position, m_jobId, isAsync, m_player),
-                BaseBlockWrapper.wrap(block, m_jobId, isAsync, m_player), stage);
-        if (r) {
-            forceFlush();
-        }
-        return r;
+        return setBlock(m_jobId, position, block, stage);
     }
 
     @Override
     public boolean setBlock(int jobId, Vector position, BaseBlock block, Stage stage) throws WorldEditException {
         boolean isAsync = isAsyncEnabled();
-        boolean r = super.setBlock(VectorWrapper.wrap(position, jobId, isAsync, m_player),
-                BaseBlockWrapper.wrap(block, jobId, isAsync, m_player), stage);
+        JobContext context = enterContext(jobId, isAsync);
+        boolean r;
+        if (context == null) {
+            r = super.setBlock(VectorWrapper.wrap(position, jobId, isAsync, m_player),
+                    BaseBlockWrapper.wrap(block, jobId, isAsync, m_player), stage);
+        } else {
+            try {
+                r = super.setBlock(position, block, stage);
+            } finally {
+                context.exit();
+            }
+        }
         if (r) {
             forceFlush();
         }
@@ -271,15 +305,22 @@ public class ThreadSafeEditSession extends EditSessionStub implements IThreadSaf
     public boolean setBlockIfAir(Vector pt, BaseBlock block, int jobId)
             throws MaxChangedBlocksException {
         boolean isAsync = isAsyncEnabled();
-        return super.setBlockIfAir(VectorWrapper.wrap(pt, jobId, isAsync, m_player),
-                BaseBlockWrapper.wrap(block, jobId, isAsync, m_player));
+        JobContext context = enterContext(jobId, isAsync);
+        if (context == null) {
+            return super.setBlockIfAir(VectorWrapper.wrap(pt, jobId, isAsync, m_player),
+                    BaseBlockWrapper.wrap(block, jobId, isAsync, m_player));
+        }
+
+        try {
+            return super.setBlockIfAir(pt, block);
+        } finally {
+            context.exit();
+        }
     }
 
     @Override
     public boolean setBlockIfAir(Vector position, BaseBlock block) throws MaxChangedBlocksException {
-        boolean isAsync = isAsyncEnabled();
-        return super.setBlockIfAir(VectorWrapper.wrap(position, m_jobId, isAsync, m_player),
-                BaseBlockWrapper.wrap(block, m_jobId, isAsync, m_player));
+        return setBlockIfAir(position, block, m_jobId);
     }
 
     @Override
@@ -287,7 +328,17 @@ public class ThreadSafeEditSession extends EditSessionStub implements IThreadSaf
             throws MaxChangedBlocksException {
         m_jobId = jobId;
         boolean isAsync = isAsyncEnabled();
-        boolean r = super.setBlock(VectorWrapper.wrap(pt, jobId, isAsync, m_player), pat);
+        JobContext context = enterContext(jobId, isAsync);
+        boolean r;
+        if (context == null) {
+            r = super.setBlock(VectorWrapper.wrap(pt, jobId, isAsync, m_player), pat);
+        } else {
+            try {
+                r = super.setBlock(pt, pat);
+            } finally {
+                context.exit();
+            }
+        }
         if (r) {
             forceFlush();
         }
@@ -299,8 +350,18 @@ public class ThreadSafeEditSession extends EditSessionStub implements IThreadSaf
     public boolean setBlock(Vector pt, BaseBlock block, int jobId)
             throws MaxChangedBlocksException {
         boolean isAsync = isAsyncEnabled();
-        boolean r = super.setBlock(VectorWrapper.wrap(pt, jobId, isAsync, m_player),
-                BaseBlockWrapper.wrap(block, jobId, isAsync, m_player));
+        JobContext context = enterContext(jobId, isAsync);
+        boolean r;
+        if (context == null) {
+            r = super.setBlock(VectorWrapper.wrap(pt, jobId, isAsync, m_player),
+                    BaseBlockWrapper.wrap(block, jobId, isAsync, m_player));
+        } else {
+            try {
+                r = super.setBlock(pt, block);
+            } finally {
+                context.exit();
+            }
+        }
         if (r) {
             forceFlush();
         }
@@ -353,19 +414,23 @@ public class ThreadSafeEditSession extends EditSessionStub implements IThreadSaf
     @Override
 
     public boolean setBlock(Vector position, BaseBlock block) throws MaxChangedBlocksException {
-        boolean isAsync = isAsyncEnabled();
-        boolean r = super.setBlock(VectorWrapper.wrap(position, m_jobId, isAsync, m_player),
-                BaseBlockWrapper.wrap(block, m_jobId, isAsync, m_player));
-        if (r) {
-            forceFlush();
-        }
-        return r;
+        return setBlock(position, block, m_jobId);
     }
 
     @Override
     public boolean setBlock(Vector position, Pattern pattern) throws MaxChangedBlocksException {
         boolean isAsync = isAsyncEnabled();
-        boolean r = super.setBlock(VectorWrapper.wrap(position, m_jobId, isAsync, m_player), pattern);
+        JobContext context = enterContext(m_jobId, isAsync);
+        boolean r;
+        if (context == null) {
+            r = super.setBlock(VectorWrapper.wrap(position, m_jobId, isAsync, m_player), pattern);
+        } else {
+            try {
+                r = super.setBlock(position, pattern);
+            } finally {
+                context.exit();
+            }
+        }
 
         if (r) {
             forceFlush();
@@ -385,6 +450,40 @@ public class ThreadSafeEditSession extends EditSessionStub implements IThreadSaf
                 BaseEntityWrapper.wrap(entity, m_jobId, isAsync, m_player));
     }
 
+    /**
+     * Get the combined block id (id << 4 | data) from the world chunk
+     * snapshot cache
+     *
+     * @param position
+     * @return combined id or -1 if the block needs to be read from the world
+     */
+    private int getCachedBlock(Vector position) {
+        final AsyncWorld world = m_asyncWorld;
+        return world != null ? world.getCachedBlock(position) : -1;
+    }
+
+    /**
+     * Start using the world chunk snapshot cache for a running job
+     */
+    @Override
+    public void acquireChunkCache() {
+        final AsyncWorld world = m_asyncWorld;
+        if (world != null) {
+            world.acquireChunkCache();
+        }
+    }
+
+    /**
+     * Stop using the world chunk snapshot cache, the job is done
+     */
+    @Override
+    public void releaseChunkCache() {
+        final AsyncWorld world = m_asyncWorld;
+        if (world != null) {
+            world.releaseChunkCache();
+        }
+    }
+
     @Override
     public BaseBlock getBlock(final Vector position) {
         final ThreadSafeEditSession es = this;
@@ -399,6 +498,11 @@ public class ThreadSafeEditSession extends EditSessionStub implements IThreadSaf
 
     @Override
     public int getBlockData(final Vector position) {
+        final int combinedId = getCachedBlock(position);
+        if (combinedId >= 0) {
+            return combinedId & 0xf;
+        }
+
         final ThreadSafeEditSession es = this;
 
         return m_dispatcher.performSafe(MutexProvider.getMutex(getWorld()), new IFunc<Integer>() {
@@ -411,6 +515,11 @@ public class ThreadSafeEditSession extends EditSessionStub implements IThreadSaf
 
     @Override
     public int getBlockType(final Vector position) {
+        final int combinedId = getCachedBlock(position);
+        if (combinedId >= 0) {
+            return combinedId >> 4;
+        }
+
         final ThreadSafeEditSession es = this;
 
         return m_dispatcher.performSafe(MutexProvider.getMutex(getWorld()), new IFunc<Integer>() {
@@ -423,6 +532,12 @@ public class ThreadSafeEditSession extends EditSessionStub implements IThreadSaf
 
     @Override
     public BaseBlock getLazyBlock(final Vector position) {
+        final int combinedId = getCachedBlock(position);
+        if (combinedId >= 0) {
+            //The NBT data is read using getBlock
+            return new LazyBlock(combinedId >> 4, combinedId & 0xf, this, position);
+        }
+
         final ThreadSafeEditSession es = this;
 
         return m_dispatcher.performSafe(MutexProvider.getMutex(getWorld()), new IFunc<BaseBlock>() {
@@ -44,6 +44,7 @@ import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockType;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.function.mask.Mask;
 import com.sk89q.worldedit.function.operation.Operation;
@@ -55,20 +56,47 @@ import com.sk89q.worldedit.history.change.Change;
 import com.sk89q.worldedit.history.change.EntityCreate;
 import com.sk89q.worldedit.history.change.EntityRemove;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Stack;
 import org.primesoft.asyncworldedit.api.worldedit.IThreadSafeEditSession;
 import org.primesoft.asyncworldedit.utils.InjectionException;
+import org.primesoft.asyncworldedit.utils.LongHashMap;
+import org.primesoft.asyncworldedit.utils.LongIntHashMap;
+import org.primesoft.asyncworldedit.utils.PositionUtils;
 import org.primesoft.asyncworldedit.utils.Reflection;
 
 /**
+ * The undo operation. The block changes are read in batches, each batch is
+ * sent to the edit session (and the block placer) while the next batch is
+ * planned. The batch blocks are placed chunk section by chunk section in
+ * Z-order, blocks that need support (torches, ladders...) are placed after
+ * all the other blocks.
  *
  * @author SBPrime
  */
 public class UndoProcessor implements Operation {
 
+    /**
+     * Maximum number of block changes in a batch
+     */
+    private final static int BATCH_SIZE = 65536;
+
+    /**
+     * Normal blocks
+     */
+    private final static int PLACE_NORMAL = 0;
+
+    /**
+     * Blocks that need to be placed after the normal blocks (attachables)
+     */
+    private final static int PLACE_LAST = 1;
+
+    /**
+     * Blocks that need to be placed at the end (doors, portals...)
+     */
+    private final static int PLACE_FINAL = 2;
+
     public static void processUndo(IThreadSafeEditSession parent,
             EditSession sender,
             EditSession session) {
@@ -77,53 +105,8 @@ public class UndoProcessor implements Operation {
         Mask oldMask = session.getMask();
         session.setMask(sender.getMask());
 
-        final HashMap<Double, HashMap<Double, HashMap<Double, List<BaseBlock>>>> placedBlocks
-                = new HashMap<Double, HashMap<Double, HashMap<Double, List<BaseBlock>>>>();
-        final Stack<Vector> posStack = new Stack<Vector>();
-        final Stack<Change> initialChanges = new Stack<Change>();
-        final Stack<Change> finalChanges = new Stack<Change>(); //This handles mostly entities
-
-        while (changes.hasNext()) {
-            Change change = changes.next();
-
-            if (change instanceof EntityCreate) {
-                initialChanges.add(change);
-            } else if (change instanceof EntityRemove) {
-                finalChanges.add(change);
-            } else if (change instanceof BlockChange) {
-                BlockChange bChange = (BlockChange) change;
-                Vector pos = bChange.getPosition();
-                BaseBlock block = bChange.getPrevious();
-                Double x = pos.getX();
-                Double y = pos.getY();
-                Double z = pos.getZ();
-
-                HashMap<Double, HashMap<Double, List<BaseBlock>>> mapX = placedBlocks.get(x);
-                if (mapX == null) {
-                    mapX = new HashMap<Double, HashMap<Double, List<BaseBlock>>>();
-                    placedBlocks.put(x, mapX);
-                }
-
-                HashMap<Double, List<BaseBlock>> mapY = mapX.get(y);
-                if (mapY == null) {
-                    mapY = new HashMap<Double, List<BaseBlock>>();
-                    mapX.put(y, mapY);
-                }
-
-                List<BaseBlock> list = mapY.get(z);
-                if (list == null) {
-                    list = new ArrayList<BaseBlock>();
-                    mapY.put(z, list);
-                }
-
-                posStack.push(pos);
-                list.add(block);
-            } else {
-                finalChanges.add(change);
-            }
-        }
         try {
-            Operations.completeBlindly(new UndoProcessor(session, initialChanges, finalChanges, posStack, placedBlocks));
+            Operations.completeBlindly(new UndoProcessor(session, changes));
 
         } finally {
             session.flushQueue();
@@ -132,20 +115,11 @@ public class UndoProcessor implements Operation {
     }
 
     private final EditSession m_session;
-    private final Stack<Change> m_initialChanges;
-    private final Stack<Change> m_finalChanges;
-    private final Stack<Vector> m_posStack;
-    private final HashMap<Double, HashMap<Double, HashMap<Double, List<BaseBlock>>>> m_placedBlocks;
-
-    private UndoProcessor(EditSession session,
-            Stack<Change> initialChanges, Stack<Change> finalChanges,
-            Stack<Vector> posStack,
-            HashMap<Double, HashMap<Double, HashMap<Double, List<BaseBlock>>>> placedBlocks) {
+    private final Iterator<Change> m_changes;
+
+    private UndoProcessor(EditSession session, Iterator<Change> changes) {
         m_session = session;
-        m_initialChanges = initialChanges;
-        m_finalChanges = finalChanges;
-        m_posStack = posStack;
-        m_placedBlocks = placedBlocks;
+        m_changes = changes;
     }
 
     @Override
@@ -159,41 +133,311 @@ public class UndoProcessor implements Operation {
         }
         uc.setExtent(bypassHistory);
 
-        for (Change change : m_initialChanges) {
-            change.undo(uc);
-        }
-        while (!m_posStack.empty()) {
-            Vector pos = m_posStack.pop();
-            Double x = pos.getX();
-            Double y = pos.getY();
-            Double z = pos.getZ();
-
-            HashMap<Double, HashMap<Double, List<BaseBlock>>> mapX = m_placedBlocks.get(x);
-            if (mapX == null) {
-                continue;
-            }
-            HashMap<Double, List<BaseBlock>> mapY = mapX.get(y);
-            if (mapY == null) {
-                continue;
-            }
-            List<BaseBlock> list = mapY.get(z);
-            if (list == null) {
-                continue;
-            }
+        final List<Change> finalChanges = new ArrayList<Change>(); //This handles mostly entities
+        final LongHashMap<BaseBlock> deferred = new LongHashMap<BaseBlock>();
+        final UndoBatch batch = new UndoBatch(BATCH_SIZE, deferred);
+
+        while (m_changes.hasNext()) {
+            Change change = m_changes.next();
 
-            for (BaseBlock block : list) {
-                m_session.smartSetBlock(pos, block);
+            if (change instanceof EntityCreate) {
+                change.undo(uc);
+            } else if (change instanceof EntityRemove) {
+                finalChanges.add(change);
+            } else if (change instanceof BlockChange) {
+                BlockChange bChange = (BlockChange) change;
+
+                batch.add(bChange.getPosition(), bChange.getPrevious());
+                if (batch.isFull()) {
+                    batch.place(m_session);
+                }
+            } else {
+                finalChanges.add(change);
             }
-            list.clear();
         }
-        for (Change change : m_finalChanges) {
+
+        batch.place(m_session);
+        placeDeferred(deferred, PLACE_LAST);
+        placeDeferred(deferred, PLACE_FINAL);
+        for (Change change : finalChanges) {
             change.undo(uc);
         }
 
         return null;
     }
 
+    /**
+     * Place the deferred blocks of the placement stage
+     *
+     * @param deferred
+     * @param stage
+     * @throws WorldEditException
+     */
+    private void placeDeferred(LongHashMap<BaseBlock> deferred, int stage) throws WorldEditException {
+        long[] keys = deferred.keys();
+        Arrays.sort(keys);
+
+        for (long key : keys) {
+            BaseBlock block = deferred.get(key);
+            if (getStage(block.getId()) != stage) {
+                continue;
+            }
+
+            m_session.smartSetBlock(new Vector(PositionUtils.unpackX(key),
+                    PositionUtils.unpackY(key), PositionUtils.unpackZ(key)), block);
+        }
+    }
+
     @Override
     public void cancel() {
     }
+
+    /**
+     * Get the block placement stage
+     *
+     * @param id
+     * @return
+     */
+    private static int getStage(int id) {
+        if (BlockType.shouldPlaceFinal(id)) {
+            return PLACE_FINAL;
+        }
+        if (BlockType.shouldPlaceLast(id)) {
+            return PLACE_LAST;
+        }
+
+        return PLACE_NORMAL;
+    }
+
+    /**
+     * Spread the lowest 21 bits of the value (Z-order curve)
+     *
+     * @param v
+     * @return
+     */
+    private static long spreadBits(long v) {
+        v &= 0x1fffffL;
+        v = (v | v << 32) & 0x1f00000000ffffL;
+        v = (v | v << 16) & 0x1f0000ff0000ffL;
+        v = (v | v << 8) & 0x100f00f00f00f00fL;
+        v = (v | v << 4) & 0x10c30c30c30c30c3L;
+        v = (v | v << 2) & 0x1249249249249249L;
+        return v;
+    }
+
+    /**
+     * Batch of undo block changes stored as packed positions and combined
+     * block ids. Only the last (oldest) block for each position is placed.
+     */
+    private static class UndoBatch {
+
+        /**
+         * Number of bits used for the section index in the sort key
+         */
+        private final static int SECTION_BITS = 20;
+
+        /**
+         * The packed block positions
+         */
+        private final long[] m_positions;
+
+        /**
+         * The combined block ids ((id << 4) | data), negative values are
+         * indexes to the NBT blocks (-1 - index)
+         */
+        private final int[] m_blocks;
+
+        /**
+         * Blocks with NBT data
+         */
+        private final List<BaseBlock> m_nbtBlocks;
+
+        /**
+         * The last change index for each position
+         */
+        private final LongIntHashMap m_lastIndex;
+
+        /**
+         * Section index for each section key
+         */
+        private final LongIntHashMap m_sectionIndex;
+
+        /**
+         * The blocks placed after all the batches
+         */
+        private final LongHashMap<BaseBlock> m_deferred;
+
+        /**
+         * Number of changes in the batch
+         */
+        private int m_size;
+
+        UndoBatch(int size, LongHashMap<BaseBlock> deferred) {
+            m_positions = new long[size];
+            m_blocks = new int[size];
+            m_nbtBlocks = new ArrayList<BaseBlock>();
+            m_lastIndex = new LongIntHashMap(size);
+            m_sectionIndex = new LongIntHashMap();
+            m_deferred = deferred;
+            m_size = 0;
+        }
+
+        /**
+         * Is the batch full
+         *
+         * @return
+         */
+        boolean isFull() {
+            return m_size >= m_positions.length;
+        }
+
+        /**
+         * Add block change to the batch
+         *
+         * @param pos
+         * @param block
+         */
+        void add(Vector pos, BaseBlock block) {
+            final long key = PositionUtils.pack(pos.getBlockX(), pos.getBlockY(), pos.getBlockZ());
+            final int idx = m_size++;
+
+            m_positions[idx] = key;
+            if (block.hasNbtData()) {
+                m_blocks[idx] = -1 - m_nbtBlocks.size();
+                m_nbtBlocks.add(block);
+            } else {
+                m_blocks[idx] = (block.getId() << 4) | (block.getData() & 0xf);
+            }
+            m_lastIndex.put(key, idx);
+        }
+
+        /**
+         * Get the block
+         *
+         * @param idx the change index
+         * @return
+         */
+        private BaseBlock getBlock(int idx) {
+            final int id = m_blocks[idx];
+            return id < 0 ? m_nbtBlocks.get(-1 - id) : new BaseBlock(id >> 4, id & 0xf);
+        }
+
+        /**
+         * Get the block type id
+         *
+         * @param idx the change index
+         * @return
+         */
+        private int getBlockId(int idx) {
+            final int id = m_blocks[idx];
+            return id < 0 ? m_nbtBlocks.get(-1 - id).getId() : id >> 4;
+        }
+
+        /**
+         * Place the batch blocks and clear the batch
+         *
+         * @param session
+         * @throws WorldEditException
+         */
+        void place(EditSession session) throws WorldEditException {
+            if (m_size == 0) {
+                return;
+            }
+
+            //Collect the net changes (in the replay order) and their sections
+            final int[] entries = new int[m_lastIndex.size()];
+            final int[] entrySection = new int[entries.length];
+            long[] sections = new long[16];
+            int count = 0;
+            int sectionCount = 0;
+            for (int i = m_size - 1; i >= 0; i--) {
+                final long key = m_positions[i];
+                if (m_lastIndex.get(key, -1) != i) {
+                    continue;
+                }
+
+                final int stage = getStage(getBlockId(i));
+                if (stage != PLACE_NORMAL) {
+                    m_deferred.put(key, getBlock(i));
+                    continue;
+                }
+                m_deferred.remove(key);
+
+                final long sectionKey = PositionUtils.pack(PositionUtils.unpackX(key) >> 4,
+                        PositionUtils.unpackY(key) >> 4, PositionUtils.unpackZ(key) >> 4);
+                int section = m_sectionIndex.get(sectionKey, -1);
+                if (section == -1) {
+                    section = sectionCount++;
+                    m_sectionIndex.put(sectionKey, section);
+                    if (section == sections.length) {
+                        sections = Arrays.copyOf(sections, section * 2);
+                    }
+                    sections[section] = sectionKey;
+                }
+
+                entries[count] = i;
+                entrySection[count] = section;
+                count++;
+            }
+
+            //Order the sections by Z-order
+            final int[] sectionStart = new int[sectionCount + 1];
+            if (sectionCount > 0) {
+                int minX = Integer.MAX_VALUE;
+                int minY = Integer.MAX_VALUE;
+                int minZ = Integer.MAX_VALUE;
+                for (int i = 0; i < sectionCount; i++) {
+                    minX = Math.min(minX, PositionUtils.unpackX(sections[i]));
+                    minY = Math.min(minY, PositionUtils.unpackY(sections[i]));
+                    minZ = Math.min(minZ, PositionUtils.unpackZ(sections[i]));
+                }
+
+                final long[] order = new long[sectionCount];
+                for (int i = 0; i < sectionCount; i++) {
+                    final long x = PositionUtils.unpackX(sections[i]) - minX;
+                    final long y = PositionUtils.unpackY(sections[i]) - minY;
+                    final long z = PositionUtils.unpackZ(sections[i]) - minZ;
+                    final long morton = (spreadBits(x) << 2) | (spreadBits(z) << 1) | spreadBits(y);
+
+                    order[i] = ((morton & ((1L << (63 - SECTION_BITS)) - 1)) << SECTION_BITS) | i;
+                }
+                Arrays.sort(order);
+
+                //Section rank, the first entry of each rank
+                final int[] rank = new int[sectionCount];
+                for (int i = 0; i < sectionCount; i++) {
+                    rank[(int) (order[i] & ((1 << SECTION_BITS) - 1))] = i;
+                }
+                for (int i = 0; i < count; i++) {
+                    final int r = rank[entrySection[i]];
+                    entrySection[i] = r;
+                    sectionStart[r + 1]++;
+                }
+                for (int i = 0; i < sectionCount; i++) {
+                    sectionStart[i + 1] += sectionStart[i];
+                }
+            }
+
+            //Stable counting sort of the entries by section rank
+            final int[] sorted = new int[count];
+            final int[] fill = Arrays.copyOf(sectionStart, sectionCount);
+            for (int i = 0; i < count; i++) {
+                sorted[fill[entrySection[i]]++] = entries[i];
+            }
+
+            for (int i = 0; i < count; i++) {
+                final int idx = sorted[i];
+                final long key = m_positions[idx];
+                final Vector pos = new Vector(PositionUtils.unpackX(key),
+                        PositionUtils.unpackY(key), PositionUtils.unpackZ(key));
+
+                session.smartSetBlock(pos, getBlock(idx));
+            }
+
+            m_size = 0;
+            m_nbtBlocks.clear();
+            m_lastIndex.clear();
+            m_sectionIndex.clear();
+        }
+    }
 }
@@ -40,14 +40,20 @@
  */
 package org.primesoft.asyncworldedit.worldedit;
 
+import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.EditSessionFactory;
+import com.sk89q.worldedit.LocalSession;
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.bukkit.WorldEditPlugin;
 import com.sk89q.worldedit.extension.platform.CommandManager;
 import com.sk89q.worldedit.extension.platform.PlatformManager;
+import com.sk89q.worldedit.history.changeset.ChangeSet;
 import com.sk89q.worldedit.session.SessionManager;
 import com.sk89q.worldedit.util.command.Dispatcher;
 import com.sk89q.worldedit.world.World;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
 import org.bukkit.entity.Player;
 import org.primesoft.asyncworldedit.AsyncWorldEditBukkit;
 import static org.primesoft.asyncworldedit.AsyncWorldEditBukkit.log;
@@ -82,6 +88,11 @@ public class WorldeditIntegrator implements IWorldeditIntegrator {
     private Dispatcher m_oldDispatcher;
     private WorldEditPlugin m_worldEditPlugin;
 
+    /**
+     * Is the player history available in this WorldEdit version
+     */
+    private volatile boolean m_historySupported = true;
+
     /**
      * Create new instance of world edit integration checker and start it
      *
@@ -145,6 +156,49 @@ public class WorldeditIntegrator implements IWorldeditIntegrator {
 
     }
 
+    /**
+     * Get the change sets stored in the player WorldEdit history
+     *
+     * @param player
+     * @return null if the history is not available
+     */
+    public List<ChangeSet> getHistory(IPlayerEntry player) {
+        if (m_worldEdit == null || !m_historySupported) {
+            return null;
+        }
+
+        com.sk89q.worldedit.entity.Player wePlayer = wrapPlayer(player);
+        if (wePlayer == null) {
+            return null;
+        }
+
+        SessionManager sessions = m_worldEdit.getSessionManager();
+        if (!sessions.contains(wePlayer)) {
+            return null;
+        }
+
+        List history = Reflection.get(LocalSession.class, List.class,
+                sessions.get(wePlayer), "history", "Unable to get the player history");
+        if (history == null) {
+            m_historySupported = false;
+            return null;
+        }
+
+        List<ChangeSet> result = new ArrayList<ChangeSet>();
+        try {
+            for (Object editSession : history) {
+                if (editSession instanceof EditSession) {
+                    result.add(((EditSession) editSession).getChangeSet());
+                }
+            }
+        } catch (ConcurrentModificationException ex) {
+            //The history was changed by WorldEdit, try on the next edit session
+            return null;
+        }
+
+        return result;
+    }
+
     @Override
     public World getWorld(IWorld world) {
         if (!(world instanceof BukkitWorld)) {
@@ -0,0 +1,212 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2015, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.worldedit.history.changeset;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.history.change.Change;
+import org.primesoft.asyncworldedit.utils.PositionUtils;
+
+/**
+ * Fixed size segment of the change log. The plain block changes are stored as
+ * packed positions and combined block ids ((id &lt;&lt; 4) | data) in primitive
+ * arrays and materialised to BlockChange when read. The other changes and the
+ * block changes with NBT data are stored as objects, the objects array is
+ * created only when needed.
+ *
+ * @author SBPrime
+ */
+class ChangeSegment {
+
+    /**
+     * The maximum block id that can be stored in the combined id
+     */
+    private static final int MAX_ID = 0xfff;
+
+    /**
+     * The packed block positions
+     */
+    private final long[] m_positions;
+
+    /**
+     * The combined previous block ids
+     */
+    private final char[] m_previous;
+
+    /**
+     * The combined current block ids
+     */
+    private final char[] m_current;
+
+    /**
+     * The changes stored as objects (null until needed)
+     */
+    private volatile Change[] m_changes;
+
+    /**
+     * The slots that failed to store a change (null until needed)
+     */
+    private volatile boolean[] m_skipped;
+
+    ChangeSegment(int size) {
+        m_positions = new long[size];
+        m_previous = new char[size];
+        m_current = new char[size];
+    }
+
+    /**
+     * Store the change
+     *
+     * @param idx
+     * @param change
+     */
+    void set(int idx, Change change) {
+        if (change instanceof BlockChange) {
+            BlockChange blockChange = (BlockChange) change;
+            BaseBlock previous = blockChange.getPrevious();
+            BaseBlock current = blockChange.getCurrent();
+
+            BlockVector position = blockChange.getPosition();
+            int x = position.getBlockX();
+            int y = position.getBlockY();
+            int z = position.getBlockZ();
+            long packed = PositionUtils.pack(x, y, z);
+
+            if (isCompact(previous) && isCompact(current)
+                    && PositionUtils.unpackX(packed) == x
+                    && PositionUtils.unpackY(packed) == y
+                    && PositionUtils.unpackZ(packed) == z) {
+                m_positions[idx] = packed;
+                m_previous[idx] = combine(previous);
+                m_current[idx] = combine(current);
+                return;
+            }
+        }
+
+        Change[] changes = m_changes;
+        if (changes == null) {
+            synchronized (this) {
+                changes = m_changes;
+                if (changes == null) {
+                    changes = new Change[m_positions.length];
+                    m_changes = changes;
+                }
+            }
+        }
+
+        changes[idx] = change;
+    }
+
+    /**
+     * Mark the slot as empty, used when storing the change failed
+     *
+     * @param idx
+     */
+    void skip(int idx) {
+        boolean[] skipped = m_skipped;
+        if (skipped == null) {
+            synchronized (this) {
+                skipped = m_skipped;
+                if (skipped == null) {
+                    skipped = new boolean[m_positions.length];
+                    m_skipped = skipped;
+                }
+            }
+        }
+
+        skipped[idx] = true;
+    }
+
+    /**
+     * Get the change
+     *
+     * @param idx
+     * @return the change or null if the slot is empty
+     */
+    Change get(int idx) {
+        boolean[] skipped = m_skipped;
+        if (skipped != null && skipped[idx]) {
+            return null;
+        }
+
+        Change[] changes = m_changes;
+        if (changes != null && changes[idx] != null) {
+            return changes[idx];
+        }
+
+        long position = m_positions[idx];
+        return new BlockChange(new BlockVector(PositionUtils.unpackX(position),
+                PositionUtils.unpackY(position), PositionUtils.unpackZ(position)),
+                split(m_previous[idx]), split(m_current[idx]));
+    }
+
+    /**
+     * Check if the block can be stored as combined id
+     *
+     * @param block
+     * @return
+     */
+    private static boolean isCompact(BaseBlock block) {
+        return block != null && !block.hasNbtData()
+                && block.getId() >= 0 && block.getId() <= MAX_ID;
+    }
+
+    /**
+     * Get the combined block id
+     *
+     * @param block
+     * @return
+     */
+    private static char combine(BaseBlock block) {
+        return (char) ((block.getId() << 4) | (block.getData() & 0xf));
+    }
+
+    /**
+     * Create the block from the combined id
+     *
+     * @param combined
+     * @return
+     */
+    private static BaseBlock split(char combined) {
+        return new BaseBlock(combined >> 4, combined & 0xf);
+    }
+}
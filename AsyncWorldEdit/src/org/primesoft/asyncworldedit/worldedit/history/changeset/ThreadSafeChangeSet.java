@@ -42,71 +42,508 @@ package org.primesoft.asyncworldedit.worldedit.history.changeset;
 
 import com.sk89q.worldedit.history.change.Change;
 import com.sk89q.worldedit.history.changeset.ChangeSet;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+import org.primesoft.asyncworldedit.changesetSerializer.SerializerManager;
+import org.primesoft.asyncworldedit.configuration.ConfigProvider;
+import org.primesoft.asyncworldedit.utils.ExceptionHelper;
 
 /**
+ * The thread safe change set. The changes are stored in an append only log
+ * made of fixed size segments, the block changes are kept in the compact
+ * form (see {@link ChangeSegment}). Appending a change only reserves a slot
+ * and publishes it in order (a slot that failed to store the change is
+ * published empty and skipped), the iterators work on a snapshot of the
+ * published segments without copying the changes. When the number of changes
+ * kept in memory reaches the configured limit the full segments are written
+ * to the undo file as a compressed segment (on the undo writer thread) and
+ * read back when iterated. The undo file is removed when the change set is
+ * closed, a closed change set has no changes to iterate.
  *
  * @author SBPrime
  */
-public class ThreadSafeChangeSet implements ChangeSet {
+public class ThreadSafeChangeSet implements ChangeSet, Closeable {
 
     /**
-     * The parent change set
+     * The next undo file id
      */
-    private final ChangeSet m_parent;
+    private static final AtomicInteger s_nextId = new AtomicInteger();
 
     /**
-     * The MTA mutex
+     * Number of bits used for the position in segment
+     */
+    private static final int SEGMENT_BITS = 12;
+
+    /**
+     * Number of changes in a segment
+     */
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+
+    /**
+     * The position in segment mask
+     */
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    /**
+     * The mutex used when adding segments and taking the snapshots
      */
     private final Object m_mutex;
 
+    /**
+     * The segments directory (copy on write, spilled segments are null)
+     */
+    private volatile ChangeSegment[] m_directory;
+
+    /**
+     * Number of reserved slots
+     */
+    private final AtomicInteger m_reserved;
+
+    /**
+     * Number of published changes
+     */
+    private final AtomicInteger m_published;
+
+    /**
+     * Is the spill in progress
+     */
+    private final AtomicBoolean m_spilling;
+
+    /**
+     * The undo file manager
+     */
+    private final SerializerManager m_serializer;
+
+    /**
+     * The change set owner
+     */
+    private final IPlayerEntry m_player;
+
+    /**
+     * Number of changes kept in memory before writing them to disk
+     */
+    private final int m_spillSize;
+
+    /**
+     * Offsets of the segments stored in the undo file
+     */
+    private final List<Long> m_diskSegments;
+
+    /**
+     * Number of changes stored in the undo file
+     */
+    private volatile int m_spilled;
+
+    /**
+     * The undo file
+     */
+    private volatile File m_storageFile;
+
+    /**
+     * Is writing the changes to disk enabled
+     */
+    private volatile boolean m_spillEnabled;
+
+    /**
+     * Is the change set closed
+     */
+    private volatile boolean m_closed;
+
     public ThreadSafeChangeSet(ChangeSet changeSet) {
+        this(changeSet, null, null);
+    }
+
+    public ThreadSafeChangeSet(ChangeSet changeSet, SerializerManager serializer, IPlayerEntry player) {
         if (changeSet == null) {
             throw new IllegalArgumentException("Change set is null");
         }
 
-        m_parent = changeSet;
-
         m_mutex = new Object();
+        m_directory = new ChangeSegment[0];
+        m_reserved = new AtomicInteger();
+        m_published = new AtomicInteger();
+        m_spilling = new AtomicBoolean();
+        m_diskSegments = new ArrayList<Long>();
+
+        m_serializer = serializer;
+        m_player = player;
+        m_spillSize = ConfigProvider.getUndoSpillChanges();
+        m_spillEnabled = serializer != null && m_spillSize > 0;
+
+        for (Iterator iterator = changeSet.forwardIterator(); iterator.hasNext();) {
+            add((Change) iterator.next());
+        }
     }
 
     @Override
     public void add(Change change) {
-        synchronized (m_mutex) {
-            m_parent.add(change);
+        int idx = m_reserved.getAndIncrement();
+        ChangeSegment segment = null;
+        boolean stored = false;
+        try {
+            segment = getSegment(idx >>> SEGMENT_BITS);
+            segment.set(idx & SEGMENT_MASK, change);
+            stored = true;
+        } finally {
+            if (!stored && segment != null) {
+                segment.skip(idx & SEGMENT_MASK);
+            }
+
+            while (!m_published.compareAndSet(idx, idx + 1)) {
+                Thread.yield();
+            }
+        }
+
+        if (m_spillEnabled && idx + 1 - m_spilled >= m_spillSize
+                && m_spilling.compareAndSet(false, true)) {
+            try {
+                m_serializer.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        spill();
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                m_spillEnabled = false;
+                m_spilling.set(false);
+            }
         }
     }
 
-    @Override
-    public Iterator<Change> backwardIterator() {
-        List<Change> list = new ArrayList<Change>();
+    /**
+     * Get the segment, the segment is created if needed
+     *
+     * @param segment
+     * @return
+     */
+    private ChangeSegment getSegment(int segment) {
+        ChangeSegment[] directory = m_directory;
+        if (segment < directory.length && directory[segment] != null) {
+            return directory[segment];
+        }
+
         synchronized (m_mutex) {
-            for (Iterator iterator = m_parent.backwardIterator(); iterator.hasNext();) {
-                list.add((Change) iterator.next());
+            directory = m_directory;
+            if (segment < directory.length && directory[segment] != null) {
+                return directory[segment];
             }
+
+            ChangeSegment[] newDirectory;
+            if (segment < directory.length) {
+                newDirectory = directory.clone();
+            } else {
+                newDirectory = new ChangeSegment[Math.max(segment + 1, directory.length * 2)];
+                System.arraycopy(directory, 0, newDirectory, 0, directory.length);
+            }
+
+            newDirectory[segment] = new ChangeSegment(SEGMENT_SIZE);
+            m_directory = newDirectory;
+            return newDirectory[segment];
+        }
+    }
+
+    /**
+     * Write the full in memory segments to the undo file, the spilling flag
+     * needs to be set by the caller
+     */
+    private void spill() {
+        try {
+            int from = m_spilled;
+            int to = m_published.get() & ~SEGMENT_MASK;
+            if (to <= from) {
+                return;
+            }
+
+            ChangeSegment[] directory = m_directory;
+            List<Change> changes = new ArrayList<Change>(to - from);
+            for (int segment = from >>> SEGMENT_BITS; segment < to >>> SEGMENT_BITS; segment++) {
+                ChangeSegment changeSegment = directory[segment];
+                if (changeSegment == null) {
+                    continue;
+                }
+
+                for (int i = 0; i < SEGMENT_SIZE; i++) {
+                    Change change = changeSegment.get(i);
+                    if (change != null) {
+                        changes.add(change);
+                    }
+                }
+            }
+
+            File storageFile = m_storageFile;
+            if (storageFile == null) {
+                storageFile = m_serializer.open(m_player, s_nextId.getAndIncrement());
+                m_serializer.register(m_player, this);
+                m_storageFile = storageFile;
+            }
+            long offset = m_serializer.saveSegment(storageFile, changes);
+
+            synchronized (m_mutex) {
+                if (m_closed) {
+                    m_serializer.unregister(m_player, this);
+                    m_serializer.close(storageFile);
+                    return;
+                }
+
+                ChangeSegment[] newDirectory = m_directory.clone();
+                for (int segment = from >>> SEGMENT_BITS; segment < to >>> SEGMENT_BITS; segment++) {
+                    newDirectory[segment] = null;
+                }
+
+                m_diskSegments.add(offset);
+                m_directory = newDirectory;
+                m_spilled = to;
+            }
+        } catch (IOException ex) {
+            ExceptionHelper.printException(ex, "Unable to store the undo data on disk, keeping it in memory.");
+            m_spillEnabled = false;
+        } finally {
+            m_spilling.set(false);
         }
-        
-        return list.iterator();
+    }
+
+    @Override
+    public Iterator<Change> backwardIterator() {
+        return snapshot(true);
     }
 
     @Override
     public Iterator<Change> forwardIterator() {
-        List<Change> list = new ArrayList<Change>();
+        return snapshot(false);
+    }
+
+    /**
+     * Create the iterator for the currently published changes
+     *
+     * @param backward
+     * @return
+     */
+    private Iterator<Change> snapshot(boolean backward) {
         synchronized (m_mutex) {
-            for (Iterator iterator = m_parent.forwardIterator(); iterator.hasNext();) {
-                list.add((Change) iterator.next());
+            if (m_closed) {
+                return Collections.<Change>emptyList().iterator();
             }
+
+            return new ChangeIterator(m_storageFile, new ArrayList<Long>(m_diskSegments),
+                    m_directory, m_spilled, m_published.get(), backward);
         }
-        
-        return list.iterator();
     }
 
     @Override
     public int size() {
+        return m_published.get();
+    }
+
+    /**
+     * Close the change set and remove the undo file. The in memory changes
+     * are released, a spill that is in progress removes the file when done.
+     */
+    @Override
+    public void close() {
+        File storageFile;
         synchronized (m_mutex) {
-            return m_parent.size();
+            if (m_closed) {
+                return;
+            }
+
+            m_closed = true;
+            m_spillEnabled = false;
+            storageFile = m_storageFile;
+            m_storageFile = null;
+            m_diskSegments.clear();
+            m_directory = new ChangeSegment[0];
+        }
+
+        if (m_serializer != null) {
+            m_serializer.unregister(m_player, this);
+            m_serializer.close(storageFile);
+        }
+    }
+
+    /**
+     * Iterates the undo file segments and the in memory changes, the undo
+     * file segments are loaded when reached.
+     */
+    private class ChangeIterator implements Iterator<Change> {
+
+        /**
+         * The undo file
+         */
+        private final File m_file;
+
+        /**
+         * The undo file segments to iterate
+         */
+        private final List<Long> m_segmentOffsets;
+
+        /**
+         * The in memory segments
+         */
+        private final ChangeSegment[] m_memory;
+
+        /**
+         * The first in memory change
+         */
+        private final int m_memoryStart;
+
+        /**
+         * The end of the in memory changes
+         */
+        private final int m_memoryEnd;
+
+        /**
+         * Iterate from the last change
+         */
+        private final boolean m_backward;
+
+        /**
+         * Number of remaining undo file segments
+         */
+        private int m_segmentsLeft;
+
+        /**
+         * Is the in memory part iterated
+         */
+        private boolean m_memoryDone;
+
+        /**
+         * The current undo file segment (null for the in memory part)
+         */
+        private List<Change> m_current;
+
+        /**
+         * Number of changes left in the current part
+         */
+        private int m_left;
+
+        /**
+         * The next change (null if not read yet)
+         */
+        private Change m_next;
+
+        ChangeIterator(File file, List<Long> segments, ChangeSegment[] memory,
+                int memoryStart, int memoryEnd, boolean backward) {
+            m_file = file;
+            m_segmentOffsets = segments;
+            m_memory = memory;
+            m_memoryStart = memoryStart;
+            m_memoryEnd = memoryEnd;
+            m_backward = backward;
+            m_segmentsLeft = segments.size();
+            m_memoryDone = false;
+            m_current = null;
+            m_left = 0;
+            m_next = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (m_next == null) {
+                if (m_left <= 0) {
+                    if (!nextPart()) {
+                        return false;
+                    }
+                    continue;
+                }
+
+                m_next = read();
+            }
+
+            return true;
+        }
+
+        @Override
+        public Change next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Change result = m_next;
+            m_next = null;
+            return result;
+        }
+
+        /**
+         * Read the next change from the current part
+         *
+         * @return the change or null for an empty slot
+         */
+        private Change read() {
+            m_left--;
+            if (m_current != null) {
+                return m_current.get(m_backward ? m_left : m_current.size() - 1 - m_left);
+            }
+
+            int idx = m_backward ? m_memoryStart + m_left : m_memoryEnd - 1 - m_left;
+            int segment = idx >>> SEGMENT_BITS;
+            if (segment >= m_memory.length || m_memory[segment] == null) {
+                return null;
+            }
+            return m_memory[segment].get(idx & SEGMENT_MASK);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not supported.");
+        }
+
+        /**
+         * Move to the next part (the in memory changes or an undo file
+         * segment)
+         *
+         * @return false if there are no more parts
+         */
+        private boolean nextPart() {
+            if (m_backward && !m_memoryDone) {
+                m_memoryDone = true;
+                m_current = null;
+                m_left = m_memoryEnd - m_memoryStart;
+                return true;
+            }
+
+            if (m_segmentsLeft > 0) {
+                int segment = m_backward ? m_segmentsLeft - 1 : m_segmentOffsets.size() - m_segmentsLeft;
+                m_segmentsLeft--;
+                m_current = loadSegment(m_segmentOffsets.get(segment));
+                m_left = m_current.size();
+                return true;
+            }
+
+            if (!m_memoryDone) {
+                m_memoryDone = true;
+                m_current = null;
+                m_left = m_memoryEnd - m_memoryStart;
+                return true;
+            }
+
+            return false;
+        }
+
+        /**
+         * Load the segment from the undo file
+         *
+         * @param offset
+         * @return
+         */
+        private List<Change> loadSegment(long offset) {
+            List<Change> result = new ArrayList<Change>();
+            try {
+                m_serializer.loadSegment(m_file, offset, result);
+            } catch (IOException ex) {
+                ExceptionHelper.printException(ex, "Unable to load the undo data.");
+            }
+
+            return result;
         }
     }
 }
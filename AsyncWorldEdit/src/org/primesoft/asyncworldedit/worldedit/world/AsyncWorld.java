@@ -48,6 +48,7 @@ import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.blocks.BaseItemStack;
+import com.sk89q.worldedit.blocks.LazyBlock;
 import com.sk89q.worldedit.bukkit.BukkitWorld;
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.entity.Entity;
@@ -61,7 +62,6 @@ import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.biome.BaseBiome;
 import com.sk89q.worldedit.world.registry.WorldData;
 import java.util.List;
-import org.bukkit.scheduler.BukkitScheduler;
 import org.primesoft.asyncworldedit.AsyncWorldEditBukkit;
 import org.primesoft.asyncworldedit.BlocksHubIntegration;
 import org.primesoft.asyncworldedit.api.IWorld;
@@ -70,6 +70,7 @@ import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
 import org.primesoft.asyncworldedit.api.taskdispatcher.ITaskDispatcher;
 import org.primesoft.asyncworldedit.api.utils.IAction;
 import org.primesoft.asyncworldedit.api.utils.IFunc;
+import org.primesoft.asyncworldedit.blockPlacer.BlockPlacer;
 import org.primesoft.asyncworldedit.configuration.ConfigProvider;
 import org.primesoft.asyncworldedit.blockPlacer.entries.JobEntry;
 import org.primesoft.asyncworldedit.blockPlacer.entries.RegenerateEntry;
@@ -80,6 +81,8 @@ import org.primesoft.asyncworldedit.utils.FuncEx;
 import org.primesoft.asyncworldedit.utils.MutexProvider;
 import org.primesoft.asyncworldedit.worldedit.AsyncEditSession;
 import org.primesoft.asyncworldedit.worldedit.CancelabeEditSession;
+import org.primesoft.asyncworldedit.worldedit.IAsyncWrapper;
+import org.primesoft.asyncworldedit.worldedit.JobContext;
 import org.primesoft.asyncworldedit.worldedit.WorldAsyncTask;
 import org.primesoft.asyncworldedit.worldedit.WorldeditOperations;
 import org.primesoft.asyncworldedit.worldedit.entity.EntityLazyWrapper;
@@ -114,11 +117,6 @@ public class AsyncWorld extends AbstractWorldWrapper {
      */
     private final AsyncWorldEditBukkit m_plugin;
 
-    /**
-     * Bukkit schedule
-     */
-    private final BukkitScheduler m_schedule;
-
     /**
      * The player
      */
@@ -144,12 +142,28 @@ public class AsyncWorld extends AbstractWorldWrapper {
      */
     private final BlocksHubIntegration m_blocksHub;
 
+    /**
+     * The chunk snapshot cache used by async block reads (null if disabled
+     * or no job is running)
+     */
+    private volatile ChunkSnapshotCache m_snapshotCache;
+
+    /**
+     * Number of running jobs using the chunk snapshot cache (guarded by
+     * m_cacheMutex)
+     */
+    private int m_cacheUsers;
+
+    /**
+     * The chunk snapshot cache mutex
+     */
+    private final Object m_cacheMutex = new Object();
+
     public AsyncWorld(World world, IPlayerEntry player) {
         super(world);
 
         m_plugin = (AsyncWorldEditBukkit)AsyncWorldEditBukkit.getInstance();
         m_player = player;
-        m_schedule = m_plugin.getServer().getScheduler();
         m_blockPlacer = m_plugin.getBlockPlacer();
         m_dispatcher = m_plugin.getTaskDispatcher();
         m_blocksHub = m_plugin.getBlocksHub();
@@ -157,6 +171,69 @@ public class AsyncWorld extends AbstractWorldWrapper {
         m_bukkitWorld = m_plugin.getWorld(world.getName());        
     }
 
+    /**
+     * Start using the chunk snapshot cache for a job, the cache is created
+     * for the first running job
+     */
+    public void acquireChunkCache() {
+        synchronized (m_cacheMutex) {
+            m_cacheUsers++;
+            if (m_cacheUsers > 1) {
+                return;
+            }
+
+            int cacheSize = ConfigProvider.getChunkCacheSize();
+            m_snapshotCache = cacheSize > 0 && m_bukkitWorld != null
+                    ? new ChunkSnapshotCache(m_bukkitWorld, m_dispatcher, MutexProvider.getMutex(getWorld()), cacheSize)
+                    : null;
+        }
+    }
+
+    /**
+     * Stop using the chunk snapshot cache for a job, the cache is dropped
+     * when the last running job is done
+     */
+    public void releaseChunkCache() {
+        synchronized (m_cacheMutex) {
+            if (m_cacheUsers <= 0) {
+                return;
+            }
+
+            m_cacheUsers--;
+            if (m_cacheUsers == 0) {
+                m_snapshotCache = null;
+            }
+        }
+    }
+
+    /**
+     * Get the combined block id (id << 4 | data) from the chunk snapshot
+     * cache, the cache is used only by the async reads
+     *
+     * @param vector
+     * @return combined id or -1 if the block needs to be read from the world
+     */
+    public int getCachedBlock(Vector vector) {
+        final ChunkSnapshotCache cache = m_snapshotCache;
+        if (cache == null || m_dispatcher.isMainTask()) {
+            return -1;
+        }
+
+        return cache.getCombinedId(vector);
+    }
+
+    /**
+     * Mark the block as modified in the chunk snapshot cache
+     *
+     * @param vector
+     */
+    private void invalidate(Vector vector) {
+        final ChunkSnapshotCache cache = m_snapshotCache;
+        if (cache != null) {
+            cache.invalidate(vector);
+        }
+    }
+
     @Override
     public String getName() {
         return m_dispatcher.performSafe(MutexProvider.getMutex(getWorld()), new IFunc<String>() {
@@ -209,6 +286,11 @@ public class AsyncWorld extends AbstractWorldWrapper {
 
     @Override
     public int getBlockType(final Vector vector) {
+        final int combinedId = getCachedBlock(vector);
+        if (combinedId >= 0) {
+            return combinedId >> 4;
+        }
+
         return m_dispatcher.performSafe(MutexProvider.getMutex(getWorld()), new IFunc<Integer>() {
             @Override
             public Integer execute() {
@@ -219,6 +301,11 @@ public class AsyncWorld extends AbstractWorldWrapper {
 
     @Override
     public int getBlockData(final Vector vector) {
+        final int combinedId = getCachedBlock(vector);
+        if (combinedId >= 0) {
+            return combinedId & 0xf;
+        }
+
         return m_dispatcher.performSafe(MutexProvider.getMutex(getWorld()), new IFunc<Integer>() {
 
             @Override
@@ -248,44 +335,88 @@ public class AsyncWorld extends AbstractWorldWrapper {
         return result;
     }
 
+    /**
+     * Decide on the player UUID
+     *
+     * @param player the job context player
+     * @return
+     */
+    private IPlayerEntry getPlayer(IPlayerEntry player) {
+        if (player != null && player.isPlayer()) {
+            return player;
+        }
+
+        return m_player;
+    }
+
     @Override
     public boolean setBlock(Vector vector, BaseBlock bb, final boolean bln) throws WorldEditException {
-        final DataAsyncParams<BaseBlock> paramBlock = DataAsyncParams.extract(bb);
-        final DataAsyncParams<Vector> paramVector = DataAsyncParams.extract(vector);
+        return doSetBlock(vector, bb, bln);
+    }
 
-        final BaseBlock newBlock = paramBlock.getData();
-        final Vector v = paramVector.getData();
-        final IPlayerEntry player = getPlayer(paramBlock, paramVector);
+    /**
+     * Set the block. The job parameters are taken from the current thread job
+     * context, or from the wrapped parameters if provided.
+     *
+     * @param vector
+     * @param bb
+     * @param bln
+     * @return
+     * @throws WorldEditException
+     */
+    private boolean doSetBlock(Vector vector, BaseBlock bb, final boolean bln) throws WorldEditException {
+        final BaseBlock newBlock;
+        final Vector v;
+        final IPlayerEntry player;
+        final boolean isAsync;
+        final int jobId;
+
+        JobContext context = null;
+        if (!(vector instanceof IAsyncWrapper) && !(bb instanceof IAsyncWrapper)) {
+            context = JobContext.current();
+        }
+
+        if (context != null) {
+            newBlock = bb;
+            v = vector;
+            player = getPlayer(context.getPlayer());
+            isAsync = context.isAsync();
+            jobId = context.getJobId();
+        } else {
+            final DataAsyncParams<BaseBlock> paramBlock = DataAsyncParams.extract(bb);
+            final DataAsyncParams<Vector> paramVector = DataAsyncParams.extract(vector);
+
+            newBlock = paramBlock.getData();
+            v = paramVector.getData();
+            player = getPlayer(paramBlock, paramVector);
+            isAsync = paramBlock.isAsync() || paramVector.isAsync();
+            jobId = paramBlock.getJobId();
+        }
 
         if (!m_blocksHub.canPlace(player, m_bukkitWorld, v)) {
             return false;
         }
+        invalidate(v);
 
-        FuncEx<Boolean, WorldEditException> func = new FuncEx<Boolean, WorldEditException>() {
-
-            @Override
-            public Boolean execute() throws WorldEditException {
-                final BaseBlock oldBlock = m_parent.getBlock(v);
+        if (isAsync || !m_dispatcher.isMainTask()) {
+            if (!newBlock.hasNbtData() && m_blockPlacer instanceof BlockPlacer) {
+                return ((BlockPlacer) m_blockPlacer).addBlock(player, this,
+                        jobId, v, newBlock, bln);
+            }
 
-                if (oldBlock.equals(newBlock) && !oldBlock.hasNbtData() && !newBlock.hasNbtData()) {
-                    return false;
-                }
+            FuncEx<Boolean, WorldEditException> func = new FuncEx<Boolean, WorldEditException>() {
 
-                final boolean result = m_parent.setBlock(v, newBlock, bln);
-                if (result) {
-                    logBlock(v, player, oldBlock, newBlock);
+                @Override
+                public Boolean execute() throws WorldEditException {
+                    return placeBlock(v, newBlock, bln, player);
                 }
+            };
 
-                return result;
-            }
-        };
-
-        if (paramBlock.isAsync() || paramVector.isAsync() || !m_dispatcher.isMainTask()) {
             return m_blockPlacer.addTasks(player,
-                    new WorldFuncEntryEx(this, paramBlock.getJobId(), v, func));
+                    new WorldFuncEntryEx(this, jobId, v, func));
         }
 
-        return func.execute();
+        return placeBlock(v, newBlock, bln, player);
     }
 
     @Override
@@ -297,6 +428,7 @@ public class AsyncWorld extends AbstractWorldWrapper {
         if (!m_blocksHub.canPlace(player, m_bukkitWorld, v)) {
             return false;
         }
+        invalidate(v);
 
         IFunc<Boolean> func = new IFunc<Boolean>() {
             @Override
@@ -332,6 +464,7 @@ public class AsyncWorld extends AbstractWorldWrapper {
         if (!m_blocksHub.canPlace(player, m_bukkitWorld, v)) {
             return;
         }
+        invalidate(v);
 
         IFunc<Boolean> func = new IFunc<Boolean>() {
             @Override
@@ -364,6 +497,7 @@ public class AsyncWorld extends AbstractWorldWrapper {
         if (!m_blocksHub.canPlace(player, m_bukkitWorld, v)) {
             return false;
         }
+        invalidate(v);
 
         IFunc<Boolean> func = new IFunc<Boolean>() {
             @Override
@@ -571,6 +705,7 @@ public class AsyncWorld extends AbstractWorldWrapper {
         if (!m_blocksHub.canPlace(player, m_bukkitWorld, v)) {
             return;
         }
+        invalidate(v);
 
         IAction func = new IAction() {
             @Override
@@ -610,6 +745,11 @@ public class AsyncWorld extends AbstractWorldWrapper {
 
     @Override
     public boolean regenerate(final Region region, final EditSession editSession) {
+        final ChunkSnapshotCache cache = m_snapshotCache;
+        if (cache != null) {
+            cache.clear();
+        }
+
         boolean isAsync = checkAsync(WorldeditOperations.regenerate);
         if (!isAsync) {
             return m_parent.regenerate(region, editSession);
@@ -631,7 +771,7 @@ public class AsyncWorld extends AbstractWorldWrapper {
         m_blockPlacer.addJob(m_player, job);
 
         final int maxY = getMaxY();
-        m_schedule.runTaskAsynchronously(m_plugin, new WorldAsyncTask(m_bukkitWorld, session,
+        m_plugin.getWorkerPool().submit(new WorldAsyncTask(m_bukkitWorld, session,
                 m_player, "regenerate", m_blockPlacer, job) {                    
                     @Override
                     public void task(EditSession editSession, IWorld world) throws MaxChangedBlocksException {
@@ -951,6 +1091,12 @@ public class AsyncWorld extends AbstractWorldWrapper {
 
     @Override
     public BaseBlock getLazyBlock(final Vector vector) {
+        final int combinedId = getCachedBlock(vector);
+        if (combinedId >= 0) {
+            //The NBT data is read using getBlock
+            return new LazyBlock(combinedId >> 4, combinedId & 0xf, this, vector);
+        }
+
         return m_dispatcher.performSafe(MutexProvider.getMutex(getWorld()), new IFunc<BaseBlock>() {
             @Override
             public BaseBlock execute() {
@@ -961,42 +1107,7 @@ public class AsyncWorld extends AbstractWorldWrapper {
 
     @Override
     public boolean setBlock(final Vector vector, final BaseBlock bb) throws WorldEditException {
-        final DataAsyncParams<BaseBlock> paramBlock = DataAsyncParams.extract(bb);
-        final DataAsyncParams<Vector> paramVector = DataAsyncParams.extract(vector);
-
-        final BaseBlock newBlock = paramBlock.getData();
-        final Vector v = paramVector.getData();
-        final IPlayerEntry player = getPlayer(paramBlock, paramVector);
-
-        if (!m_blocksHub.canPlace(player, m_bukkitWorld, v)) {
-            return false;
-        }
-
-        FuncEx<Boolean, WorldEditException> func = new FuncEx<Boolean, WorldEditException>() {
-
-            @Override
-            public Boolean execute() throws WorldEditException {
-                final BaseBlock oldBlock = m_parent.getBlock(vector);
-
-                if (oldBlock.equals(newBlock) && !oldBlock.hasNbtData() && !newBlock.hasNbtData()) {
-                    return false;
-                }
-
-                final boolean result = m_parent.setBlock(vector, newBlock);
-                if (result) {
-                    logBlock(vector, player, oldBlock, newBlock);
-                }
-
-                return result;
-            }
-        };
-
-        if (paramBlock.isAsync() || paramVector.isAsync() || !m_dispatcher.isMainTask()) {
-            return m_blockPlacer.addTasks(player,
-                    new WorldFuncEntryEx(this, paramBlock.getJobId(), v, func));
-        }
-
-        return func.execute();
+        return doSetBlock(vector, bb, true);
     }
 
     @Override
@@ -1009,6 +1120,33 @@ public class AsyncWorld extends AbstractWorldWrapper {
         });
     }
 
+    /**
+     * Place the block in the parent world and log the change. 
+     * This function should by called on the main thread
+     *
+     * @param location block location
+     * @param newBlock the new block
+     * @param applyPhysics apply block physics
+     * @param player the player used for block logging
+     * @return true if the block was changed
+     * @throws WorldEditException
+     */
+    public boolean placeBlock(Vector location, BaseBlock newBlock,
+            boolean applyPhysics, IPlayerEntry player) throws WorldEditException {
+        final BaseBlock oldBlock = m_parent.getBlock(location);
+
+        if (oldBlock.equals(newBlock) && !oldBlock.hasNbtData() && !newBlock.hasNbtData()) {
+            return false;
+        }
+
+        final boolean result = m_parent.setBlock(location, newBlock, applyPhysics);
+        if (result) {
+            logBlock(location, player, oldBlock, newBlock);
+        }
+
+        return result;
+    }
+
     /**
      * Log placed block using blocks hub
      */
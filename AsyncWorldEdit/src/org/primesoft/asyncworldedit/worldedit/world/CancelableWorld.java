@@ -68,6 +68,7 @@ import org.primesoft.asyncworldedit.worldedit.blocks.BaseBlockWrapper;
 import org.primesoft.asyncworldedit.worldedit.BlockVector2DWrapper;
 import org.primesoft.asyncworldedit.worldedit.Vector2DWrapper;
 import org.primesoft.asyncworldedit.worldedit.VectorWrapper;
+import org.primesoft.asyncworldedit.worldedit.JobContext;
 import org.primesoft.asyncworldedit.worldedit.entity.BaseEntityWrapper;
 import org.primesoft.asyncworldedit.worldedit.util.LocationWrapper;
 
@@ -150,8 +151,12 @@ public class CancelableWorld extends AbstractWorldWrapper {
         if (m_isCanceled) {
             throw new IllegalArgumentException(new SessionCanceled());
         }
-        return m_parent.setBlock(VectorWrapper.wrap(vector, m_jobId, true, m_player), 
-                BaseBlockWrapper.wrap(bb, m_jobId, true, m_player), bln);
+        JobContext context = JobContext.enter(m_jobId, true, m_player);
+        try {
+            return m_parent.setBlock(vector, bb, bln);
+        } finally {
+            context.exit();
+        }
     }
 
     @Override
@@ -159,7 +164,12 @@ public class CancelableWorld extends AbstractWorldWrapper {
         if (m_isCanceled) {
             throw new IllegalArgumentException(new SessionCanceled());
         }
-        return m_parent.setBlockType(VectorWrapper.wrap(vector, m_jobId, true, m_player), i);
+        JobContext context = JobContext.enter(m_jobId, true, m_player);
+        try {
+            return m_parent.setBlockType(vector, i);
+        } finally {
+            context.exit();
+        }
     }
 
     @Override
@@ -167,7 +177,12 @@ public class CancelableWorld extends AbstractWorldWrapper {
         if (m_isCanceled) {
             throw new IllegalArgumentException(new SessionCanceled());
         }
-        m_parent.setBlockData(VectorWrapper.wrap(vector, m_jobId, true, m_player), i);
+        JobContext context = JobContext.enter(m_jobId, true, m_player);
+        try {
+            m_parent.setBlockData(vector, i);
+        } finally {
+            context.exit();
+        }
     }
 
     @Override
@@ -175,7 +190,12 @@ public class CancelableWorld extends AbstractWorldWrapper {
         if (m_isCanceled) {
             throw new IllegalArgumentException(new SessionCanceled());
         }
-        return m_parent.setTypeIdAndData(VectorWrapper.wrap(vector, m_jobId, true, m_player), i, i1);
+        JobContext context = JobContext.enter(m_jobId, true, m_player);
+        try {
+            return m_parent.setTypeIdAndData(vector, i, i1);
+        } finally {
+            context.exit();
+        }
     }
 
     @Override
@@ -0,0 +1,295 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2014, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution,
+ * 3. Redistributions of source code, with or without modification, in any form 
+ *    other then free of charge is not allowed,
+ * 4. Redistributions in binary form in any form other then free of charge is 
+ *    not allowed.
+ * 5. Any derived work based on or containing parts of this software must reproduce 
+ *    the above copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided with the 
+ *    derived work.
+ * 6. The original author of the software is allowed to change the license 
+ *    terms or the entire license of the software as he sees fit.
+ * 7. The original author of the software is allowed to sublicense the software 
+ *    or its parts using any license terms he sees fit.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.worldedit.world;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.primesoft.asyncworldedit.api.IWorld;
+import org.primesoft.asyncworldedit.api.taskdispatcher.ITaskDispatcher;
+import org.primesoft.asyncworldedit.api.utils.IFunc;
+import org.primesoft.asyncworldedit.utils.PositionUtils;
+
+/**
+ * Read-through cache of chunk snapshots used by the async block reads.
+ * A whole chunk is captured in one dispatcher call and the following reads
+ * are served from the captured arrays. The blocks written by the owner are
+ * marked as invalid and read from the world. A chunk written while it is
+ * not cached (or evicted with written blocks) is never cached again, so a
+ * snapshot captured before the queued blocks are placed never hides them.
+ * The cache is created for the running job and dropped when it is done.
+ *
+ * @author SBPrime
+ */
+public class ChunkSnapshotCache {
+
+    /**
+     * Cached chunk
+     */
+    private static class ChunkEntry {
+
+        /**
+         * The chunk sections (combined id: id << 4 | data, null for empty
+         * sections), never modified
+         */
+        private final char[][] m_sections;
+
+        /**
+         * The written blocks bitsets (allocated on first write to the section)
+         */
+        private final long[][] m_written;
+
+        /**
+         * Was any block written
+         */
+        private boolean m_isDirty;
+
+        ChunkEntry(char[][] sections) {
+            m_sections = sections;
+            m_written = new long[sections.length][];
+        }
+    }
+
+    /**
+     * The world
+     */
+    private final IWorld m_world;
+
+    /**
+     * The task dispatcher
+     */
+    private final ITaskDispatcher m_dispatcher;
+
+    /**
+     * The world mutex
+     */
+    private final Object m_mutex;
+
+    /**
+     * The cached chunks (LRU order)
+     */
+    private final LinkedHashMap<Long, ChunkEntry> m_chunks;
+
+    /**
+     * The chunks written while not cached, never cached (lock required)
+     */
+    private final HashSet<Long> m_dirty;
+
+    /**
+     * Last used chunk key
+     */
+    private long m_lastKey;
+
+    /**
+     * Last used chunk
+     */
+    private ChunkEntry m_lastChunk;
+
+    /**
+     * Create new chunk snapshot cache
+     *
+     * @param world the world
+     * @param dispatcher the task dispatcher
+     * @param mutex the world mutex
+     * @param maxChunks maximum number of cached chunks
+     */
+    public ChunkSnapshotCache(IWorld world, ITaskDispatcher dispatcher,
+            Object mutex, final int maxChunks) {
+        m_world = world;
+        m_dispatcher = dispatcher;
+        m_mutex = mutex;
+        m_dirty = new HashSet<Long>();
+        m_chunks = new LinkedHashMap<Long, ChunkEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ChunkEntry> eldest) {
+                if (size() <= maxChunks) {
+                    return false;
+                }
+
+                if (eldest.getValue().m_isDirty) {
+                    m_dirty.add(eldest.getKey());
+                }
+                if (eldest.getValue() == m_lastChunk) {
+                    m_lastChunk = null;
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Get the cached chunk (lock required)
+     *
+     * @param key
+     * @return
+     */
+    private ChunkEntry getChunk(long key) {
+        if (m_lastChunk != null && m_lastKey == key) {
+            return m_lastChunk;
+        }
+
+        ChunkEntry result = m_chunks.get(key);
+        if (result != null) {
+            m_lastKey = key;
+            m_lastChunk = result;
+        }
+        return result;
+    }
+
+    /**
+     * Get the combined block id (id << 4 | data)
+     *
+     * @param position the block position
+     * @return combined id or -1 if the block needs to be read from the world
+     */
+    public int getCombinedId(Vector position) {
+        final int x = position.getBlockX();
+        final int y = position.getBlockY();
+        final int z = position.getBlockZ();
+        final int cx = x >> 4;
+        final int cz = z >> 4;
+        final long key = PositionUtils.packChunk(cx, cz);
+
+        ChunkEntry chunk;
+        synchronized (this) {
+            chunk = getChunk(key);
+            if (chunk == null && m_dirty.contains(key)) {
+                return -1;
+            }
+        }
+
+        if (chunk == null) {
+            char[][] sections = m_dispatcher.performSafeChunk(m_mutex, new IFunc<char[][]>() {
+                @Override
+                public char[][] execute() {
+                    return m_world.getChunkBlocks(cx, cz);
+                }
+            }, m_world, new Vector2D(cx, cz));
+
+            if (sections == null) {
+                return -1;
+            }
+
+            synchronized (this) {
+                chunk = getChunk(key);
+                if (chunk == null) {
+                    if (m_dirty.contains(key)) {
+                        //Written during the capture
+                        return -1;
+                    }
+
+                    chunk = new ChunkEntry(sections);
+                    m_chunks.put(key, chunk);
+                    m_lastKey = key;
+                    m_lastChunk = chunk;
+                }
+            }
+        }
+
+        final int sy = y >> 4;
+        if (y < 0 || sy >= chunk.m_sections.length) {
+            return -1;
+        }
+
+        final int idx = (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+        synchronized (this) {
+            long[] written = chunk.m_written[sy];
+            if (written != null && (written[idx >> 6] & (1L << (idx & 63))) != 0) {
+                return -1;
+            }
+        }
+
+        char[] section = chunk.m_sections[sy];
+        return section == null ? 0 : section[idx];
+    }
+
+    /**
+     * Mark the block as written by the owner
+     *
+     * @param position the block position
+     */
+    public void invalidate(Vector position) {
+        final int x = position.getBlockX();
+        final int y = position.getBlockY();
+        final int z = position.getBlockZ();
+        final long key = PositionUtils.packChunk(x >> 4, z >> 4);
+
+        synchronized (this) {
+            ChunkEntry chunk = getChunk(key);
+            if (chunk == null) {
+                m_dirty.add(key);
+                return;
+            }
+
+            final int sy = y >> 4;
+            if (y < 0 || sy >= chunk.m_written.length) {
+                return;
+            }
+
+            long[] written = chunk.m_written[sy];
+            if (written == null) {
+                written = new long[64];
+                chunk.m_written[sy] = written;
+            }
+
+            final int idx = (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+            written[idx >> 6] |= 1L << (idx & 63);
+            chunk.m_isDirty = true;
+        }
+    }
+
+    /**
+     * Remove all cached chunks, the written chunks are not cached again
+     */
+    public void clear() {
+        synchronized (this) {
+            for (Map.Entry<Long, ChunkEntry> entry : m_chunks.entrySet()) {
+                if (entry.getValue().m_isDirty) {
+                    m_dirty.add(entry.getKey());
+                }
+            }
+            m_chunks.clear();
+            m_lastChunk = null;
+        }
+    }
+}
@@ -42,6 +42,7 @@ package org.primesoft.asyncworldedit.worldedit.world;
 
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
 import org.primesoft.asyncworldedit.worldedit.IAsyncWrapper;
+import org.primesoft.asyncworldedit.worldedit.JobContext;
 
 /**
  *
@@ -50,7 +51,8 @@ import org.primesoft.asyncworldedit.worldedit.IAsyncWrapper;
  */
 public class DataAsyncParams<T> extends BaseAsyncParams {
     /**
-     * Extract parameters
+     * Extract parameters, if the data is not wrapped the current thread job
+     * context is used
      * @param <T>
      * @param data
      * @return
@@ -68,6 +70,14 @@ public class DataAsyncParams<T> extends BaseAsyncParams {
             isAsync = wrapper.isAsync();
             player = wrapper.getPlayer();
             empty = false;
+        } else {
+            JobContext context = JobContext.current();
+            if (context != null) {
+                jobId = context.getJobId();
+                isAsync = context.isAsync();
+                player = context.getPlayer();
+                empty = false;
+            }
         }
 
         return new DataAsyncParams(data, isAsync, jobId, empty, player);